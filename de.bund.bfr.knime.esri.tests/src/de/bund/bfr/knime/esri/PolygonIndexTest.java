@@ -0,0 +1,155 @@
+package de.bund.bfr.knime.esri;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Polygon;
+
+/**
+ * Compares the containment tests of the Coordinate Row Filter with
+ * {@link MultiPolygon#contains}, which the filter used before the polygons were
+ * indexed.
+ *
+ * @author Christian Thoens
+ */
+public class PolygonIndexTest {
+
+	private static final GeometryFactory JTS_FACTORY = new GeometryFactory();
+	private static final int GRID_RESOLUTION = 7;
+
+	@Test
+	public void testSharedEdge() {
+		PolygonIndex index = createIndex(EsriUtils.GEO_FACTORY, true);
+
+		// Edge between the squares (0, 1) and (0, 2)
+		assertTrue(index.contains(0.5, 2.0));
+		// Outer boundary of the square (0, 0)
+		assertFalse(index.contains(0.5, 0.0));
+		// Vertex shared by four squares
+		assertFalse(index.contains(2.0, 2.0));
+		assertArrayEquals(new boolean[] { true, false, false },
+				index.contains(new double[] { 0.5, 0.5, 2.0 }, new double[] { 2.0, 0.0, 2.0 }));
+	}
+
+	@Test
+	public void testSameAsMultiPolygon() {
+		testSameAsMultiPolygon(EsriUtils.GEO_FACTORY, true);
+	}
+
+	@Test
+	public void testSameAsMultiPolygonOffHeap() {
+		testSameAsMultiPolygon(new OffHeapGeometryStore().getGeometryFactory(), false);
+	}
+
+	private static void testSameAsMultiPolygon(GeometryFactory factory, boolean indexSegments) {
+		MultiPolygon multiPolygon = JTS_FACTORY.createMultiPolygon(createPolygons(JTS_FACTORY).toArray(new Polygon[0]));
+		PolygonIndex index = createIndex(factory, indexSegments);
+		PolygonGrid grid = new PolygonGrid(index, GRID_RESOLUTION);
+		List<Coordinate> points = createPoints();
+		double[] lat = new double[points.size()];
+		double[] lon = new double[points.size()];
+		boolean[] expected = new boolean[points.size()];
+
+		for (int i = 0; i < points.size(); i++) {
+			lat[i] = points.get(i).x;
+			lon[i] = points.get(i).y;
+			expected[i] = multiPolygon.contains(JTS_FACTORY.createPoint(points.get(i)));
+		}
+
+		boolean[] batch = index.contains(lat, lon);
+
+		for (int i = 0; i < points.size(); i++) {
+			String message = lat[i] + ", " + lon[i];
+
+			assertEquals(message, expected[i], index.contains(lat[i], lon[i]));
+			assertEquals(message, expected[i], batch[i]);
+			assertEquals(message, expected[i], grid.contains(points.get(i), EsriStatistics.DISABLED));
+		}
+	}
+
+	private static PolygonIndex createIndex(GeometryFactory factory, boolean indexSegments) {
+		List<Polygon> polygons = createPolygons(factory);
+		List<String> keys = new ArrayList<>();
+
+		for (int i = 0; i < polygons.size(); i++) {
+			keys.add("Row" + i);
+		}
+
+		return new PolygonIndex(keys, polygons, indexSegments);
+	}
+
+	/**
+	 * @return 4 x 4 adjacent squares, of which the squares on the diagonal are
+	 *         split into two triangles and one has a hole, that is filled by
+	 *         another polygon. Two more polygons meet in a T-junction.
+	 */
+	private static List<Polygon> createPolygons(GeometryFactory factory) {
+		List<Polygon> polygons = new ArrayList<>();
+
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 4; j++) {
+				if (i == j) {
+					polygons.add(createPolygon(factory, i, j, i + 1, j, i + 1, j + 1, i, j));
+					polygons.add(createPolygon(factory, i, j, i + 1, j + 1, i, j + 1, i, j));
+				} else if (i == 2 && j == 0) {
+					LinearRing shell = createPolygon(factory, i, j, i + 1, j, i + 1, j + 1, i, j + 1, i, j)
+							.getExteriorRing();
+					Polygon hole = createPolygon(factory, i + 0.25, j + 0.25, i + 0.75, j + 0.25, i + 0.75,
+							j + 0.75, i + 0.25, j + 0.75, i + 0.25, j + 0.25);
+
+					polygons.add(factory.createPolygon(shell, new LinearRing[] { hole.getExteriorRing() }));
+					polygons.add(hole);
+				} else {
+					polygons.add(createPolygon(factory, i, j, i + 1, j, i + 1, j + 1, i, j + 1, i, j));
+				}
+			}
+		}
+
+		polygons.add(createPolygon(factory, -2, 0, -1, 0, -1, 1, -2, 1, -2, 0));
+		polygons.add(createPolygon(factory, -2, 1, -1.5, 1, -1, 1, -1, 2, -2, 2, -2, 1));
+
+		return polygons;
+	}
+
+	private static Polygon createPolygon(GeometryFactory factory, double... xy) {
+		Coordinate[] coordinates = new Coordinate[xy.length / 2];
+
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = new Coordinate(xy[2 * i], xy[2 * i + 1]);
+		}
+
+		return factory.createPolygon(coordinates);
+	}
+
+	/**
+	 * @return all vertices, edge points and cell centres of a grid with spacing
+	 *         0.25 and random points
+	 */
+	private static List<Coordinate> createPoints() {
+		List<Coordinate> points = new ArrayList<>();
+		Random random = new Random(1);
+
+		for (int i = 0; i <= 28; i++) {
+			for (int j = 0; j <= 24; j++) {
+				points.add(new Coordinate(-2.5 + 0.25 * i, -0.5 + 0.25 * j));
+			}
+		}
+
+		for (int i = 0; i < 10000; i++) {
+			points.add(new Coordinate(-2.5 + 7.0 * random.nextDouble(), -0.5 + 6.0 * random.nextDouble()));
+		}
+
+		return points;
+	}
+}
@@ -0,0 +1,246 @@
+package de.bund.bfr.knime.esri;
+
+import java.util.Arrays;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Hierarchical grid cells, into which coordinates are encoded as numeric cell
+ * IDs. The ID of a cell at a resolution consists of the bits of all its parent
+ * cells followed by its own bits, so the ID of the parent is obtained by a
+ * right shift and all cells with a common parent form a contiguous range of
+ * IDs. Each bit halves the cell in one axis, the axes alternate from bit to
+ * bit. The numeric IDs are computed by quantizing the coordinate and
+ * interleaving the bits without creating any objects. The string form uses one
+ * character per resolution level.
+ *
+ * @author Christian Thoens
+ */
+public enum CellEncoding {
+
+	/**
+	 * Geohash with 5 bits (one base 32 character) per level, starting with a
+	 * longitude bit. Cells are rectangles in latitude/longitude.
+	 */
+	GEOHASH("Geohash", 5, 12, "0123456789bcdefghjkmnpqrstuvwxyz"),
+
+	/**
+	 * Quadkey of the Web Mercator tiles with 2 bits (one digit 0-3) per level,
+	 * starting with a latitude bit. The resolution is the zoom level. Cells are
+	 * squares in Web Mercator and only cover the latitudes up to +/-85.05.
+	 */
+	QUADKEY("Quadkey", 2, 30, "0123");
+
+	public static final ImmutableList<String> NAMES = ImmutableList
+			.copyOf(Arrays.stream(values()).map(CellEncoding::toString).iterator());
+
+	private static final double MAX_MERCATOR_LATITUDE = 85.05112877980659;
+
+	private final String name;
+	private final int bitsPerLevel;
+	private final int maxResolution;
+	private final String alphabet;
+
+	private CellEncoding(String name, int bitsPerLevel, int maxResolution, String alphabet) {
+		this.name = name;
+		this.bitsPerLevel = bitsPerLevel;
+		this.maxResolution = maxResolution;
+		this.alphabet = alphabet;
+	}
+
+	public static CellEncoding fromName(String name) {
+		for (CellEncoding encoding : values()) {
+			if (encoding.name.equals(name)) {
+				return encoding;
+			}
+		}
+
+		return GEOHASH;
+	}
+
+	public int getMaxResolution() {
+		return maxResolution;
+	}
+
+	/**
+	 * @return the ID of the cell containing the coordinate. Coordinates outside
+	 *         the grid are moved to the nearest cell.
+	 */
+	public long encode(double lat, double lon, int resolution) {
+		int bits = bitsPerLevel * resolution;
+
+		if (this == GEOHASH) {
+			long x = quantize((lon + 180.0) / 360.0, (bits + 1) / 2);
+			long y = quantize((lat + 90.0) / 180.0, bits / 2);
+
+			// The first (most significant) bit is a longitude bit
+			return bits % 2 == 0 ? spread(x) << 1 | spread(y) : spread(x) | spread(y) << 1;
+		}
+
+		double sin = Math.sin(Math.toRadians(Math.max(Math.min(lat, MAX_MERCATOR_LATITUDE), -MAX_MERCATOR_LATITUDE)));
+		long x = quantize((lon + 180.0) / 360.0, resolution);
+		long y = quantize(0.5 - Math.log((1.0 + sin) / (1.0 - sin)) / (4.0 * Math.PI), resolution);
+
+		return spread(y) << 1 | spread(x);
+	}
+
+	/**
+	 * @return the string form of a cell ID, e.g. "u33dc0" for a Geohash
+	 */
+	public String toString(long cell, int resolution) {
+		char[] chars = new char[resolution];
+		long mask = (1L << bitsPerLevel) - 1;
+
+		for (int i = 0; i < resolution; i++) {
+			chars[i] = alphabet.charAt((int) (cell >>> (bitsPerLevel * (resolution - 1 - i)) & mask));
+		}
+
+		return new String(chars);
+	}
+
+	/**
+	 * @return the bounds of the cell with the given number of bits (which may
+	 *         be a part of a level) with latitude as x and longitude as y
+	 */
+	public Envelope getBounds(long cell, int bits) {
+		double minX = 0.0;
+		double maxX = 1.0;
+		double minY = 0.0;
+		double maxY = 1.0;
+
+		for (int k = 0; k < bits; k++) {
+			boolean upper = (cell >>> (bits - 1 - k) & 1L) != 0;
+			boolean isLongitudeBit = this == GEOHASH ? k % 2 == 0 : k % 2 == 1;
+
+			if (isLongitudeBit) {
+				double mid = (minX + maxX) / 2.0;
+
+				minX = upper ? mid : minX;
+				maxX = upper ? maxX : mid;
+			} else {
+				double mid = (minY + maxY) / 2.0;
+
+				minY = upper ? mid : minY;
+				maxY = upper ? maxY : mid;
+			}
+		}
+
+		double minLon = 360.0 * minX - 180.0;
+		double maxLon = 360.0 * maxX - 180.0;
+
+		if (this == GEOHASH) {
+			return new Envelope(180.0 * minY - 90.0, 180.0 * maxY - 90.0, minLon, maxLon);
+		}
+
+		// Mercator y grows from north to south
+		return new Envelope(getMercatorLatitude(maxY), getMercatorLatitude(minY), minLon, maxLon);
+	}
+
+	/**
+	 * Finds all cells of the resolution, that intersect the geometry. Starting
+	 * with the whole grid, cells are split bit by bit as long as they intersect
+	 * the boundary of the geometry. Cells within the geometry are added with all
+	 * their descendants without further tests.
+	 *
+	 * @return the IDs of the cells in ascending order or null, if there are more
+	 *         than {@code maxCells} cells
+	 */
+	public long[] cover(Geometry geometry, int resolution, int maxCells) {
+		Covering covering = new Covering(geometry, bitsPerLevel * resolution, maxCells);
+
+		return covering.cover(0L, 0) ? Arrays.copyOf(covering.cells, covering.size) : null;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	private static long quantize(double fraction, int bits) {
+		long n = 1L << bits;
+
+		return Math.max(Math.min((long) Math.floor(fraction * n), n - 1), 0L);
+	}
+
+	/**
+	 * @return the lower 32 bits of {@code v} moved to the even bit positions
+	 */
+	private static long spread(long v) {
+		v &= 0x00000000FFFFFFFFL;
+		v = (v | v << 16) & 0x0000FFFF0000FFFFL;
+		v = (v | v << 8) & 0x00FF00FF00FF00FFL;
+		v = (v | v << 4) & 0x0F0F0F0F0F0F0F0FL;
+		v = (v | v << 2) & 0x3333333333333333L;
+		v = (v | v << 1) & 0x5555555555555555L;
+
+		return v;
+	}
+
+	private static double getMercatorLatitude(double y) {
+		return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1.0 - 2.0 * y))));
+	}
+
+	private class Covering {
+
+		private final Envelope envelope;
+		private final PreparedGeometry prepared;
+		private final int bits;
+		private final int maxCells;
+
+		private long[] cells;
+		private int size;
+
+		public Covering(Geometry geometry, int bits, int maxCells) {
+			envelope = geometry.getEnvelopeInternal();
+			prepared = PreparedGeometryFactory.prepare(geometry);
+			this.bits = bits;
+			this.maxCells = maxCells;
+			cells = new long[16];
+			size = 0;
+		}
+
+		/**
+		 * @return false, if the maximum number of cells is exceeded
+		 */
+		public boolean cover(long cell, int depth) {
+			Envelope bounds = getBounds(cell, depth);
+
+			if (!envelope.intersects(bounds)) {
+				return true;
+			}
+
+			Geometry rectangle = EsriUtils.GEO_FACTORY.toGeometry(bounds);
+
+			if (depth == bits) {
+				return !prepared.intersects(rectangle) || add(cell, 1L);
+			} else if (prepared.contains(rectangle)) {
+				return add(cell << (bits - depth), 1L << (bits - depth));
+			} else if (!prepared.intersects(rectangle)) {
+				return true;
+			}
+
+			return cover(cell << 1, depth + 1) && cover(cell << 1 | 1L, depth + 1);
+		}
+
+		private boolean add(long first, long count) {
+			if (size + count > maxCells) {
+				return false;
+			}
+
+			if (size + count > cells.length) {
+				cells = Arrays.copyOf(cells, (int) Math.max(2L * cells.length, size + count));
+			}
+
+			for (long i = 0; i < count; i++) {
+				cells[size++] = first + i;
+			}
+
+			return true;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package de.bund.bfr.knime.esri;
+
+import java.util.Arrays;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Describes how the rows of a polygon table reference the rows of the related
+ * coordinate table.
+ *
+ * @author Christian Thoens
+ */
+public enum CoordinateReference {
+
+	/**
+	 * Each polygon has a list cell with the row IDs of its coordinates.
+	 */
+	ROW_ID_LIST("Row ID List"),
+
+	/**
+	 * Each polygon has the index of its first coordinate row and the number of
+	 * its coordinates. Only valid as long as the coordinate table is not
+	 * filtered, sorted or concatenated.
+	 */
+	COORDINATE_RANGE("Coordinate Range");
+
+	public static final ImmutableList<String> NAMES = ImmutableList
+			.copyOf(Arrays.stream(values()).map(CoordinateReference::toString).iterator());
+
+	private final String name;
+
+	private CoordinateReference(String name) {
+		this.name = name;
+	}
+
+	public static CoordinateReference fromName(String name) {
+		for (CoordinateReference reference : values()) {
+			if (reference.name.equals(name)) {
+				return reference;
+			}
+		}
+
+		return ROW_ID_LIST;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
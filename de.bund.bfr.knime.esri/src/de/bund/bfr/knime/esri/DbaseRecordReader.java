@@ -0,0 +1,482 @@
+package de.bund.bfr.knime.esri;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.UnaryOperator;
+
+import org.geotools.data.Query;
+import org.geotools.data.shapefile.dbf.DbaseFileHeader;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.Filter;
+
+/**
+ * Decodes the attributes of a shapefile directly from its memory mapped dbf
+ * file. The fixed-width records are split into batches, which are decoded in
+ * parallel and handed out in file order, so that the records stay aligned with
+ * the features read by GeoTools. Records marked as deleted are skipped, as
+ * GeoTools does. Character fields of single byte charsets (and
+ * of UTF-8 fields without non-ASCII bytes) are converted without a
+ * {@link java.nio.charset.CharsetDecoder} and numeric fields are parsed
+ * directly from the bytes. Values that the fast paths cannot handle are parsed
+ * exactly like {@link org.geotools.data.shapefile.dbf.DbaseFileReader} does,
+ * so that the cells are the same as with the features of GeoTools.
+ * <p>
+ * Date fields and fields of other types are not decoded here. They are listed
+ * in {@link #createQuery()} and are still read by GeoTools.
+ *
+ * @author Christian Thoens
+ */
+public class DbaseRecordReader implements Closeable {
+
+	private static final int BATCH_SIZE = 4096;
+	private static final int MAX_FAST_INT_DIGITS = 9;
+	private static final int MAX_FAST_LONG_DIGITS = 18;
+	private static final int MAX_FAST_DOUBLE_DIGITS = 15;
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private final SimpleFeatureType type;
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	private final int recordsPerSegment;
+	private final int recordLength;
+	private final int numRecords;
+	private final int[] liveRecords;
+	private final Charset charset;
+	private final boolean oneBytePerChar;
+	private final boolean asciiCompatible;
+
+	private final List<String> attributes;
+	private final char[] fieldTypes;
+	private final int[] fieldOffsets;
+	private final int[] fieldLengths;
+	private final Class<?>[] bindings;
+	private final List<String> fallbackAttributes;
+
+	private int[] columns;
+	private TaskQueue<DataCell[][]> tasks;
+	private int nextRecord;
+	private DataCell[][] batch;
+	private int batchIndex;
+
+	/**
+	 * @param type
+	 *            schema of the shapefile as created by GeoTools
+	 */
+	public DbaseRecordReader(String shpFile, String charset, SimpleFeatureType type)
+			throws InvalidPathException, IOException, UnsupportedCharsetException {
+		this.type = type;
+		this.charset = charset != null ? Charset.forName(charset) : Charset.defaultCharset();
+		this.oneBytePerChar = this.charset.name().equals(StandardCharsets.ISO_8859_1.name())
+				|| this.charset.name().equals(StandardCharsets.US_ASCII.name());
+		this.asciiCompatible = oneBytePerChar || this.charset.equals(StandardCharsets.UTF_8);
+
+		channel = FileChannel.open(EsriUtils.getShapefileComponent(shpFile, "dbf").toPath(), StandardOpenOption.READ);
+
+		try {
+			DbaseFileHeader header = new DbaseFileHeader();
+
+			header.readHeader(channel);
+
+			List<AttributeDescriptor> descriptors = new ArrayList<>(type.getAttributeDescriptors());
+
+			descriptors.remove(type.getGeometryDescriptor());
+
+			if (descriptors.size() != header.getNumFields()) {
+				throw new IOException("Attributes of dbf file do not match the shapefile schema");
+			}
+
+			int n = header.getNumFields();
+			int offset = 1;
+
+			attributes = new ArrayList<>(n);
+			fieldTypes = new char[n];
+			fieldOffsets = new int[n];
+			fieldLengths = new int[n];
+			bindings = new Class<?>[n];
+			fallbackAttributes = new ArrayList<>();
+
+			for (int i = 0; i < n; i++) {
+				String name = descriptors.get(i).getLocalName();
+
+				attributes.add(name);
+				fieldTypes[i] = Character.toUpperCase(header.getFieldType(i));
+				fieldOffsets[i] = offset;
+				fieldLengths[i] = header.getFieldLength(i);
+				bindings[i] = descriptors.get(i).getType().getBinding();
+				offset += Math.max(fieldLengths[i], 0);
+
+				if (!isDecoded(i)) {
+					fallbackAttributes.add(name);
+				}
+			}
+
+			long available = (channel.size() - header.getHeaderLength()) / header.getRecordLength();
+
+			int numStoredRecords = (int) Math.max(Math.min(header.getNumRecords(), available), 0);
+
+			recordLength = header.getRecordLength();
+			recordsPerSegment = Integer.MAX_VALUE / recordLength;
+			segments = new MappedByteBuffer[(numStoredRecords + recordsPerSegment - 1) / recordsPerSegment];
+
+			for (int i = 0; i < segments.length; i++) {
+				long first = (long) i * recordsPerSegment;
+				long count = Math.min(recordsPerSegment, numStoredRecords - first);
+
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+						header.getHeaderLength() + first * recordLength, count * recordLength);
+			}
+
+			liveRecords = findLiveRecords(numStoredRecords);
+			numRecords = liveRecords != null ? liveRecords.length : numStoredRecords;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public SimpleFeatureType getSchema() {
+		return type;
+	}
+
+	/**
+	 * @return query for the geometries and the attributes that are not decoded
+	 *         by this reader
+	 */
+	public Query createQuery() {
+		List<String> properties = new ArrayList<>();
+
+		properties.add(type.getGeometryDescriptor().getLocalName());
+		properties.addAll(fallbackAttributes);
+
+		return new Query(type.getTypeName(), Filter.INCLUDE, properties.toArray(new String[0]));
+	}
+
+	/**
+	 * Sets the output table of the records. Must be called before the first
+	 * call of {@link #setCells(DataCell[])}.
+	 *
+	 * @param spec
+	 *            spec of the output table
+	 * @param naming
+	 *            maps attribute names to column names in {@code spec}
+	 */
+	public void setOutput(DataTableSpec spec, UnaryOperator<String> naming) {
+		columns = new int[attributes.size()];
+
+		for (int i = 0; i < attributes.size(); i++) {
+			String name = isDecoded(i) ? naming.apply(attributes.get(i)) : null;
+
+			columns[i] = name != null ? spec.findColumnIndex(name) : -1;
+		}
+	}
+
+	/**
+	 * Fills {@code cells} with the decoded attributes of the next record. The
+	 * cells of attributes that are not decoded by this reader are left
+	 * untouched.
+	 */
+	public void setCells(DataCell[] cells) throws IOException {
+		if (batch == null || batchIndex == batch.length) {
+			batch = nextBatch();
+			batchIndex = 0;
+		}
+
+		DataCell[] values = batch[batchIndex++];
+
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i] >= 0) {
+				cells[columns[i]] = values[i];
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (tasks != null) {
+			tasks.close();
+		}
+
+		channel.close();
+	}
+
+	private boolean isDecoded(int field) {
+		switch (fieldTypes[field]) {
+		case 'C':
+		case 'N':
+		case 'F':
+		case 'L':
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private DataCell[][] nextBatch() throws IOException {
+		if (tasks == null) {
+			tasks = new TaskQueue<>();
+		}
+
+		while (!tasks.isFull() && nextRecord < numRecords) {
+			int from = nextRecord;
+			int to = Math.min(from + BATCH_SIZE, numRecords);
+
+			tasks.submit(() -> decode(from, to));
+			nextRecord = to;
+		}
+
+		if (tasks.isEmpty()) {
+			throw new IOException("Shapefile has more features than its dbf file has records");
+		}
+
+		try {
+			return tasks.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * GeoTools skips records marked as deleted, so the features belong to the
+	 * remaining records.
+	 *
+	 * @return the indices of the records not marked as deleted or null, if no
+	 *         record is deleted
+	 */
+	private int[] findLiveRecords(int numStoredRecords) {
+		int[] live = null;
+		int numLive = 0;
+
+		for (int r = 0; r < numStoredRecords; r++) {
+			boolean deleted = segments[r / recordsPerSegment].get((r % recordsPerSegment) * recordLength) == '*';
+
+			if (deleted && live == null) {
+				live = new int[numStoredRecords - 1];
+
+				for (int i = 0; i < r; i++) {
+					live[i] = i;
+				}
+
+				numLive = r;
+			} else if (!deleted && live != null) {
+				live[numLive++] = r;
+			}
+		}
+
+		return live != null ? Arrays.copyOf(live, numLive) : null;
+	}
+
+	private DataCell[][] decode(int from, int to) {
+		DataCell[][] records = new DataCell[to - from][];
+		byte[] record = new byte[recordLength];
+
+		for (int k = from; k < to; k++) {
+			int r = liveRecords != null ? liveRecords[k] : k;
+			DataCell[] values = new DataCell[columns.length];
+
+			segments[r / recordsPerSegment].duplicate().position((r % recordsPerSegment) * recordLength).get(record);
+
+			for (int i = 0; i < columns.length; i++) {
+				if (columns[i] >= 0) {
+					values[i] = decodeField(record, i);
+				}
+			}
+
+			records[k - from] = values;
+		}
+
+		return records;
+	}
+
+	private DataCell decodeField(byte[] record, int field) {
+		int offset = fieldOffsets[field];
+		int length = fieldLengths[field];
+
+		if (length <= 0) {
+			return DataType.getMissingCell();
+		}
+
+		switch (fieldTypes[field]) {
+		case 'C':
+			return record[offset] != 0 ? decodeString(record, offset, length) : DataType.getMissingCell();
+		case 'N':
+			if (record[offset] == '*') {
+				return DataType.getMissingCell();
+			}
+
+			return decodeNumber(record, offset, length, bindings[field]);
+		case 'F':
+			if (record[offset] == '*') {
+				return DataType.getMissingCell();
+			}
+
+			return decodeNumber(record, offset, length, Double.class);
+		case 'L':
+			switch (record[offset]) {
+			case 'T':
+			case 't':
+			case 'Y':
+			case 'y':
+				return BooleanCell.TRUE;
+			case 'F':
+			case 'f':
+			case 'N':
+			case 'n':
+				return BooleanCell.FALSE;
+			default:
+				return DataType.getMissingCell();
+			}
+		default:
+			return DataType.getMissingCell();
+		}
+	}
+
+	private DataCell decodeString(byte[] bytes, int offset, int length) {
+		String s;
+
+		if (asciiCompatible && (oneBytePerChar || isAscii(bytes, offset, length))) {
+			int start = offset;
+			int end = offset + length;
+
+			// Same as String.trim, characters correspond to bytes here
+			while (start < end && (bytes[start] & 0xFF) <= ' ') {
+				start++;
+			}
+
+			while (end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+				end--;
+			}
+
+			s = new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+		} else {
+			s = new String(bytes, offset, length, charset).trim();
+		}
+
+		return s.isEmpty() ? DataType.getMissingCell() : new StringCell(s);
+	}
+
+	private static DataCell decodeNumber(byte[] bytes, int offset, int length, Class<?> binding) {
+		int start = offset;
+		int end = offset + length;
+
+		while (start < end && (bytes[start] & 0xFF) <= ' ') {
+			start++;
+		}
+
+		while (end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+			end--;
+		}
+
+		boolean negative = start < end && bytes[start] == '-';
+		int digitsStart = start < end && (bytes[start] == '-' || bytes[start] == '+') ? start + 1 : start;
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = -1;
+		boolean simple = digitsStart < end;
+
+		for (int i = digitsStart; i < end && simple; i++) {
+			byte b = bytes[i];
+
+			if (b >= '0' && b <= '9') {
+				mantissa = 10 * mantissa + (b - '0');
+				digits++;
+
+				if (fractionDigits >= 0) {
+					fractionDigits++;
+				}
+			} else if (b == '.' && fractionDigits < 0 && binding != Integer.class && binding != Long.class) {
+				fractionDigits = 0;
+			} else {
+				simple = false;
+			}
+		}
+
+		if (simple && digits > 0) {
+			if (binding == Integer.class && digits <= MAX_FAST_INT_DIGITS) {
+				return new IntCell((int) (negative ? -mantissa : mantissa));
+			} else if (binding == Long.class && digits <= MAX_FAST_LONG_DIGITS) {
+				return new StringCell(Long.toString(negative ? -mantissa : mantissa));
+			} else if (binding != Integer.class && binding != Long.class && digits <= MAX_FAST_DOUBLE_DIGITS
+					&& fractionDigits < POWERS_OF_TEN.length) {
+				// Both operands are exact, so the division is rounded like Double.parseDouble
+				double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+
+				return new DoubleCell(negative ? -value : value);
+			}
+		}
+
+		return FeatureCellMapper.createCell(parseNumber(bytes, offset, length, binding), binding);
+	}
+
+	/**
+	 * Parses a numeric field the same way as
+	 * {@link org.geotools.data.shapefile.dbf.DbaseFileReader}. Like the feature
+	 * builder of GeoTools, values of long fields that are parsed as doubles are
+	 * truncated to longs.
+	 */
+	private static Number parseNumber(byte[] bytes, int offset, int length, Class<?> binding) {
+		String s = new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+		String trimmed = s.trim();
+
+		if (binding == Integer.class) {
+			try {
+				return Integer.parseInt(trimmed);
+			} catch (NumberFormatException e) {
+			}
+		}
+
+		if (binding == Integer.class || binding == Long.class) {
+			try {
+				return Long.parseLong(trimmed);
+			} catch (NumberFormatException e) {
+			}
+		}
+
+		double value;
+
+		try {
+			value = Double.parseDouble(s);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+
+		if (binding == Long.class) {
+			return (long) value;
+		}
+
+		return value;
+	}
+
+	private static boolean isAscii(byte[] bytes, int offset, int length) {
+		for (int i = offset; i < offset + length; i++) {
+			if (bytes[i] < 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,199 @@
+package de.bund.bfr.knime.esri;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects per-stage timings and counters during the execution of the ESRI
+ * nodes. If the statistics are disabled, {@link #start()} does not query the
+ * clock and all updates are no-ops, so the hot loops only pay for a branch.
+ *
+ * @author Christian Thoens
+ */
+public class EsriStatistics {
+
+	public static final EsriStatistics DISABLED = new EsriStatistics(false);
+
+	public enum Stage {
+
+		FEATURE_DECODING("Feature Decoding", "esri_feature_decoding_ms"),
+		CRS_TRANSFORMATION("CRS Transformation", "esri_crs_transformation_ms"),
+		SIMPLE_GEOMETRIES("Simple Geometries", "esri_simple_geometries_ms"),
+		HOLE_SPLITTING("Hole Splitting", "esri_hole_splitting_ms"),
+		SIMPLIFICATION("Simplification", "esri_simplification_ms"),
+		POLYGON_CONSTRUCTION("Polygon Construction", "esri_polygon_construction_ms"),
+		GRID_CONSTRUCTION("Grid Construction", "esri_grid_construction_ms"),
+		INDEX_CONSTRUCTION("Index Construction", "esri_index_construction_ms"),
+		CONTAINMENT_TESTS("Containment Tests", "esri_containment_tests_ms"),
+		OVERLAY("Overlay", "esri_overlay_ms"),
+		ROW_WRITING("Row Writing", "esri_row_writing_ms"),
+		FEATURE_WRITING("Feature Writing", "esri_feature_writing_ms");
+
+		private final String label;
+		private final String variableName;
+
+		private Stage(String label, String variableName) {
+			this.label = label;
+			this.variableName = variableName;
+		}
+
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
+
+	public enum Counter {
+
+		FEATURES("Features", "esri_features"),
+		VERTICES("Vertices", "esri_vertices"),
+		HOLES_SPLIT("Holes Split", "esri_holes_split"),
+		INVALID_POLYGONS("Invalid Polygons", "esri_invalid_polygons"),
+		REPAIRED_POLYGONS("Repaired Polygons", "esri_repaired_polygons"),
+		GRID_HITS("Grid Hits", "esri_grid_hits"),
+		COVERING_CELLS("Covering Cells", "esri_covering_cells"),
+		CANDIDATE_PAIRS("Candidate Pairs", "esri_candidate_pairs"),
+		ROWS("Rows", "esri_rows");
+
+		private final String label;
+		private final String variableName;
+
+		private Counter(String label, String variableName) {
+			this.label = label;
+			this.variableName = variableName;
+		}
+
+		@Override
+		public String toString() {
+			return label;
+		}
+	}
+
+	private final boolean enabled;
+	private final LongAdder[] nanos;
+	private final LongAdder[] counts;
+
+	public EsriStatistics(boolean enabled) {
+		this.enabled = enabled;
+		nanos = createAdders(Stage.values().length);
+		counts = createAdders(Counter.values().length);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @return the current value of {@link System#nanoTime()} or 0 if the
+	 *         statistics are disabled
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : 0L;
+	}
+
+	/**
+	 * Adds the time elapsed since {@code start} to the given stage.
+	 *
+	 * @return the current time, so that the next stage can be timed without
+	 *         another call to {@link #start()}
+	 */
+	public long stop(Stage stage, long start) {
+		if (!enabled) {
+			return 0L;
+		}
+
+		long now = System.nanoTime();
+
+		nanos[stage.ordinal()].add(now - start);
+
+		return now;
+	}
+
+	public void count(Counter counter, long n) {
+		if (enabled) {
+			counts[counter.ordinal()].add(n);
+		}
+	}
+
+	public void increment(Counter counter) {
+		count(counter, 1);
+	}
+
+	public long getNanos(Stage stage) {
+		return nanos[stage.ordinal()].sum();
+	}
+
+	public long getCount(Counter counter) {
+		return counts[counter.ordinal()].sum();
+	}
+
+	/**
+	 * @return the milliseconds of all stages with a non-zero time, keyed by flow
+	 *         variable name
+	 */
+	public Map<String, Double> getTimeVariables() {
+		Map<String, Double> variables = new LinkedHashMap<>();
+
+		for (Stage stage : Stage.values()) {
+			long n = getNanos(stage);
+
+			if (n != 0L) {
+				variables.put(stage.variableName, n / (double) TimeUnit.MILLISECONDS.toNanos(1));
+			}
+		}
+
+		return variables;
+	}
+
+	/**
+	 * @return the values of all non-zero counters, keyed by flow variable name
+	 */
+	public Map<String, Integer> getCountVariables() {
+		Map<String, Integer> variables = new LinkedHashMap<>();
+
+		for (Counter counter : Counter.values()) {
+			long n = getCount(counter);
+
+			if (n != 0L) {
+				variables.put(counter.variableName, (int) Math.min(n, Integer.MAX_VALUE));
+			}
+		}
+
+		return variables;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("Statistics:");
+
+		for (Stage stage : Stage.values()) {
+			long n = getNanos(stage);
+
+			if (n != 0L) {
+				sb.append(String.format(" %s=%.1fms", stage, n / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+			}
+		}
+
+		for (Counter counter : Counter.values()) {
+			long n = getCount(counter);
+
+			if (n != 0L) {
+				sb.append(" ").append(counter).append("=").append(n);
+			}
+		}
+
+		return sb.toString();
+	}
+
+	private static LongAdder[] createAdders(int n) {
+		LongAdder[] adders = new LongAdder[n];
+
+		for (int i = 0; i < n; i++) {
+			adders[i] = new LongAdder();
+		}
+
+		return adders;
+	}
+}
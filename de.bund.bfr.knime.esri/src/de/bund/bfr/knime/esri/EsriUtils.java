@@ -11,10 +11,7 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
-import java.util.Deque;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -28,6 +25,8 @@ import org.knime.core.node.defaultnodesettings.SettingsModelString;
 import org.knime.core.util.FileUtil;
 import org.locationtech.jts.algorithm.Orientation;
 import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequences;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryCollection;
 import org.locationtech.jts.geom.GeometryFactory;
@@ -35,11 +34,14 @@ import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.LinearRing;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
 
 public class EsriUtils {
 
@@ -47,7 +49,15 @@ public class EsriUtils {
 			StandardCharsets.ISO_8859_1.name(), StandardCharsets.US_ASCII.name(), StandardCharsets.UTF_16.name(),
 			StandardCharsets.UTF_16BE.name(), StandardCharsets.UTF_16LE.name());
 
-	public static final GeometryFactory GEO_FACTORY = new GeometryFactory();
+	/**
+	 * Geometries of this factory store their coordinates in packed double
+	 * arrays instead of one {@link Coordinate} object per vertex. All rings
+	 * created in this class are packed with two dimensions.
+	 */
+	public static final GeometryFactory GEO_FACTORY = new GeometryFactory(
+			PackedCoordinateSequenceFactory.DOUBLE_FACTORY);
+
+	private static final int MIN_RING_SIZE = LinearRing.MINIMUM_VALID_SIZE;
 
 	private EsriUtils() {
 	}
@@ -64,7 +74,19 @@ public class EsriUtils {
 	}
 
 	public static List<Geometry> getSimpleGeometries(Geometry geometry, boolean removeHoles) {
+		return getSimpleGeometries(geometry, removeHoles, EsriStatistics.DISABLED);
+	}
+
+	/**
+	 * Same as {@link #getSimpleGeometries(Geometry, boolean)}, but records the
+	 * time spent in hole splitting, the remaining time and the number of split
+	 * holes in {@code statistics}. The time of hole splitting is not included
+	 * in {@link EsriStatistics.Stage#SIMPLE_GEOMETRIES}.
+	 */
+	public static List<Geometry> getSimpleGeometries(Geometry geometry, boolean removeHoles,
+			EsriStatistics statistics) {
 		List<Geometry> simpleGeometries = new ArrayList<>();
+		long time = statistics.start();
 
 		for (Geometry g : geometry instanceof GeometryCollection ? getGeometries((GeometryCollection) geometry)
 				: Arrays.asList(geometry)) {
@@ -72,7 +94,10 @@ public class EsriUtils {
 				Polygon p = adjustOrientation((Polygon) g);
 
 				if (removeHoles) {
+					time = statistics.stop(EsriStatistics.Stage.SIMPLE_GEOMETRIES, time);
+					statistics.count(EsriStatistics.Counter.HOLES_SPLIT, p.getNumInteriorRing());
 					simpleGeometries.addAll(splitToRemoveHoles(p));
+					time = statistics.stop(EsriStatistics.Stage.HOLE_SPLITTING, time);
 				} else {
 					simpleGeometries.add(p);
 				}
@@ -81,51 +106,130 @@ public class EsriUtils {
 			}
 		}
 
+		statistics.stop(EsriStatistics.Stage.SIMPLE_GEOMETRIES, time);
+
 		return simpleGeometries;
 	}
 
-	public static Polygon createPolygon(List<Coordinate> coordinates) {
-		Deque<Coordinate> remaining = new LinkedList<>(coordinates);
-		List<Coordinate> exterior = new ArrayList<>();
+	public static Polygon createPolygon(CoordinateSequence coordinates) {
+		return createPolygon(coordinates, GEO_FACTORY);
+	}
+
+	/**
+	 * Creates a polygon from the concatenated rings in {@code coordinates}. The
+	 * exterior ring ends at the first repetition of the first coordinate, after
+	 * which all remaining coordinates lie within it. The rings are copied
+	 * directly from {@code coordinates} into sequences of {@code factory}.
+	 *
+	 * @param factory
+	 *            factory for the rings and the polygon, e.g. of an
+	 *            {@link OffHeapGeometryStore}
+	 * @throws IllegalArgumentException
+	 *             if the rings are not valid (see
+	 *             {@link #validatePolygon(CoordinateSequence)})
+	 */
+	public static Polygon createPolygon(CoordinateSequence coordinates, GeometryFactory factory) {
+		int[] ringEnds = findRings(coordinates);
+		PolygonValidity validity = getValidity(coordinates, ringEnds);
+
+		if (validity != PolygonValidity.VALID) {
+			throw new IllegalArgumentException("Invalid polygon: " + validity);
+		}
+
+		return createPolygon(coordinates, ringEnds, factory);
+	}
 
-		exterior.add(remaining.removeFirst());
+	/**
+	 * Checks without creating the polygon, whether
+	 * {@link #createPolygon(CoordinateSequence, GeometryFactory)} would succeed.
+	 * Self-intersections are not detected.
+	 */
+	public static PolygonValidity validatePolygon(CoordinateSequence coordinates) {
+		return getValidity(coordinates, findRings(coordinates));
+	}
 
-		while (!remaining.isEmpty()) {
-			Coordinate c = remaining.removeFirst();
+	/**
+	 * @return the end (exclusive) of the exterior ring, followed by the ends of
+	 *         the holes. Coordinates after the last closed hole are ignored.
+	 */
+	static int[] findRings(CoordinateSequence coordinates) {
+		int size = coordinates.size();
+		int shellEnd = size;
 
-			exterior.add(c);
+		if (size == 0) {
+			return new int[0];
+		}
 
-			if (c.equals2D(exterior.get(0)) && containsAllCoordinates(exterior, remaining)) {
+		// A ring, that is closed after less than four coordinates, is invalid
+		// anyway and cannot contain the remaining coordinates
+		for (int i = 1; i < size; i++) {
+			if (equals2D(coordinates, i, 0)
+					&& (i + 1 < MIN_RING_SIZE || containsAllCoordinates(coordinates, i + 1))) {
+				shellEnd = i + 1;
 				break;
 			}
 		}
 
-		LinearRing shell = GEO_FACTORY.createLinearRing(exterior.toArray(new Coordinate[0]));
-		List<LinearRing> holes = new ArrayList<>();
-
-		while (!remaining.isEmpty()) {
-			List<Coordinate> interior = new ArrayList<>();
-
-			interior.add(remaining.removeFirst());
+		List<Integer> ringEnds = new ArrayList<>();
+		int holeStart = shellEnd;
 
-			while (!remaining.isEmpty()) {
-				Coordinate c = remaining.removeFirst();
+		ringEnds.add(shellEnd);
 
-				interior.add(c);
+		while (holeStart < size) {
+			int holeEnd = -1;
 
-				if (c.equals2D(interior.get(0))) {
-					holes.add(GEO_FACTORY.createLinearRing(interior.toArray(new Coordinate[0])));
+			for (int i = holeStart + 1; i < size; i++) {
+				if (equals2D(coordinates, i, holeStart)) {
+					holeEnd = i + 1;
 					break;
 				}
 			}
+
+			if (holeEnd == -1) {
+				break;
+			}
+
+			ringEnds.add(holeEnd);
+			holeStart = holeEnd;
+		}
+
+		return Ints.toArray(ringEnds);
+	}
+
+	static PolygonValidity getValidity(CoordinateSequence coordinates, int[] ringEnds) {
+		if (ringEnds.length == 0) {
+			return PolygonValidity.TOO_FEW_POINTS;
+		}
+
+		int start = 0;
+
+		for (int end : ringEnds) {
+			if (!equals2D(coordinates, end - 1, start)) {
+				return PolygonValidity.UNCLOSED;
+			} else if (end - start < MIN_RING_SIZE) {
+				return PolygonValidity.TOO_FEW_POINTS;
+			}
+
+			start = end;
+		}
+
+		return PolygonValidity.VALID;
+	}
+
+	static Polygon createPolygon(CoordinateSequence coordinates, int[] ringEnds, GeometryFactory factory) {
+		LinearRing shell = createRing(coordinates, 0, ringEnds[0], factory);
+		LinearRing[] holes = new LinearRing[ringEnds.length - 1];
+
+		for (int i = 1; i < ringEnds.length; i++) {
+			holes[i - 1] = createRing(coordinates, ringEnds[i - 1], ringEnds[i], factory);
 		}
 
-		return GEO_FACTORY.createPolygon(shell, holes.toArray(new LinearRing[0]));
+		return factory.createPolygon(shell, holes);
 	}
 
 	public static ShapefileDataStore getDataStore(String shpFile, String charset)
 			throws InvalidPathException, IOException, UnsupportedCharsetException {
-		ShapefileDataStore store = new ShapefileDataStore(EsriUtils.getFile(shpFile).toURI().toURL());
+		ShapefileDataStore store = new ShapefileDataStore(getShapefile(shpFile).toURI().toURL());
 
 		if (charset != null) {
 			store.setCharset(Charset.forName(charset));
@@ -136,41 +240,93 @@ public class EsriUtils {
 
 	public static CoordinateReferenceSystem getCoordinateSystem(String shpFile)
 			throws InvalidPathException, MalformedURLException, IOException, FactoryException, NoSuchFileException {
-		try (Stream<String> stream = Files
-				.lines(EsriUtils.getFile(FilenameUtils.removeExtension(shpFile) + ".prj").toPath())) {
+		try (Stream<String> stream = Files.lines(getShapefileComponent(shpFile, "prj").toPath())) {
 			return CRS.parseWKT(stream.collect(Collectors.joining()));
 		}
 	}
 
-	private static File getFile(String fileName) throws InvalidPathException, MalformedURLException {
+	public static File getFile(String fileName) throws InvalidPathException, MalformedURLException {
 		return FileUtil.getFileFromURL(FileUtil.toURL(fileName));
 	}
 
-	private static boolean containsAllCoordinates(List<Coordinate> polygonCoordinates,
-			Collection<Coordinate> coordinates) {
-		Polygon p = GEO_FACTORY.createPolygon(polygonCoordinates.toArray(new Coordinate[0]));
+	/**
+	 * @return the *.shp file {@code shpFile} or, if {@code shpFile} refers to
+	 *         a zip archive, the *.shp file decompressed from the archive (see
+	 *         {@link ShapefileArchive})
+	 */
+	public static File getShapefile(String shpFile) throws InvalidPathException, IOException {
+		return ShapefileArchive.isArchive(shpFile) ? ShapefileArchive.getShapefile(shpFile) : getFile(shpFile);
+	}
 
-		return coordinates.stream().allMatch(c -> p.contains(GEO_FACTORY.createPoint(c)));
+	/**
+	 * Same as {@link #getShapefile(String)}, but remote archives are not
+	 * downloaded (see {@link ShapefileArchive#getCachedShapefile(String)}).
+	 *
+	 * @return the *.shp file or null, if {@code shpFile} refers to a remote
+	 *         archive, that is not cached
+	 */
+	public static File getCachedShapefile(String shpFile) throws InvalidPathException, IOException {
+		return ShapefileArchive.isArchive(shpFile) ? ShapefileArchive.getCachedShapefile(shpFile) : getFile(shpFile);
 	}
 
-	private static Polygon adjustOrientation(Polygon polygon) {
-		LinearRing shell = (LinearRing) polygon.getExteriorRing();
+	/**
+	 * @return the file with the given extension (e.g. "dbf") that belongs to
+	 *         the shapefile {@code shpFile}
+	 */
+	public static File getShapefileComponent(String shpFile, String extension)
+			throws InvalidPathException, IOException {
+		return new File(FilenameUtils.removeExtension(getShapefile(shpFile).getPath()) + "." + extension);
+	}
+
+	/**
+	 * @return whether the coordinates from {@code end} on lie within the polygon
+	 *         formed by the coordinates before {@code end}
+	 */
+	private static boolean containsAllCoordinates(CoordinateSequence coordinates, int end) {
+		if (end == coordinates.size()) {
+			return true;
+		}
 
-		if (!Orientation.isCCW(shell.getCoordinates())) {
-			shell = (LinearRing) shell.reverse();
+		Polygon p = GEO_FACTORY.createPolygon(createRing(coordinates, 0, end, GEO_FACTORY));
+
+		for (int i = end; i < coordinates.size(); i++) {
+			if (!p.contains(GEO_FACTORY.createPoint(new Coordinate(coordinates.getX(i), coordinates.getY(i))))) {
+				return false;
+			}
 		}
 
+		return true;
+	}
+
+	private static LinearRing createRing(CoordinateSequence coordinates, int from, int to, GeometryFactory factory) {
+		CoordinateSequence ring = factory.getCoordinateSequenceFactory().create(to - from, 2);
+
+		CoordinateSequences.copy(coordinates, from, ring, 0, to - from);
+
+		return factory.createLinearRing(ring);
+	}
+
+	private static boolean equals2D(CoordinateSequence coordinates, int i, int j) {
+		return coordinates.getX(i) == coordinates.getX(j) && coordinates.getY(i) == coordinates.getY(j);
+	}
+
+	/**
+	 * Copies the rings into packed sequences and reverses them during the copy,
+	 * so that the shell is counter-clockwise and the holes are clockwise.
+	 */
+	private static Polygon adjustOrientation(Polygon polygon) {
+		CoordinateSequence shell = polygon.getExteriorRing().getCoordinateSequence();
 		List<LinearRing> holes = new ArrayList<>();
 
 		for (LinearRing hole : getHoles(polygon)) {
-			if (Orientation.isCCW(hole.getCoordinates())) {
-				hole = (LinearRing) hole.reverse();
-			}
+			CoordinateSequence h = hole.getCoordinateSequence();
 
-			holes.add(hole);
+			holes.add(new RingBuilder(h.size()).add(h, Orientation.isCCW(h)).build());
 		}
 
-		return GEO_FACTORY.createPolygon(shell, holes.toArray(new LinearRing[0]));
+		return GEO_FACTORY.createPolygon(
+				new RingBuilder(shell.size()).add(shell, !Orientation.isCCW(shell)).build(),
+				holes.toArray(new LinearRing[0]));
 	}
 
 	private static List<Polygon> splitToRemoveHoles(Polygon polygon) {
@@ -184,7 +340,7 @@ public class EsriUtils {
 		LinearRing shell1 = null;
 		LinearRing shell2 = null;
 
-		if (shell.isCoordinate(c)) {
+		if (CoordinateSequences.indexOf(c, shell.getCoordinateSequence()) != -1) {
 			shell1 = combine(shell, hole, c);
 		} else {
 			Intersection intersect = getIntersectionWithHorizontal(shell, c);
@@ -230,7 +386,16 @@ public class EsriUtils {
 	}
 
 	private static Coordinate getCoordinateWithMinY(LinearRing ring) {
-		return Collections.min(Arrays.asList(ring.getCoordinates()), (c1, c2) -> Double.compare(c1.y, c2.y));
+		CoordinateSequence coordinates = ring.getCoordinateSequence();
+		int minIndex = 0;
+
+		for (int i = 1; i < coordinates.size(); i++) {
+			if (coordinates.getY(i) < coordinates.getY(minIndex)) {
+				minIndex = i;
+			}
+		}
+
+		return coordinates.getCoordinateCopy(minIndex);
 	}
 
 	private static Intersection getIntersectionWithHorizontal(LinearRing ring, Coordinate c) {
@@ -246,7 +411,7 @@ public class EsriUtils {
 				.createLineString(new Coordinate[] { new Coordinate(ring.getEnvelopeInternal().getMinX(), c.y),
 						new Coordinate(ring.getEnvelopeInternal().getMaxX(), c.y) });
 
-		for (int i = 0; i < ring.getCoordinates().length - 1; i++) {
+		for (int i = 0; i < ring.getNumPoints() - 1; i++) {
 			Coordinate c1 = ring.getCoordinateN(i);
 			Coordinate c2 = ring.getCoordinateN(i + 1);
 
@@ -286,95 +451,69 @@ public class EsriUtils {
 	}
 
 	private static LinearRing getCut(LinearRing shell, Intersection intersect, Coordinate c) {
-		List<Coordinate> coordinates = new ArrayList<>();
+		CoordinateSequence shellCoordinates = shell.getCoordinateSequence();
+		RingBuilder ring = new RingBuilder(shellCoordinates.size() + 3);
 		int fromIndex = intersect.getIndex1() + 1;
 		int toIndex = intersect.getIndex2();
 
-		coordinates.add(new Coordinate(intersect.getX1(), c.y));
+		ring.add(intersect.getX1(), c.y);
 
 		if (fromIndex <= toIndex) {
-			for (int i = fromIndex; i <= toIndex; i++) {
-				coordinates.add(shell.getCoordinateN(i));
-			}
+			ring.add(shellCoordinates, fromIndex, toIndex + 1);
 		} else {
-			for (int i = fromIndex; i < shell.getNumPoints(); i++) {
-				coordinates.add(shell.getCoordinateN(i));
-			}
-
-			for (int i = 1; i <= toIndex; i++) {
-				coordinates.add(shell.getCoordinateN(i));
-			}
+			ring.add(shellCoordinates, fromIndex, shellCoordinates.size());
+			ring.add(shellCoordinates, 1, toIndex + 1);
 		}
 
-		coordinates.add(new Coordinate(intersect.getX2(), c.y));
-		coordinates.add(new Coordinate(intersect.getX1(), c.y));
+		ring.add(intersect.getX2(), c.y);
+		ring.add(intersect.getX1(), c.y);
 
-		return GEO_FACTORY.createLinearRing(coordinates.toArray(new Coordinate[0]));
+		return ring.build();
 	}
 
 	private static LinearRing getRest(LinearRing shell, LinearRing hole, Intersection intersect, Coordinate c) {
-		List<Coordinate> coordinates = new ArrayList<>();
+		CoordinateSequence shellCoordinates = shell.getCoordinateSequence();
+		CoordinateSequence holeCoordinates = hole.getCoordinateSequence();
+		RingBuilder ring = new RingBuilder(shellCoordinates.size() + holeCoordinates.size() + 3);
 		int shellFromIndex = intersect.getIndex2() + 1;
 		int shellToIndex = intersect.getIndex1();
-		int holeIndex = Arrays.asList(hole.getCoordinates()).indexOf(c);
+		int holeIndex = CoordinateSequences.indexOf(c, holeCoordinates);
 
-		coordinates.add(new Coordinate(intersect.getX2(), c.y));
+		ring.add(intersect.getX2(), c.y);
 
 		if (shellFromIndex <= shellToIndex) {
-			for (int i = shellFromIndex; i <= shellToIndex; i++) {
-				coordinates.add(shell.getCoordinateN(i));
-			}
+			ring.add(shellCoordinates, shellFromIndex, shellToIndex + 1);
 		} else {
-			for (int i = shellFromIndex; i < shell.getNumPoints(); i++) {
-				coordinates.add(shell.getCoordinateN(i));
-			}
-
-			for (int i = 1; i <= shellToIndex; i++) {
-				coordinates.add(shell.getCoordinateN(i));
-			}
+			ring.add(shellCoordinates, shellFromIndex, shellCoordinates.size());
+			ring.add(shellCoordinates, 1, shellToIndex + 1);
 		}
 
-		coordinates.add(new Coordinate(intersect.getX1(), c.y));
+		ring.add(intersect.getX1(), c.y);
+		ring.add(holeCoordinates, holeIndex, holeCoordinates.size());
+		ring.add(holeCoordinates, 1, holeIndex + 1);
+		ring.add(intersect.getX2(), c.y);
 
-		for (int i = holeIndex; i < hole.getNumPoints(); i++) {
-			coordinates.add(hole.getCoordinateN(i));
-		}
-
-		for (int i = 1; i <= holeIndex; i++) {
-			coordinates.add(hole.getCoordinateN(i));
-		}
-
-		coordinates.add(new Coordinate(intersect.getX2(), c.y));
-
-		return GEO_FACTORY.createLinearRing(coordinates.toArray(new Coordinate[0]));
+		return ring.build();
 	}
 
 	private static LinearRing combine(LinearRing shell, LinearRing hole, Coordinate c) {
-		if (Orientation.isCCW(shell.getCoordinates()) == Orientation.isCCW(hole.getCoordinates())) {
-			hole = (LinearRing) hole.reverse();
-		}
+		CoordinateSequence shellCoordinates = shell.getCoordinateSequence();
+		CoordinateSequence holeCoordinates = hole.getCoordinateSequence();
 
-		List<Coordinate> coordinates = new ArrayList<>();
-		int shellIndex = Arrays.asList(shell.getCoordinates()).indexOf(c);
-		int holeIndex = Arrays.asList(hole.getCoordinates()).indexOf(c);
-
-		for (int i = shellIndex; i < shell.getNumPoints(); i++) {
-			coordinates.add(shell.getCoordinateN(i));
-		}
-
-		for (int i = 0; i <= shellIndex; i++) {
-			coordinates.add(shell.getCoordinateN(i));
+		if (Orientation.isCCW(shellCoordinates) == Orientation.isCCW(holeCoordinates)) {
+			holeCoordinates = new RingBuilder(holeCoordinates.size()).add(holeCoordinates, true).getSequence();
 		}
 
-		for (int i = holeIndex + 1; i < hole.getNumPoints(); i++) {
-			coordinates.add(hole.getCoordinateN(i));
-		}
+		RingBuilder ring = new RingBuilder(shellCoordinates.size() + holeCoordinates.size());
+		int shellIndex = CoordinateSequences.indexOf(c, shellCoordinates);
+		int holeIndex = CoordinateSequences.indexOf(c, holeCoordinates);
 
-		for (int i = 1; i <= holeIndex; i++) {
-			coordinates.add(hole.getCoordinateN(i));
-		}
+		ring.add(shellCoordinates, shellIndex, shellCoordinates.size());
+		ring.add(shellCoordinates, 0, shellIndex + 1);
+		ring.add(holeCoordinates, holeIndex + 1, holeCoordinates.size());
+		ring.add(holeCoordinates, 1, holeIndex + 1);
 
-		return GEO_FACTORY.createLinearRing(coordinates.toArray(new Coordinate[0]));
+		return ring.build();
 	}
 
 	private static List<Geometry> getGeometries(GeometryCollection collection) {
@@ -397,6 +536,65 @@ public class EsriUtils {
 		return holes;
 	}
 
+	/**
+	 * Collects the coordinates of a ring in a growing packed array, which is
+	 * wrapped without copying, if its capacity was estimated correctly.
+	 */
+	private static class RingBuilder {
+
+		private double[] coordinates;
+		private int size;
+
+		public RingBuilder(int capacity) {
+			coordinates = new double[2 * capacity];
+			size = 0;
+		}
+
+		public RingBuilder add(double x, double y) {
+			if (2 * size == coordinates.length) {
+				coordinates = Arrays.copyOf(coordinates, Math.max(2 * coordinates.length, 8));
+			}
+
+			coordinates[2 * size] = x;
+			coordinates[2 * size + 1] = y;
+			size++;
+
+			return this;
+		}
+
+		/**
+		 * Adds the coordinates with the indices {@code from} to {@code to - 1}.
+		 */
+		public RingBuilder add(CoordinateSequence sequence, int from, int to) {
+			for (int i = from; i < to; i++) {
+				add(sequence.getX(i), sequence.getY(i));
+			}
+
+			return this;
+		}
+
+		public RingBuilder add(CoordinateSequence sequence, boolean reverse) {
+			if (!reverse) {
+				return add(sequence, 0, sequence.size());
+			}
+
+			for (int i = sequence.size() - 1; i >= 0; i--) {
+				add(sequence.getX(i), sequence.getY(i));
+			}
+
+			return this;
+		}
+
+		public CoordinateSequence getSequence() {
+			return new PackedCoordinateSequence.Double(
+					2 * size == coordinates.length ? coordinates : Arrays.copyOf(coordinates, 2 * size), 2, 0);
+		}
+
+		public LinearRing build() {
+			return GEO_FACTORY.createLinearRing(getSequence());
+		}
+	}
+
 	private static class Intersection {
 
 		private double x1;
@@ -0,0 +1,143 @@
+package de.bund.bfr.knime.esri;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.def.BooleanCell.BooleanCellFactory;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+
+/**
+ * Converts the attributes of {@link SimpleFeature}s into {@link DataCell}s. The
+ * output column and the converter of each attribute are resolved once per
+ * schema, so that the feature loop of the readers neither looks up column names
+ * nor creates {@link org.opengis.feature.Property} objects.
+ *
+ * @author Christian Thoens
+ */
+public class FeatureCellMapper {
+
+	@FunctionalInterface
+	private interface CellConverter {
+
+		DataCell convert(Object value);
+	}
+
+	private static final CellConverter INT_CONVERTER = value -> new IntCell(((Number) value).intValue());
+	private static final CellConverter DOUBLE_CONVERTER = value -> new DoubleCell(((Number) value).doubleValue());
+	private static final CellConverter BOOLEAN_CONVERTER = value -> BooleanCellFactory.create((Boolean) value);
+	private static final CellConverter STRING_CONVERTER = value -> {
+		String s = value.toString();
+
+		return s.isEmpty() ? DataType.getMissingCell() : new StringCell(s);
+	};
+
+	private final int[] columns;
+	private final CellConverter[] converters;
+	private final int geometryIndex;
+	private final int geometryColumn;
+
+	/**
+	 * @param type
+	 *            schema of the features
+	 * @param spec
+	 *            spec of the output table
+	 * @param naming
+	 *            maps attribute names to column names in {@code spec}
+	 */
+	public FeatureCellMapper(SimpleFeatureType type, DataTableSpec spec, UnaryOperator<String> naming) {
+		List<AttributeDescriptor> descriptors = type.getAttributeDescriptors();
+		String geometryName = type.getGeometryDescriptor() != null ? type.getGeometryDescriptor().getLocalName()
+				: null;
+
+		columns = new int[descriptors.size()];
+		converters = new CellConverter[descriptors.size()];
+
+		int geoIndex = -1;
+
+		for (int i = 0; i < descriptors.size(); i++) {
+			AttributeDescriptor d = descriptors.get(i);
+			Class<?> binding = d.getType().getBinding();
+
+			if (d.getLocalName().equals(geometryName)) {
+				geoIndex = i;
+				converters[i] = null;
+			} else {
+				converters[i] = getConverter(binding);
+			}
+
+			String name = naming.apply(d.getLocalName());
+
+			columns[i] = name != null ? spec.findColumnIndex(name) : -1;
+		}
+
+		geometryIndex = geoIndex;
+		geometryColumn = geoIndex != -1 ? columns[geoIndex] : -1;
+	}
+
+	/**
+	 * Fills {@code cells} with the converted attributes of {@code feature}. The
+	 * cell of the geometry column is left untouched, unless the geometry is
+	 * missing.
+	 *
+	 * @return the geometry of the feature or null if it has none
+	 */
+	public Geometry setCells(SimpleFeature feature, DataCell[] cells) {
+		Geometry geometry = null;
+
+		for (int i = 0; i < columns.length; i++) {
+			Object value = feature.getAttribute(i);
+			int column = columns[i];
+
+			if (value == null) {
+				if (column >= 0) {
+					cells[column] = DataType.getMissingCell();
+				}
+			} else if (i == geometryIndex) {
+				if (value instanceof Geometry) {
+					geometry = (Geometry) value;
+				}
+			} else if (column >= 0) {
+				cells[column] = converters[i].convert(value);
+			}
+		}
+
+		return geometry;
+	}
+
+	/**
+	 * Converts {@code value} the same way as the attributes of features with
+	 * the given binding are converted.
+	 */
+	static DataCell createCell(Object value, Class<?> binding) {
+		return value != null ? getConverter(binding).convert(value) : DataType.getMissingCell();
+	}
+
+	/**
+	 * @return index of the geometry column in the output spec or -1 if the spec
+	 *         has no such column
+	 */
+	public int getGeometryColumn() {
+		return geometryColumn;
+	}
+
+	private static CellConverter getConverter(Class<?> binding) {
+		if (binding == Integer.class) {
+			return INT_CONVERTER;
+		} else if (binding == Double.class) {
+			return DOUBLE_CONVERTER;
+		} else if (binding == Boolean.class) {
+			return BOOLEAN_CONVERTER;
+		} else {
+			return STRING_CONVERTER;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package de.bund.bfr.knime.esri;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.filter.text.cql2.CQLException;
+import org.geotools.filter.text.ecql.ECQL;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.geopkg.GeoPkgDataStoreFactory;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.locationtech.jts.geom.Envelope;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+import com.google.common.base.Strings;
+
+/**
+ * A feature layer of a GeoPackage file. The features are queried from the
+ * SQLite database of the file, so that bounding box filters are answered by
+ * the R-tree index of the layer and attribute filters by SQL, instead of
+ * filtering all features of the layer in memory.
+ *
+ * @author Christian Thoens
+ */
+public class GeoPackageSource implements Closeable {
+
+	private static final FilterFactory2 FILTER_FACTORY = CommonFactoryFinder.getFilterFactory2();
+
+	private JDBCDataStore store;
+	private String layer;
+
+	/**
+	 * @param layer
+	 *            name of the feature layer or null/empty for the first layer
+	 *            of the file
+	 */
+	public GeoPackageSource(String gpkgFile, String layer) throws InvalidPathException, IOException {
+		File file = EsriUtils.getFile(gpkgFile);
+
+		// SQLite would otherwise create an empty database
+		if (!file.isFile()) {
+			throw new NoSuchFileException(file.getPath());
+		}
+
+		Map<String, Object> params = new LinkedHashMap<>();
+
+		params.put(GeoPkgDataStoreFactory.DBTYPE.key, "geopkg");
+		params.put(GeoPkgDataStoreFactory.DATABASE.key, file);
+		params.put(GeoPkgDataStoreFactory.READ_ONLY.key, true);
+		store = new GeoPkgDataStoreFactory().createDataStore(params);
+
+		try {
+			String[] layers = store.getTypeNames();
+
+			if (Strings.isNullOrEmpty(layer)) {
+				if (layers.length == 0) {
+					throw new IOException("No feature layer in \"" + gpkgFile + "\"");
+				}
+
+				this.layer = layers[0];
+			} else if (Arrays.asList(layers).contains(layer)) {
+				this.layer = layer;
+			} else {
+				throw new IOException("No such layer \"" + layer + "\" in \"" + gpkgFile + "\"");
+			}
+		} catch (IOException e) {
+			store.dispose();
+			throw e;
+		}
+	}
+
+	public SimpleFeatureType getSchema() throws IOException {
+		return store.getSchema(layer);
+	}
+
+	/**
+	 * @return transformation into latitude/longitude or null if the layer has
+	 *         no coordinate reference system (its coordinates are then treated
+	 *         as longitude/latitude)
+	 */
+	public MathTransform getTransform() throws IOException, FactoryException {
+		CoordinateReferenceSystem crs = getSchema().getCoordinateReferenceSystem();
+
+		return crs != null ? CRS.findMathTransform(crs, CRS.decode("EPSG:4326"), true) : null;
+	}
+
+	/**
+	 * @param bounds
+	 *            bounding box with latitudes as x and longitudes as y or null
+	 * @param filter
+	 *            ECQL filter on the attributes or null/empty
+	 * @return the features within {@code bounds} that match {@code filter}
+	 */
+	public SimpleFeatureCollection getFeatures(Envelope bounds, String filter)
+			throws IOException, CQLException, TransformException, FactoryException {
+		SimpleFeatureType schema = getSchema();
+		Filter f = Strings.isNullOrEmpty(filter) ? Filter.INCLUDE : ECQL.toFilter(filter);
+
+		if (bounds != null) {
+			CoordinateReferenceSystem crs = schema.getCoordinateReferenceSystem();
+			ReferencedEnvelope envelope = new ReferencedEnvelope(bounds.getMinY(), bounds.getMaxY(),
+					bounds.getMinX(), bounds.getMaxX(), crs != null ? DefaultGeographicCRS.WGS84 : null);
+
+			if (crs != null) {
+				envelope = envelope.transform(crs, true);
+			}
+
+			Filter bbox = FILTER_FACTORY.bbox(FILTER_FACTORY.property(schema.getGeometryDescriptor().getLocalName()),
+					envelope);
+
+			f = f == Filter.INCLUDE ? bbox : FILTER_FACTORY.and(bbox, f);
+		}
+
+		return store.getFeatureSource(layer).getFeatures(new Query(layer, f));
+	}
+
+	/**
+	 * Checks whether {@code filter} is a valid ECQL expression.
+	 */
+	public static void checkFilter(String filter) throws CQLException {
+		if (!Strings.isNullOrEmpty(filter)) {
+			ECQL.toFilter(filter);
+		}
+	}
+
+	@Override
+	public void close() {
+		store.dispose();
+	}
+}
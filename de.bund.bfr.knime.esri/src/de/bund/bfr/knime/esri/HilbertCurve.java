@@ -0,0 +1,124 @@
+package de.bund.bfr.knime.esri;
+
+import java.util.Arrays;
+
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.sort.BufferedDataTableSorter;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.util.UniqueNameGenerator;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * Spatial order of the reader output along a Hilbert curve through a 2^16 x
+ * 2^16 grid over latitude/longitude. The readers append a sort key to each
+ * row, which consists of the Hilbert index of the envelope centre of the
+ * feature followed by the original row index. So the rows of a feature stay
+ * together and in their original order, when the table is sorted by the key.
+ * Sorting is done by the KNIME table sorter, which writes sorted chunks to disk
+ * and merges them, if the table does not fit into the heap.
+ *
+ * @author Christian Thoens
+ */
+public class HilbertCurve {
+
+	private static final int ORDER = 16;
+	private static final int INDEX_BITS = 31;
+	private static final String KEY_COLUMN = "HilbertKey";
+
+	private HilbertCurve() {
+	}
+
+	/**
+	 * @return the index (32 bits) of the grid cell containing the coordinate
+	 *         on the Hilbert curve
+	 */
+	public static long getIndex(double lat, double lon) {
+		int n = 1 << ORDER;
+		int x = quantize((lon + 180.0) / 360.0, n);
+		int y = quantize((lat + 90.0) / 180.0, n);
+		long d = 0L;
+
+		for (int s = n / 2; s > 0; s /= 2) {
+			int rx = (x & s) != 0 ? 1 : 0;
+			int ry = (y & s) != 0 ? 1 : 0;
+
+			d += (long) s * (long) s * ((3 * rx) ^ ry);
+
+			// Rotate the quadrant, so that the curve continues at its start
+			if (ry == 0) {
+				if (rx == 1) {
+					x = n - 1 - x;
+					y = n - 1 - y;
+				}
+
+				int t = x;
+
+				x = y;
+				y = t;
+			}
+		}
+
+		return d;
+	}
+
+	/**
+	 * @param swapAxes
+	 *            whether the geometry has longitude as x and latitude as y
+	 * @return the Hilbert index of the envelope centre of {@code geo} or 0 for
+	 *         empty geometries
+	 */
+	public static long getIndex(Geometry geo, boolean swapAxes) {
+		Coordinate c = geo.getEnvelopeInternal().centre();
+
+		if (c == null) {
+			return 0L;
+		}
+
+		return swapAxes ? getIndex(c.y, c.x) : getIndex(c.x, c.y);
+	}
+
+	/**
+	 * @return the sort key of the row with index {@code rowIndex}, which
+	 *         belongs to a feature with the Hilbert index {@code index}
+	 */
+	public static long getSortKey(long index, int rowIndex) {
+		return index << INDEX_BITS | rowIndex;
+	}
+
+	/**
+	 * @return {@code spec} with an additional column for the sort key
+	 */
+	public static DataTableSpec createSpecWithKey(DataTableSpec spec) {
+		DataColumnSpec keyColumn = new UniqueNameGenerator(spec).newColumn(KEY_COLUMN, LongCell.TYPE);
+
+		return new DataTableSpec(spec, new DataTableSpec(keyColumn));
+	}
+
+	/**
+	 * Sorts {@code table} by the sort key in its last column and removes this
+	 * column.
+	 */
+	public static BufferedDataTable sort(BufferedDataTable table, ExecutionContext exec)
+			throws CanceledExecutionException {
+		DataTableSpec spec = table.getDataTableSpec();
+		int keyIndex = spec.getNumColumns() - 1;
+		BufferedDataTableSorter sorter = new BufferedDataTableSorter(table,
+				Arrays.asList(spec.getColumnSpec(keyIndex).getName()), new boolean[] { true });
+		BufferedDataTable sorted = sorter.sort(exec.createSubExecutionContext(0.9));
+		ColumnRearranger rearranger = new ColumnRearranger(spec);
+
+		rearranger.remove(keyIndex);
+
+		return exec.createColumnRearrangeTable(sorted, rearranger, exec.createSubProgress(0.1));
+	}
+
+	private static int quantize(double fraction, int n) {
+		return (int) Math.max(Math.min(Math.floor(fraction * n), n - 1), 0);
+	}
+}
@@ -0,0 +1,137 @@
+package de.bund.bfr.knime.esri;
+
+import java.nio.DoubleBuffer;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequences;
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * {@link CoordinateSequence} of two-dimensional coordinates, which are stored
+ * in a direct buffer of an {@link OffHeapGeometryStore}. The coordinates are
+ * read on demand, so the sequence itself only occupies a few bytes of heap.
+ * Reading is thread-safe, since only absolute buffer accesses are used.
+ *
+ * @author Christian Thoens
+ */
+public class OffHeapCoordinateSequence implements CoordinateSequence {
+
+	private final OffHeapGeometryStore store;
+	private final DoubleBuffer buffer;
+	private final int offset;
+	private final int size;
+
+	OffHeapCoordinateSequence(OffHeapGeometryStore store, DoubleBuffer buffer, int offset, int size) {
+		this.store = store;
+		this.buffer = buffer;
+		this.offset = offset;
+		this.size = size;
+	}
+
+	@Override
+	public int getDimension() {
+		return 2;
+	}
+
+	@Override
+	public Coordinate getCoordinate(int i) {
+		return new Coordinate(getX(i), getY(i));
+	}
+
+	@Override
+	public Coordinate getCoordinateCopy(int i) {
+		return getCoordinate(i);
+	}
+
+	@Override
+	public void getCoordinate(int index, Coordinate coord) {
+		coord.x = getX(index);
+		coord.y = getY(index);
+	}
+
+	@Override
+	public double getX(int index) {
+		return buffer.get(offset + 2 * index);
+	}
+
+	@Override
+	public double getY(int index) {
+		return buffer.get(offset + 2 * index + 1);
+	}
+
+	@Override
+	public double getOrdinate(int index, int ordinateIndex) {
+		switch (ordinateIndex) {
+		case X:
+			return getX(index);
+		case Y:
+			return getY(index);
+		default:
+			return Double.NaN;
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void setOrdinate(int index, int ordinateIndex, double value) {
+		switch (ordinateIndex) {
+		case X:
+			buffer.put(offset + 2 * index, value);
+			break;
+		case Y:
+			buffer.put(offset + 2 * index + 1, value);
+			break;
+		default:
+			throw new IllegalArgumentException("Invalid ordinate index: " + ordinateIndex);
+		}
+	}
+
+	@Override
+	public Coordinate[] toCoordinateArray() {
+		Coordinate[] coordinates = new Coordinate[size];
+
+		for (int i = 0; i < size; i++) {
+			coordinates[i] = getCoordinate(i);
+		}
+
+		return coordinates;
+	}
+
+	@Override
+	public Envelope expandEnvelope(Envelope env) {
+		for (int i = 0; i < size; i++) {
+			env.expandToInclude(getX(i), getY(i));
+		}
+
+		return env;
+	}
+
+	@Deprecated
+	@Override
+	public Object clone() {
+		return copy();
+	}
+
+	@Override
+	public OffHeapCoordinateSequence copy() {
+		return store.create(this);
+	}
+
+	/**
+	 * @return the interleaved x/y coordinates of this sequence, as a view on the
+	 *         buffer of the store
+	 */
+	DoubleBuffer getBuffer() {
+		return buffer.duplicate().position(offset).limit(offset + 2 * size).slice();
+	}
+
+	@Override
+	public String toString() {
+		return CoordinateSequences.toString(this);
+	}
+}
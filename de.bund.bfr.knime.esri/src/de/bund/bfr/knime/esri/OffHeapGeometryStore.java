@@ -0,0 +1,99 @@
+package de.bund.bfr.knime.esri;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFactory;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+
+/**
+ * Stores the coordinates of geometries outside of the Java heap. Geometries
+ * created with {@link #getGeometryFactory()} use
+ * {@link OffHeapCoordinateSequence}s, whose coordinates are packed into direct
+ * buffers (16 bytes per vertex instead of a {@link Coordinate} object). The
+ * buffers are allocated in growing blocks and released, when the store and all
+ * its geometries are garbage collected. Only x and y are stored.
+ *
+ * @author Christian Thoens
+ */
+public class OffHeapGeometryStore implements CoordinateSequenceFactory {
+
+	private static final int MIN_BLOCK_SIZE = 1 << 16;
+	private static final int MAX_BLOCK_SIZE = 1 << 23;
+
+	private final GeometryFactory geometryFactory;
+	private DoubleBuffer block;
+	private int position;
+	private long allocated;
+
+	public OffHeapGeometryStore() {
+		geometryFactory = new GeometryFactory(new PrecisionModel(), 0, this);
+		block = null;
+		position = 0;
+		allocated = 0;
+	}
+
+	public GeometryFactory getGeometryFactory() {
+		return geometryFactory;
+	}
+
+	/**
+	 * @return number of bytes allocated outside of the heap
+	 */
+	public synchronized long getAllocatedBytes() {
+		return allocated;
+	}
+
+	@Override
+	public OffHeapCoordinateSequence create(Coordinate[] coordinates) {
+		int size = coordinates != null ? coordinates.length : 0;
+		OffHeapCoordinateSequence sequence = allocate(size);
+
+		for (int i = 0; i < size; i++) {
+			sequence.setOrdinate(i, CoordinateSequence.X, coordinates[i].x);
+			sequence.setOrdinate(i, CoordinateSequence.Y, coordinates[i].y);
+		}
+
+		return sequence;
+	}
+
+	@Override
+	public OffHeapCoordinateSequence create(CoordinateSequence coordSeq) {
+		OffHeapCoordinateSequence sequence = allocate(coordSeq.size());
+
+		for (int i = 0; i < coordSeq.size(); i++) {
+			sequence.setOrdinate(i, CoordinateSequence.X, coordSeq.getX(i));
+			sequence.setOrdinate(i, CoordinateSequence.Y, coordSeq.getY(i));
+		}
+
+		return sequence;
+	}
+
+	@Override
+	public OffHeapCoordinateSequence create(int size, int dimension) {
+		return allocate(size);
+	}
+
+	private synchronized OffHeapCoordinateSequence allocate(int size) {
+		int n = 2 * size;
+
+		if (block == null || block.capacity() - position < n) {
+			int blockSize = block == null ? MIN_BLOCK_SIZE : Math.min(2 * block.capacity(), MAX_BLOCK_SIZE);
+
+			block = ByteBuffer.allocateDirect(Math.max(blockSize, n) * Double.BYTES).order(ByteOrder.nativeOrder())
+					.asDoubleBuffer();
+			position = 0;
+			allocated += (long) block.capacity() * Double.BYTES;
+		}
+
+		OffHeapCoordinateSequence sequence = new OffHeapCoordinateSequence(this, block, position, size);
+
+		position += n;
+
+		return sequence;
+	}
+}
@@ -0,0 +1,324 @@
+package de.bund.bfr.knime.esri;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+import org.locationtech.jts.algorithm.CGAlgorithmsDD;
+import org.locationtech.jts.algorithm.RayCrossingCounter;
+import org.locationtech.jts.algorithm.locate.PointOnGeometryLocator;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Location;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+
+/**
+ * Crossing number test of a polygon, that works directly on the packed x/y
+ * coordinates of its rings (the double arrays of
+ * {@link PackedCoordinateSequence}s or the buffers of
+ * {@link OffHeapCoordinateSequence}s) instead of calling the
+ * {@link CoordinateSequence} of each ring for each edge. Several points can be
+ * located at once: the points are then sorted into buckets by their y
+ * coordinate and each edge is only tested against the points in the buckets of
+ * its y range, so that the costs per ring grow with the number of edges plus
+ * the number of points instead of their product. Each edge is counted
+ * exactly like in {@link RayCrossingCounter}, so the locations are identical to
+ * those of JTS, i.e. points on the boundary are neither contained in the
+ * polygon nor in its holes.
+ *
+ * @author Christian Thoens
+ */
+public class PackedPolygonLocator implements PointOnGeometryLocator {
+
+	private static final int MIN_BUCKETED_POINTS = 16;
+	private static final int ON_SEGMENT = -1;
+
+	private final DoubleBuffer[] rings;
+
+	public PackedPolygonLocator(Polygon polygon) {
+		rings = new DoubleBuffer[polygon.getNumInteriorRing() + 1];
+		rings[0] = getCoordinates(polygon.getExteriorRing().getCoordinateSequence());
+
+		for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+			rings[i + 1] = getCoordinates(polygon.getInteriorRingN(i).getCoordinateSequence());
+		}
+	}
+
+	@Override
+	public int locate(Coordinate p) {
+		return locate(p.x, p.y);
+	}
+
+	public int locate(double x, double y) {
+		int location = locateInRing(rings[0], x, y);
+
+		if (location != Location.INTERIOR) {
+			return location;
+		}
+
+		for (int i = 1; i < rings.length; i++) {
+			int holeLocation = locateInRing(rings[i], x, y);
+
+			if (holeLocation == Location.BOUNDARY) {
+				return Location.BOUNDARY;
+			} else if (holeLocation == Location.INTERIOR) {
+				return Location.EXTERIOR;
+			}
+		}
+
+		return Location.INTERIOR;
+	}
+
+	/**
+	 * Locates the points {@code (x[i], y[i])} for {@code 0 <= i < n} and stores
+	 * the results in {@code locations}.
+	 */
+	public void locate(double[] x, double[] y, int n, int[] locations) {
+		if (n < MIN_BUCKETED_POINTS) {
+			for (int i = 0; i < n; i++) {
+				locations[i] = Double.isNaN(x[i]) || Double.isNaN(y[i]) ? Location.EXTERIOR : locate(x[i], y[i]);
+			}
+
+			return;
+		}
+
+		PointBuckets buckets = new PointBuckets(y, n);
+		int[] crossings = new int[n];
+
+		for (int i = 0; i < n; i++) {
+			locations[i] = Double.isNaN(x[i]) || Double.isNaN(y[i]) ? Location.EXTERIOR : Location.INTERIOR;
+		}
+
+		for (int r = 0; r < rings.length; r++) {
+			int[] ringLocations = locateInRing(rings[r], x, y, n, locations, buckets, crossings);
+
+			for (int i = 0; i < n; i++) {
+				if (locations[i] != Location.INTERIOR) {
+					continue;
+				}
+
+				if (r == 0) {
+					locations[i] = ringLocations[i];
+				} else if (ringLocations[i] == Location.BOUNDARY) {
+					locations[i] = Location.BOUNDARY;
+				} else if (ringLocations[i] == Location.INTERIOR) {
+					locations[i] = Location.EXTERIOR;
+				}
+			}
+		}
+	}
+
+	private static int locateInRing(DoubleBuffer ring, double px, double py) {
+		int crossings = 0;
+
+		for (int i = 2; i < ring.limit(); i += 2) {
+			int count = countSegment(ring.get(i), ring.get(i + 1), ring.get(i - 2), ring.get(i - 1), px, py);
+
+			if (count == ON_SEGMENT) {
+				return Location.BOUNDARY;
+			}
+
+			crossings += count;
+		}
+
+		return (crossings & 1) == 1 ? Location.INTERIOR : Location.EXTERIOR;
+	}
+
+	/**
+	 * Locates all points, whose location is still {@link Location#INTERIOR}, in
+	 * one pass over the edges of {@code ring}. Each edge is only tested against
+	 * the points in the buckets of its y range, since
+	 * {@link #countSegment(double, double, double, double, double, double)}
+	 * returns 0 for all other points.
+	 */
+	private static int[] locateInRing(DoubleBuffer ring, double[] x, double[] y, int n, int[] locations,
+			PointBuckets buckets, int[] crossings) {
+		int[] ringLocations = new int[n];
+
+		for (int i = 0; i < n; i++) {
+			ringLocations[i] = locations[i] == Location.INTERIOR ? Location.EXTERIOR : Location.NONE;
+			crossings[i] = 0;
+		}
+
+		for (int e = 2; e < ring.limit(); e += 2) {
+			double x1 = ring.get(e);
+			double y1 = ring.get(e + 1);
+			double x2 = ring.get(e - 2);
+			double y2 = ring.get(e - 1);
+			int to = buckets.getEnd(Math.max(y1, y2));
+
+			for (int b = buckets.getStart(Math.min(y1, y2)); b < to; b++) {
+				int i = buckets.getPoint(b);
+
+				if (ringLocations[i] != Location.EXTERIOR) {
+					continue;
+				}
+
+				int count = countSegment(x1, y1, x2, y2, x[i], y[i]);
+
+				if (count == ON_SEGMENT) {
+					ringLocations[i] = Location.BOUNDARY;
+				} else {
+					crossings[i] += count;
+				}
+			}
+		}
+
+		for (int i = 0; i < n; i++) {
+			if (ringLocations[i] == Location.EXTERIOR && (crossings[i] & 1) == 1) {
+				ringLocations[i] = Location.INTERIOR;
+			}
+		}
+
+		return ringLocations;
+	}
+
+	/**
+	 * Same as {@link RayCrossingCounter#countSegment(Coordinate, Coordinate)}.
+	 *
+	 * @return 1 if the ray from the point in positive x direction crosses the
+	 *         segment, 0 if not and {@link #ON_SEGMENT} if the point lies on
+	 *         the segment
+	 */
+	private static int countSegment(double x1, double y1, double x2, double y2, double px, double py) {
+		if (x1 < px && x2 < px) {
+			return 0;
+		}
+
+		if (px == x2 && py == y2) {
+			return ON_SEGMENT;
+		}
+
+		if (y1 == py && y2 == py) {
+			double minX = x1;
+			double maxX = x2;
+
+			if (minX > maxX) {
+				minX = x2;
+				maxX = x1;
+			}
+
+			return px >= minX && px <= maxX ? ON_SEGMENT : 0;
+		}
+
+		if (y1 > py && y2 <= py || y2 > py && y1 <= py) {
+			int orientation = CGAlgorithmsDD.orientationIndex(x1, y1, x2, y2, px, py);
+
+			if (orientation == 0) {
+				return ON_SEGMENT;
+			}
+
+			if (y2 < y1) {
+				orientation = -orientation;
+			}
+
+			return orientation == 1 ? 1 : 0;
+		}
+
+		return 0;
+	}
+
+	private static DoubleBuffer getCoordinates(CoordinateSequence sequence) {
+		if (sequence instanceof PackedCoordinateSequence.Double && sequence.getDimension() == 2) {
+			return DoubleBuffer.wrap(((PackedCoordinateSequence.Double) sequence).getRawCoordinates());
+		} else if (sequence instanceof OffHeapCoordinateSequence) {
+			return ((OffHeapCoordinateSequence) sequence).getBuffer();
+		}
+
+		double[] coordinates = new double[2 * sequence.size()];
+
+		for (int i = 0; i < sequence.size(); i++) {
+			coordinates[2 * i] = sequence.getX(i);
+			coordinates[2 * i + 1] = sequence.getY(i);
+		}
+
+		return DoubleBuffer.wrap(coordinates);
+	}
+
+	/**
+	 * Points sorted into buckets of equal height by their y coordinate (counting
+	 * sort). Points with NaN coordinates are not in any bucket.
+	 */
+	private static class PointBuckets {
+
+		private final double minY;
+		private final double scale;
+		private final int[] bucketStarts;
+		private final int[] points;
+
+		public PointBuckets(double[] y, int n) {
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+
+			// Math.min and Math.max would return NaN for a NaN coordinate
+			for (int i = 0; i < n; i++) {
+				if (y[i] < min) {
+					min = y[i];
+				}
+
+				if (y[i] > max) {
+					max = y[i];
+				}
+			}
+
+			int numBuckets = Math.max(n, 1);
+			double range = max - min;
+
+			minY = min;
+			scale = range > 0.0 && !Double.isInfinite(range) ? numBuckets / range : 0.0;
+			bucketStarts = new int[numBuckets + 1];
+
+			int[] buckets = new int[n];
+
+			for (int i = 0; i < n; i++) {
+				buckets[i] = Double.isNaN(y[i]) ? -1 : getBucket(y[i]);
+
+				if (buckets[i] != -1) {
+					bucketStarts[buckets[i] + 1]++;
+				}
+			}
+
+			for (int b = 0; b < numBuckets; b++) {
+				bucketStarts[b + 1] += bucketStarts[b];
+			}
+
+			int[] next = Arrays.copyOf(bucketStarts, numBuckets);
+
+			points = new int[bucketStarts[numBuckets]];
+
+			for (int i = 0; i < n; i++) {
+				if (buckets[i] != -1) {
+					points[next[buckets[i]]++] = i;
+				}
+			}
+		}
+
+		/**
+		 * @return the first position of the points with a y coordinate of at
+		 *         least {@code y}
+		 */
+		public int getStart(double y) {
+			return y > minY ? bucketStarts[getBucket(y)] : 0;
+		}
+
+		/**
+		 * @return the position after the last point with a y coordinate of at
+		 *         most {@code y}
+		 */
+		public int getEnd(double y) {
+			return y >= minY ? bucketStarts[getBucket(y) + 1] : 0;
+		}
+
+		public int getPoint(int position) {
+			return points[position];
+		}
+
+		/**
+		 * Monotonic in {@code y}, since subtraction and multiplication are
+		 * correctly rounded.
+		 */
+		private int getBucket(double y) {
+			return Math.min((int) ((y - minY) * scale), bucketStarts.length - 2);
+		}
+	}
+}
@@ -0,0 +1,237 @@
+package de.bund.bfr.knime.esri;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.geometry.jts.JTS;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeType;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+import de.bund.bfr.knime.esri.EsriStatistics.Stage;
+
+/**
+ * Converts point features into the table of the point readers: one row per
+ * point with the attributes of its feature and the columns "Latitude" and
+ * "Longitude". Attributes with the same name as these columns are renamed.
+ *
+ * @author Christian Thoens
+ */
+public class PointFeatureReader {
+
+	private static final String LATITUDE_COLUMN = "Latitude";
+	private static final String LONGITUDE_COLUMN = "Longitude";
+
+	private boolean spatialOrder;
+
+	/**
+	 * @param spatialOrder
+	 *            whether the points are sorted along a Hilbert curve instead of
+	 *            being in file order (see {@link HilbertCurve})
+	 */
+	public void setSpatialOrder(boolean spatialOrder) {
+		this.spatialOrder = spatialOrder;
+	}
+
+	public DataTableSpec createSpec(SimpleFeatureType type) {
+		Map<String, String> renaming = getRenaming(type);
+		List<DataColumnSpec> columns = new ArrayList<>();
+
+		for (AttributeType t : type.getTypes()) {
+			if (t == type.getGeometryDescriptor().getType()) {
+				continue;
+			}
+
+			String name = renaming.get(t.getName().toString());
+
+			if (t.getBinding() == Integer.class) {
+				columns.add(new DataColumnSpecCreator(name, IntCell.TYPE).createSpec());
+			} else if (t.getBinding() == Double.class) {
+				columns.add(new DataColumnSpecCreator(name, DoubleCell.TYPE).createSpec());
+			} else if (t.getBinding() == Boolean.class) {
+				columns.add(new DataColumnSpecCreator(name, BooleanCell.TYPE).createSpec());
+			} else {
+				columns.add(new DataColumnSpecCreator(name, StringCell.TYPE).createSpec());
+			}
+		}
+
+		columns.add(new DataColumnSpecCreator(LATITUDE_COLUMN, DoubleCell.TYPE).createSpec());
+		columns.add(new DataColumnSpecCreator(LONGITUDE_COLUMN, DoubleCell.TYPE).createSpec());
+
+		return new DataTableSpec(columns.toArray(new DataColumnSpec[0]));
+	}
+
+	/**
+	 * Reads all points of {@code collection} into a table. Points of polygons or
+	 * lines are ignored.
+	 *
+	 * @param transform
+	 *            transformation into latitude/longitude or null if the
+	 *            features already have longitude/latitude coordinates
+	 */
+	public BufferedDataTable read(SimpleFeatureCollection collection, MathTransform transform, ExecutionContext exec,
+			EsriStatistics statistics) throws IOException, TransformException, CanceledExecutionException {
+		return read(collection, null, transform, exec, statistics);
+	}
+
+	/**
+	 * Reads all points of {@code collection} into a table. The attributes
+	 * decoded by {@code attributes} are taken from its records, which must be
+	 * in the same order as the features.
+	 *
+	 * @param attributes
+	 *            reader of the attributes missing in {@code collection} or null
+	 * @param transform
+	 *            transformation into latitude/longitude or null if the
+	 *            features already have longitude/latitude coordinates
+	 */
+	public BufferedDataTable read(SimpleFeatureCollection collection, DbaseRecordReader attributes,
+			MathTransform transform, ExecutionContext exec, EsriStatistics statistics)
+			throws IOException, TransformException, CanceledExecutionException {
+		SimpleFeatureType type = attributes != null ? attributes.getSchema() : collection.getSchema();
+		Map<String, String> renaming = getRenaming(type);
+		DataTableSpec spec = createSpec(type);
+		FeatureCellMapper mapper = new FeatureCellMapper(collection.getSchema(), spec, renaming::get);
+		int latColumn = spec.findColumnIndex(LATITUDE_COLUMN);
+		int lonColumn = spec.findColumnIndex(LONGITUDE_COLUMN);
+		boolean swapAxes = transform == null;
+		ExecutionContext readExec = spatialOrder ? exec.createSubExecutionContext(0.5) : exec;
+		DataTableSpec containerSpec = spatialOrder ? HilbertCurve.createSpecWithKey(spec) : spec;
+		int keyColumn = spatialOrder ? spec.getNumColumns() : -1;
+		BufferedDataContainer container = readExec.createDataContainer(containerSpec);
+		int size = collection.size();
+		int index = 0;
+		int count = 0;
+
+		if (attributes != null) {
+			attributes.setOutput(spec, renaming::get);
+		}
+
+		try (SimpleFeatureIterator iterator = collection.features()) {
+			while (iterator.hasNext()) {
+				long time = statistics.start();
+				SimpleFeature feature = iterator.next();
+				DataCell[] cells = new DataCell[containerSpec.getNumColumns()];
+				Geometry geo = mapper.setCells(feature, cells);
+
+				if (attributes != null) {
+					attributes.setCells(cells);
+				}
+
+				time = statistics.stop(Stage.FEATURE_DECODING, time);
+				statistics.increment(Counter.FEATURES);
+
+				if (geo == null) {
+					continue;
+				}
+
+				if (transform != null) {
+					geo = JTS.transform(geo, transform);
+					time = statistics.stop(Stage.CRS_TRANSFORMATION, time);
+				}
+
+				// Same as iterating over EsriUtils.getSimpleGeometries, but without creating a list
+				for (int i = 0; i < geo.getNumGeometries(); i++) {
+					Geometry g = geo.getGeometryN(i);
+
+					if (!(g instanceof Point)) {
+						continue;
+					}
+
+					Coordinate c = ((Point) g).getCoordinate();
+
+					cells[latColumn] = new DoubleCell(swapAxes ? c.y : c.x);
+					cells[lonColumn] = new DoubleCell(swapAxes ? c.x : c.y);
+
+					if (keyColumn != -1) {
+						cells[keyColumn] = new LongCell(HilbertCurve.getSortKey(
+								swapAxes ? HilbertCurve.getIndex(c.y, c.x) : HilbertCurve.getIndex(c.x, c.y), index));
+					}
+
+					container.addRowToTable(new DefaultRow(String.valueOf(index), cells));
+					statistics.increment(Counter.VERTICES);
+					statistics.increment(Counter.ROWS);
+					index++;
+				}
+
+				statistics.stop(Stage.ROW_WRITING, time);
+
+				readExec.checkCanceled();
+				readExec.setProgress((double) count / (double) size);
+				count++;
+			}
+		} finally {
+			container.close();
+		}
+
+		if (spatialOrder) {
+			return HilbertCurve.sort(container.getTable(), exec.createSubExecutionContext(0.5));
+		}
+
+		return container.getTable();
+	}
+
+	private static Map<String, String> getRenaming(SimpleFeatureType type) {
+		Map<String, String> renaming = new LinkedHashMap<>();
+		Set<String> columnNames = new LinkedHashSet<>();
+
+		columnNames.add(LATITUDE_COLUMN);
+		columnNames.add(LONGITUDE_COLUMN);
+
+		for (AttributeType t : type.getTypes()) {
+			if (t == type.getGeometryDescriptor().getType()) {
+				continue;
+			}
+
+			String name = t.getName().toString();
+			String newName = createNewName(name, columnNames);
+
+			renaming.put(name, newName);
+			columnNames.add(newName);
+		}
+
+		return renaming;
+	}
+
+	private static String createNewName(String name, Collection<String> names) {
+		if (!names.contains(name)) {
+			return name;
+		}
+
+		for (int i = 2;; i++) {
+			String newValue = name + "_" + i;
+
+			if (!names.contains(newValue)) {
+				return newValue;
+			}
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package de.bund.bfr.knime.esri;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.StringValue;
+import org.knime.core.data.collection.ListDataValue;
+import org.knime.core.node.BufferedDataTable;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+
+/**
+ * In-memory copy of a coordinate table (second output of the Polygon Reader).
+ * The table is read sequentially into a packed array of latitudes and
+ * longitudes. Polygon rows can then look up their coordinates either via a
+ * list of row IDs or via a range of row indices, see
+ * {@link CoordinateReference}. The coordinates are returned as packed
+ * {@link CoordinateSequence}s, without creating an object per vertex.
+ *
+ * @author Christian Thoens
+ */
+public class PolygonCoordinates {
+
+	/**
+	 * Receives the polygons of {@link PolygonCoordinates#readPolygons}.
+	 */
+	@FunctionalInterface
+	public interface PolygonHandler<E extends Exception> {
+
+		void handle(DataRow row, Polygon polygon) throws E;
+	}
+
+	private final CoordinateReference reference;
+	private final Map<String, Integer> rowIndices;
+	private double[] coordinates;
+	private int size;
+
+	private PolygonCoordinates(CoordinateReference reference, int capacity) {
+		this.reference = reference;
+		rowIndices = reference == CoordinateReference.ROW_ID_LIST ? new HashMap<>(capacity * 4 / 3 + 1) : null;
+		coordinates = new double[2 * Math.max(capacity, 16)];
+		size = 0;
+	}
+
+	public static PolygonCoordinates read(BufferedDataTable table, String latitudeColumn, String longitudeColumn,
+			CoordinateReference reference) {
+		int latIndex = table.getSpec().findColumnIndex(latitudeColumn);
+		int lonIndex = table.getSpec().findColumnIndex(longitudeColumn);
+		PolygonCoordinates result = new PolygonCoordinates(reference,
+				(int) Math.min(table.size(), Integer.MAX_VALUE / 2));
+
+		for (DataRow row : table) {
+			DataCell latitudeCell = row.getCell(latIndex);
+			DataCell longitudeCell = row.getCell(lonIndex);
+
+			if (latitudeCell instanceof DoubleValue && longitudeCell instanceof DoubleValue) {
+				result.add(row.getKey().getString(), ((DoubleValue) latitudeCell).getDoubleValue(),
+						((DoubleValue) longitudeCell).getDoubleValue());
+			} else {
+				result.add(null, Double.NaN, Double.NaN);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Reads the coordinate table and creates the polygon of each row of the
+	 * polygon table with
+	 * {@link PolygonValidation#createPolygon(CoordinateSequence, GeometryFactory, String)}.
+	 * The vertices of all rows are counted. Invalid polygons are skipped, all
+	 * others are passed to {@code handler} with their row, in the order of the
+	 * polygon table.
+	 */
+	public static <E extends Exception> void readPolygons(BufferedDataTable polygonTable,
+			BufferedDataTable coordinateTable, String polygonColumn, String offsetColumn, String countColumn,
+			String latitudeColumn, String longitudeColumn, CoordinateReference reference, GeometryFactory factory,
+			PolygonValidation validation, EsriStatistics statistics, PolygonHandler<E> handler) throws E {
+		PolygonCoordinates polygonCoordinates = read(coordinateTable, latitudeColumn, longitudeColumn, reference);
+		DataTableSpec spec = polygonTable.getSpec();
+		int polygonIndex = spec.findColumnIndex(polygonColumn);
+		int offsetIndex = spec.findColumnIndex(offsetColumn);
+		int countIndex = spec.findColumnIndex(countColumn);
+
+		for (DataRow row : polygonTable) {
+			CoordinateSequence coordinates = polygonCoordinates.getCoordinates(row, polygonIndex, offsetIndex,
+					countIndex);
+
+			statistics.count(Counter.VERTICES, coordinates.size());
+
+			Polygon polygon = validation.createPolygon(coordinates, factory, row.getKey().getString());
+
+			if (polygon != null) {
+				handler.handle(row, polygon);
+			}
+		}
+	}
+
+	public CoordinateReference getReference() {
+		return reference;
+	}
+
+	/**
+	 * @return number of rows in the coordinate table
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the coordinates referenced by a row of the polygon table. Missing
+	 * or invalid references are skipped.
+	 *
+	 * @param polygonColumn
+	 *            index of the row ID list column, only used with
+	 *            {@link CoordinateReference#ROW_ID_LIST}
+	 * @param offsetColumn
+	 *            index of the offset column, only used with
+	 *            {@link CoordinateReference#COORDINATE_RANGE}
+	 * @param countColumn
+	 *            index of the count column, only used with
+	 *            {@link CoordinateReference#COORDINATE_RANGE}
+	 */
+	public CoordinateSequence getCoordinates(DataRow polygonRow, int polygonColumn, int offsetColumn,
+			int countColumn) {
+		if (reference == CoordinateReference.ROW_ID_LIST) {
+			DataCell polygonCell = polygonRow.getCell(polygonColumn);
+
+			if (!(polygonCell instanceof ListDataValue)) {
+				return createSequence(new double[0]);
+			}
+
+			ListDataValue rowIds = (ListDataValue) polygonCell;
+			double[] result = new double[2 * rowIds.size()];
+			int n = 0;
+
+			for (DataCell cell : rowIds) {
+				Integer index = cell instanceof StringValue ? rowIndices.get(((StringValue) cell).getStringValue())
+						: null;
+
+				if (index != null) {
+					result[n++] = coordinates[2 * index];
+					result[n++] = coordinates[2 * index + 1];
+				}
+			}
+
+			return createSequence(n == result.length ? result : Arrays.copyOf(result, n));
+		}
+
+		DataCell offsetCell = polygonRow.getCell(offsetColumn);
+		DataCell countCell = polygonRow.getCell(countColumn);
+
+		if (!(offsetCell instanceof IntValue) || !(countCell instanceof IntValue)) {
+			return createSequence(new double[0]);
+		}
+
+		return getCoordinates(((IntValue) offsetCell).getIntValue(), ((IntValue) countCell).getIntValue());
+	}
+
+	/**
+	 * @return the coordinates in the rows {@code offset} to
+	 *         {@code offset + count - 1}, skipping rows with missing values
+	 */
+	public CoordinateSequence getCoordinates(int offset, int count) {
+		int from = Math.max(offset, 0);
+		int to = (int) Math.min((long) offset + count, size);
+		double[] result = new double[2 * Math.max(to - from, 0)];
+		int n = 0;
+
+		for (int i = from; i < to; i++) {
+			double lat = coordinates[2 * i];
+
+			if (!Double.isNaN(lat)) {
+				result[n++] = lat;
+				result[n++] = coordinates[2 * i + 1];
+			}
+		}
+
+		return createSequence(n == result.length ? result : Arrays.copyOf(result, n));
+	}
+
+	private static CoordinateSequence createSequence(double[] packedCoordinates) {
+		return new PackedCoordinateSequence.Double(packedCoordinates, 2, 0);
+	}
+
+	private void add(String rowId, double lat, double lon) {
+		if (2 * size == coordinates.length) {
+			coordinates = Arrays.copyOf(coordinates, 2 * coordinates.length);
+		}
+
+		if (rowIndices != null && rowId != null) {
+			rowIndices.put(rowId, size);
+		}
+
+		coordinates[2 * size] = lat;
+		coordinates[2 * size + 1] = lon;
+		size++;
+	}
+}
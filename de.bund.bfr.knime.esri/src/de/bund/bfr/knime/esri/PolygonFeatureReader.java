@@ -0,0 +1,439 @@
+package de.bund.bfr.knime.esri;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.geometry.jts.JTS;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.collection.CollectionCellFactory;
+import org.knime.core.data.collection.ListCell;
+import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.data.container.SingleCellFactory;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.InvalidSettingsException;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Polygon;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeType;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+import de.bund.bfr.knime.esri.EsriStatistics.Stage;
+
+/**
+ * Converts polygon and line features into the two tables of the polygon
+ * readers: one row per simple geometry with its attributes and one row per
+ * coordinate. The geometry column of the first table references the rows of
+ * the second table either by a list of Row IDs or by offset and count (see
+ * {@link CoordinateReference}).
+ *
+ * @author Christian Thoens
+ */
+public class PolygonFeatureReader {
+
+	private static final String LATITUDE_COLUMN = "Latitude";
+	private static final String LONGITUDE_COLUMN = "Longitude";
+	private static final String OFFSET_COLUMN_SUFFIX = "_Offset";
+	private static final String COUNT_COLUMN_SUFFIX = "_Count";
+	public static final String DETAIL_LEVEL_COLUMN = "DetailLevel";
+	private static final String DETAIL_TOLERANCE_COLUMN = "DetailTolerance";
+
+	private final String rowIdPrefix;
+	private final boolean exteriorOnly;
+	private final boolean removeHoles;
+	private final boolean useRange;
+	private final SimplificationMethod simplification;
+	private final double tolerance;
+	private final double[] detailTolerances;
+
+	private boolean spatialOrder;
+
+	/**
+	 * @param rowIdPrefix
+	 *            prefix of the Row IDs of the coordinate table or null
+	 * @param exteriorOnly
+	 *            whether only the exterior rings of polygons are read
+	 * @param removeHoles
+	 *            whether polygons with holes are split (ignored with
+	 *            {@code exteriorOnly})
+	 * @param reference
+	 *            how the polygons reference their coordinates
+	 * @param simplification
+	 *            simplification of the geometries in the base level
+	 * @param tolerance
+	 *            tolerance of {@code simplification}
+	 * @param detailTolerances
+	 *            tolerances of the additional levels of detail in ascending
+	 *            order or null
+	 */
+	public PolygonFeatureReader(String rowIdPrefix, boolean exteriorOnly, boolean removeHoles,
+			CoordinateReference reference, SimplificationMethod simplification, double tolerance,
+			double[] detailTolerances) {
+		this.rowIdPrefix = rowIdPrefix;
+		this.exteriorOnly = exteriorOnly;
+		this.removeHoles = !exteriorOnly && removeHoles;
+		this.useRange = reference == CoordinateReference.COORDINATE_RANGE;
+		this.simplification = simplification;
+		this.tolerance = simplification != SimplificationMethod.NONE ? tolerance : 0.0;
+		this.detailTolerances = detailTolerances;
+	}
+
+	/**
+	 * @param spatialOrder
+	 *            whether the features are sorted along a Hilbert curve instead
+	 *            of being in file order (see {@link HilbertCurve}). The Row IDs
+	 *            keep their original values.
+	 */
+	public void setSpatialOrder(boolean spatialOrder) {
+		this.spatialOrder = spatialOrder;
+	}
+
+	public DataTableSpec[] createSpec(SimpleFeatureType type) {
+		List<DataColumnSpec> columns1 = new ArrayList<>();
+
+		for (AttributeType t : type.getTypes()) {
+			if (t == type.getGeometryDescriptor().getType() && useRange) {
+				String name = type.getGeometryDescriptor().getName().toString();
+
+				columns1.add(new DataColumnSpecCreator(name + OFFSET_COLUMN_SUFFIX, IntCell.TYPE).createSpec());
+				columns1.add(new DataColumnSpecCreator(name + COUNT_COLUMN_SUFFIX, IntCell.TYPE).createSpec());
+			} else if (t == type.getGeometryDescriptor().getType()) {
+				columns1.add(new DataColumnSpecCreator(type.getGeometryDescriptor().getName().toString(),
+						ListCell.getCollectionType(StringCell.TYPE)).createSpec());
+			} else if (t.getBinding() == Integer.class) {
+				columns1.add(new DataColumnSpecCreator(t.getName().toString(), IntCell.TYPE).createSpec());
+			} else if (t.getBinding() == Double.class) {
+				columns1.add(new DataColumnSpecCreator(t.getName().toString(), DoubleCell.TYPE).createSpec());
+			} else if (t.getBinding() == Boolean.class) {
+				columns1.add(new DataColumnSpecCreator(t.getName().toString(), BooleanCell.TYPE).createSpec());
+			} else {
+				columns1.add(new DataColumnSpecCreator(t.getName().toString(), StringCell.TYPE).createSpec());
+			}
+		}
+
+		if (detailTolerances != null) {
+			columns1.add(new DataColumnSpecCreator(DETAIL_LEVEL_COLUMN, IntCell.TYPE).createSpec());
+			columns1.add(new DataColumnSpecCreator(DETAIL_TOLERANCE_COLUMN, DoubleCell.TYPE).createSpec());
+		}
+
+		List<DataColumnSpec> columns2 = new ArrayList<>();
+
+		columns2.add(new DataColumnSpecCreator(LATITUDE_COLUMN, DoubleCell.TYPE).createSpec());
+		columns2.add(new DataColumnSpecCreator(LONGITUDE_COLUMN, DoubleCell.TYPE).createSpec());
+
+		return new DataTableSpec[] { new DataTableSpec(columns1.toArray(new DataColumnSpec[0])),
+				new DataTableSpec(columns2.toArray(new DataColumnSpec[0])) };
+	}
+
+	/**
+	 * Reads all features of {@code collection} into the polygon and the
+	 * coordinate table.
+	 *
+	 * @param transform
+	 *            transformation into latitude/longitude or null if the
+	 *            features already have longitude/latitude coordinates
+	 */
+	public BufferedDataTable[] read(SimpleFeatureCollection collection, MathTransform transform,
+			ExecutionContext exec, EsriStatistics statistics)
+			throws IOException, TransformException, CanceledExecutionException {
+		return read(collection, null, transform, exec, statistics);
+	}
+
+	/**
+	 * Reads all features of {@code collection} into the polygon and the
+	 * coordinate table. The attributes decoded by {@code attributes} are taken
+	 * from its records, which must be in the same order as the features.
+	 *
+	 * @param attributes
+	 *            reader of the attributes missing in {@code collection} or null
+	 * @param transform
+	 *            transformation into latitude/longitude or null if the
+	 *            features already have longitude/latitude coordinates
+	 */
+	public BufferedDataTable[] read(SimpleFeatureCollection collection, DbaseRecordReader attributes,
+			MathTransform transform, ExecutionContext exec, EsriStatistics statistics)
+			throws IOException, TransformException, CanceledExecutionException {
+		DataTableSpec[] spec = createSpec(attributes != null ? attributes.getSchema() : collection.getSchema());
+		DataTableSpec spec1 = spec[0];
+		DataTableSpec spec2 = spec[1];
+		FeatureCellMapper mapper = new FeatureCellMapper(collection.getSchema(), spec1, UnaryOperator.identity());
+
+		String geoName = collection.getSchema().getGeometryDescriptor().getLocalName();
+		int geoColumn = mapper.getGeometryColumn();
+		int offsetColumn = spec1.findColumnIndex(geoName + OFFSET_COLUMN_SUFFIX);
+		int countColumn = spec1.findColumnIndex(geoName + COUNT_COLUMN_SUFFIX);
+		int levelColumn = spec1.findColumnIndex(DETAIL_LEVEL_COLUMN);
+		int levelToleranceColumn = spec1.findColumnIndex(DETAIL_TOLERANCE_COLUMN);
+		int latColumn = spec2.findColumnIndex(LATITUDE_COLUMN);
+		int lonColumn = spec2.findColumnIndex(LONGITUDE_COLUMN);
+		double[] levelTolerances = detailTolerances != null ? detailTolerances : new double[0];
+		boolean swapAxes = transform == null;
+		SimplificationMethod detailMethod = simplification != SimplificationMethod.NONE ? simplification
+				: SimplificationMethod.DOUGLAS_PEUCKER;
+		ExecutionContext readExec = spatialOrder ? exec.createSubExecutionContext(0.5) : exec;
+		DataTableSpec containerSpec1 = spatialOrder ? HilbertCurve.createSpecWithKey(spec1) : spec1;
+		DataTableSpec containerSpec2 = spatialOrder ? HilbertCurve.createSpecWithKey(spec2) : spec2;
+		int keyColumn1 = spatialOrder ? spec1.getNumColumns() : -1;
+		int keyColumn2 = spatialOrder ? spec2.getNumColumns() : -1;
+		BufferedDataContainer container1 = readExec.createDataContainer(containerSpec1);
+		BufferedDataContainer container2 = readExec.createDataContainer(containerSpec2);
+		int size = collection.size();
+		int index1 = 0;
+		int index2 = 0;
+		int count = 0;
+
+		if (attributes != null) {
+			attributes.setOutput(spec1, UnaryOperator.identity());
+		}
+
+		try (SimpleFeatureIterator iterator = collection.features()) {
+			while (iterator.hasNext()) {
+				long time = statistics.start();
+				SimpleFeature feature = iterator.next();
+				DataCell[] cells1 = new DataCell[containerSpec1.getNumColumns()];
+				Geometry geo = mapper.setCells(feature, cells1);
+
+				if (attributes != null) {
+					attributes.setCells(cells1);
+				}
+
+				time = statistics.stop(Stage.FEATURE_DECODING, time);
+				statistics.increment(Counter.FEATURES);
+
+				if (geo == null) {
+					continue;
+				}
+
+				if (transform != null) {
+					geo = JTS.transform(geo, transform);
+					time = statistics.stop(Stage.CRS_TRANSFORMATION, time);
+				}
+
+				long hilbertIndex = spatialOrder ? HilbertCurve.getIndex(geo, swapAxes) : 0L;
+
+				time = statistics.stop(Stage.SIMPLE_GEOMETRIES, time);
+
+				// Records its own time, hole splitting separately from the rest
+				List<Geometry> simpleGeometries = EsriUtils.getSimpleGeometries(geo, removeHoles, statistics);
+
+				time = statistics.start();
+
+				List<List<Geometry>> levels = new ArrayList<>(levelTolerances.length + 1);
+
+				levels.add(simplify(simpleGeometries, simplification, tolerance));
+
+				for (double t : levelTolerances) {
+					levels.add(simplify(simpleGeometries, detailMethod, t));
+				}
+
+				if (simplification != SimplificationMethod.NONE || levelTolerances.length > 0) {
+					time = statistics.stop(Stage.SIMPLIFICATION, time);
+				}
+
+				for (int level = 0; level < levels.size(); level++) {
+					if (levelColumn != -1) {
+						cells1[levelColumn] = new IntCell(level);
+						cells1[levelToleranceColumn] = new DoubleCell(
+								level == 0 ? tolerance : levelTolerances[level - 1]);
+					}
+
+					for (Geometry g : levels.get(level)) {
+						List<CoordinateSequence> rings = getRings(g, exteriorOnly);
+
+						if (rings == null) {
+							continue;
+						}
+
+						int numCoordinates = rings.stream().mapToInt(CoordinateSequence::size).sum();
+						List<StringCell> rowIdCells = useRange ? null : new ArrayList<>(numCoordinates);
+						int offset = index2;
+
+						statistics.count(Counter.VERTICES, numCoordinates);
+
+						for (CoordinateSequence ring : rings) {
+							for (int i = 0; i < ring.size(); i++) {
+								DataCell[] cells2 = new DataCell[containerSpec2.getNumColumns()];
+								String rowId = createRowId(rowIdPrefix, index2);
+								double x = ring.getX(i);
+								double y = ring.getY(i);
+
+								cells2[latColumn] = new DoubleCell(swapAxes ? y : x);
+								cells2[lonColumn] = new DoubleCell(swapAxes ? x : y);
+
+								if (keyColumn2 != -1) {
+									cells2[keyColumn2] = new LongCell(HilbertCurve.getSortKey(hilbertIndex, index2));
+								}
+
+								container2.addRowToTable(new DefaultRow(rowId, cells2));
+								index2++;
+
+								if (rowIdCells != null) {
+									rowIdCells.add(new StringCell(rowId));
+								}
+							}
+						}
+
+						if (useRange) {
+							cells1[offsetColumn] = new IntCell(offset);
+							cells1[countColumn] = new IntCell(numCoordinates);
+						} else {
+							cells1[geoColumn] = CollectionCellFactory.createListCell(rowIdCells);
+						}
+
+						if (keyColumn1 != -1) {
+							cells1[keyColumn1] = new LongCell(HilbertCurve.getSortKey(hilbertIndex, index1));
+						}
+
+						container1.addRowToTable(new DefaultRow(String.valueOf(index1), cells1));
+						statistics.count(Counter.ROWS, numCoordinates + 1);
+						index1++;
+					}
+				}
+
+				statistics.stop(Stage.ROW_WRITING, time);
+
+				readExec.checkCanceled();
+				readExec.setProgress((double) count / (double) size);
+				count++;
+			}
+		} finally {
+			container1.close();
+			container2.close();
+		}
+
+		if (!spatialOrder) {
+			return new BufferedDataTable[] { container1.getTable(), container2.getTable() };
+		}
+
+		BufferedDataTable table1 = HilbertCurve.sort(container1.getTable(), exec.createSubExecutionContext(0.1));
+		BufferedDataTable table2 = HilbertCurve.sort(container2.getTable(), exec.createSubExecutionContext(0.35));
+
+		if (useRange) {
+			table1 = updateOffsets(table1, offsetColumn, countColumn, exec.createSubExecutionContext(0.05));
+		}
+
+		return new BufferedDataTable[] { table1, table2 };
+	}
+
+	/**
+	 * @param rowIdPrefix
+	 *            prefix of the Row IDs or null
+	 * @return the Row ID of the row {@code index} of a table, that is
+	 *         numbered from 0 with the Row ID Prefix option of the reader
+	 */
+	public static String createRowId(String rowIdPrefix, long index) {
+		return rowIdPrefix != null ? rowIdPrefix + "_" + index : String.valueOf(index);
+	}
+
+	/**
+	 * @return the positive tolerances in {@code s} (separated by commas,
+	 *         semicolons or whitespace) in ascending order
+	 */
+	public static double[] parseTolerances(String s) throws InvalidSettingsException {
+		if (s == null || s.trim().isEmpty()) {
+			throw new InvalidSettingsException("No tolerances for the levels of detail specified");
+		}
+
+		String[] parts = s.trim().split("[,;\\s]+");
+		double[] tolerances = new double[parts.length];
+
+		for (int i = 0; i < parts.length; i++) {
+			try {
+				tolerances[i] = Double.parseDouble(parts[i]);
+			} catch (NumberFormatException e) {
+				throw new InvalidSettingsException("Invalid tolerance: " + parts[i]);
+			}
+
+			if (!(tolerances[i] > 0.0) || Double.isInfinite(tolerances[i])) {
+				throw new InvalidSettingsException("Tolerance must be positive: " + parts[i]);
+			}
+		}
+
+		Arrays.sort(tolerances);
+
+		return tolerances;
+	}
+
+	/**
+	 * Replaces the offsets in {@code table} by the running sum of the counts,
+	 * since the coordinates of the sorted polygons are in the same order as the
+	 * polygons.
+	 */
+	private static BufferedDataTable updateOffsets(BufferedDataTable table, int offsetColumn, int countColumn,
+			ExecutionContext exec) throws CanceledExecutionException {
+		ColumnRearranger rearranger = new ColumnRearranger(table.getDataTableSpec());
+
+		// Not processed in parallel, so the rows are visited in order
+		rearranger.replace(new SingleCellFactory(table.getDataTableSpec().getColumnSpec(offsetColumn)) {
+
+			private int offset = 0;
+
+			@Override
+			public DataCell getCell(DataRow row) {
+				DataCell cell = new IntCell(offset);
+
+				offset += ((IntCell) row.getCell(countColumn)).getIntValue();
+
+				return cell;
+			}
+		}, offsetColumn);
+
+		return exec.createColumnRearrangeTable(table, rearranger, exec);
+	}
+
+	/**
+	 * @return the coordinate sequences of the rings of a polygon (exterior ring
+	 *         first) or of a line string, null for all other geometries
+	 */
+	private static List<CoordinateSequence> getRings(Geometry g, boolean exteriorOnly) {
+		if (g instanceof LineString) {
+			return Arrays.asList(((LineString) g).getCoordinateSequence());
+		} else if (!(g instanceof Polygon)) {
+			return null;
+		}
+
+		Polygon p = (Polygon) g;
+		List<CoordinateSequence> rings = new ArrayList<>(p.getNumInteriorRing() + 1);
+
+		rings.add(p.getExteriorRing().getCoordinateSequence());
+
+		if (!exteriorOnly) {
+			for (int i = 0; i < p.getNumInteriorRing(); i++) {
+				rings.add(p.getInteriorRingN(i).getCoordinateSequence());
+			}
+		}
+
+		return rings;
+	}
+
+	private static List<Geometry> simplify(List<Geometry> geometries, SimplificationMethod method, double tolerance) {
+		if (method == SimplificationMethod.NONE) {
+			return geometries;
+		}
+
+		return geometries.stream().map(g -> method.simplify(g, tolerance)).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,158 @@
+package de.bund.bfr.knime.esri;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Polygon;
+
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+
+/**
+ * Raster lookup grid over the envelope of the polygons of a
+ * {@link PolygonIndex}. Each cell is
+ * classified as inside, outside or boundary. Cells are marked as boundary if
+ * their closed rectangle touches any polygon edge, so all points of an inside
+ * or outside cell have the same containment and are answered without a
+ * geometric test. Only points in boundary cells are tested against the exact
+ * geometry. The results are identical to {@link PolygonIndex#contains}.
+ * After construction the grid is immutable and may be queried from multiple
+ * threads.
+ *
+ * @author Christian Thoens
+ */
+public class PolygonGrid {
+
+	private static final byte OUTSIDE = 0;
+	private static final byte INSIDE = 1;
+	private static final byte BOUNDARY = 2;
+
+	private static final double EPSILON = 1e-9;
+
+	private final PolygonIndex index;
+	private final Envelope envelope;
+	private final int width;
+	private final int height;
+	private final double cellWidth;
+	private final double cellHeight;
+	private final byte[] cells;
+
+	/**
+	 * @param resolution
+	 *            number of cells along the longer side of the envelope
+	 */
+	public PolygonGrid(PolygonIndex index, int resolution) {
+		this.index = index;
+		envelope = new Envelope();
+
+		for (Polygon p : index.getPolygons()) {
+			envelope.expandToInclude(p.getEnvelopeInternal());
+		}
+
+		double w = envelope.getWidth();
+		double h = envelope.getHeight();
+		double max = Math.max(w, h);
+
+		width = max > 0.0 ? Math.max((int) Math.ceil(resolution * w / max), 1) : 1;
+		height = max > 0.0 ? Math.max((int) Math.ceil(resolution * h / max), 1) : 1;
+		cellWidth = w > 0.0 ? w / width : 1.0;
+		cellHeight = h > 0.0 ? h / height : 1.0;
+		cells = new byte[width * height];
+
+		if (envelope.isNull()) {
+			return;
+		}
+
+		for (Polygon p : index.getPolygons()) {
+			markBoundary(p.getExteriorRing().getCoordinateSequence());
+
+			for (int j = 0; j < p.getNumInteriorRing(); j++) {
+				markBoundary(p.getInteriorRingN(j).getCoordinateSequence());
+			}
+		}
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (cells[y * width + x] != BOUNDARY) {
+					cells[y * width + x] = index.contains(envelope.getMinX() + (x + 0.5) * cellWidth,
+							envelope.getMinY() + (y + 0.5) * cellHeight) ? INSIDE : OUTSIDE;
+				}
+			}
+		}
+	}
+
+	public PolygonIndex getIndex() {
+		return index;
+	}
+
+	public boolean contains(Coordinate c, EsriStatistics statistics) {
+		if (!envelope.contains(c)) {
+			statistics.increment(Counter.GRID_HITS);
+			return false;
+		}
+
+		int x = Math.min((int) ((c.x - envelope.getMinX()) / cellWidth), width - 1);
+		int y = Math.min((int) ((c.y - envelope.getMinY()) / cellHeight), height - 1);
+		byte cell = cells[y * width + x];
+
+		if (cell != BOUNDARY) {
+			statistics.increment(Counter.GRID_HITS);
+			return cell == INSIDE;
+		}
+
+		return index.contains(c.x, c.y);
+	}
+
+	/**
+	 * @return fraction of cells, that need an exact test
+	 */
+	public double getBoundaryFraction() {
+		int n = 0;
+
+		for (byte cell : cells) {
+			if (cell == BOUNDARY) {
+				n++;
+			}
+		}
+
+		return n / (double) cells.length;
+	}
+
+	private void markBoundary(CoordinateSequence ring) {
+		for (int i = 1; i < ring.size(); i++) {
+			double x0 = (ring.getX(i - 1) - envelope.getMinX()) / cellWidth;
+			double y0 = (ring.getY(i - 1) - envelope.getMinY()) / cellHeight;
+			double x1 = (ring.getX(i) - envelope.getMinX()) / cellWidth;
+			double y1 = (ring.getY(i) - envelope.getMinY()) / cellHeight;
+
+			if (x0 > x1) {
+				double t = x0;
+
+				x0 = x1;
+				x1 = t;
+				t = y0;
+				y0 = y1;
+				y1 = t;
+			}
+
+			int fromColumn = clamp((int) Math.floor(x0 - EPSILON), width);
+			int toColumn = clamp((int) Math.floor(x1 + EPSILON), width);
+
+			for (int column = fromColumn; column <= toColumn; column++) {
+				double slabFrom = Math.max(x0, column);
+				double slabTo = Math.min(x1, column + 1);
+				double ya = x1 > x0 ? y0 + (y1 - y0) * (slabFrom - x0) / (x1 - x0) : y0;
+				double yb = x1 > x0 ? y0 + (y1 - y0) * (slabTo - x0) / (x1 - x0) : y1;
+				int fromRow = clamp((int) Math.floor(Math.min(ya, yb) - EPSILON), height);
+				int toRow = clamp((int) Math.floor(Math.max(ya, yb) + EPSILON), height);
+
+				for (int row = fromRow; row <= toRow; row++) {
+					cells[row * width + column] = BOUNDARY;
+				}
+			}
+		}
+	}
+
+	private static int clamp(int i, int size) {
+		return Math.max(0, Math.min(i, size - 1));
+	}
+}
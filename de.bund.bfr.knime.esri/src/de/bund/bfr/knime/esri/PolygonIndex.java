@@ -0,0 +1,467 @@
+package de.bund.bfr.knime.esri;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.locationtech.jts.algorithm.BoundaryNodeRule;
+import org.locationtech.jts.algorithm.locate.IndexedPointInAreaLocator;
+import org.locationtech.jts.algorithm.locate.PointOnGeometryLocator;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Location;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.index.strtree.ItemBoundable;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Spatial index over a list of polygons with their row keys. Candidate
+ * polygons are found with an {@link STRtree} over the polygon envelopes, the
+ * exact test uses an {@link IndexedPointInAreaLocator} per polygon or, for
+ * small polygons and if the segments should not be indexed, a
+ * {@link PackedPolygonLocator} directly on the coordinates of the rings.
+ * Coordinates are given as
+ * latitude/longitude, i.e. in the x/y order used by all nodes of this plugin.
+ * {@link #contains(double, double)} treats all polygons as one multipolygon,
+ * while {@link #getContaining(double, double)} tests each polygon on its own.
+ * After construction the index is immutable and may be queried from multiple
+ * threads.
+ *
+ * @author Christian Thoens
+ */
+public class PolygonIndex {
+
+	/**
+	 * Mean earth radius in km.
+	 */
+	public static final double EARTH_RADIUS = 6371.0088;
+
+	/**
+	 * Polygons with at most this number of vertices are tested without segment
+	 * index, since scanning all segments is faster than the index lookup.
+	 */
+	private static final int MAX_UNINDEXED_VERTICES = 32;
+
+	/**
+	 * In {@link #contains(double[], double[])}, polygons with up to this number
+	 * of vertices per tested coordinate are tested with a
+	 * {@link PackedPolygonLocator}, even if their segments are indexed.
+	 */
+	private static final int MAX_VERTICES_PER_COORDINATE = 8;
+
+	private final ImmutableList<String> keys;
+	private final ImmutableList<Polygon> polygons;
+	private final PointOnGeometryLocator[] locators;
+	private final PackedPolygonLocator[] packedLocators;
+	private final STRtree tree;
+
+	public PolygonIndex(List<String> keys, List<Polygon> polygons) {
+		this(keys, polygons, true);
+	}
+
+	/**
+	 * @param indexSegments
+	 *            if false, no index of the polygon segments is built. The tests
+	 *            are slower for polygons with many vertices, but no heap objects
+	 *            per segment are created, e.g. for polygons in an
+	 *            {@link OffHeapGeometryStore}.
+	 */
+	public PolygonIndex(List<String> keys, List<Polygon> polygons, boolean indexSegments) {
+		if (keys.size() != polygons.size()) {
+			throw new IllegalArgumentException("Number of keys and polygons differ");
+		}
+
+		this.keys = ImmutableList.copyOf(keys);
+		this.polygons = ImmutableList.copyOf(polygons);
+		locators = new PointOnGeometryLocator[polygons.size()];
+		packedLocators = new PackedPolygonLocator[polygons.size()];
+		tree = new STRtree();
+
+		for (int i = 0; i < polygons.size(); i++) {
+			Polygon p = polygons.get(i);
+
+			packedLocators[i] = new PackedPolygonLocator(p);
+
+			if (indexSegments && p.getNumPoints() > MAX_UNINDEXED_VERTICES) {
+				locators[i] = new IndexedPointInAreaLocator(p);
+			} else {
+				locators[i] = packedLocators[i];
+			}
+
+			if (!p.isEmpty()) {
+				// Creates the segment index now instead of on the first query
+				locators[i].locate(p.getCoordinate());
+				tree.insert(p.getEnvelopeInternal(), i);
+			}
+		}
+
+		tree.build();
+	}
+
+	public int size() {
+		return polygons.size();
+	}
+
+	public String getKey(int index) {
+		return keys.get(index);
+	}
+
+	public Polygon getPolygon(int index) {
+		return polygons.get(index);
+	}
+
+	public ImmutableList<String> getKeys() {
+		return keys;
+	}
+
+	public ImmutableList<Polygon> getPolygons() {
+		return polygons;
+	}
+
+	public STRtree getTree() {
+		return tree;
+	}
+
+	/**
+	 * @return the indices of all polygons, whose interior contains the
+	 *         coordinate, in ascending order
+	 */
+	public List<Integer> getContaining(double lat, double lon) {
+		Coordinate c = new Coordinate(lat, lon);
+		List<Integer> result = new ArrayList<>(1);
+
+		tree.query(new Envelope(c), item -> {
+			int index = (Integer) item;
+
+			if (locators[index].locate(c) == Location.INTERIOR) {
+				result.add(index);
+			}
+		});
+
+		if (result.size() > 1) {
+			Collections.sort(result);
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return the index of the first polygon, whose interior contains the
+	 *         coordinate, or -1 if there is no such polygon
+	 */
+	public int getFirstContaining(double lat, double lon) {
+		List<Integer> containing = getContaining(lat, lon);
+
+		return containing.isEmpty() ? -1 : containing.get(0);
+	}
+
+	/**
+	 * Same as {@link org.locationtech.jts.geom.MultiPolygon#contains} for all
+	 * polygons: the coordinate is contained, if it lies in the interior of a
+	 * polygon or on the boundary of an even number of polygons (mod 2 boundary
+	 * rule), e.g. on the edge shared by two adjacent polygons. Vertices of the
+	 * polygons are on the boundary, like in the multipolygon. Unlike the
+	 * multipolygon, the polygons may overlap. A coordinate in the interior of
+	 * one polygon is then contained, even if it lies on the boundary of another.
+	 * Edges, that overlapping polygons have in common, are treated like shared
+	 * edges.
+	 */
+	public boolean contains(double lat, double lon) {
+		Coordinate c = new Coordinate(lat, lon);
+		boolean[] interior = { false };
+		List<Integer> boundaries = new ArrayList<>(0);
+
+		tree.query(new Envelope(c), item -> {
+			if (!interior[0]) {
+				int location = locators[(Integer) item].locate(c);
+
+				if (location == Location.INTERIOR) {
+					interior[0] = true;
+				} else if (location == Location.BOUNDARY) {
+					boundaries.add((Integer) item);
+				}
+			}
+		});
+
+		return interior[0] || isInteriorOfUnion(boundaries, lat, lon);
+	}
+
+	/**
+	 * Same as {@link #contains(double, double)} for many coordinates. The
+	 * coordinates are grouped by candidate polygon, so that each polygon is
+	 * tested against all of its coordinates at once with the
+	 * {@link PackedPolygonLocator}, unless the polygon has many vertices and only
+	 * few coordinates are tested against it.
+	 *
+	 * @return for each coordinate, whether it lies within one of the polygons
+	 */
+	public boolean[] contains(double[] lat, double[] lon) {
+		boolean[] contains = new boolean[lat.length];
+		int[] boundaries = new int[lat.length];
+		long[][] candidates = { new long[lat.length] };
+		int[] count = { 0 };
+
+		for (int i = 0; i < lat.length; i++) {
+			long point = i;
+
+			tree.query(new Envelope(new Coordinate(lat[i], lon[i])), item -> {
+				if (count[0] == candidates[0].length) {
+					candidates[0] = Arrays.copyOf(candidates[0], 2 * count[0]);
+				}
+
+				candidates[0][count[0]++] = (long) (Integer) item << 32 | point;
+			});
+		}
+
+		// Sorted by polygon, each polygon is tested against all of its candidates
+		Arrays.sort(candidates[0], 0, count[0]);
+
+		double[] x = new double[count[0]];
+		double[] y = new double[count[0]];
+		int[] points = new int[count[0]];
+		int[] locations = new int[count[0]];
+
+		for (int from = 0, to; from < count[0]; from = to) {
+			int index = (int) (candidates[0][from] >>> 32);
+			int n = 0;
+
+			for (to = from; to < count[0] && (int) (candidates[0][to] >>> 32) == index; to++) {
+				int point = (int) candidates[0][to];
+
+				if (!contains[point]) {
+					x[n] = lat[point];
+					y[n] = lon[point];
+					points[n++] = point;
+				}
+			}
+
+			if (locators[index] == packedLocators[index]
+					|| polygons.get(index).getNumPoints() <= MAX_VERTICES_PER_COORDINATE * n) {
+				packedLocators[index].locate(x, y, n, locations);
+			} else {
+				for (int i = 0; i < n; i++) {
+					locations[i] = locators[index].locate(new Coordinate(x[i], y[i]));
+				}
+			}
+
+			for (int i = 0; i < n; i++) {
+				if (locations[i] == Location.INTERIOR) {
+					contains[points[i]] = true;
+				} else if (locations[i] == Location.BOUNDARY) {
+					boundaries[points[i]]++;
+				}
+			}
+		}
+
+		// Coordinates on shared edges are rare, they are decided one by one
+		for (int i = 0; i < lat.length; i++) {
+			if (!contains[i] && boundaries[i] > 0
+					&& !BoundaryNodeRule.MOD2_BOUNDARY_RULE.isInBoundary(boundaries[i])) {
+				contains[i] = contains(lat[i], lon[i]);
+			}
+		}
+
+		return contains;
+	}
+
+	/**
+	 * @param boundaries
+	 *            indices of the polygons, on whose boundary the coordinate lies
+	 * @return whether the coordinate lies in the interior of the multipolygon
+	 *         of all polygons
+	 */
+	private boolean isInteriorOfUnion(List<Integer> boundaries, double lat, double lon) {
+		if (boundaries.isEmpty() || BoundaryNodeRule.MOD2_BOUNDARY_RULE.isInBoundary(boundaries.size())) {
+			return false;
+		}
+
+		for (int index : boundaries) {
+			if (isVertex(polygons.get(index), lat, lon)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean isVertex(Polygon polygon, double lat, double lon) {
+		for (int r = 0; r <= polygon.getNumInteriorRing(); r++) {
+			CoordinateSequence ring = (r == 0 ? polygon.getExteriorRing() : polygon.getInteriorRingN(r - 1))
+					.getCoordinateSequence();
+
+			for (int i = 0; i < ring.size(); i++) {
+				if (ring.getX(i) == lat && ring.getY(i) == lon) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Finds the polygon with the smallest distance to the coordinate. Candidates
+	 * are taken from a planar nearest neighbour query of the {@link STRtree},
+	 * followed by a query of the bounding box of all coordinates, that are
+	 * closer than the first candidate. So the result is exact with respect to
+	 * {@link #getDistance(int, double, double)}.
+	 *
+	 * @param maxDistance
+	 *            maximum distance in km, {@link Double#POSITIVE_INFINITY} for no
+	 *            limit
+	 * @return the nearest polygon or null if there is no polygon within
+	 *         {@code maxDistance}
+	 */
+	public NearestPolygon getNearest(double lat, double lon, double maxDistance) {
+		if (tree.isEmpty()) {
+			return null;
+		}
+
+		Coordinate c = new Coordinate(lat, lon);
+		double bound = maxDistance;
+
+		if (Double.isInfinite(bound)) {
+			bound = getDistance((Integer) tree.nearestNeighbour(new Envelope(c), c, this::getPlanarDistance), lat,
+					lon);
+		}
+
+		double searchDistance = bound;
+		NearestPolygon[] nearest = new NearestPolygon[1];
+
+		tree.query(getSearchEnvelope(lat, lon, searchDistance), item -> {
+			int index = (Integer) item;
+			double distance = getDistance(index, lat, lon);
+
+			if (distance <= searchDistance && (nearest[0] == null || distance < nearest[0].getDistance()
+					|| distance == nearest[0].getDistance() && index < nearest[0].getIndex())) {
+				nearest[0] = new NearestPolygon(index, distance);
+			}
+		});
+
+		return nearest[0];
+	}
+
+	/**
+	 * @return 0 if the coordinate lies within or on the boundary of the polygon,
+	 *         otherwise the haversine distance (in km) from the coordinate to the
+	 *         closest point on the polygon boundary
+	 */
+	public double getDistance(int index, double lat, double lon) {
+		if (locators[index].locate(new Coordinate(lat, lon)) != Location.EXTERIOR) {
+			return 0.0;
+		}
+
+		Polygon polygon = polygons.get(index);
+		double distance = getDistance(polygon.getExteriorRing(), lat, lon);
+
+		for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+			distance = Math.min(distance, getDistance(polygon.getInteriorRingN(i), lat, lon));
+		}
+
+		return distance;
+	}
+
+	/**
+	 * @return haversine distance between two coordinates in km
+	 */
+	public static double getDistance(double lat1, double lon1, double lat2, double lon2) {
+		double sinLat = Math.sin(Math.toRadians(lat2 - lat1) / 2.0);
+		double sinLon = Math.sin(Math.toRadians(lon2 - lon1) / 2.0);
+		double a = sinLat * sinLat
+				+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+
+		return 2.0 * EARTH_RADIUS * Math.asin(Math.min(Math.sqrt(a), 1.0));
+	}
+
+	/**
+	 * The closest point of each segment is computed in an equirectangular
+	 * projection centered at the coordinate, its distance with the haversine
+	 * formula.
+	 */
+	private static double getDistance(LineString ring, double lat, double lon) {
+		double cosLat = Math.cos(Math.toRadians(lat));
+		double distance = Double.POSITIVE_INFINITY;
+
+		CoordinateSequence coordinates = ring.getCoordinateSequence();
+
+		for (int i = 1; i < coordinates.size(); i++) {
+			double fromLat = coordinates.getX(i - 1);
+			double fromLon = coordinates.getY(i - 1);
+			double toLat = coordinates.getX(i);
+			double toLon = coordinates.getY(i);
+			double fromX = (fromLon - lon) * cosLat;
+			double fromY = fromLat - lat;
+			double dx = (toLon - fromLon) * cosLat;
+			double dy = toLat - fromLat;
+			double length = dx * dx + dy * dy;
+			double t = length > 0.0 ? Math.max(0.0, Math.min(1.0, -(fromX * dx + fromY * dy) / length)) : 0.0;
+
+			distance = Math.min(distance,
+					getDistance(lat, lon, fromLat + t * (toLat - fromLat), fromLon + t * (toLon - fromLon)));
+		}
+
+		return distance;
+	}
+
+	/**
+	 * @return bounding box of all coordinates within {@code distance} km of the
+	 *         coordinate
+	 */
+	private static Envelope getSearchEnvelope(double lat, double lon, double distance) {
+		double angle = distance / EARTH_RADIUS;
+		double minLat = lat - Math.toDegrees(angle);
+		double maxLat = lat + Math.toDegrees(angle);
+		double sinLon = Math.sin(Math.min(angle, Math.PI / 2.0)) / Math.cos(Math.toRadians(lat));
+
+		if (minLat <= -90.0 || maxLat >= 90.0 || sinLon >= 1.0) {
+			return new Envelope(Math.max(minLat, -90.0), Math.min(maxLat, 90.0), -180.0, 180.0);
+		}
+
+		double deltaLon = Math.toDegrees(Math.asin(sinLon));
+
+		return new Envelope(minLat, maxLat, lon - deltaLon, lon + deltaLon);
+	}
+
+	private double getPlanarDistance(ItemBoundable item1, ItemBoundable item2) {
+		Object o1 = item1.getItem();
+		Object o2 = item2.getItem();
+
+		Geometry g1 = o1 instanceof Coordinate ? EsriUtils.GEO_FACTORY.createPoint((Coordinate) o1)
+				: polygons.get((Integer) o1);
+		Geometry g2 = o2 instanceof Coordinate ? EsriUtils.GEO_FACTORY.createPoint((Coordinate) o2)
+				: polygons.get((Integer) o2);
+
+		return g1.distance(g2);
+	}
+
+	/**
+	 * Result of {@link PolygonIndex#getNearest(double, double, double)}.
+	 */
+	public static class NearestPolygon {
+
+		private final int index;
+		private final double distance;
+
+		public NearestPolygon(int index, double distance) {
+			this.index = index;
+			this.distance = distance;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * @return distance in km
+		 */
+		public double getDistance() {
+			return distance;
+		}
+	}
+}
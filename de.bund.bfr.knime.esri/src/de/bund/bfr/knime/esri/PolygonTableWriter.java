@@ -0,0 +1,202 @@
+package de.bund.bfr.knime.esri;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.collection.CollectionCellFactory;
+import org.knime.core.data.collection.ListCell;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.ExecutionContext;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Polygon;
+
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+import de.bund.bfr.knime.esri.EsriStatistics.Stage;
+
+/**
+ * Writes JTS geometries (with latitude/longitude as x/y) into the two tables
+ * of the Polygon Reader: one row per simple geometry with its attributes and
+ * one row per coordinate. So nodes that compute new polygons produce the same
+ * layout as the readers.
+ *
+ * @author Christian Thoens
+ */
+public class PolygonTableWriter {
+
+	public static final String LATITUDE_COLUMN = "Latitude";
+	public static final String LONGITUDE_COLUMN = "Longitude";
+	public static final String OFFSET_COLUMN_SUFFIX = "_Offset";
+	public static final String COUNT_COLUMN_SUFFIX = "_Count";
+
+	private final boolean useRange;
+	private final boolean removeHoles;
+	private final int geometryColumn;
+	private final int offsetColumn;
+	private final int countColumn;
+	private final int numColumns;
+	private final BufferedDataContainer polygonContainer;
+	private final BufferedDataContainer coordinateContainer;
+
+	private long polygonIndex;
+	private int coordinateIndex;
+
+	/**
+	 * @param attributeColumns
+	 *            columns of the polygon table before the geometry column
+	 * @param geometryName
+	 *            name of the geometry column or, with
+	 *            {@link CoordinateReference#COORDINATE_RANGE}, the prefix of the
+	 *            offset and count column
+	 * @param removeHoles
+	 *            whether polygons with holes are split
+	 */
+	public PolygonTableWriter(List<DataColumnSpec> attributeColumns, String geometryName,
+			CoordinateReference reference, boolean removeHoles, ExecutionContext exec) {
+		DataTableSpec[] spec = createSpec(attributeColumns, geometryName, reference);
+
+		this.useRange = reference == CoordinateReference.COORDINATE_RANGE;
+		this.removeHoles = removeHoles;
+		geometryColumn = spec[0].findColumnIndex(geometryName);
+		offsetColumn = spec[0].findColumnIndex(geometryName + OFFSET_COLUMN_SUFFIX);
+		countColumn = spec[0].findColumnIndex(geometryName + COUNT_COLUMN_SUFFIX);
+		numColumns = spec[0].getNumColumns();
+		polygonContainer = exec.createDataContainer(spec[0]);
+		coordinateContainer = exec.createDataContainer(spec[1]);
+		polygonIndex = 0;
+		coordinateIndex = 0;
+	}
+
+	public static DataTableSpec[] createSpec(List<DataColumnSpec> attributeColumns, String geometryName,
+			CoordinateReference reference) {
+		List<DataColumnSpec> columns1 = new ArrayList<>(attributeColumns);
+
+		if (reference == CoordinateReference.COORDINATE_RANGE) {
+			columns1.add(new DataColumnSpecCreator(geometryName + OFFSET_COLUMN_SUFFIX, IntCell.TYPE).createSpec());
+			columns1.add(new DataColumnSpecCreator(geometryName + COUNT_COLUMN_SUFFIX, IntCell.TYPE).createSpec());
+		} else {
+			columns1.add(new DataColumnSpecCreator(geometryName, ListCell.getCollectionType(StringCell.TYPE))
+					.createSpec());
+		}
+
+		DataTableSpec spec2 = new DataTableSpec(new DataColumnSpecCreator(LATITUDE_COLUMN, DoubleCell.TYPE).createSpec(),
+				new DataColumnSpecCreator(LONGITUDE_COLUMN, DoubleCell.TYPE).createSpec());
+
+		return new DataTableSpec[] { new DataTableSpec(columns1.toArray(new DataColumnSpec[0])), spec2 };
+	}
+
+	/**
+	 * @return {@code offsetColumn} without the suffix of the Polygon Reader or
+	 *         {@code defaultName}, if it has no such suffix
+	 */
+	public static String getGeometryName(String offsetColumn, String defaultName) {
+		return offsetColumn != null && offsetColumn.endsWith(OFFSET_COLUMN_SUFFIX)
+				? offsetColumn.substring(0, offsetColumn.length() - OFFSET_COLUMN_SUFFIX.length())
+				: defaultName;
+	}
+
+	/**
+	 * Adds one row per simple geometry of {@code geometry} (polygons are split
+	 * at holes, if enabled) with the given attributes. Empty geometries and
+	 * points are skipped.
+	 *
+	 * @param attributes
+	 *            cells of the attribute columns
+	 * @return number of added polygon rows
+	 */
+	public int addRows(DataCell[] attributes, Geometry geometry, EsriStatistics statistics) {
+		List<Geometry> geometries = EsriUtils.getSimpleGeometries(geometry, removeHoles, statistics);
+		long time = statistics.start();
+		int rows = 0;
+
+		for (Geometry g : geometries) {
+			List<CoordinateSequence> rings = getRings(g);
+
+			if (rings == null) {
+				continue;
+			}
+
+			int numCoordinates = rings.stream().mapToInt(CoordinateSequence::size).sum();
+			List<StringCell> rowIdCells = useRange ? null : new ArrayList<>(numCoordinates);
+			int offset = coordinateIndex;
+
+			for (CoordinateSequence ring : rings) {
+				for (int i = 0; i < ring.size(); i++) {
+					String rowId = String.valueOf(coordinateIndex++);
+
+					coordinateContainer.addRowToTable(
+							new DefaultRow(rowId, new DoubleCell(ring.getX(i)), new DoubleCell(ring.getY(i))));
+
+					if (rowIdCells != null) {
+						rowIdCells.add(new StringCell(rowId));
+					}
+				}
+			}
+
+			DataCell[] cells = Arrays.copyOf(attributes, numColumns);
+
+			if (useRange) {
+				cells[offsetColumn] = new IntCell(offset);
+				cells[countColumn] = new IntCell(numCoordinates);
+			} else {
+				cells[geometryColumn] = CollectionCellFactory.createListCell(rowIdCells);
+			}
+
+			polygonContainer.addRowToTable(new DefaultRow(String.valueOf(polygonIndex++), cells));
+			statistics.count(Counter.VERTICES, numCoordinates);
+			statistics.count(Counter.ROWS, numCoordinates + 1);
+			rows++;
+		}
+
+		statistics.stop(Stage.ROW_WRITING, time);
+
+		return rows;
+	}
+
+	/**
+	 * @return the polygon and the coordinate table
+	 */
+	public BufferedDataTable[] close() {
+		polygonContainer.close();
+		coordinateContainer.close();
+
+		return new BufferedDataTable[] { polygonContainer.getTable(), coordinateContainer.getTable() };
+	}
+
+	/**
+	 * @return the coordinate sequences of the rings of a polygon (exterior ring
+	 *         first) or of a line string, null for all other and for empty
+	 *         geometries
+	 */
+	private static List<CoordinateSequence> getRings(Geometry g) {
+		if (g.isEmpty()) {
+			return null;
+		} else if (g instanceof LineString) {
+			return Arrays.asList(((LineString) g).getCoordinateSequence());
+		} else if (!(g instanceof Polygon)) {
+			return null;
+		}
+
+		Polygon p = (Polygon) g;
+		List<CoordinateSequence> rings = new ArrayList<>(p.getNumInteriorRing() + 1);
+
+		rings.add(p.getExteriorRing().getCoordinateSequence());
+
+		for (int i = 0; i < p.getNumInteriorRing(); i++) {
+			rings.add(p.getInteriorRingN(i).getCoordinateSequence());
+		}
+
+		return rings;
+	}
+}
@@ -0,0 +1,279 @@
+package de.bund.bfr.knime.esri;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.container.CloseableRowIterator;
+import org.knime.core.node.BufferedDataTable;
+import org.locationtech.jts.algorithm.RayCrossingCounter;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Location;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.TopologyException;
+import org.locationtech.jts.geom.util.PolygonExtracter;
+import org.locationtech.jts.operation.overlayng.OverlayNGRobust;
+import org.locationtech.jts.operation.polygonize.Polygonizer;
+import org.locationtech.jts.operation.valid.IsValidOp;
+
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+
+/**
+ * Creates polygons from the concatenated rings of the polygon tables without
+ * throwing exceptions for invalid rings. Invalid polygons are skipped and
+ * counted per {@link PolygonValidity}, so that a node can report all of them in
+ * one warning instead of one warning per row. Optionally, polygons with
+ * self-intersecting rings are repaired. Since the topology check is much more
+ * expensive than the construction of the polygons, it is only done in that
+ * case. All methods may be called from multiple threads.
+ *
+ * @author Christian Thoens
+ */
+public class PolygonValidation {
+
+	private static final int REPAIR_BATCH_SIZE = 64;
+
+	private final boolean repair;
+	private final EsriStatistics statistics;
+	private final Map<PolygonValidity, LongAdder> counts;
+	private final Map<PolygonValidity, String> firstKeys;
+	private boolean severalDetailLevels;
+
+	public PolygonValidation(boolean repair, EsriStatistics statistics) {
+		this.repair = repair;
+		this.statistics = statistics;
+		counts = new EnumMap<>(PolygonValidity.class);
+		firstKeys = new EnumMap<>(PolygonValidity.class);
+
+		for (PolygonValidity validity : PolygonValidity.values()) {
+			counts.put(validity, new LongAdder());
+		}
+
+		severalDetailLevels = false;
+	}
+
+	/**
+	 * Checks, whether the polygon table contains more than one level of detail
+	 * of the Polygon Reader (see {@link PolygonFeatureReader#DETAIL_LEVEL_COLUMN}).
+	 * Then each polygon is used once per level, so that a warning is added.
+	 */
+	public void checkDetailLevels(BufferedDataTable polygonTable) {
+		int levelIndex = polygonTable.getSpec().findColumnIndex(PolygonFeatureReader.DETAIL_LEVEL_COLUMN);
+
+		if (levelIndex == -1) {
+			return;
+		}
+
+		// The domain is not used, since a Row Filter keeps the domain of its input
+		Set<DataCell> levels = new HashSet<>();
+
+		try (CloseableRowIterator iterator = polygonTable.iterator()) {
+			while (iterator.hasNext() && levels.size() < 2) {
+				levels.add(iterator.next().getCell(levelIndex));
+			}
+		}
+
+		severalDetailLevels = levels.size() > 1;
+	}
+
+	/**
+	 * Same as {@link EsriUtils#createPolygon(CoordinateSequence, GeometryFactory)}
+	 * without exceptions.
+	 *
+	 * @param key
+	 *            row key of the polygon, which is used in the warning
+	 * @return the polygon or null, if the rings are not valid
+	 */
+	public Polygon createPolygon(CoordinateSequence coordinates, GeometryFactory factory, String key) {
+		int[] ringEnds = EsriUtils.findRings(coordinates);
+		PolygonValidity validity = EsriUtils.getValidity(coordinates, ringEnds);
+
+		if (validity != PolygonValidity.VALID) {
+			add(validity, key);
+			statistics.increment(Counter.INVALID_POLYGONS);
+			return null;
+		}
+
+		return EsriUtils.createPolygon(coordinates, ringEnds, factory);
+	}
+
+	/**
+	 * If repairing is enabled and the polygon is not valid (see
+	 * {@link IsValidOp}), the rings are split at their intersections and the
+	 * resulting faces are kept according to the even-odd rule, i.e. if they are
+	 * inside of an odd number of rings. So both loops of a figure eight are
+	 * kept.
+	 *
+	 * @return the polygon itself or the polygons of the repaired geometry
+	 */
+	public List<Polygon> repair(Polygon polygon, String key) {
+		if (!repair || IsValidOp.isValid(polygon)) {
+			return Collections.singletonList(polygon);
+		}
+
+		add(PolygonValidity.SELF_INTERSECTING, key);
+		statistics.increment(Counter.REPAIRED_POLYGONS);
+
+		Geometry repaired;
+
+		try {
+			repaired = repairEvenOdd(polygon);
+		} catch (TopologyException e) {
+			repaired = polygon.buffer(0.0);
+		}
+
+		@SuppressWarnings("unchecked")
+		List<Polygon> parts = PolygonExtracter.getPolygons(repaired);
+
+		return parts.stream().filter(p -> !p.isEmpty()).collect(Collectors.toList());
+	}
+
+	/**
+	 * Same as {@link #repair(Polygon, String)} for all polygons, in parallel on
+	 * the KNIME thread pool. The lists are updated in place: each polygon is
+	 * replaced by its repaired polygons, which all get the key of the polygon.
+	 */
+	public void repair(List<String> keys, List<Polygon> polygons) throws InterruptedException, ExecutionException {
+		if (!repair) {
+			return;
+		}
+
+		List<List<Polygon>> repaired = new ArrayList<>(polygons.size());
+
+		try (TaskQueue<List<List<Polygon>>> tasks = new TaskQueue<>()) {
+			for (int from = 0; from < polygons.size(); from += REPAIR_BATCH_SIZE) {
+				int start = from;
+				int end = Math.min(from + REPAIR_BATCH_SIZE, polygons.size());
+
+				tasks.submit(() -> {
+					List<List<Polygon>> batch = new ArrayList<>(end - start);
+
+					for (int i = start; i < end; i++) {
+						batch.add(repair(polygons.get(i), keys.get(i)));
+					}
+
+					return batch;
+				});
+
+				if (tasks.isFull()) {
+					repaired.addAll(tasks.take());
+				}
+			}
+
+			while (!tasks.isEmpty()) {
+				repaired.addAll(tasks.take());
+			}
+		}
+
+		List<String> originalKeys = new ArrayList<>(keys);
+
+		keys.clear();
+		polygons.clear();
+
+		for (int i = 0; i < repaired.size(); i++) {
+			for (Polygon polygon : repaired.get(i)) {
+				keys.add(originalKeys.get(i));
+				polygons.add(polygon);
+			}
+		}
+	}
+
+	/**
+	 * @return summary of all invalid and repaired polygons or null, if all
+	 *         polygons were valid
+	 */
+	public String getWarning() {
+		List<String> invalid = new ArrayList<>();
+		long invalidCount = 0;
+
+		for (PolygonValidity validity : PolygonValidity.values()) {
+			long n = counts.get(validity).sum();
+
+			if (n != 0 && validity != PolygonValidity.SELF_INTERSECTING) {
+				invalid.add(n + " " + validity.toString().toLowerCase(Locale.ROOT) + " (first in "
+						+ getFirstKey(validity) + ")");
+				invalidCount += n;
+			}
+		}
+
+		List<String> messages = new ArrayList<>();
+		long repaired = counts.get(PolygonValidity.SELF_INTERSECTING).sum();
+
+		if (invalidCount != 0) {
+			messages.add(invalidCount + " invalid polygons skipped: " + String.join(", ", invalid));
+		}
+
+		if (repaired != 0) {
+			messages.add(repaired + " self-intersecting polygons repaired (first in "
+					+ getFirstKey(PolygonValidity.SELF_INTERSECTING) + ")");
+		}
+
+		if (severalDetailLevels) {
+			messages.add("polygon table contains several levels of detail (column \""
+					+ PolygonFeatureReader.DETAIL_LEVEL_COLUMN + "\"), select one with a Row Filter");
+		}
+
+		return !messages.isEmpty() ? String.join("; ", messages) : null;
+	}
+
+	private void add(PolygonValidity validity, String key) {
+		counts.get(validity).increment();
+
+		synchronized (firstKeys) {
+			firstKeys.putIfAbsent(validity, key);
+		}
+	}
+
+	private String getFirstKey(PolygonValidity validity) {
+		synchronized (firstKeys) {
+			return firstKeys.get(validity);
+		}
+	}
+
+	private static Geometry repairEvenOdd(Polygon polygon) {
+		List<LinearRing> rings = new ArrayList<>();
+		Polygonizer polygonizer = new Polygonizer();
+
+		rings.add(polygon.getExteriorRing());
+
+		for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+			rings.add(polygon.getInteriorRingN(i));
+		}
+
+		// The union of the rings nodes them at all intersections
+		polygonizer.add(OverlayNGRobust.union(polygon.getBoundary()));
+
+		List<Geometry> faces = new ArrayList<>();
+
+		for (Object face : polygonizer.getPolygons()) {
+			Point point = ((Polygon) face).getInteriorPoint();
+			int n = 0;
+
+			for (LinearRing ring : rings) {
+				if (RayCrossingCounter.locatePointInRing(point.getCoordinate(),
+						ring.getCoordinateSequence()) == Location.INTERIOR) {
+					n++;
+				}
+			}
+
+			if (n % 2 == 1) {
+				faces.add((Geometry) face);
+			}
+		}
+
+		return !faces.isEmpty() ? OverlayNGRobust.union(faces) : polygon.getFactory().createPolygon();
+	}
+}
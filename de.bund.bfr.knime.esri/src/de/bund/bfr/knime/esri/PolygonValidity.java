@@ -0,0 +1,42 @@
+package de.bund.bfr.knime.esri;
+
+/**
+ * Result of the validation of the concatenated rings of a polygon (see
+ * {@link EsriUtils#validatePolygon(org.locationtech.jts.geom.CoordinateSequence)}
+ * and {@link PolygonValidation}).
+ *
+ * @author Christian Thoens
+ */
+public enum PolygonValidity {
+
+	VALID("Valid"),
+
+	/**
+	 * The polygon has no coordinates or one of its rings has less than four
+	 * coordinates.
+	 */
+	TOO_FEW_POINTS("Too Few Points"),
+
+	/**
+	 * The last coordinate of the exterior ring differs from its first
+	 * coordinate.
+	 */
+	UNCLOSED("Unclosed"),
+
+	/**
+	 * The rings intersect themselves or each other, or the holes are not
+	 * inside the exterior ring. Only checked, if invalid polygons are repaired.
+	 */
+	SELF_INTERSECTING("Self-Intersecting");
+
+	private final String name;
+
+	private PolygonValidity(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
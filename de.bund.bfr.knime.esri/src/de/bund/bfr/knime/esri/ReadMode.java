@@ -0,0 +1,85 @@
+package de.bund.bfr.knime.esri;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Selects the features, that are read from a shapefile.
+ *
+ * @author Christian Thoens
+ */
+public enum ReadMode {
+
+	/**
+	 * All features in file order.
+	 */
+	ALL("All Features"),
+
+	/**
+	 * The first N features of the file.
+	 */
+	FIRST_FEATURES("First N Features"),
+
+	/**
+	 * N features drawn without replacement. The seed is fixed, so the same
+	 * features are selected each time.
+	 */
+	RANDOM_SAMPLE("Random Sample of N Features");
+
+	public static final ImmutableList<String> NAMES = ImmutableList
+			.copyOf(Arrays.stream(values()).map(ReadMode::toString).iterator());
+
+	private static final long RANDOM_SEED = 1L;
+
+	private final String name;
+
+	private ReadMode(String name) {
+		this.name = name;
+	}
+
+	public static ReadMode fromName(String name) {
+		for (ReadMode mode : values()) {
+			if (mode.name.equals(name)) {
+				return mode;
+			}
+		}
+
+		return ALL;
+	}
+
+	/**
+	 * @return the indices of the selected features in ascending order
+	 */
+	public int[] select(int numFeatures, int sampleSize) {
+		int n = Math.max(Math.min(sampleSize, numFeatures), 0);
+
+		if (this == ALL || n == numFeatures) {
+			return IntStream.range(0, numFeatures).toArray();
+		} else if (this == FIRST_FEATURES) {
+			return IntStream.range(0, n).toArray();
+		}
+
+		// Floyd's algorithm, which needs only n random numbers and no list of
+		// all indices
+		Random random = new Random(RANDOM_SEED);
+		Set<Integer> selected = new HashSet<>();
+
+		for (int j = numFeatures - n; j < numFeatures; j++) {
+			int t = random.nextInt(j + 1);
+
+			selected.add(selected.contains(t) ? j : t);
+		}
+
+		return selected.stream().mapToInt(Integer::intValue).sorted().toArray();
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
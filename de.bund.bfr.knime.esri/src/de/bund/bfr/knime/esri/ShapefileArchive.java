@@ -0,0 +1,344 @@
+package de.bund.bfr.knime.esri;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.util.FileUtil;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Shapefiles in zip archives. An archive is specified as "data.zip" (first
+ * shapefile in the archive) or as "data.zip!/folder/roads.shp". Only the files
+ * of the selected shapefile are decompressed, directly from the archive into a
+ * cache in the KNIME temp directory, which is reused as long as the archive
+ * does not change. Archives that are not available as local files (e.g. remote
+ * knime:// URLs) are streamed, without downloading the archive first. Remote
+ * archives are only cached, if the server sends an ETag or a Last-Modified
+ * header, otherwise they are extracted again on each call and replace the
+ * previous extraction of the same archive.
+ *
+ * @author Christian Thoens
+ */
+public class ShapefileArchive {
+
+	private static final String ZIP_EXTENSION = ".zip";
+	private static final String ENTRY_SEPARATOR = "!/";
+	private static final String CACHE_DIR = "esri-zip-cache";
+	private static final List<String> EXTENSIONS = Arrays.asList("shp", "shx", "dbf", "prj", "cpg");
+
+	private ShapefileArchive() {
+	}
+
+	/**
+	 * @return whether {@code fileName} refers to a zip archive or to an entry
+	 *         of a zip archive
+	 */
+	public static boolean isArchive(String fileName) {
+		String name = fileName.toLowerCase(Locale.ROOT);
+
+		return name.endsWith(ZIP_EXTENSION) || name.contains(ZIP_EXTENSION + ENTRY_SEPARATOR);
+	}
+
+	/**
+	 * @return the cached *.shp file of the shapefile in the archive
+	 *         {@code fileName}, next to its *.shx, *.dbf, *.prj and *.cpg files
+	 */
+	public static File getShapefile(String fileName) throws InvalidPathException, IOException {
+		return getShapefile(fileName, true);
+	}
+
+	/**
+	 * Same as {@link #getShapefile(String)}, but remote archives are not
+	 * downloaded, e.g. when a node is configured or its dialog is opened.
+	 * Local archives are extracted.
+	 *
+	 * @return the cached *.shp file or null, if the archive is remote and not
+	 *         in the cache
+	 */
+	public static File getCachedShapefile(String fileName) throws InvalidPathException, IOException {
+		return getShapefile(fileName, false);
+	}
+
+	private static File getShapefile(String fileName, boolean download) throws InvalidPathException, IOException {
+		int separator = fileName.toLowerCase(Locale.ROOT).indexOf(ZIP_EXTENSION + ENTRY_SEPARATOR);
+		String zipName = separator != -1 ? fileName.substring(0, separator + ZIP_EXTENSION.length()) : fileName;
+		String entry = separator != -1 ? fileName.substring(separator + ZIP_EXTENSION.length() + 2) : null;
+		URL url = FileUtil.toURL(zipName);
+		File zipFile = FileUtil.getFileFromURL(url);
+		URLConnection connection = null;
+		String version;
+
+		if (zipFile != null) {
+			if (!zipFile.isFile()) {
+				throw new NoSuchFileException(zipFile.getPath());
+			}
+
+			version = zipFile.getAbsolutePath() + "|" + zipFile.length() + "|" + zipFile.lastModified();
+		} else {
+			connection = url.openConnection();
+
+			// Only the headers are needed, if the archive is cached
+			if (connection instanceof HttpURLConnection) {
+				((HttpURLConnection) connection).setRequestMethod("HEAD");
+			}
+
+			version = getRemoteVersion(url, connection);
+		}
+
+		Path cacheDir = Paths.get(KNIMEConstants.getKNIMETempDir(), CACHE_DIR);
+		Path dir = version != null ? cacheDir.resolve(hash(version + "|" + entry)) : null;
+		File cached = dir != null ? findShapefile(dir) : null;
+		boolean extractArchive = cached == null && (download || zipFile != null);
+
+		if (connection instanceof HttpURLConnection) {
+			((HttpURLConnection) connection).disconnect();
+
+			if (extractArchive) {
+				connection = url.openConnection();
+			}
+		} else if (connection != null && !extractArchive) {
+			close(connection);
+		}
+
+		if (!extractArchive) {
+			return cached;
+		}
+
+		if (dir == null) {
+			// Cannot be validated later, so it is extracted into a directory of its
+			// own. Former extractions of the same archive are deleted first, so
+			// that only the latest is kept.
+			Path archiveDir = cacheDir.resolve(hash(url + "|" + entry));
+
+			if (Files.isDirectory(archiveDir)) {
+				try (Stream<Path> files = Files.list(archiveDir)) {
+					files.forEach(f -> FileUtils.deleteQuietly(f.toFile()));
+				}
+			}
+
+			Files.createDirectories(archiveDir);
+
+			Path tempDir = Files.createTempDirectory(archiveDir, null);
+
+			try {
+				try (InputStream in = connection.getInputStream()) {
+					extract(in, entry, tempDir);
+				}
+
+				File shapefile = findShapefile(tempDir);
+
+				if (shapefile == null) {
+					throw new NoSuchFileException(entry != null ? fileName : "No shapefile in \"" + fileName + "\"");
+				}
+
+				return shapefile;
+			} catch (IOException | RuntimeException e) {
+				FileUtils.deleteQuietly(tempDir.toFile());
+				throw e;
+			}
+		}
+
+		Files.createDirectories(cacheDir);
+
+		Path tempDir = Files.createTempDirectory(cacheDir, null);
+
+		try {
+			if (zipFile != null) {
+				extract(zipFile, entry, tempDir);
+			} else {
+				try (InputStream in = connection.getInputStream()) {
+					extract(in, entry, tempDir);
+				}
+			}
+
+			if (findShapefile(tempDir) == null) {
+				throw new NoSuchFileException(entry != null ? fileName : "No shapefile in \"" + fileName + "\"");
+			}
+
+			try {
+				Files.move(tempDir, dir, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				// Either extracted concurrently by another node or left incomplete,
+				// e.g. by an interrupted extraction, which is replaced. Depending on
+				// the platform, a non-empty target is not reported as
+				// DirectoryNotEmptyException.
+				if (findShapefile(dir) == null) {
+					FileUtils.deleteDirectory(dir.toFile());
+					Files.move(tempDir, dir, StandardCopyOption.ATOMIC_MOVE);
+				}
+			}
+		} finally {
+			FileUtils.deleteQuietly(tempDir.toFile());
+		}
+
+		File shapefile = findShapefile(dir);
+
+		if (shapefile == null) {
+			throw new NoSuchFileException(dir.toString());
+		}
+
+		return shapefile;
+	}
+
+	private static String hash(String s) {
+		return Hashing.sha256().hashString(s, StandardCharsets.UTF_8).toString();
+	}
+
+	/**
+	 * Closes a connection, whose content is not read. Other than for HTTP,
+	 * there is no method to disconnect, so the input stream, that is opened
+	 * when the headers are read, is closed.
+	 */
+	private static void close(URLConnection connection) {
+		try {
+			connection.getInputStream().close();
+		} catch (IOException e) {
+			// The connection failed, so there is nothing to close
+		}
+	}
+
+	/**
+	 * @return the ETag or the Last-Modified date and the length of a remote
+	 *         archive, null if the server sends neither of them
+	 */
+	private static String getRemoteVersion(URL url, URLConnection connection) {
+		String eTag = connection.getHeaderField("ETag");
+
+		if (eTag != null) {
+			return url + "|" + eTag;
+		} else if (connection.getLastModified() > 0) {
+			return url + "|" + connection.getContentLengthLong() + "|" + connection.getLastModified();
+		}
+
+		return null;
+	}
+
+	private static void extract(File zipFile, String entry, Path dir) throws IOException {
+		try (ZipFile zip = new ZipFile(zipFile)) {
+			String shpEntry = entry;
+
+			if (shpEntry == null) {
+				for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements();) {
+					ZipEntry zipEntry = e.nextElement();
+
+					if (!zipEntry.isDirectory() && hasExtension(zipEntry.getName(), "shp")) {
+						shpEntry = zipEntry.getName();
+						break;
+					}
+				}
+
+				if (shpEntry == null) {
+					return;
+				}
+			}
+
+			for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements();) {
+				ZipEntry zipEntry = e.nextElement();
+
+				if (isPartOf(zipEntry, shpEntry)) {
+					try (InputStream in = zip.getInputStream(zipEntry)) {
+						Files.copy(in, dir.resolve(FilenameUtils.getName(zipEntry.getName())));
+					}
+				}
+			}
+		}
+	}
+
+	private static void extract(InputStream stream, String entry, Path dir) throws IOException {
+		ZipInputStream in = new ZipInputStream(stream);
+		String shpEntry = entry;
+
+		// The files of the first shapefile may precede its *.shp entry, so all
+		// shapefile files are extracted, if no entry is specified. They are
+		// grouped by their path without extension, since files with the same
+		// name may exist in different folders.
+		Map<String, Path> groups = new LinkedHashMap<>();
+
+		for (ZipEntry zipEntry; (zipEntry = in.getNextEntry()) != null;) {
+			String name = zipEntry.getName();
+
+			if (zipEntry.isDirectory() || (shpEntry != null ? !isPartOf(zipEntry, shpEntry)
+					: !EXTENSIONS.contains(FilenameUtils.getExtension(name).toLowerCase(Locale.ROOT)))) {
+				continue;
+			}
+
+			if (entry != null) {
+				Files.copy(in, dir.resolve(FilenameUtils.getName(name)), StandardCopyOption.REPLACE_EXISTING);
+				continue;
+			}
+
+			String base = FilenameUtils.removeExtension(name);
+			Path groupDir = groups.get(base);
+
+			if (groupDir == null) {
+				groupDir = Files.createDirectory(dir.resolve("group" + groups.size()));
+				groups.put(base, groupDir);
+			}
+
+			Files.copy(in, groupDir.resolve(FilenameUtils.getName(name)), StandardCopyOption.REPLACE_EXISTING);
+
+			if (shpEntry == null && hasExtension(name, "shp")) {
+				shpEntry = name;
+			}
+		}
+
+		if (entry == null && shpEntry != null) {
+			try (Stream<Path> files = Files.list(groups.get(FilenameUtils.removeExtension(shpEntry)))) {
+				for (Path file : (Iterable<Path>) files::iterator) {
+					Files.move(file, dir.resolve(file.getFileName()));
+				}
+			}
+		}
+
+		for (Path groupDir : groups.values()) {
+			FileUtils.deleteDirectory(groupDir.toFile());
+		}
+	}
+
+	private static File findShapefile(Path dir) throws IOException {
+		if (!Files.isDirectory(dir)) {
+			return null;
+		}
+
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(f -> hasExtension(f.toString(), "shp")).map(Path::toFile).findFirst().orElse(null);
+		}
+	}
+
+	private static boolean isPartOf(ZipEntry zipEntry, String shpEntry) {
+		String name = zipEntry.getName();
+
+		return !zipEntry.isDirectory()
+				&& FilenameUtils.removeExtension(name).equals(FilenameUtils.removeExtension(shpEntry))
+				&& EXTENSIONS.contains(FilenameUtils.getExtension(name).toLowerCase(Locale.ROOT));
+	}
+
+	private static boolean hasExtension(String name, String extension) {
+		return FilenameUtils.getExtension(name).equalsIgnoreCase(extension);
+	}
+}
@@ -0,0 +1,235 @@
+package de.bund.bfr.knime.esri;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.StandardOpenOption;
+
+import org.geotools.geometry.jts.JTS;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.locationtech.jts.geom.Envelope;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+import de.bund.bfr.knime.esri.EsriStatistics.Stage;
+
+/**
+ * Reads the bounding box of each shape of a shapefile without decoding its
+ * vertices. Polygon, polyline and multipoint records store their bounding box
+ * right after the shape type, so only the first bytes of each record are read
+ * from the memory mapped *.shp file. The records are located with the offsets
+ * of the *.shx file or, if there is none, by skipping from record header to
+ * record header. The pages with the vertices are never touched.
+ *
+ * @author Christian Thoens
+ */
+public class ShapefileEnvelopeReader {
+
+	private static final String MIN_LATITUDE_COLUMN = "MinLatitude";
+	private static final String MAX_LATITUDE_COLUMN = "MaxLatitude";
+	private static final String MIN_LONGITUDE_COLUMN = "MinLongitude";
+	private static final String MAX_LONGITUDE_COLUMN = "MaxLongitude";
+
+	private static final int FILE_HEADER_LENGTH = 100;
+	private static final int RECORD_HEADER_LENGTH = 8;
+	private static final int INDEX_RECORD_LENGTH = 8;
+
+	/**
+	 * Shape type and bounding box, the longest content that is read from a
+	 * record.
+	 */
+	private static final int BOX_CONTENT_LENGTH = 36;
+	private static final int POINT_CONTENT_LENGTH = 20;
+
+	/**
+	 * The *.shp file is mapped in segments of this size, which overlap by one
+	 * record header and box, so that each box lies within one segment.
+	 */
+	private static final long SEGMENT_SIZE = 1L << 30;
+	private static final int SEGMENT_OVERLAP = RECORD_HEADER_LENGTH + BOX_CONTENT_LENGTH;
+
+	/**
+	 * Number of points per side of a bounding box, that are transformed to find
+	 * the bounding box in latitude/longitude.
+	 */
+	private static final int TRANSFORM_POINTS = 10;
+	private static final int PROGRESS_INTERVAL = 4096;
+
+	private ShapefileEnvelopeReader() {
+	}
+
+	public static DataTableSpec createSpec() {
+		return new DataTableSpec(new DataColumnSpecCreator(MIN_LATITUDE_COLUMN, DoubleCell.TYPE).createSpec(),
+				new DataColumnSpecCreator(MAX_LATITUDE_COLUMN, DoubleCell.TYPE).createSpec(),
+				new DataColumnSpecCreator(MIN_LONGITUDE_COLUMN, DoubleCell.TYPE).createSpec(),
+				new DataColumnSpecCreator(MAX_LONGITUDE_COLUMN, DoubleCell.TYPE).createSpec());
+	}
+
+	/**
+	 * Reads one row per shape with the bounding box of the shape. Null shapes
+	 * are skipped. The rows are numbered from 0 like those of
+	 * {@link PolygonFeatureReader} (see
+	 * {@link PolygonFeatureReader#createRowId(String, long)}).
+	 *
+	 * @param rowIdPrefix
+	 *            prefix of the Row IDs or null
+	 * @param transform
+	 *            transformation into latitude/longitude or null if the shapes
+	 *            already have longitude/latitude coordinates
+	 */
+	public static BufferedDataTable read(String shpFile, String rowIdPrefix, MathTransform transform,
+			ExecutionContext exec, EsriStatistics statistics)
+			throws InvalidPathException, IOException, TransformException, CanceledExecutionException {
+		File indexFile = EsriUtils.getShapefileComponent(shpFile, "shx");
+		DataTableSpec spec = createSpec();
+		int minLatColumn = spec.findColumnIndex(MIN_LATITUDE_COLUMN);
+		int maxLatColumn = spec.findColumnIndex(MAX_LATITUDE_COLUMN);
+		int minLonColumn = spec.findColumnIndex(MIN_LONGITUDE_COLUMN);
+		int maxLonColumn = spec.findColumnIndex(MAX_LONGITUDE_COLUMN);
+		boolean swapAxes = transform == null;
+		BufferedDataContainer container = exec.createDataContainer(spec);
+
+		try (FileChannel shp = FileChannel.open(EsriUtils.getShapefile(shpFile).toPath(), StandardOpenOption.READ);
+				FileChannel shx = indexFile.isFile() ? FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)
+						: null) {
+			MappedByteBuffer[] segments = map(shp);
+			MappedByteBuffer[] index = shx != null ? map(shx) : null;
+			long numRecords = shx != null ? (shx.size() - FILE_HEADER_LENGTH) / INDEX_RECORD_LENGTH : -1;
+			long position = FILE_HEADER_LENGTH;
+			long rowIndex = 0;
+
+			for (long record = 0; index != null ? record < numRecords : position < shp.size(); record++) {
+				long time = statistics.start();
+
+				if (index != null) {
+					position = 2L * getUnsignedBigEndianInt(index, FILE_HEADER_LENGTH + record * INDEX_RECORD_LENGTH);
+				}
+
+				if (position + RECORD_HEADER_LENGTH > shp.size()) {
+					break;
+				}
+
+				MappedByteBuffer segment = segments[(int) (position / SEGMENT_SIZE)];
+				int offset = (int) (position % SEGMENT_SIZE);
+				long contentLength = 2L * getUnsignedBigEndianInt(segments, position + 4);
+				Envelope envelope = readEnvelope(segment, offset + RECORD_HEADER_LENGTH, contentLength);
+
+				position += RECORD_HEADER_LENGTH + contentLength;
+				time = statistics.stop(Stage.FEATURE_DECODING, time);
+				statistics.increment(Counter.FEATURES);
+
+				if (envelope != null) {
+					if (transform != null) {
+						envelope = JTS.transform(envelope, null, transform, TRANSFORM_POINTS);
+						time = statistics.stop(Stage.CRS_TRANSFORMATION, time);
+					}
+
+					DataCell[] cells = new DataCell[spec.getNumColumns()];
+
+					cells[minLatColumn] = new DoubleCell(swapAxes ? envelope.getMinY() : envelope.getMinX());
+					cells[maxLatColumn] = new DoubleCell(swapAxes ? envelope.getMaxY() : envelope.getMaxX());
+					cells[minLonColumn] = new DoubleCell(swapAxes ? envelope.getMinX() : envelope.getMinY());
+					cells[maxLonColumn] = new DoubleCell(swapAxes ? envelope.getMaxX() : envelope.getMaxY());
+					container.addRowToTable(
+							new DefaultRow(PolygonFeatureReader.createRowId(rowIdPrefix, rowIndex++), cells));
+					statistics.increment(Counter.ROWS);
+					statistics.stop(Stage.ROW_WRITING, time);
+				}
+
+				if (record % PROGRESS_INTERVAL == 0) {
+					exec.checkCanceled();
+
+					if (numRecords > 0) {
+						exec.setProgress((double) record / (double) numRecords);
+					}
+				}
+			}
+		} finally {
+			container.close();
+		}
+
+		return container.getTable();
+	}
+
+	/**
+	 * @return the bounding box of a polygon, polyline or multipoint record or
+	 *         the point of a point record (both with or without z/m values),
+	 *         null for null shapes and other records
+	 */
+	private static Envelope readEnvelope(MappedByteBuffer segment, int offset, long contentLength) {
+		if (contentLength < 4 || offset + 4 > segment.capacity()) {
+			return null;
+		}
+
+		switch (segment.getInt(offset)) {
+		case 1:
+		case 11:
+		case 21:
+			if (contentLength < POINT_CONTENT_LENGTH || offset + POINT_CONTENT_LENGTH > segment.capacity()) {
+				return null;
+			}
+
+			return new Envelope(segment.getDouble(offset + 4), segment.getDouble(offset + 4),
+					segment.getDouble(offset + 12), segment.getDouble(offset + 12));
+		case 3:
+		case 5:
+		case 8:
+		case 13:
+		case 15:
+		case 18:
+		case 23:
+		case 25:
+		case 28:
+		case 31:
+			if (contentLength < BOX_CONTENT_LENGTH || offset + BOX_CONTENT_LENGTH > segment.capacity()) {
+				return null;
+			}
+
+			// Stored as xmin, ymin, xmax, ymax
+			return new Envelope(segment.getDouble(offset + 4), segment.getDouble(offset + 20),
+					segment.getDouble(offset + 12), segment.getDouble(offset + 28));
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Record offsets and lengths are stored as big endian numbers of 16-bit
+	 * words.
+	 */
+	private static long getUnsignedBigEndianInt(MappedByteBuffer[] segments, long position) {
+		return Integer.toUnsignedLong(Integer
+				.reverseBytes(segments[(int) (position / SEGMENT_SIZE)].getInt((int) (position % SEGMENT_SIZE))));
+	}
+
+	/**
+	 * @return little endian buffers of the consecutive segments of the file
+	 */
+	private static MappedByteBuffer[] map(FileChannel channel) throws IOException {
+		long size = channel.size();
+		MappedByteBuffer[] segments = new MappedByteBuffer[(int) Math.max((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE,
+				1)];
+
+		for (int i = 0; i < segments.length; i++) {
+			long start = i * SEGMENT_SIZE;
+
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+					Math.min(SEGMENT_SIZE + SEGMENT_OVERLAP, size - start));
+			segments[i].order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		return segments;
+	}
+}
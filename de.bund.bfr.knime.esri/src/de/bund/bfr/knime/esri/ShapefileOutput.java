@@ -0,0 +1,470 @@
+package de.bund.bfr.knime.esri;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.commons.io.FilenameUtils;
+import org.geotools.data.shapefile.dbf.DbaseFileHeader;
+import org.geotools.data.shapefile.dbf.DbaseFileWriter;
+import org.geotools.data.shapefile.shp.JTSUtilities;
+import org.geotools.data.shapefile.shp.ShapeHandler;
+import org.geotools.data.shapefile.shp.ShapeType;
+import org.geotools.data.shapefile.shp.ShapefileHeader;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.knime.core.data.BooleanValue;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.LongValue;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.CoordinateSequenceFilter;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+
+/**
+ * Writes the rows of a table as features of a new shapefile. The attribute
+ * columns and the converter of each column are resolved once per spec, like in
+ * {@link FeatureCellMapper}. The records are encoded with the shape handlers
+ * and the dBASE writer of GeoTools, but collected in large buffers, which are
+ * written to the .shp, .shx and .dbf file channels in batches. The headers are
+ * completed with the final record counts and bounds on {@link #close()}. The
+ * shapefile uses WGS 84 (written to the .prj file), i.e. the
+ * latitude/longitude coordinates of this plugin are written as x = longitude
+ * and y = latitude.
+ *
+ * @author Christian Thoens
+ */
+public class ShapefileOutput implements Closeable {
+
+	@FunctionalInterface
+	private interface ValueConverter {
+
+		Object convert(DataCell cell);
+	}
+
+	private static final int HEADER_LENGTH = 100;
+	private static final int BUFFER_SIZE = 1 << 20;
+	private static final int MAX_FIELD_NAME_LENGTH = 10;
+
+	/**
+	 * GeoTools reads numeric fields with up to 9 digits as Integer and longer
+	 * ones as Long, which the readers of this plugin return as strings.
+	 */
+	private static final int INT_FIELD_LENGTH = 9;
+	private static final int MIN_INT_FIELD_VALUE = -99999999;
+	private static final int MAX_INT_FIELD_VALUE = 999999999;
+	private static final List<String> EXTENSIONS = List.of("shp", "shx", "dbf", "prj", "cpg", "qix", "fix");
+
+	private static final ValueConverter BOOLEAN_CONVERTER = cell -> ((BooleanValue) cell).getBooleanValue();
+	private static final ValueConverter INT_CONVERTER = cell -> ((IntValue) cell).getIntValue();
+	private static final ValueConverter LONG_CONVERTER = cell -> ((LongValue) cell).getLongValue();
+	private static final ValueConverter DOUBLE_CONVERTER = cell -> ((DoubleValue) cell).getDoubleValue();
+	private static final ValueConverter STRING_CONVERTER = cell -> cell.toString();
+
+	private static final CoordinateSequenceFilter SWAP_AXES = new CoordinateSequenceFilter() {
+
+		@Override
+		public void filter(CoordinateSequence seq, int i) {
+			double x = seq.getX(i);
+
+			seq.setOrdinate(i, CoordinateSequence.X, seq.getY(i));
+			seq.setOrdinate(i, CoordinateSequence.Y, x);
+		}
+
+		@Override
+		public boolean isGeometryChanged() {
+			return true;
+		}
+
+		@Override
+		public boolean isDone() {
+			return false;
+		}
+	};
+
+	private final String shpFile;
+	private final ShapeType shapeType;
+	private final ShapeHandler handler;
+	private final int[] columns;
+	private final ValueConverter[] converters;
+	private final DbaseFileHeader dbfHeader;
+	private final List<FileChannel> channels;
+	private final FileChannel shpChannel;
+	private final FileChannel shxChannel;
+	private final FileChannel dbfChannel;
+	private final BufferedChannel dbfOutput;
+	private final DbaseFileWriter dbfWriter;
+	private final Envelope bounds;
+	private ByteBuffer shpBuffer;
+	private ByteBuffer shxBuffer;
+	private int shpLength;
+	private int numFeatures;
+
+	/**
+	 * Creates the files of the shapefile and opens them for writing.
+	 *
+	 * @param overwrite
+	 *            if false, an existing shapefile is not replaced
+	 * @param spec
+	 *            spec of the rows to write
+	 * @param excludedColumns
+	 *            columns of {@code spec}, which are not written as attributes,
+	 *            e.g. the columns the geometries are created from
+	 * @param shapeType
+	 *            type of all geometries, e.g. {@link ShapeType#POLYGON}
+	 * @throws FileAlreadyExistsException
+	 *             if the shapefile exists and should not be overwritten
+	 */
+	public ShapefileOutput(String shpFile, boolean overwrite, String charset, DataTableSpec spec,
+			Collection<String> excludedColumns, ShapeType shapeType) throws InvalidPathException, IOException {
+		this.shpFile = shpFile;
+		this.shapeType = shapeType;
+
+		if (exists(shpFile)) {
+			if (!overwrite) {
+				throw new FileAlreadyExistsException(EsriUtils.getFile(shpFile).getAbsolutePath());
+			}
+
+			delete(shpFile);
+		}
+
+		Charset dbfCharset = Charset.forName(charset);
+		List<Integer> columnList = new ArrayList<>();
+		List<ValueConverter> converterList = new ArrayList<>();
+		Set<String> fieldNames = new HashSet<>();
+
+		handler = shapeType.getShapeHandler(EsriUtils.GEO_FACTORY);
+		dbfHeader = new DbaseFileHeader(dbfCharset);
+
+		for (int i = 0; i < spec.getNumColumns(); i++) {
+			DataColumnSpec column = spec.getColumnSpec(i);
+			DataType type = column.getType();
+
+			if (excludedColumns.contains(column.getName())) {
+				continue;
+			}
+
+			String name = getFieldName(column.getName(), fieldNames);
+
+			// BooleanCells are also IntValues, LongValues and DoubleValues
+			if (type.isCompatible(BooleanValue.class)) {
+				dbfHeader.addColumn(name, 'L', 1, 0);
+				converterList.add(BOOLEAN_CONVERTER);
+			} else if (type.isCompatible(IntValue.class) && fitsIntField(column)) {
+				dbfHeader.addColumn(name, 'N', INT_FIELD_LENGTH, 0);
+				converterList.add(createIntFieldConverter(column.getName()));
+			} else if (type.isCompatible(IntValue.class)) {
+				dbfHeader.addColumn(name, 'N', 11, 0);
+				converterList.add(INT_CONVERTER);
+			} else if (type.isCompatible(LongValue.class)) {
+				dbfHeader.addColumn(name, 'N', 20, 0);
+				converterList.add(LONG_CONVERTER);
+			} else if (type.isCompatible(DoubleValue.class)) {
+				dbfHeader.addColumn(name, 'N', 33, 15);
+				converterList.add(DOUBLE_CONVERTER);
+			} else {
+				dbfHeader.addColumn(name, 'C', 254, 0);
+				converterList.add(STRING_CONVERTER);
+			}
+
+			columnList.add(i);
+		}
+
+		columns = columnList.stream().mapToInt(Integer::intValue).toArray();
+		converters = converterList.toArray(new ValueConverter[0]);
+		channels = new ArrayList<>();
+
+		try {
+			shpChannel = open(shpFile, "shp");
+			shxChannel = open(shpFile, "shx");
+			dbfChannel = open(shpFile, "dbf");
+			Files.write(getFile(shpFile, "prj").toPath(), DefaultGeographicCRS.WGS84.toWKT().getBytes(dbfCharset));
+			Files.write(getFile(shpFile, "cpg").toPath(), dbfCharset.name().getBytes(dbfCharset));
+
+			// The headers are written with the final values on close
+			shpBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			shpBuffer.position(HEADER_LENGTH);
+			shxBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			shxBuffer.position(HEADER_LENGTH);
+			dbfOutput = new BufferedChannel(dbfChannel);
+			dbfWriter = new DbaseFileWriter(dbfHeader, dbfOutput, dbfCharset);
+		} catch (IOException | RuntimeException e) {
+			abort();
+			throw e;
+		}
+
+		bounds = new Envelope();
+		shpLength = HEADER_LENGTH / 2;
+		numFeatures = 0;
+	}
+
+	/**
+	 * @return whether one of the files of the shapefile exists
+	 */
+	public static boolean exists(String shpFile) throws InvalidPathException, IOException {
+		for (String extension : EXTENSIONS) {
+			if (getFile(shpFile, extension).exists()) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Writes one feature. The coordinates of {@code geometry} are given as
+	 * latitude/longitude and are swapped in place.
+	 */
+	public void write(Geometry geometry, DataRow row) throws IOException {
+		geometry.apply(SWAP_AXES);
+
+		// Creates a multi polygon with clockwise shells and counter-clockwise holes
+		Geometry shape = JTSUtilities.convertToCollection(geometry, shapeType);
+		int length = handler.getLength(shape);
+
+		if (shpBuffer.remaining() < length + 8) {
+			shpBuffer = flush(shpBuffer, shpChannel, length + 8);
+		}
+
+		if (shxBuffer.remaining() < 8) {
+			shxBuffer = flush(shxBuffer, shxChannel, 8);
+		}
+
+		numFeatures++;
+		shpBuffer.order(ByteOrder.BIG_ENDIAN);
+		shpBuffer.putInt(numFeatures);
+		shpBuffer.putInt(length / 2);
+		shpBuffer.order(ByteOrder.LITTLE_ENDIAN);
+		shpBuffer.putInt(shapeType.id);
+		handler.write(shpBuffer, shape);
+		shxBuffer.order(ByteOrder.BIG_ENDIAN);
+		shxBuffer.putInt(shpLength);
+		shxBuffer.putInt(length / 2);
+		shpLength += 4 + length / 2;
+		bounds.expandToInclude(shape.getEnvelopeInternal());
+
+		Object[] values = new Object[columns.length];
+
+		for (int i = 0; i < columns.length; i++) {
+			DataCell cell = row.getCell(columns[i]);
+
+			values[i] = cell.isMissing() ? null : converters[i].convert(cell);
+		}
+
+		dbfWriter.write(values);
+	}
+
+	public int getNumFeatures() {
+		return numFeatures;
+	}
+
+	/**
+	 * Writes the remaining records and completes the headers with the final
+	 * record counts and bounds.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush(shpBuffer, shpChannel, 0);
+			flush(shxBuffer, shxChannel, 0);
+			dbfOutput.write(ByteBuffer.wrap(new byte[] { 0x1A }));
+			dbfOutput.flush();
+
+			writeHeader(shpChannel, shpLength);
+			writeHeader(shxChannel, HEADER_LENGTH / 2 + 4 * numFeatures);
+			dbfHeader.setNumRecords(numFeatures);
+			dbfChannel.position(0);
+			dbfHeader.writeHeader(dbfChannel);
+		} finally {
+			closeChannels();
+		}
+	}
+
+	/**
+	 * Closes the shapefile and deletes all its files, e.g. if the execution was
+	 * canceled.
+	 */
+	public void abort() {
+		closeChannels();
+
+		try {
+			delete(shpFile);
+		} catch (InvalidPathException | IOException e) {
+		}
+	}
+
+	private void writeHeader(FileChannel channel, int fileLength) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+
+		if (bounds.isNull()) {
+			new ShapefileHeader().write(header, shapeType, numFeatures, fileLength, 0.0, 0.0, 0.0, 0.0);
+		} else {
+			new ShapefileHeader().write(header, shapeType, numFeatures, fileLength, bounds.getMinX(),
+					bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+		}
+
+		header.flip();
+
+		for (int position = 0; header.hasRemaining();) {
+			position += channel.write(header, position);
+		}
+	}
+
+	private void closeChannels() {
+		for (FileChannel channel : channels) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	private FileChannel open(String shpFile, String extension) throws IOException {
+		FileChannel channel = FileChannel.open(getFile(shpFile, extension).toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+		channels.add(channel);
+
+		return channel;
+	}
+
+	/**
+	 * @return false, if the domain of the int column contains values that do
+	 *         not fit into {@link #INT_FIELD_LENGTH} digits
+	 */
+	private static boolean fitsIntField(DataColumnSpec column) {
+		DataCell lower = column.getDomain().getLowerBound();
+		DataCell upper = column.getDomain().getUpperBound();
+
+		return (!(lower instanceof IntValue) || ((IntValue) lower).getIntValue() >= MIN_INT_FIELD_VALUE)
+				&& (!(upper instanceof IntValue) || ((IntValue) upper).getIntValue() <= MAX_INT_FIELD_VALUE);
+	}
+
+	/**
+	 * @return converter, which fails for values that GeoTools would truncate
+	 */
+	private static ValueConverter createIntFieldConverter(String column) {
+		return cell -> {
+			int value = ((IntValue) cell).getIntValue();
+
+			if (value < MIN_INT_FIELD_VALUE || value > MAX_INT_FIELD_VALUE) {
+				throw new IllegalArgumentException("Value " + value + " of column \"" + column
+						+ "\" does not fit into " + INT_FIELD_LENGTH
+						+ " digits. Calculate the domain of the column, so that a wider field is used.");
+			}
+
+			return value;
+		};
+	}
+
+	/**
+	 * Writes the content of {@code buffer} to {@code channel}.
+	 *
+	 * @return an empty buffer with at least {@code required} bytes remaining
+	 */
+	private static ByteBuffer flush(ByteBuffer buffer, WritableByteChannel channel, int required)
+			throws IOException {
+		buffer.flip();
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+
+		buffer.clear();
+
+		return buffer.capacity() >= required ? buffer : ByteBuffer.allocateDirect(required);
+	}
+
+	private static void delete(String shpFile) throws InvalidPathException, IOException {
+		for (String extension : EXTENSIONS) {
+			Files.deleteIfExists(getFile(shpFile, extension).toPath());
+		}
+	}
+
+	private static File getFile(String shpFile, String extension) throws InvalidPathException, IOException {
+		return EsriUtils.getFile(FilenameUtils.removeExtension(shpFile) + "." + extension);
+	}
+
+	/**
+	 * @return {@code columnName} truncated to the maximum length of dBASE field
+	 *         names and made unique (case-insensitive) within {@code used}
+	 */
+	private static String getFieldName(String columnName, Set<String> used) {
+		String name = columnName.length() > MAX_FIELD_NAME_LENGTH ? columnName.substring(0, MAX_FIELD_NAME_LENGTH)
+				: columnName;
+
+		for (int i = 1; !used.add(name.toUpperCase(Locale.ROOT)); i++) {
+			String suffix = "_" + i;
+
+			name = columnName.substring(0, Math.min(columnName.length(), MAX_FIELD_NAME_LENGTH - suffix.length()))
+					+ suffix;
+		}
+
+		return name;
+	}
+
+	/**
+	 * Collects the records of the {@link DbaseFileWriter}, which writes each
+	 * record separately, and writes them to the file channel in batches.
+	 */
+	private static class BufferedChannel implements WritableByteChannel {
+
+		private final FileChannel channel;
+		private ByteBuffer buffer;
+
+		public BufferedChannel(FileChannel channel) {
+			this.channel = channel;
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			int n = src.remaining();
+
+			if (buffer.remaining() < n) {
+				buffer = ShapefileOutput.flush(buffer, channel, n);
+			}
+
+			buffer.put(src);
+
+			return n;
+		}
+
+		public void flush() throws IOException {
+			ShapefileOutput.flush(buffer, channel, 0);
+		}
+
+		@Override
+		public boolean isOpen() {
+			return channel.isOpen();
+		}
+
+		/**
+		 * Does not close the file channel, since the header is written again
+		 * after all records.
+		 */
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package de.bund.bfr.knime.esri;
+
+import java.awt.BorderLayout;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingWorker;
+import javax.swing.table.DefaultTableModel;
+
+import org.geotools.data.shapefile.ShapefileDataStore;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.geometry.jts.JTS;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.operation.projection.MapProjection;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.referencing.operation.MathTransform;
+
+/**
+ * Preview of a shapefile for the reader dialogs. The number of features, the
+ * shape type and the extent are taken from the file headers and the attributes
+ * of the first features are read with a {@link ShapefileSampler}. Everything is
+ * loaded in the background, so the dialog stays responsive for large files.
+ *
+ * @author Christian Thoens
+ */
+public class ShapefilePreviewPanel extends JPanel {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int PREVIEW_SIZE = 100;
+	private static final int TRANSFORM_POINTS = 10;
+
+	private final JLabel infoLabel;
+	private final JTable table;
+
+	private SwingWorker<Preview, Void> worker;
+
+	public ShapefilePreviewPanel() {
+		infoLabel = new JLabel();
+		infoLabel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+		table = new JTable();
+		table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+
+		setLayout(new BorderLayout());
+		add(infoLabel, BorderLayout.NORTH);
+		add(new JScrollPane(table), BorderLayout.CENTER);
+	}
+
+	/**
+	 * Starts loading the preview of {@code shpFile}. A preview that is still
+	 * loading is cancelled.
+	 */
+	public void update(String shpFile, String charset) {
+		cancel();
+		table.setModel(new DefaultTableModel());
+
+		if (shpFile == null || shpFile.trim().isEmpty()) {
+			infoLabel.setText("No file selected");
+			return;
+		}
+
+		infoLabel.setText("Loading preview...");
+		worker = new SwingWorker<Preview, Void>() {
+
+			@Override
+			protected Preview doInBackground() throws Exception {
+				return loadPreview(shpFile, charset);
+			}
+
+			@Override
+			protected void done() {
+				if (isCancelled()) {
+					return;
+				}
+
+				try {
+					Preview preview = get();
+
+					infoLabel.setText(preview.info);
+					table.setModel(new DefaultTableModel(preview.rows, preview.columns));
+				} catch (InterruptedException | CancellationException e) {
+				} catch (ExecutionException e) {
+					infoLabel.setText("Preview not available: " + e.getCause().getMessage());
+				}
+			}
+		};
+		worker.execute();
+	}
+
+	/**
+	 * Cancels a preview that is still loading, e.g. when the dialog is closed.
+	 */
+	public void cancel() {
+		if (worker != null) {
+			worker.cancel(true);
+			worker = null;
+		}
+	}
+
+	private static Preview loadPreview(String shpFile, String charset) throws Exception {
+		MapProjection.SKIP_SANITY_CHECKS = true;
+
+		File file = EsriUtils.getCachedShapefile(shpFile);
+
+		if (file == null) {
+			throw new FileNotFoundException("Remote archives are only downloaded, when the node is executed");
+		}
+
+		String fileName = file.getPath();
+		ShapefileDataStore dataStore = EsriUtils.getDataStore(fileName, charset);
+
+		try (ShapefileSampler sampler = new ShapefileSampler(fileName, charset, dataStore.getSchema())) {
+			Envelope envelope = sampler.getEnvelope();
+			boolean swapAxes = true;
+
+			try {
+				MathTransform transform = CRS.findMathTransform(EsriUtils.getCoordinateSystem(fileName),
+						CRS.decode("EPSG:4326"), true);
+
+				envelope = JTS.transform(envelope, null, transform, TRANSFORM_POINTS);
+				swapAxes = false;
+			} catch (FileNotFoundException | NoSuchFileException e) {
+				// Already longitude/latitude
+			}
+
+			List<AttributeDescriptor> descriptors = sampler.getSchema().getAttributeDescriptors();
+			SimpleFeatureCollection features = sampler
+					.read(ReadMode.FIRST_FEATURES.select(sampler.getNumFeatures(), PREVIEW_SIZE));
+			Object[] columns = new Object[descriptors.size()];
+			Object[][] rows = new Object[features.size()][];
+
+			for (int i = 0; i < descriptors.size(); i++) {
+				columns[i] = descriptors.get(i).getLocalName();
+			}
+
+			try (SimpleFeatureIterator iterator = features.features()) {
+				for (int i = 0; iterator.hasNext(); i++) {
+					SimpleFeature feature = iterator.next();
+
+					rows[i] = new Object[columns.length];
+
+					for (int j = 0; j < columns.length; j++) {
+						Object value = feature.getAttribute(j);
+
+						// Only the type of the geometries, their coordinates are not readable
+						rows[i][j] = value instanceof Geometry ? ((Geometry) value).getGeometryType() : value;
+					}
+				}
+			}
+
+			String info = String.format(
+					"<html>%d features of type %s<br/>Latitude: %.6f to %.6f, Longitude: %.6f to %.6f<br/>"
+							+ "First %d features:</html>",
+					sampler.getNumFeatures(), sampler.getShapeType(),
+					swapAxes ? envelope.getMinY() : envelope.getMinX(),
+					swapAxes ? envelope.getMaxY() : envelope.getMaxX(),
+					swapAxes ? envelope.getMinX() : envelope.getMinY(),
+					swapAxes ? envelope.getMaxX() : envelope.getMaxY(), rows.length);
+
+			return new Preview(info, columns, rows);
+		} finally {
+			dataStore.dispose();
+		}
+	}
+
+	private static class Preview {
+
+		private final String info;
+		private final Object[] columns;
+		private final Object[][] rows;
+
+		public Preview(String info, Object[] columns, Object[][] rows) {
+			this.info = info;
+			this.columns = columns;
+			this.rows = rows;
+		}
+	}
+}
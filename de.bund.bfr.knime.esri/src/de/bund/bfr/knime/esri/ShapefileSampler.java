@@ -0,0 +1,211 @@
+package de.bund.bfr.knime.esri;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.InvalidPathException;
+import java.util.NoSuchElementException;
+
+import org.geotools.data.shapefile.dbf.DbaseFileReader;
+import org.geotools.data.shapefile.files.ShpFileType;
+import org.geotools.data.shapefile.files.ShpFiles;
+import org.geotools.data.shapefile.shp.IndexFile;
+import org.geotools.data.shapefile.shp.ShapeType;
+import org.geotools.data.shapefile.shp.ShapefileHeader;
+import org.geotools.data.shapefile.shp.ShapefileReader;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.feature.collection.BaseSimpleFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.locationtech.jts.geom.Envelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+
+/**
+ * Reads individual features of a shapefile without scanning the records before
+ * them. The shapes are located with the offsets of the *.shx file and decoded
+ * by GeoTools. The dbf file is memory mapped, so skipping the attributes of
+ * the records in between does not touch their pages. Without a *.shx file the
+ * record headers of the *.shp file are skipped instead, but the shapes are
+ * only decoded for the selected records. The number of features and the
+ * extent are taken from the file headers. The selected features are decoded
+ * one by one, while they are iterated, so a sample is never held in memory.
+ *
+ * @author Christian Thoens
+ */
+public class ShapefileSampler implements Closeable {
+
+	private final SimpleFeatureType type;
+	private final ShpFiles files;
+	private final ShapefileReader shapes;
+	private final IndexFile index;
+	private final DbaseFileReader attributes;
+	private final int numFeatures;
+
+	private int nextShape;
+	private int nextAttributes;
+
+	/**
+	 * @param type
+	 *            schema of the shapefile as created by GeoTools
+	 */
+	public ShapefileSampler(String shpFile, String charset, SimpleFeatureType type)
+			throws InvalidPathException, IOException, UnsupportedCharsetException {
+		this.type = type;
+		files = new ShpFiles(EsriUtils.getShapefile(shpFile));
+
+		ShapefileReader shapes = null;
+		IndexFile index = null;
+
+		try {
+			shapes = new ShapefileReader(files, false, true, EsriUtils.GEO_FACTORY);
+			index = files.exists(ShpFileType.SHX) ? new IndexFile(files, true) : null;
+			attributes = new DbaseFileReader(files, true,
+					charset != null ? Charset.forName(charset) : Charset.defaultCharset());
+		} catch (IOException | RuntimeException e) {
+			if (index != null) {
+				index.close();
+			}
+
+			if (shapes != null) {
+				shapes.close();
+			}
+
+			files.dispose();
+			throw e;
+		}
+
+		this.shapes = shapes;
+		this.index = index;
+		numFeatures = index != null ? index.getRecordCount() : attributes.getHeader().getNumRecords();
+		nextShape = 0;
+		nextAttributes = 0;
+	}
+
+	public SimpleFeatureType getSchema() {
+		return type;
+	}
+
+	public int getNumFeatures() {
+		return numFeatures;
+	}
+
+	public ShapeType getShapeType() {
+		return shapes.getHeader().getShapeType();
+	}
+
+	/**
+	 * @return the extent of all shapes in the coordinates of the shapefile
+	 */
+	public Envelope getEnvelope() {
+		ShapefileHeader header = shapes.getHeader();
+
+		return new Envelope(header.minX(), header.maxX(), header.minY(), header.maxY());
+	}
+
+	/**
+	 * Returns the features with the given indices, which are read, while the
+	 * collection is iterated. So it can only be iterated once and not after
+	 * the next call. The feature IDs are the same as those of GeoTools.
+	 *
+	 * @param records
+	 *            indices of the features in ascending order, which must be
+	 *            larger than those of the previous call
+	 */
+	public SimpleFeatureCollection read(int[] records) {
+		return new BaseSimpleFeatureCollection(type) {
+
+			@Override
+			public int size() {
+				return records.length;
+			}
+
+			@Override
+			public SimpleFeatureIterator features() {
+				SimpleFeatureBuilder builder = new SimpleFeatureBuilder(type);
+
+				return new SimpleFeatureIterator() {
+
+					private int next = 0;
+
+					@Override
+					public boolean hasNext() {
+						return next < records.length;
+					}
+
+					@Override
+					public SimpleFeature next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+
+						try {
+							return readFeature(records[next++], builder);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}
+
+					@Override
+					public void close() {
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			attributes.close();
+
+			if (index != null) {
+				index.close();
+			}
+
+			shapes.close();
+		} finally {
+			files.dispose();
+		}
+	}
+
+	private SimpleFeature readFeature(int record, SimpleFeatureBuilder builder) throws IOException {
+		Object geometry = readShape(record);
+		Object[] values = readAttributes(record);
+		int v = 0;
+
+		for (AttributeDescriptor descriptor : type.getAttributeDescriptors()) {
+			builder.add(descriptor == type.getGeometryDescriptor() ? geometry : values[v++]);
+		}
+
+		return builder.buildFeature(type.getTypeName() + "." + (record + 1));
+	}
+
+	private Object readShape(int record) throws IOException {
+		if (index != null) {
+			return shapes.shapeAt(index.getOffsetInBytes(record));
+		}
+
+		// Records are only decoded, when their shape is requested
+		for (; nextShape < record; nextShape++) {
+			shapes.nextRecord();
+		}
+
+		nextShape++;
+
+		return shapes.nextRecord().shape();
+	}
+
+	private Object[] readAttributes(int record) throws IOException {
+		for (; nextAttributes < record; nextAttributes++) {
+			attributes.skip();
+		}
+
+		nextAttributes++;
+
+		return attributes.readEntry();
+	}
+}
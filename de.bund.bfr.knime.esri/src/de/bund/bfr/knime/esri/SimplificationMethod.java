@@ -0,0 +1,85 @@
+package de.bund.bfr.knime.esri;
+
+import java.util.Arrays;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+import org.locationtech.jts.simplify.VWSimplifier;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Algorithms to reduce the number of vertices of polygons and polylines.
+ *
+ * @author Christian Thoens
+ */
+public enum SimplificationMethod {
+
+	NONE("None"),
+
+	/**
+	 * Douglas-Peucker simplification, which preserves the topology of the
+	 * geometry. The tolerance is the maximum distance between the original and
+	 * the simplified geometry.
+	 */
+	DOUGLAS_PEUCKER("Douglas-Peucker"),
+
+	/**
+	 * Visvalingam-Whyatt simplification. The tolerance is the square root of the
+	 * minimum area of the triangles formed by consecutive vertices.
+	 */
+	VISVALINGAM_WHYATT("Visvalingam-Whyatt");
+
+	public static final ImmutableList<String> NAMES = ImmutableList
+			.copyOf(Arrays.stream(values()).map(SimplificationMethod::toString).iterator());
+
+	private final String name;
+
+	private SimplificationMethod(String name) {
+		this.name = name;
+	}
+
+	public static SimplificationMethod fromName(String name) {
+		for (SimplificationMethod method : values()) {
+			if (method.name.equals(name)) {
+				return method;
+			}
+		}
+
+		return NONE;
+	}
+
+	/**
+	 * Simplifies a {@link Polygon} or {@link LineString}. If the simplified
+	 * geometry is empty or of another type (e.g. a polygon, that fell apart),
+	 * the original geometry is returned, so that each geometry still results in
+	 * exactly one row.
+	 */
+	public Geometry simplify(Geometry geometry, double tolerance) {
+		Geometry simplified;
+
+		switch (this) {
+		case DOUGLAS_PEUCKER:
+			simplified = TopologyPreservingSimplifier.simplify(geometry, tolerance);
+			break;
+		case VISVALINGAM_WHYATT:
+			simplified = VWSimplifier.simplify(geometry, tolerance);
+			break;
+		default:
+			return geometry;
+		}
+
+		if (simplified.isEmpty() || simplified.getClass() != geometry.getClass()) {
+			return geometry;
+		}
+
+		return simplified;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
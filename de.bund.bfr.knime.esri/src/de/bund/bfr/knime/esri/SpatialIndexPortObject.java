@@ -0,0 +1,197 @@
+package de.bund.bfr.knime.esri;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+
+import javax.swing.JComponent;
+
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.port.AbstractPortObject;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.port.PortObjectZipInputStream;
+import org.knime.core.node.port.PortObjectZipOutputStream;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.port.PortTypeRegistry;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+
+/**
+ * Polygons with the row keys of their polygon table, which are reconstructed
+ * once by the "Spatial Index Builder" node and can then be used by all nodes,
+ * that would otherwise reconstruct them from the polygon and coordinate tables.
+ * A polygon table row may have several polygons (e.g. after a repair). The
+ * polygons are saved as the packed coordinates of their rings, the
+ * {@link PolygonIndex} is built on the first access, so that loading the port
+ * object (e.g. on each streaming partition) only reads the coordinates.
+ *
+ * @author Christian Thoens
+ */
+public class SpatialIndexPortObject extends AbstractPortObject {
+
+	public static final PortType TYPE = PortTypeRegistry.getInstance().getPortType(SpatialIndexPortObject.class);
+	public static final PortType TYPE_OPTIONAL = PortTypeRegistry.getInstance()
+			.getPortType(SpatialIndexPortObject.class, true);
+
+	private static final String ZIP_ENTRY = "polygons.bin";
+
+	private ImmutableList<String> keys;
+	private ImmutableList<Polygon> polygons;
+	private PolygonIndex index;
+	private ImmutableListMultimap<String, Polygon> polygonsByKey;
+
+	/**
+	 * Used by the framework when the port object is loaded.
+	 */
+	public SpatialIndexPortObject() {
+	}
+
+	public SpatialIndexPortObject(List<String> keys, List<Polygon> polygons) {
+		if (keys.size() != polygons.size()) {
+			throw new IllegalArgumentException("Number of keys and polygons differ");
+		}
+
+		this.keys = ImmutableList.copyOf(keys);
+		this.polygons = ImmutableList.copyOf(polygons);
+	}
+
+	public synchronized PolygonIndex getIndex() {
+		if (index == null) {
+			index = new PolygonIndex(keys, polygons);
+		}
+
+		return index;
+	}
+
+	/**
+	 * @return the polygons of the polygon table row with the given key, empty if
+	 *         the row had no valid polygon
+	 */
+	public synchronized List<Polygon> getPolygons(String key) {
+		if (polygonsByKey == null) {
+			ImmutableListMultimap.Builder<String, Polygon> builder = ImmutableListMultimap.builder();
+
+			for (int i = 0; i < keys.size(); i++) {
+				builder.put(keys.get(i), polygons.get(i));
+			}
+
+			polygonsByKey = builder.build();
+		}
+
+		return polygonsByKey.get(key);
+	}
+
+	@Override
+	public String getSummary() {
+		return polygons.size() + " polygons";
+	}
+
+	@Override
+	public PortObjectSpec getSpec() {
+		return new SpatialIndexPortObjectSpec();
+	}
+
+	@Override
+	public JComponent[] getViews() {
+		return new JComponent[0];
+	}
+
+	/**
+	 * Format: number of polygons, then for each polygon its key, the number of
+	 * rings and for each ring the number of coordinates followed by the x/y
+	 * values.
+	 */
+	@Override
+	protected void save(PortObjectZipOutputStream out, ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+		out.putNextEntry(new ZipEntry(ZIP_ENTRY));
+
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+
+		data.writeInt(polygons.size());
+
+		for (int i = 0; i < polygons.size(); i++) {
+			Polygon polygon = polygons.get(i);
+
+			data.writeUTF(keys.get(i));
+			data.writeInt(polygon.getNumInteriorRing() + 1);
+			writeRing(data, polygon.getExteriorRing());
+
+			for (int j = 0; j < polygon.getNumInteriorRing(); j++) {
+				writeRing(data, polygon.getInteriorRingN(j));
+			}
+
+			exec.checkCanceled();
+		}
+
+		data.flush();
+		out.closeEntry();
+	}
+
+	@Override
+	protected void load(PortObjectZipInputStream in, PortObjectSpec spec, ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+		ZipEntry entry = in.getNextEntry();
+
+		if (entry == null || !entry.getName().equals(ZIP_ENTRY)) {
+			throw new IOException("Expected zip entry " + ZIP_ENTRY);
+		}
+
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		int n = data.readInt();
+		ImmutableList.Builder<String> keyBuilder = ImmutableList.builder();
+		ImmutableList.Builder<Polygon> polygonBuilder = ImmutableList.builder();
+
+		for (int i = 0; i < n; i++) {
+			keyBuilder.add(data.readUTF());
+
+			LinearRing[] rings = new LinearRing[data.readInt()];
+
+			for (int j = 0; j < rings.length; j++) {
+				rings[j] = readRing(data);
+			}
+
+			polygonBuilder.add(EsriUtils.GEO_FACTORY.createPolygon(rings[0], Arrays.copyOfRange(rings, 1, rings.length)));
+			exec.checkCanceled();
+		}
+
+		keys = keyBuilder.build();
+		polygons = polygonBuilder.build();
+	}
+
+	private static void writeRing(DataOutputStream data, LineString ring) throws IOException {
+		CoordinateSequence coordinates = ring.getCoordinateSequence();
+
+		data.writeInt(coordinates.size());
+
+		for (int i = 0; i < coordinates.size(); i++) {
+			data.writeDouble(coordinates.getX(i));
+			data.writeDouble(coordinates.getY(i));
+		}
+	}
+
+	private static LinearRing readRing(DataInputStream data) throws IOException {
+		double[] coordinates = new double[2 * data.readInt()];
+
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = data.readDouble();
+		}
+
+		return EsriUtils.GEO_FACTORY.createLinearRing(new PackedCoordinateSequence.Double(coordinates, 2, 0));
+	}
+
+	public static final class Serializer extends AbstractPortObjectSerializer<SpatialIndexPortObject> {
+	}
+}
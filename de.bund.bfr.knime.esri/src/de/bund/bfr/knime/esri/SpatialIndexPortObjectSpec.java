@@ -0,0 +1,28 @@
+package de.bund.bfr.knime.esri;
+
+import org.knime.core.node.ModelContentRO;
+import org.knime.core.node.ModelContentWO;
+import org.knime.core.node.port.AbstractSimplePortObjectSpec;
+
+/**
+ * Spec of the {@link SpatialIndexPortObject}. The polygons are only known after
+ * execution, so the spec has no content.
+ *
+ * @author Christian Thoens
+ */
+public class SpatialIndexPortObjectSpec extends AbstractSimplePortObjectSpec {
+
+	public SpatialIndexPortObjectSpec() {
+	}
+
+	@Override
+	protected void save(ModelContentWO model) {
+	}
+
+	@Override
+	protected void load(ModelContentRO model) {
+	}
+
+	public static final class Serializer extends AbstractSimplePortObjectSpecSerializer<SpatialIndexPortObjectSpec> {
+	}
+}
@@ -0,0 +1,78 @@
+package de.bund.bfr.knime.esri;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.util.ThreadPool;
+
+/**
+ * Runs tasks on a sub pool of the KNIME thread pool and returns their results
+ * in the order, in which the tasks were submitted. The caller should take a
+ * result, when the queue is full, so that only twice as many tasks as threads
+ * are pending. The node itself runs on a thread of the global pool, so while
+ * it waits for a result, its thread is made invisible to the pool (see
+ * {@link ThreadPool#runInvisible(Callable)}). Otherwise the tasks could not
+ * start, when all threads of the global pool wait for their tasks.
+ *
+ * @author Christian Thoens
+ */
+public class TaskQueue<T> implements AutoCloseable {
+
+	private final ThreadPool pool;
+	private final int capacity;
+	private final Deque<Future<T>> pending;
+
+	public TaskQueue() {
+		pool = KNIMEConstants.GLOBAL_THREAD_POOL.createSubPool();
+		capacity = 2 * Math.max(pool.getMaxThreads(), 1);
+		pending = new ArrayDeque<>();
+	}
+
+	public void submit(Callable<T> task) {
+		pending.add(pool.enqueue(task));
+	}
+
+	public boolean isFull() {
+		return pending.size() >= capacity;
+	}
+
+	public boolean isEmpty() {
+		return pending.isEmpty();
+	}
+
+	/**
+	 * Waits for the result of the oldest task.
+	 *
+	 * @throws ExecutionException
+	 *             if the task failed, with the exception of the task as cause
+	 */
+	public T take() throws InterruptedException, ExecutionException {
+		Future<T> next = pending.poll();
+
+		try {
+			return KNIMEConstants.GLOBAL_THREAD_POOL.runInvisible(next::get);
+		} catch (ExecutionException e) {
+			// runInvisible wraps the exceptions of Future.get once more
+			if (e.getCause() instanceof ExecutionException) {
+				throw (ExecutionException) e.getCause();
+			} else if (e.getCause() instanceof InterruptedException) {
+				throw (InterruptedException) e.getCause();
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Cancels all tasks, whose results were not taken.
+	 */
+	@Override
+	public void close() {
+		pending.forEach(f -> f.cancel(true));
+		pending.clear();
+	}
+}
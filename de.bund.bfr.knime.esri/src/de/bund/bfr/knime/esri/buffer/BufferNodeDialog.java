@@ -0,0 +1,103 @@
+package de.bund.bfr.knime.esri.buffer;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.collection.ListDataValue;
+import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
+import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
+import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+
+import de.bund.bfr.knime.esri.CoordinateReference;
+
+/**
+ * <code>NodeDialog</code> for the "Buffer" Node.
+ *
+ *
+ * This node dialog derives from {@link DefaultNodeSettingsPane} which allows
+ * creation of a simple dialog with standard components. If you need a more
+ * complex dialog please derive directly from
+ * {@link org.knime.core.node.NodeDialogPane}.
+ *
+ * @author Christian Thoens
+ */
+public class BufferNodeDialog extends DefaultNodeSettingsPane implements ChangeListener {
+
+	private SettingsModelString referenceModel;
+	private SettingsModelString polygonModel;
+	private SettingsModelString offsetModel;
+	private SettingsModelString countModel;
+
+	/**
+	 * New pane for configuring the Buffer node.
+	 */
+	@SuppressWarnings("unchecked")
+	protected BufferNodeDialog() {
+		referenceModel = new SettingsModelString(BufferNodeModel.CFG_COORDINATE_REFERENCE,
+				BufferNodeModel.DEFAULT_COORDINATE_REFERENCE);
+		polygonModel = new SettingsModelString(BufferNodeModel.CFG_POLYGON_COLUMN, null);
+		offsetModel = new SettingsModelString(BufferNodeModel.CFG_POLYGON_OFFSET_COLUMN, null);
+		countModel = new SettingsModelString(BufferNodeModel.CFG_POLYGON_COUNT_COLUMN, null);
+		referenceModel.addChangeListener(this);
+
+		createNewGroup("Points (if no polygon coordinates are connected)");
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(BufferNodeModel.CFG_LATITUDE_COLUMN, null), "Latitude Column", 0, false,
+				DoubleValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(BufferNodeModel.CFG_LONGITUDE_COLUMN, null), "Longitude Column", 0, false,
+				DoubleValue.class));
+		createNewGroup("Polygon");
+		addDialogComponent(new DialogComponentStringSelection(referenceModel, "Coordinates Referenced by",
+				CoordinateReference.NAMES));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(polygonModel, "Polygon Column", 0, false, ListDataValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(offsetModel, "Offset Column", 0, false, IntValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(countModel, "Count Column", 0, false, IntValue.class));
+		createNewGroup("Polygon Coordinates");
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(BufferNodeModel.CFG_POLYGON_LATITUDE_COLUMN, null), "Latitude Column", 1,
+				false, DoubleValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(BufferNodeModel.CFG_POLYGON_LONGITUDE_COLUMN, null), "Longitude Column", 1,
+				false, DoubleValue.class));
+		createNewGroup("Options");
+		addDialogComponent(new DialogComponentNumber(new SettingsModelDoubleBounded(BufferNodeModel.CFG_DISTANCE,
+				BufferNodeModel.DEFAULT_DISTANCE, 0.0, Double.MAX_VALUE), "Distance [km]", 1.0));
+		addDialogComponent(new DialogComponentNumber(
+				new SettingsModelIntegerBounded(BufferNodeModel.CFG_QUADRANT_SEGMENTS,
+						BufferNodeModel.DEFAULT_QUADRANT_SEGMENTS, 1, 256),
+				"Segments per Quarter Circle", 1));
+		addDialogComponent(new DialogComponentBoolean(new SettingsModelBoolean(BufferNodeModel.CFG_DISSOLVE_BUFFERS,
+				BufferNodeModel.DEFAULT_DISSOLVE_BUFFERS), "Dissolve Overlapping Buffers"));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(BufferNodeModel.CFG_SPLIT_POLYGONS_WITH_HOLES,
+						BufferNodeModel.DEFAULT_SPLIT_POLYGONS_WITH_HOLES),
+				"Split Polygons to Remove Holes"));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(BufferNodeModel.CFG_COLLECT_STATISTICS,
+						BufferNodeModel.DEFAULT_COLLECT_STATISTICS),
+				"Collect Performance Statistics"));
+		stateChanged(null);
+	}
+
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		boolean useRange = CoordinateReference
+				.fromName(referenceModel.getStringValue()) == CoordinateReference.COORDINATE_RANGE;
+
+		polygonModel.setEnabled(!useRange);
+		offsetModel.setEnabled(useRange);
+		countModel.setEnabled(useRange);
+	}
+}
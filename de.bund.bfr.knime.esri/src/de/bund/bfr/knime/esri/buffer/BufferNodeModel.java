@@ -0,0 +1,528 @@
+package de.bund.bfr.knime.esri.buffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.geotools.geometry.jts.JTS;
+import org.geotools.referencing.CRS;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.core.node.port.PortObject;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.port.PortType;
+import org.knime.core.util.UniqueNameGenerator;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.operation.overlayng.OverlayNGRobust;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+import de.bund.bfr.knime.esri.CoordinateReference;
+import de.bund.bfr.knime.esri.EsriStatistics;
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+import de.bund.bfr.knime.esri.EsriStatistics.Stage;
+import de.bund.bfr.knime.esri.EsriUtils;
+import de.bund.bfr.knime.esri.PolygonCoordinates;
+import de.bund.bfr.knime.esri.PolygonTableWriter;
+import de.bund.bfr.knime.esri.PolygonValidation;
+import de.bund.bfr.knime.esri.TaskQueue;
+
+/**
+ * This is the model implementation of Buffer.
+ *
+ *
+ * @author Christian Thoens
+ */
+public class BufferNodeModel extends NodeModel {
+
+	protected static final String CFG_LATITUDE_COLUMN = "LatitudeColumn";
+	protected static final String CFG_LONGITUDE_COLUMN = "LongitudeColumn";
+	protected static final String CFG_COORDINATE_REFERENCE = "CoordinateReference";
+	protected static final String CFG_POLYGON_COLUMN = "PolygonColumn";
+	protected static final String CFG_POLYGON_OFFSET_COLUMN = "PolygonOffsetColumn";
+	protected static final String CFG_POLYGON_COUNT_COLUMN = "PolygonCountColumn";
+	protected static final String CFG_POLYGON_LATITUDE_COLUMN = "PolygonLatitudeColumn";
+	protected static final String CFG_POLYGON_LONGITUDE_COLUMN = "PolygonLongitudeColumn";
+	protected static final String CFG_DISTANCE = "Distance";
+	protected static final String CFG_QUADRANT_SEGMENTS = "QuadrantSegments";
+	protected static final String CFG_DISSOLVE_BUFFERS = "DissolveBuffers";
+	protected static final String CFG_SPLIT_POLYGONS_WITH_HOLES = "SplitPolygonsWithHoles";
+	protected static final String CFG_COLLECT_STATISTICS = "CollectStatistics";
+
+	protected static final String DEFAULT_COORDINATE_REFERENCE = CoordinateReference.ROW_ID_LIST.toString();
+	protected static final double DEFAULT_DISTANCE = 10.0;
+	protected static final int DEFAULT_QUADRANT_SEGMENTS = 8;
+	protected static final boolean DEFAULT_DISSOLVE_BUFFERS = false;
+	protected static final boolean DEFAULT_SPLIT_POLYGONS_WITH_HOLES = true;
+	protected static final boolean DEFAULT_COLLECT_STATISTICS = false;
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(BufferNodeModel.class);
+	private static final String DEFAULT_GEOMETRY_NAME = "Buffer";
+	private static final int BATCH_SIZE = 256;
+
+	private SettingsModelString latitudeColumm;
+	private SettingsModelString longitudeColumm;
+	private SettingsModelString coordinateReference;
+	private SettingsModelString polygonColumm;
+	private SettingsModelString polygonOffsetColumm;
+	private SettingsModelString polygonCountColumm;
+	private SettingsModelString polygonLatitudeColumm;
+	private SettingsModelString polygonLongitudeColumm;
+	private SettingsModelDoubleBounded distance;
+	private SettingsModelIntegerBounded quadrantSegments;
+	private SettingsModelBoolean dissolveBuffers;
+	private SettingsModelBoolean splitPolygonsWithHoles;
+	private SettingsModelBoolean collectStatistics;
+
+	/**
+	 * Constructor for the node model.
+	 */
+	protected BufferNodeModel() {
+		super(new PortType[] { BufferedDataTable.TYPE, BufferedDataTable.TYPE_OPTIONAL },
+				new PortType[] { BufferedDataTable.TYPE, BufferedDataTable.TYPE });
+		latitudeColumm = new SettingsModelString(CFG_LATITUDE_COLUMN, null);
+		longitudeColumm = new SettingsModelString(CFG_LONGITUDE_COLUMN, null);
+		coordinateReference = new SettingsModelString(CFG_COORDINATE_REFERENCE, DEFAULT_COORDINATE_REFERENCE);
+		polygonColumm = new SettingsModelString(CFG_POLYGON_COLUMN, null);
+		polygonOffsetColumm = new SettingsModelString(CFG_POLYGON_OFFSET_COLUMN, null);
+		polygonCountColumm = new SettingsModelString(CFG_POLYGON_COUNT_COLUMN, null);
+		polygonLatitudeColumm = new SettingsModelString(CFG_POLYGON_LATITUDE_COLUMN, null);
+		polygonLongitudeColumm = new SettingsModelString(CFG_POLYGON_LONGITUDE_COLUMN, null);
+		distance = new SettingsModelDoubleBounded(CFG_DISTANCE, DEFAULT_DISTANCE, 0.0, Double.MAX_VALUE);
+		quadrantSegments = new SettingsModelIntegerBounded(CFG_QUADRANT_SEGMENTS, DEFAULT_QUADRANT_SEGMENTS, 1, 256);
+		dissolveBuffers = new SettingsModelBoolean(CFG_DISSOLVE_BUFFERS, DEFAULT_DISSOLVE_BUFFERS);
+		splitPolygonsWithHoles = new SettingsModelBoolean(CFG_SPLIT_POLYGONS_WITH_HOLES,
+				DEFAULT_SPLIT_POLYGONS_WITH_HOLES);
+		collectStatistics = new SettingsModelBoolean(CFG_COLLECT_STATISTICS, DEFAULT_COLLECT_STATISTICS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PortObject[] execute(final PortObject[] inObjects, final ExecutionContext exec) throws Exception {
+		EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+		BufferedDataTable table = (BufferedDataTable) inObjects[0];
+		BufferedDataTable coordinateTable = (BufferedDataTable) inObjects[1];
+		List<Geometry> geometries = new ArrayList<>();
+		List<DataCell[]> attributes = new ArrayList<>();
+
+		if (coordinateTable != null) {
+			readPolygons(table, coordinateTable, geometries, attributes, statistics);
+		} else {
+			readPoints(table, geometries, attributes, statistics);
+		}
+
+		List<DataColumnSpec> attributeColumns = dissolveBuffers.getBooleanValue() ? Collections.emptyList()
+				: getAttributeColumns(table.getSpec(), coordinateTable != null);
+		PolygonTableWriter writer = new PolygonTableWriter(attributeColumns,
+				getGeometryName(table.getSpec(), coordinateTable != null), getCoordinateReference(),
+				splitPolygonsWithHoles.getBooleanValue(), exec);
+		List<Geometry> buffers = new ArrayList<>();
+
+		buffer(geometries, (buffer, i) -> {
+			if (dissolveBuffers.getBooleanValue()) {
+				buffers.add(buffer);
+			} else {
+				writer.addRows(attributes.get(i), buffer, statistics);
+				statistics.increment(Counter.FEATURES);
+			}
+		}, exec, statistics);
+
+		if (dissolveBuffers.getBooleanValue()) {
+			long time = statistics.start();
+			Geometry union = !buffers.isEmpty() ? OverlayNGRobust.union(buffers) : EsriUtils.GEO_FACTORY.createPolygon();
+
+			statistics.stop(Stage.OVERLAY, time);
+			statistics.count(Counter.FEATURES, writer.addRows(new DataCell[0], union, statistics));
+		}
+
+		BufferedDataTable[] result = writer.close();
+
+		if (statistics.isEnabled()) {
+			statistics.getTimeVariables().forEach(this::pushFlowVariableDouble);
+			statistics.getCountVariables().forEach(this::pushFlowVariableInt);
+			LOGGER.info(statistics);
+		}
+
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void reset() {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+		DataTableSpec spec = (DataTableSpec) inSpecs[0];
+		DataTableSpec coordinateSpec = (DataTableSpec) inSpecs[1];
+
+		if (coordinateSpec != null) {
+			if (getCoordinateReference() == CoordinateReference.ROW_ID_LIST) {
+				EsriUtils.checkColumn("Polygon", polygonColumm, spec);
+			} else {
+				EsriUtils.checkColumn("Polygon Offset", polygonOffsetColumm, spec);
+				EsriUtils.checkColumn("Polygon Count", polygonCountColumm, spec);
+			}
+
+			EsriUtils.checkColumn("Polygon Latitude", polygonLatitudeColumm, coordinateSpec);
+			EsriUtils.checkColumn("Polygon Longitude", polygonLongitudeColumm, coordinateSpec);
+		} else {
+			EsriUtils.checkColumn("Latitude", latitudeColumm, spec);
+			EsriUtils.checkColumn("Longitude", longitudeColumm, spec);
+		}
+
+		List<DataColumnSpec> attributeColumns = dissolveBuffers.getBooleanValue() ? Collections.emptyList()
+				: getAttributeColumns(spec, coordinateSpec != null);
+
+		return PolygonTableWriter.createSpec(attributeColumns, getGeometryName(spec, coordinateSpec != null),
+				getCoordinateReference());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveSettingsTo(final NodeSettingsWO settings) {
+		latitudeColumm.saveSettingsTo(settings);
+		longitudeColumm.saveSettingsTo(settings);
+		coordinateReference.saveSettingsTo(settings);
+		polygonColumm.saveSettingsTo(settings);
+		polygonOffsetColumm.saveSettingsTo(settings);
+		polygonCountColumm.saveSettingsTo(settings);
+		polygonLatitudeColumm.saveSettingsTo(settings);
+		polygonLongitudeColumm.saveSettingsTo(settings);
+		distance.saveSettingsTo(settings);
+		quadrantSegments.saveSettingsTo(settings);
+		dissolveBuffers.saveSettingsTo(settings);
+		splitPolygonsWithHoles.saveSettingsTo(settings);
+		collectStatistics.saveSettingsTo(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+		latitudeColumm.loadSettingsFrom(settings);
+		longitudeColumm.loadSettingsFrom(settings);
+		coordinateReference.loadSettingsFrom(settings);
+		polygonColumm.loadSettingsFrom(settings);
+		polygonOffsetColumm.loadSettingsFrom(settings);
+		polygonCountColumm.loadSettingsFrom(settings);
+		polygonLatitudeColumm.loadSettingsFrom(settings);
+		polygonLongitudeColumm.loadSettingsFrom(settings);
+		distance.loadSettingsFrom(settings);
+		quadrantSegments.loadSettingsFrom(settings);
+		dissolveBuffers.loadSettingsFrom(settings);
+		splitPolygonsWithHoles.loadSettingsFrom(settings);
+		collectStatistics.loadSettingsFrom(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+		latitudeColumm.validateSettings(settings);
+		longitudeColumm.validateSettings(settings);
+		coordinateReference.validateSettings(settings);
+		polygonColumm.validateSettings(settings);
+		polygonOffsetColumm.validateSettings(settings);
+		polygonCountColumm.validateSettings(settings);
+		polygonLatitudeColumm.validateSettings(settings);
+		polygonLongitudeColumm.validateSettings(settings);
+		distance.validateSettings(settings);
+		quadrantSegments.validateSettings(settings);
+		dissolveBuffers.validateSettings(settings);
+		splitPolygonsWithHoles.validateSettings(settings);
+		collectStatistics.validateSettings(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * Buffers all geometries in batches on the KNIME thread pool. The buffers
+	 * are passed to {@code consumer} in the order of {@code geometries}.
+	 */
+	private void buffer(List<Geometry> geometries, BufferConsumer consumer, ExecutionContext exec,
+			EsriStatistics statistics) throws InterruptedException, ExecutionException, CanceledExecutionException {
+		MetricTransforms transforms = new MetricTransforms();
+		double meters = distance.getDoubleValue() * 1000.0;
+		int segments = quadrantSegments.getIntValue();
+		int n = geometries.size();
+		int done = 0;
+
+		try (TaskQueue<List<Geometry>> tasks = new TaskQueue<>()) {
+			for (int from = 0; from < n; from += BATCH_SIZE) {
+				int start = from;
+				int end = Math.min(from + BATCH_SIZE, n);
+
+				tasks.submit(() -> {
+					List<Geometry> buffers = new ArrayList<>(end - start);
+
+					for (int i = start; i < end; i++) {
+						buffers.add(buffer(geometries.get(i), meters, segments, transforms, statistics));
+					}
+
+					return buffers;
+				});
+
+				if (tasks.isFull()) {
+					for (Geometry buffer : tasks.take()) {
+						consumer.accept(buffer, done++);
+					}
+
+					exec.checkCanceled();
+					exec.setProgress((double) done / (double) n);
+				}
+			}
+
+			while (!tasks.isEmpty()) {
+				for (Geometry buffer : tasks.take()) {
+					consumer.accept(buffer, done++);
+				}
+
+				exec.checkCanceled();
+			}
+		}
+	}
+
+	/**
+	 * Transforms the geometry into the UTM zone of its centroid, buffers it
+	 * there by {@code meters} and transforms the buffer back into
+	 * latitude/longitude.
+	 */
+	private static Geometry buffer(Geometry geometry, double meters, int quadrantSegments,
+			MetricTransforms transforms, EsriStatistics statistics) throws FactoryException, TransformException {
+		long time = statistics.start();
+		Point centroid = geometry.getCentroid();
+		MathTransform[] transform = transforms.get(centroid.getX(), centroid.getY());
+		Geometry metric = JTS.transform(geometry, transform[0]);
+
+		time = statistics.stop(Stage.CRS_TRANSFORMATION, time);
+
+		Geometry buffer = metric.buffer(meters, quadrantSegments);
+
+		time = statistics.stop(Stage.OVERLAY, time);
+
+		Geometry result = JTS.transform(buffer, transform[1]);
+
+		statistics.stop(Stage.CRS_TRANSFORMATION, time);
+
+		return result;
+	}
+
+	private void readPoints(BufferedDataTable table, List<Geometry> geometries, List<DataCell[]> attributes,
+			EsriStatistics statistics) {
+		int latIndex = table.getSpec().findColumnIndex(latitudeColumm.getStringValue());
+		int lonIndex = table.getSpec().findColumnIndex(longitudeColumm.getStringValue());
+		long missing = 0;
+
+		for (DataRow row : table) {
+			DataCell latCell = row.getCell(latIndex);
+			DataCell lonCell = row.getCell(lonIndex);
+
+			if (latCell.isMissing() || lonCell.isMissing()) {
+				missing++;
+				continue;
+			}
+
+			geometries.add(EsriUtils.GEO_FACTORY.createPoint(new Coordinate(((DoubleValue) latCell).getDoubleValue(),
+					((DoubleValue) lonCell).getDoubleValue())));
+
+			DataCell[] cells = new DataCell[row.getNumCells()];
+
+			for (int i = 0; i < cells.length; i++) {
+				cells[i] = row.getCell(i);
+			}
+
+			attributes.add(cells);
+		}
+
+		if (missing != 0) {
+			setWarningMessage(missing + " rows with missing coordinates skipped");
+		}
+
+		statistics.count(Counter.VERTICES, geometries.size());
+	}
+
+	private void readPolygons(BufferedDataTable polygonTable, BufferedDataTable coordinateTable,
+			List<Geometry> geometries, List<DataCell[]> attributes, EsriStatistics statistics) {
+		long time = statistics.start();
+		List<Integer> attributeIndices = getAttributeIndices(polygonTable.getSpec(), true);
+		PolygonValidation validation = new PolygonValidation(false, statistics);
+
+		PolygonCoordinates.readPolygons(polygonTable, coordinateTable, polygonColumm.getStringValue(),
+				polygonOffsetColumm.getStringValue(), polygonCountColumm.getStringValue(),
+				polygonLatitudeColumm.getStringValue(), polygonLongitudeColumm.getStringValue(),
+				getCoordinateReference(), EsriUtils.GEO_FACTORY, validation, statistics, (row, polygon) -> {
+					if (!polygon.isEmpty()) {
+						geometries.add(polygon);
+						attributes.add(attributeIndices.stream().map(row::getCell).toArray(DataCell[]::new));
+					}
+				});
+
+		if (validation.getWarning() != null) {
+			setWarningMessage(validation.getWarning());
+		}
+
+		statistics.stop(Stage.POLYGON_CONSTRUCTION, time);
+	}
+
+	private List<DataColumnSpec> getAttributeColumns(DataTableSpec spec, boolean isPolygon) {
+		List<DataColumnSpec> columns = new ArrayList<>();
+
+		for (int i : getAttributeIndices(spec, isPolygon)) {
+			columns.add(spec.getColumnSpec(i));
+		}
+
+		return columns;
+	}
+
+	/**
+	 * @return all columns of the input table except the polygon columns
+	 */
+	private List<Integer> getAttributeIndices(DataTableSpec spec, boolean isPolygon) {
+		List<Integer> indices = new ArrayList<>();
+
+		for (int i = 0; i < spec.getNumColumns(); i++) {
+			String name = spec.getColumnSpec(i).getName();
+			boolean isGeometry = isPolygon && (getCoordinateReference() == CoordinateReference.ROW_ID_LIST
+					? name.equals(polygonColumm.getStringValue())
+					: name.equals(polygonOffsetColumm.getStringValue())
+							|| name.equals(polygonCountColumm.getStringValue()));
+
+			if (!isGeometry) {
+				indices.add(i);
+			}
+		}
+
+		return indices;
+	}
+
+	/**
+	 * @return name of the polygon column or, with
+	 *         {@link CoordinateReference#COORDINATE_RANGE}, the prefix of the
+	 *         offset column. For points, a name, that is not used in the input
+	 *         table.
+	 */
+	private String getGeometryName(DataTableSpec spec, boolean isPolygon) {
+		if (isPolygon && getCoordinateReference() == CoordinateReference.ROW_ID_LIST
+				&& polygonColumm.getStringValue() != null) {
+			return polygonColumm.getStringValue();
+		} else if (isPolygon && getCoordinateReference() == CoordinateReference.COORDINATE_RANGE) {
+			return PolygonTableWriter.getGeometryName(polygonOffsetColumm.getStringValue(), DEFAULT_GEOMETRY_NAME);
+		}
+
+		Set<String> names = new HashSet<>();
+
+		for (DataColumnSpec column : spec) {
+			names.add(column.getName());
+		}
+
+		return new UniqueNameGenerator(names).newName(DEFAULT_GEOMETRY_NAME);
+	}
+
+	private CoordinateReference getCoordinateReference() {
+		return CoordinateReference.fromName(coordinateReference.getStringValue());
+	}
+
+	private static interface BufferConsumer {
+
+		void accept(Geometry buffer, int index);
+	}
+
+	/**
+	 * Transformations from latitude/longitude into the UTM zones and back. The
+	 * zones are created on first use and shared by all threads.
+	 */
+	private static class MetricTransforms {
+
+		private final Map<Integer, MathTransform[]> transforms;
+
+		private CoordinateReferenceSystem geographic;
+
+		public MetricTransforms() {
+			transforms = new ConcurrentHashMap<>();
+			geographic = null;
+		}
+
+		/**
+		 * @return the transformation into the UTM zone of the coordinate and its
+		 *         inverse
+		 */
+		public MathTransform[] get(double lat, double lon) throws FactoryException, TransformException {
+			int zone = Math.max(Math.min((int) Math.floor((lon + 180.0) / 6.0), 59), 0) + 1;
+			int key = lat < 0.0 ? -zone : zone;
+			MathTransform[] transform = transforms.get(key);
+
+			if (transform == null) {
+				CoordinateReferenceSystem utm = CRS
+						.decode("AUTO:42001," + (6 * zone - 183) + "," + (lat < 0.0 ? "-1" : "1"));
+				MathTransform toUtm = CRS.findMathTransform(getGeographic(), utm, true);
+
+				transform = new MathTransform[] { toUtm, toUtm.inverse() };
+				transforms.putIfAbsent(key, transform);
+			}
+
+			return transform;
+		}
+
+		private synchronized CoordinateReferenceSystem getGeographic() throws FactoryException {
+			if (geographic == null) {
+				geographic = CRS.decode("EPSG:4326");
+			}
+
+			return geographic;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package de.bund.bfr.knime.esri.cellencoder;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.collection.ListDataValue;
+import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
+import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
+import org.knime.core.node.defaultnodesettings.DialogComponentString;
+import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+
+import de.bund.bfr.knime.esri.CellEncoding;
+import de.bund.bfr.knime.esri.CoordinateReference;
+
+/**
+ * <code>NodeDialog</code> for the "CellEncoder" Node.
+ *
+ *
+ * This node dialog derives from {@link DefaultNodeSettingsPane} which allows
+ * creation of a simple dialog with standard components. If you need a more
+ * complex dialog please derive directly from
+ * {@link org.knime.core.node.NodeDialogPane}.
+ *
+ * @author Christian Thoens
+ */
+public class CellEncoderNodeDialog extends DefaultNodeSettingsPane implements ChangeListener {
+
+	private SettingsModelString referenceModel;
+	private SettingsModelString polygonModel;
+	private SettingsModelString offsetModel;
+	private SettingsModelString countModel;
+
+	/**
+	 * New pane for configuring the CellEncoder node.
+	 */
+	@SuppressWarnings("unchecked")
+	protected CellEncoderNodeDialog() {
+		referenceModel = new SettingsModelString(CellEncoderNodeModel.CFG_COORDINATE_REFERENCE,
+				CellEncoderNodeModel.DEFAULT_COORDINATE_REFERENCE);
+		polygonModel = new SettingsModelString(CellEncoderNodeModel.CFG_POLYGON_COLUMN, null);
+		offsetModel = new SettingsModelString(CellEncoderNodeModel.CFG_POLYGON_OFFSET_COLUMN, null);
+		countModel = new SettingsModelString(CellEncoderNodeModel.CFG_POLYGON_COUNT_COLUMN, null);
+		referenceModel.addChangeListener(this);
+
+		createNewGroup("Cells");
+		addDialogComponent(new DialogComponentStringSelection(new SettingsModelString(
+				CellEncoderNodeModel.CFG_ENCODING, CellEncoderNodeModel.DEFAULT_ENCODING), "Encoding",
+				CellEncoding.NAMES));
+		addDialogComponent(new DialogComponentNumber(new SettingsModelIntegerBounded(
+				CellEncoderNodeModel.CFG_RESOLUTION, CellEncoderNodeModel.DEFAULT_RESOLUTION, 1, 30), "Resolution",
+				1));
+		addDialogComponent(new DialogComponentBoolean(new SettingsModelBoolean(
+				CellEncoderNodeModel.CFG_NUMERIC_CELL_IDS, CellEncoderNodeModel.DEFAULT_NUMERIC_CELL_IDS),
+				"Numeric Cell IDs"));
+		addDialogComponent(new DialogComponentString(new SettingsModelString(CellEncoderNodeModel.CFG_CELL_COLUMN,
+				CellEncoderNodeModel.DEFAULT_CELL_COLUMN), "Cell Column"));
+		createNewGroup("Points (if no polygon coordinates are connected)");
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(CellEncoderNodeModel.CFG_LATITUDE_COLUMN, null), "Latitude Column", 0, false,
+				DoubleValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(CellEncoderNodeModel.CFG_LONGITUDE_COLUMN, null), "Longitude Column", 0,
+				false, DoubleValue.class));
+		createNewGroup("Polygon");
+		addDialogComponent(new DialogComponentStringSelection(referenceModel, "Coordinates Referenced by",
+				CoordinateReference.NAMES));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(polygonModel, "Polygon Column", 0, false, ListDataValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(offsetModel, "Offset Column", 0, false, IntValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(countModel, "Count Column", 0, false, IntValue.class));
+		createNewGroup("Polygon Coordinates");
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(CellEncoderNodeModel.CFG_POLYGON_LATITUDE_COLUMN, null), "Latitude Column",
+				1, false, DoubleValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(CellEncoderNodeModel.CFG_POLYGON_LONGITUDE_COLUMN, null),
+				"Longitude Column", 1, false, DoubleValue.class));
+		addDialogComponent(new DialogComponentNumber(new SettingsModelIntegerBounded(
+				CellEncoderNodeModel.CFG_MAX_CELLS, CellEncoderNodeModel.DEFAULT_MAX_CELLS, 1, Integer.MAX_VALUE),
+				"Maximum Cells per Polygon", 1000));
+		createNewGroup("Options");
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(CellEncoderNodeModel.CFG_COLLECT_STATISTICS,
+						CellEncoderNodeModel.DEFAULT_COLLECT_STATISTICS),
+				"Collect Performance Statistics"));
+		stateChanged(null);
+	}
+
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		boolean useRange = CoordinateReference
+				.fromName(referenceModel.getStringValue()) == CoordinateReference.COORDINATE_RANGE;
+
+		polygonModel.setEnabled(!useRange);
+		offsetModel.setEnabled(useRange);
+		countModel.setEnabled(useRange);
+	}
+}
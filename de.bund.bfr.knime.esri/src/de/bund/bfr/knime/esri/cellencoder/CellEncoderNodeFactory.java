@@ -0,0 +1,56 @@
+package de.bund.bfr.knime.esri.cellencoder;
+
+import org.knime.core.node.NodeDialogPane;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeView;
+
+/**
+ * <code>NodeFactory</code> for the "CellEncoder" Node.
+ * 
+ * 
+ * @author Christian Thoens
+ */
+public class CellEncoderNodeFactory extends NodeFactory<CellEncoderNodeModel> {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CellEncoderNodeModel createNodeModel() {
+		return new CellEncoderNodeModel();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getNrNodeViews() {
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeView<CellEncoderNodeModel> createNodeView(final int viewIndex,
+			final CellEncoderNodeModel nodeModel) {
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasDialog() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeDialogPane createNodeDialogPane() {
+		return new CellEncoderNodeDialog();
+	}
+
+}
@@ -0,0 +1,456 @@
+package de.bund.bfr.knime.esri.cellencoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.collection.CollectionCellFactory;
+import org.knime.core.data.collection.ListCell;
+import org.knime.core.data.container.AbstractCellFactory;
+import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.core.node.port.PortObject;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.port.PortType;
+import org.knime.core.node.streamable.InputPortRole;
+import org.knime.core.node.streamable.OutputPortRole;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortObjectInput;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.StreamableOperator;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Polygon;
+
+import de.bund.bfr.knime.esri.CellEncoding;
+import de.bund.bfr.knime.esri.CoordinateReference;
+import de.bund.bfr.knime.esri.EsriStatistics;
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+import de.bund.bfr.knime.esri.EsriStatistics.Stage;
+import de.bund.bfr.knime.esri.EsriUtils;
+import de.bund.bfr.knime.esri.PolygonCoordinates;
+import de.bund.bfr.knime.esri.PolygonValidation;
+
+/**
+ * This is the model implementation of CellEncoder.
+ *
+ *
+ * @author Christian Thoens
+ */
+public class CellEncoderNodeModel extends NodeModel {
+
+	protected static final String CFG_ENCODING = "Encoding";
+	protected static final String CFG_RESOLUTION = "Resolution";
+	protected static final String CFG_NUMERIC_CELL_IDS = "NumericCellIds";
+	protected static final String CFG_CELL_COLUMN = "CellColumn";
+	protected static final String CFG_LATITUDE_COLUMN = "LatitudeColumn";
+	protected static final String CFG_LONGITUDE_COLUMN = "LongitudeColumn";
+	protected static final String CFG_COORDINATE_REFERENCE = "CoordinateReference";
+	protected static final String CFG_POLYGON_COLUMN = "PolygonColumn";
+	protected static final String CFG_POLYGON_OFFSET_COLUMN = "PolygonOffsetColumn";
+	protected static final String CFG_POLYGON_COUNT_COLUMN = "PolygonCountColumn";
+	protected static final String CFG_POLYGON_LATITUDE_COLUMN = "PolygonLatitudeColumn";
+	protected static final String CFG_POLYGON_LONGITUDE_COLUMN = "PolygonLongitudeColumn";
+	protected static final String CFG_MAX_CELLS = "MaxCells";
+	protected static final String CFG_COLLECT_STATISTICS = "CollectStatistics";
+
+	protected static final String DEFAULT_ENCODING = CellEncoding.GEOHASH.toString();
+	protected static final int DEFAULT_RESOLUTION = 6;
+	protected static final boolean DEFAULT_NUMERIC_CELL_IDS = true;
+	protected static final String DEFAULT_CELL_COLUMN = "Cell";
+	protected static final String DEFAULT_COORDINATE_REFERENCE = CoordinateReference.ROW_ID_LIST.toString();
+	protected static final int DEFAULT_MAX_CELLS = 10000;
+	protected static final boolean DEFAULT_COLLECT_STATISTICS = false;
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(CellEncoderNodeModel.class);
+
+	private SettingsModelString encoding;
+	private SettingsModelIntegerBounded resolution;
+	private SettingsModelBoolean numericCellIds;
+	private SettingsModelString cellColumn;
+	private SettingsModelString latitudeColumm;
+	private SettingsModelString longitudeColumm;
+	private SettingsModelString coordinateReference;
+	private SettingsModelString polygonColumm;
+	private SettingsModelString polygonOffsetColumm;
+	private SettingsModelString polygonCountColumm;
+	private SettingsModelString polygonLatitudeColumm;
+	private SettingsModelString polygonLongitudeColumm;
+	private SettingsModelIntegerBounded maxCells;
+	private SettingsModelBoolean collectStatistics;
+
+	/**
+	 * Constructor for the node model.
+	 */
+	protected CellEncoderNodeModel() {
+		super(new PortType[] { BufferedDataTable.TYPE, BufferedDataTable.TYPE_OPTIONAL },
+				new PortType[] { BufferedDataTable.TYPE });
+		encoding = new SettingsModelString(CFG_ENCODING, DEFAULT_ENCODING);
+		resolution = new SettingsModelIntegerBounded(CFG_RESOLUTION, DEFAULT_RESOLUTION, 1, 30);
+		numericCellIds = new SettingsModelBoolean(CFG_NUMERIC_CELL_IDS, DEFAULT_NUMERIC_CELL_IDS);
+		cellColumn = new SettingsModelString(CFG_CELL_COLUMN, DEFAULT_CELL_COLUMN);
+		latitudeColumm = new SettingsModelString(CFG_LATITUDE_COLUMN, null);
+		longitudeColumm = new SettingsModelString(CFG_LONGITUDE_COLUMN, null);
+		coordinateReference = new SettingsModelString(CFG_COORDINATE_REFERENCE, DEFAULT_COORDINATE_REFERENCE);
+		polygonColumm = new SettingsModelString(CFG_POLYGON_COLUMN, null);
+		polygonOffsetColumm = new SettingsModelString(CFG_POLYGON_OFFSET_COLUMN, null);
+		polygonCountColumm = new SettingsModelString(CFG_POLYGON_COUNT_COLUMN, null);
+		polygonLatitudeColumm = new SettingsModelString(CFG_POLYGON_LATITUDE_COLUMN, null);
+		polygonLongitudeColumm = new SettingsModelString(CFG_POLYGON_LONGITUDE_COLUMN, null);
+		maxCells = new SettingsModelIntegerBounded(CFG_MAX_CELLS, DEFAULT_MAX_CELLS, 1, Integer.MAX_VALUE);
+		collectStatistics = new SettingsModelBoolean(CFG_COLLECT_STATISTICS, DEFAULT_COLLECT_STATISTICS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PortObject[] execute(final PortObject[] inObjects, final ExecutionContext exec) throws Exception {
+		EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+		PolygonValidation validation = new PolygonValidation(false, statistics);
+		LongAdder tooManyCells = new LongAdder();
+		BufferedDataTable table = (BufferedDataTable) inObjects[0];
+		BufferedDataTable result = exec.createColumnRearrangeTable(table, createColumnRearranger(table.getSpec(),
+				(BufferedDataTable) inObjects[1], validation, tooManyCells, statistics), exec);
+
+		setWarning(validation, tooManyCells);
+
+		if (statistics.isEnabled()) {
+			statistics.getTimeVariables().forEach(this::pushFlowVariableDouble);
+			statistics.getCountVariables().forEach(this::pushFlowVariableInt);
+			LOGGER.info(statistics);
+		}
+
+		return new BufferedDataTable[] { result };
+	}
+
+	@Override
+	public StreamableOperator createStreamableOperator(final PartitionInfo partitionInfo,
+			final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+		return new StreamableOperator() {
+
+			@Override
+			public void runFinal(final PortInput[] inputs, final PortOutput[] outputs, final ExecutionContext exec)
+					throws Exception {
+				EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+				PolygonValidation validation = new PolygonValidation(false, statistics);
+				LongAdder tooManyCells = new LongAdder();
+				ColumnRearranger rearranger = createColumnRearranger(((RowInput) inputs[0]).getDataTableSpec(),
+						(BufferedDataTable) getPortObject(inputs[1]), validation, tooManyCells, statistics);
+
+				rearranger.createStreamableFunction(0, 0).runFinal(inputs, outputs, exec);
+				setWarning(validation, tooManyCells);
+
+				if (statistics.isEnabled()) {
+					LOGGER.info(statistics);
+				}
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InputPortRole[] getInputPortRoles() {
+		return new InputPortRole[] { InputPortRole.DISTRIBUTED_STREAMABLE,
+				InputPortRole.NONDISTRIBUTED_NONSTREAMABLE };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public OutputPortRole[] getOutputPortRoles() {
+		return new OutputPortRole[] { OutputPortRole.DISTRIBUTED };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void reset() {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+		DataTableSpec spec = (DataTableSpec) inSpecs[0];
+		DataTableSpec coordinateSpec = (DataTableSpec) inSpecs[1];
+
+		if (coordinateSpec != null) {
+			EsriUtils.checkColumn("Polygon Latitude", polygonLatitudeColumm, coordinateSpec);
+			EsriUtils.checkColumn("Polygon Longitude", polygonLongitudeColumm, coordinateSpec);
+		}
+
+		return new PortObjectSpec[] { createColumnRearranger(spec, coordinateSpec != null).createSpec() };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveSettingsTo(final NodeSettingsWO settings) {
+		encoding.saveSettingsTo(settings);
+		resolution.saveSettingsTo(settings);
+		numericCellIds.saveSettingsTo(settings);
+		cellColumn.saveSettingsTo(settings);
+		latitudeColumm.saveSettingsTo(settings);
+		longitudeColumm.saveSettingsTo(settings);
+		coordinateReference.saveSettingsTo(settings);
+		polygonColumm.saveSettingsTo(settings);
+		polygonOffsetColumm.saveSettingsTo(settings);
+		polygonCountColumm.saveSettingsTo(settings);
+		polygonLatitudeColumm.saveSettingsTo(settings);
+		polygonLongitudeColumm.saveSettingsTo(settings);
+		maxCells.saveSettingsTo(settings);
+		collectStatistics.saveSettingsTo(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+		encoding.loadSettingsFrom(settings);
+		resolution.loadSettingsFrom(settings);
+		numericCellIds.loadSettingsFrom(settings);
+		cellColumn.loadSettingsFrom(settings);
+		latitudeColumm.loadSettingsFrom(settings);
+		longitudeColumm.loadSettingsFrom(settings);
+		coordinateReference.loadSettingsFrom(settings);
+		polygonColumm.loadSettingsFrom(settings);
+		polygonOffsetColumm.loadSettingsFrom(settings);
+		polygonCountColumm.loadSettingsFrom(settings);
+		polygonLatitudeColumm.loadSettingsFrom(settings);
+		polygonLongitudeColumm.loadSettingsFrom(settings);
+		maxCells.loadSettingsFrom(settings);
+		collectStatistics.loadSettingsFrom(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+		encoding.validateSettings(settings);
+		resolution.validateSettings(settings);
+		numericCellIds.validateSettings(settings);
+		cellColumn.validateSettings(settings);
+		latitudeColumm.validateSettings(settings);
+		longitudeColumm.validateSettings(settings);
+		coordinateReference.validateSettings(settings);
+		polygonColumm.validateSettings(settings);
+		polygonOffsetColumm.validateSettings(settings);
+		polygonCountColumm.validateSettings(settings);
+		polygonLatitudeColumm.validateSettings(settings);
+		polygonLongitudeColumm.validateSettings(settings);
+		maxCells.validateSettings(settings);
+		collectStatistics.validateSettings(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * Rearranger for the spec only, no rows can be computed with it.
+	 */
+	private ColumnRearranger createColumnRearranger(DataTableSpec spec, boolean coverPolygons)
+			throws InvalidSettingsException {
+		return createColumnRearranger(spec, coverPolygons, null, null, null, EsriStatistics.DISABLED);
+	}
+
+	private ColumnRearranger createColumnRearranger(DataTableSpec spec, BufferedDataTable coordinateTable,
+			PolygonValidation validation, LongAdder tooManyCells, EsriStatistics statistics)
+			throws InvalidSettingsException {
+		return createColumnRearranger(spec, coordinateTable != null,
+				coordinateTable != null ? PolygonCoordinates.read(coordinateTable,
+						polygonLatitudeColumm.getStringValue(), polygonLongitudeColumm.getStringValue(),
+						getCoordinateReference()) : null,
+				validation, tooManyCells, statistics);
+	}
+
+	/**
+	 * Without polygon coordinates, one cell ID per row is appended. The encoding
+	 * is cheap, so the rows are processed on one thread. With polygon
+	 * coordinates, a list of all cells covering the polygon is appended and the
+	 * rows are processed on several threads.
+	 */
+	private ColumnRearranger createColumnRearranger(DataTableSpec spec, boolean coverPolygons,
+			PolygonCoordinates polygonCoordinates, PolygonValidation validation, LongAdder tooManyCells,
+			EsriStatistics statistics) throws InvalidSettingsException {
+		CellEncoding cellEncoding = CellEncoding.fromName(encoding.getStringValue());
+		int level = resolution.getIntValue();
+		boolean numeric = numericCellIds.getBooleanValue();
+
+		if (level > cellEncoding.getMaxResolution()) {
+			throw new InvalidSettingsException(
+					"Resolution of " + cellEncoding + " must be at most " + cellEncoding.getMaxResolution());
+		}
+
+		if (cellColumn.getStringValue() == null || cellColumn.getStringValue().trim().isEmpty()) {
+			throw new InvalidSettingsException("Cell Column must not be empty");
+		} else if (spec.containsName(cellColumn.getStringValue())) {
+			throw new InvalidSettingsException(
+					"Column name \"" + cellColumn.getStringValue() + "\" not allowed in first input table");
+		}
+
+		DataType cellType = numeric ? LongCell.TYPE : StringCell.TYPE;
+		DataColumnSpec newColumn = new DataColumnSpecCreator(cellColumn.getStringValue(),
+				coverPolygons ? ListCell.getCollectionType(cellType) : cellType).createSpec();
+		ColumnRearranger rearranger = new ColumnRearranger(spec);
+
+		if (!coverPolygons) {
+			EsriUtils.checkColumn("Latitude", latitudeColumm, spec);
+			EsriUtils.checkColumn("Longitude", longitudeColumm, spec);
+
+			int latIndex = spec.findColumnIndex(latitudeColumm.getStringValue());
+			int lonIndex = spec.findColumnIndex(longitudeColumm.getStringValue());
+
+			rearranger.append(new AbstractCellFactory(newColumn) {
+
+				@Override
+				public DataCell[] getCells(DataRow row) {
+					DataCell latCell = row.getCell(latIndex);
+					DataCell lonCell = row.getCell(lonIndex);
+
+					if (latCell.isMissing() || lonCell.isMissing()) {
+						return new DataCell[] { DataType.getMissingCell() };
+					}
+
+					long cell = cellEncoding.encode(((DoubleValue) latCell).getDoubleValue(),
+							((DoubleValue) lonCell).getDoubleValue(), level);
+
+					statistics.increment(Counter.ROWS);
+
+					return new DataCell[] {
+							numeric ? new LongCell(cell) : new StringCell(cellEncoding.toString(cell, level)) };
+				}
+			});
+
+			return rearranger;
+		}
+
+		if (getCoordinateReference() == CoordinateReference.ROW_ID_LIST) {
+			EsriUtils.checkColumn("Polygon", polygonColumm, spec);
+		} else {
+			EsriUtils.checkColumn("Polygon Offset", polygonOffsetColumm, spec);
+			EsriUtils.checkColumn("Polygon Count", polygonCountColumm, spec);
+		}
+
+		int polygonIndex = spec.findColumnIndex(polygonColumm.getStringValue());
+		int offsetIndex = spec.findColumnIndex(polygonOffsetColumm.getStringValue());
+		int countIndex = spec.findColumnIndex(polygonCountColumm.getStringValue());
+		int max = maxCells.getIntValue();
+
+		rearranger.append(new AbstractCellFactory(true, newColumn) {
+
+			@Override
+			public DataCell[] getCells(DataRow row) {
+				long time = statistics.start();
+				CoordinateSequence coordinates = polygonCoordinates.getCoordinates(row, polygonIndex, offsetIndex,
+						countIndex);
+
+				statistics.count(Counter.VERTICES, coordinates.size());
+
+				Polygon polygon = validation.createPolygon(coordinates, EsriUtils.GEO_FACTORY,
+						row.getKey().getString());
+
+				time = statistics.stop(Stage.POLYGON_CONSTRUCTION, time);
+
+				if (polygon == null || polygon.isEmpty()) {
+					return new DataCell[] { DataType.getMissingCell() };
+				}
+
+				long[] cells = cellEncoding.cover(polygon, level, max);
+
+				statistics.stop(Stage.CONTAINMENT_TESTS, time);
+				statistics.increment(Counter.ROWS);
+
+				if (cells == null) {
+					tooManyCells.increment();
+
+					return new DataCell[] { DataType.getMissingCell() };
+				}
+
+				List<DataCell> cellList = new ArrayList<>(cells.length);
+
+				for (long cell : cells) {
+					cellList.add(numeric ? new LongCell(cell) : new StringCell(cellEncoding.toString(cell, level)));
+				}
+
+				statistics.count(Counter.COVERING_CELLS, cells.length);
+
+				return new DataCell[] { CollectionCellFactory.createListCell(cellList) };
+			}
+		});
+
+		return rearranger;
+	}
+
+	private void setWarning(PolygonValidation validation, LongAdder tooManyCells) {
+		List<String> warnings = new ArrayList<>();
+
+		if (validation.getWarning() != null) {
+			warnings.add(validation.getWarning());
+		}
+
+		if (tooManyCells.sum() != 0) {
+			warnings.add(tooManyCells.sum() + " polygons cover more than " + maxCells.getIntValue() + " cells");
+		}
+
+		if (!warnings.isEmpty()) {
+			setWarningMessage(String.join("; ", warnings));
+		}
+	}
+
+	private CoordinateReference getCoordinateReference() {
+		return CoordinateReference.fromName(coordinateReference.getStringValue());
+	}
+
+	/**
+	 * @return the port object of the input or null, if the optional port is not
+	 *         connected
+	 */
+	private static PortObject getPortObject(PortInput input) {
+		return input != null ? ((PortObjectInput) input).getPortObject() : null;
+	}
+}
@@ -0,0 +1,81 @@
+package de.bund.bfr.knime.esri.geopackagepointreader;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.DialogComponentFileChooser;
+import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
+import org.knime.core.node.defaultnodesettings.DialogComponentOptionalString;
+import org.knime.core.node.defaultnodesettings.DialogComponentString;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelDouble;
+import org.knime.core.node.defaultnodesettings.SettingsModelOptionalString;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+
+/**
+ * <code>NodeDialog</code> for the "GeoPackagePointReader" Node.
+ *
+ * @author Christian Thoens
+ */
+public class GeoPackagePointReaderNodeDialog extends DefaultNodeSettingsPane implements ChangeListener {
+
+	private SettingsModelBoolean boundsModel;
+	private SettingsModelDouble minLatitudeModel;
+	private SettingsModelDouble maxLatitudeModel;
+	private SettingsModelDouble minLongitudeModel;
+	private SettingsModelDouble maxLongitudeModel;
+
+	/**
+	 * New pane for configuring the GeoPackagePointReader node.
+	 */
+	protected GeoPackagePointReaderNodeDialog() {
+		DialogComponentFileChooser gpkgDialog = new DialogComponentFileChooser(
+				new SettingsModelString(GeoPackagePointReaderNodeModel.CFG_GPKG_FILE, null), "GpkgFileHistory",
+				".gpkg");
+
+		boundsModel = new SettingsModelBoolean(GeoPackagePointReaderNodeModel.CFG_FILTER_BY_BOUNDS,
+				GeoPackagePointReaderNodeModel.DEFAULT_FILTER_BY_BOUNDS);
+		minLatitudeModel = new SettingsModelDouble(GeoPackagePointReaderNodeModel.CFG_MIN_LATITUDE,
+				GeoPackagePointReaderNodeModel.DEFAULT_MIN_LATITUDE);
+		maxLatitudeModel = new SettingsModelDouble(GeoPackagePointReaderNodeModel.CFG_MAX_LATITUDE,
+				GeoPackagePointReaderNodeModel.DEFAULT_MAX_LATITUDE);
+		minLongitudeModel = new SettingsModelDouble(GeoPackagePointReaderNodeModel.CFG_MIN_LONGITUDE,
+				GeoPackagePointReaderNodeModel.DEFAULT_MIN_LONGITUDE);
+		maxLongitudeModel = new SettingsModelDouble(GeoPackagePointReaderNodeModel.CFG_MAX_LONGITUDE,
+				GeoPackagePointReaderNodeModel.DEFAULT_MAX_LONGITUDE);
+		boundsModel.addChangeListener(this);
+
+		gpkgDialog.setBorderTitle("GeoPackage File");
+		addDialogComponent(gpkgDialog);
+		addDialogComponent(new DialogComponentString(
+				new SettingsModelString(GeoPackagePointReaderNodeModel.CFG_LAYER, null),
+				"Layer (empty for first layer)"));
+		createNewGroup("Filter");
+		addDialogComponent(new DialogComponentBoolean(boundsModel, "Filter by Bounding Box"));
+		addDialogComponent(new DialogComponentNumber(minLatitudeModel, "Minimum Latitude", 1.0));
+		addDialogComponent(new DialogComponentNumber(maxLatitudeModel, "Maximum Latitude", 1.0));
+		addDialogComponent(new DialogComponentNumber(minLongitudeModel, "Minimum Longitude", 1.0));
+		addDialogComponent(new DialogComponentNumber(maxLongitudeModel, "Maximum Longitude", 1.0));
+		addDialogComponent(new DialogComponentOptionalString(
+				new SettingsModelOptionalString(GeoPackagePointReaderNodeModel.CFG_ATTRIBUTE_FILTER, null, false),
+				"Attribute Filter (ECQL)"));
+		closeCurrentGroup();
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(GeoPackagePointReaderNodeModel.CFG_COLLECT_STATISTICS,
+						GeoPackagePointReaderNodeModel.DEFAULT_COLLECT_STATISTICS),
+				"Collect Performance Statistics"));
+		stateChanged(null);
+	}
+
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		boolean useBounds = boundsModel.getBooleanValue();
+
+		minLatitudeModel.setEnabled(useBounds);
+		maxLatitudeModel.setEnabled(useBounds);
+		minLongitudeModel.setEnabled(useBounds);
+		maxLongitudeModel.setEnabled(useBounds);
+	}
+}
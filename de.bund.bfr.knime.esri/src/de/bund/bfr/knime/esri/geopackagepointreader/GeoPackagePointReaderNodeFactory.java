@@ -0,0 +1,56 @@
+package de.bund.bfr.knime.esri.geopackagepointreader;
+
+import org.knime.core.node.NodeDialogPane;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeView;
+
+/**
+ * <code>NodeFactory</code> for the "GeoPackagePointReader" Node.
+ * 
+ *
+ * @author Christian Thoens
+ */
+public class GeoPackagePointReaderNodeFactory extends NodeFactory<GeoPackagePointReaderNodeModel> {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public GeoPackagePointReaderNodeModel createNodeModel() {
+		return new GeoPackagePointReaderNodeModel();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getNrNodeViews() {
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeView<GeoPackagePointReaderNodeModel> createNodeView(final int viewIndex,
+			final GeoPackagePointReaderNodeModel nodeModel) {
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasDialog() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeDialogPane createNodeDialogPane() {
+		return new GeoPackagePointReaderNodeDialog();
+	}
+
+}
@@ -0,0 +1,226 @@
+package de.bund.bfr.knime.esri.geopackagepointreader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+
+import org.geotools.filter.text.cql2.CQLException;
+import org.geotools.referencing.operation.projection.MapProjection;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelDouble;
+import org.knime.core.node.defaultnodesettings.SettingsModelOptionalString;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.locationtech.jts.geom.Envelope;
+
+import de.bund.bfr.knime.esri.EsriStatistics;
+import de.bund.bfr.knime.esri.GeoPackageSource;
+import de.bund.bfr.knime.esri.PointFeatureReader;
+
+/**
+ * This is the model implementation of GeoPackagePointReader.
+ *
+ *
+ * @author Christian Thoens
+ */
+public class GeoPackagePointReaderNodeModel extends NodeModel {
+
+	protected static final String CFG_GPKG_FILE = "GpkgFile";
+	protected static final String CFG_LAYER = "Layer";
+	protected static final String CFG_FILTER_BY_BOUNDS = "FilterByBounds";
+	protected static final String CFG_MIN_LATITUDE = "MinLatitude";
+	protected static final String CFG_MAX_LATITUDE = "MaxLatitude";
+	protected static final String CFG_MIN_LONGITUDE = "MinLongitude";
+	protected static final String CFG_MAX_LONGITUDE = "MaxLongitude";
+	protected static final String CFG_ATTRIBUTE_FILTER = "AttributeFilter";
+	protected static final String CFG_COLLECT_STATISTICS = "CollectStatistics";
+
+	protected static final boolean DEFAULT_FILTER_BY_BOUNDS = false;
+	protected static final double DEFAULT_MIN_LATITUDE = -90.0;
+	protected static final double DEFAULT_MAX_LATITUDE = 90.0;
+	protected static final double DEFAULT_MIN_LONGITUDE = -180.0;
+	protected static final double DEFAULT_MAX_LONGITUDE = 180.0;
+	protected static final boolean DEFAULT_COLLECT_STATISTICS = false;
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(GeoPackagePointReaderNodeModel.class);
+
+	private SettingsModelString gpkgFile;
+	private SettingsModelString layer;
+	private SettingsModelBoolean filterByBounds;
+	private SettingsModelDouble minLatitude;
+	private SettingsModelDouble maxLatitude;
+	private SettingsModelDouble minLongitude;
+	private SettingsModelDouble maxLongitude;
+	private SettingsModelOptionalString attributeFilter;
+	private SettingsModelBoolean collectStatistics;
+
+	/**
+	 * Constructor for the node model.
+	 */
+	protected GeoPackagePointReaderNodeModel() {
+		super(0, 1);
+		gpkgFile = new SettingsModelString(CFG_GPKG_FILE, null);
+		layer = new SettingsModelString(CFG_LAYER, null);
+		filterByBounds = new SettingsModelBoolean(CFG_FILTER_BY_BOUNDS, DEFAULT_FILTER_BY_BOUNDS);
+		minLatitude = new SettingsModelDouble(CFG_MIN_LATITUDE, DEFAULT_MIN_LATITUDE);
+		maxLatitude = new SettingsModelDouble(CFG_MAX_LATITUDE, DEFAULT_MAX_LATITUDE);
+		minLongitude = new SettingsModelDouble(CFG_MIN_LONGITUDE, DEFAULT_MIN_LONGITUDE);
+		maxLongitude = new SettingsModelDouble(CFG_MAX_LONGITUDE, DEFAULT_MAX_LONGITUDE);
+		attributeFilter = new SettingsModelOptionalString(CFG_ATTRIBUTE_FILTER, null, false);
+		collectStatistics = new SettingsModelBoolean(CFG_COLLECT_STATISTICS, DEFAULT_COLLECT_STATISTICS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
+			throws Exception {
+		MapProjection.SKIP_SANITY_CHECKS = true;
+
+		EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+		BufferedDataTable table;
+
+		try (GeoPackageSource source = new GeoPackageSource(gpkgFile.getStringValue(), layer.getStringValue())) {
+			table = new PointFeatureReader().read(source.getFeatures(getBounds(), getAttributeFilter()),
+					source.getTransform(), exec, statistics);
+		}
+
+		if (statistics.isEnabled()) {
+			statistics.getTimeVariables().forEach(this::pushFlowVariableDouble);
+			statistics.getCountVariables().forEach(this::pushFlowVariableInt);
+			LOGGER.info(statistics);
+		}
+
+		return new BufferedDataTable[] { table };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void reset() {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws InvalidSettingsException {
+		if (gpkgFile.getStringValue() == null) {
+			throw new InvalidSettingsException("No file name specified");
+		}
+
+		getBounds();
+
+		try {
+			GeoPackageSource.checkFilter(getAttributeFilter());
+		} catch (CQLException e) {
+			throw new InvalidSettingsException("Invalid attribute filter: " + e.getMessage());
+		}
+
+		try (GeoPackageSource source = new GeoPackageSource(gpkgFile.getStringValue(), layer.getStringValue())) {
+			return new DataTableSpec[] { new PointFeatureReader().createSpec(source.getSchema()) };
+		} catch (InvalidPathException | IOException e) {
+			throw new InvalidSettingsException(e.getMessage());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveSettingsTo(final NodeSettingsWO settings) {
+		gpkgFile.saveSettingsTo(settings);
+		layer.saveSettingsTo(settings);
+		filterByBounds.saveSettingsTo(settings);
+		minLatitude.saveSettingsTo(settings);
+		maxLatitude.saveSettingsTo(settings);
+		minLongitude.saveSettingsTo(settings);
+		maxLongitude.saveSettingsTo(settings);
+		attributeFilter.saveSettingsTo(settings);
+		collectStatistics.saveSettingsTo(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+		gpkgFile.loadSettingsFrom(settings);
+		layer.loadSettingsFrom(settings);
+		filterByBounds.loadSettingsFrom(settings);
+		minLatitude.loadSettingsFrom(settings);
+		maxLatitude.loadSettingsFrom(settings);
+		minLongitude.loadSettingsFrom(settings);
+		maxLongitude.loadSettingsFrom(settings);
+		attributeFilter.loadSettingsFrom(settings);
+		collectStatistics.loadSettingsFrom(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+		gpkgFile.validateSettings(settings);
+		layer.validateSettings(settings);
+		filterByBounds.validateSettings(settings);
+		minLatitude.validateSettings(settings);
+		maxLatitude.validateSettings(settings);
+		minLongitude.validateSettings(settings);
+		maxLongitude.validateSettings(settings);
+		attributeFilter.validateSettings(settings);
+		collectStatistics.validateSettings(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * @return bounding box with latitudes as x and longitudes as y or null if
+	 *         the features are not filtered by bounds
+	 */
+	private Envelope getBounds() throws InvalidSettingsException {
+		if (!filterByBounds.getBooleanValue()) {
+			return null;
+		}
+
+		if (minLatitude.getDoubleValue() > maxLatitude.getDoubleValue()) {
+			throw new InvalidSettingsException("Minimum latitude must not be greater than maximum latitude");
+		}
+
+		if (minLongitude.getDoubleValue() > maxLongitude.getDoubleValue()) {
+			throw new InvalidSettingsException("Minimum longitude must not be greater than maximum longitude");
+		}
+
+		return new Envelope(minLatitude.getDoubleValue(), maxLatitude.getDoubleValue(),
+				minLongitude.getDoubleValue(), maxLongitude.getDoubleValue());
+	}
+
+	private String getAttributeFilter() {
+		return attributeFilter.isActive() ? attributeFilter.getStringValue() : null;
+	}
+}
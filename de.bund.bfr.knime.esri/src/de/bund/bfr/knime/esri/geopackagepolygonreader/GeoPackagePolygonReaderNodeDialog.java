@@ -0,0 +1,119 @@
+package de.bund.bfr.knime.esri.geopackagepolygonreader;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.DialogComponentFileChooser;
+import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
+import org.knime.core.node.defaultnodesettings.DialogComponentOptionalString;
+import org.knime.core.node.defaultnodesettings.DialogComponentString;
+import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelDouble;
+import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelOptionalString;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+
+import de.bund.bfr.knime.esri.CoordinateReference;
+import de.bund.bfr.knime.esri.SimplificationMethod;
+
+/**
+ * <code>NodeDialog</code> for the "GeoPackagePolygonReader" Node.
+ *
+ * @author Christian Thoens
+ */
+public class GeoPackagePolygonReaderNodeDialog extends DefaultNodeSettingsPane implements ChangeListener {
+
+	private SettingsModelBoolean boundsModel;
+	private SettingsModelDouble minLatitudeModel;
+	private SettingsModelDouble maxLatitudeModel;
+	private SettingsModelDouble minLongitudeModel;
+	private SettingsModelDouble maxLongitudeModel;
+	private SettingsModelBoolean exteriorModel;
+	private SettingsModelBoolean splitModel;
+	private SettingsModelString simplificationModel;
+	private SettingsModelDoubleBounded toleranceModel;
+
+	/**
+	 * New pane for configuring the GeoPackagePolygonReader node.
+	 */
+	protected GeoPackagePolygonReaderNodeDialog() {
+		DialogComponentFileChooser gpkgDialog = new DialogComponentFileChooser(
+				new SettingsModelString(GeoPackagePolygonReaderNodeModel.CFG_GPKG_FILE, null), "GpkgFileHistory",
+				".gpkg");
+
+		boundsModel = new SettingsModelBoolean(GeoPackagePolygonReaderNodeModel.CFG_FILTER_BY_BOUNDS,
+				GeoPackagePolygonReaderNodeModel.DEFAULT_FILTER_BY_BOUNDS);
+		minLatitudeModel = new SettingsModelDouble(GeoPackagePolygonReaderNodeModel.CFG_MIN_LATITUDE,
+				GeoPackagePolygonReaderNodeModel.DEFAULT_MIN_LATITUDE);
+		maxLatitudeModel = new SettingsModelDouble(GeoPackagePolygonReaderNodeModel.CFG_MAX_LATITUDE,
+				GeoPackagePolygonReaderNodeModel.DEFAULT_MAX_LATITUDE);
+		minLongitudeModel = new SettingsModelDouble(GeoPackagePolygonReaderNodeModel.CFG_MIN_LONGITUDE,
+				GeoPackagePolygonReaderNodeModel.DEFAULT_MIN_LONGITUDE);
+		maxLongitudeModel = new SettingsModelDouble(GeoPackagePolygonReaderNodeModel.CFG_MAX_LONGITUDE,
+				GeoPackagePolygonReaderNodeModel.DEFAULT_MAX_LONGITUDE);
+		exteriorModel = new SettingsModelBoolean(GeoPackagePolygonReaderNodeModel.CFG_GET_EXTERIOR_POLYGON,
+				GeoPackagePolygonReaderNodeModel.DEFAULT_GET_EXTERIOR_POLYGON);
+		splitModel = new SettingsModelBoolean(GeoPackagePolygonReaderNodeModel.CFG_SPLIT_POLYGONS_WITH_HOLES,
+				GeoPackagePolygonReaderNodeModel.DEFAULT_SPLIT_POLYGONS_WITH_HOLES);
+		simplificationModel = new SettingsModelString(GeoPackagePolygonReaderNodeModel.CFG_SIMPLIFICATION,
+				GeoPackagePolygonReaderNodeModel.DEFAULT_SIMPLIFICATION);
+		toleranceModel = new SettingsModelDoubleBounded(GeoPackagePolygonReaderNodeModel.CFG_SIMPLIFICATION_TOLERANCE,
+				GeoPackagePolygonReaderNodeModel.DEFAULT_SIMPLIFICATION_TOLERANCE, 0.0, Double.MAX_VALUE);
+		boundsModel.addChangeListener(this);
+		exteriorModel.addChangeListener(this);
+		simplificationModel.addChangeListener(this);
+
+		gpkgDialog.setBorderTitle("GeoPackage File");
+		addDialogComponent(gpkgDialog);
+		addDialogComponent(new DialogComponentString(
+				new SettingsModelString(GeoPackagePolygonReaderNodeModel.CFG_LAYER, null),
+				"Layer (empty for first layer)"));
+		createNewGroup("Filter");
+		addDialogComponent(new DialogComponentBoolean(boundsModel, "Filter by Bounding Box"));
+		addDialogComponent(new DialogComponentNumber(minLatitudeModel, "Minimum Latitude", 1.0));
+		addDialogComponent(new DialogComponentNumber(maxLatitudeModel, "Maximum Latitude", 1.0));
+		addDialogComponent(new DialogComponentNumber(minLongitudeModel, "Minimum Longitude", 1.0));
+		addDialogComponent(new DialogComponentNumber(maxLongitudeModel, "Maximum Longitude", 1.0));
+		addDialogComponent(new DialogComponentOptionalString(
+				new SettingsModelOptionalString(GeoPackagePolygonReaderNodeModel.CFG_ATTRIBUTE_FILTER, null, false),
+				"Attribute Filter (ECQL)"));
+		createNewGroup("Polygons");
+		addDialogComponent(new DialogComponentOptionalString(
+				new SettingsModelOptionalString(GeoPackagePolygonReaderNodeModel.CFG_ROW_ID_PREFIX, null, false),
+				"Row ID Prefix"));
+		addDialogComponent(new DialogComponentBoolean(exteriorModel, "Get Exterior Ring of Polygons"));
+		addDialogComponent(new DialogComponentBoolean(splitModel, "Split Polygons to Remove Holes"));
+		addDialogComponent(new DialogComponentStringSelection(
+				new SettingsModelString(GeoPackagePolygonReaderNodeModel.CFG_COORDINATE_REFERENCE,
+						GeoPackagePolygonReaderNodeModel.DEFAULT_COORDINATE_REFERENCE),
+				"Reference Coordinates by", CoordinateReference.NAMES));
+		addDialogComponent(new DialogComponentStringSelection(simplificationModel, "Simplification",
+				SimplificationMethod.NAMES));
+		addDialogComponent(new DialogComponentNumber(toleranceModel, "Simplification Tolerance", 0.001));
+		addDialogComponent(new DialogComponentOptionalString(
+				new SettingsModelOptionalString(GeoPackagePolygonReaderNodeModel.CFG_DETAIL_LEVELS, null, false),
+				"Additional Levels of Detail (Tolerances)"));
+		closeCurrentGroup();
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(GeoPackagePolygonReaderNodeModel.CFG_COLLECT_STATISTICS,
+						GeoPackagePolygonReaderNodeModel.DEFAULT_COLLECT_STATISTICS),
+				"Collect Performance Statistics"));
+		stateChanged(null);
+	}
+
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		boolean useBounds = boundsModel.getBooleanValue();
+
+		minLatitudeModel.setEnabled(useBounds);
+		maxLatitudeModel.setEnabled(useBounds);
+		minLongitudeModel.setEnabled(useBounds);
+		maxLongitudeModel.setEnabled(useBounds);
+		splitModel.setEnabled(!exteriorModel.getBooleanValue());
+		toleranceModel.setEnabled(
+				SimplificationMethod.fromName(simplificationModel.getStringValue()) != SimplificationMethod.NONE);
+	}
+}
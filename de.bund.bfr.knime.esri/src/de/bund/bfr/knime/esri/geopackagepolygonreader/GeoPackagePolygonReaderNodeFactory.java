@@ -0,0 +1,56 @@
+package de.bund.bfr.knime.esri.geopackagepolygonreader;
+
+import org.knime.core.node.NodeDialogPane;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeView;
+
+/**
+ * <code>NodeFactory</code> for the "GeoPackagePolygonReader" Node.
+ * 
+ *
+ * @author Christian Thoens
+ */
+public class GeoPackagePolygonReaderNodeFactory extends NodeFactory<GeoPackagePolygonReaderNodeModel> {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public GeoPackagePolygonReaderNodeModel createNodeModel() {
+		return new GeoPackagePolygonReaderNodeModel();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getNrNodeViews() {
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeView<GeoPackagePolygonReaderNodeModel> createNodeView(final int viewIndex,
+			final GeoPackagePolygonReaderNodeModel nodeModel) {
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasDialog() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeDialogPane createNodeDialogPane() {
+		return new GeoPackagePolygonReaderNodeDialog();
+	}
+
+}
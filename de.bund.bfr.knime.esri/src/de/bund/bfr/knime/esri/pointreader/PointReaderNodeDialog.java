@@ -1,11 +1,23 @@
 package de.bund.bfr.knime.esri.pointreader;
 
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NotConfigurableException;
 import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
 import org.knime.core.node.defaultnodesettings.DialogComponentFileChooser;
+import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
 import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 
 import de.bund.bfr.knime.esri.EsriUtils;
+import de.bund.bfr.knime.esri.ReadMode;
+import de.bund.bfr.knime.esri.ShapefilePreviewPanel;
 
 /**
  * <code>NodeDialog</code> for the "PointReader" Node.
@@ -18,20 +30,83 @@ import de.bund.bfr.knime.esri.EsriUtils;
  * 
  * @author Christian Thoens
  */
-public class PointReaderNodeDialog extends DefaultNodeSettingsPane {
+public class PointReaderNodeDialog extends DefaultNodeSettingsPane implements ChangeListener {
+
+	private DialogComponentFileChooser shpDialog;
+	private DialogComponentStringSelection charsetDialog;
+	private DialogComponentBoolean parallelDialog;
+	private DialogComponentStringSelection readModeDialog;
+	private DialogComponentNumber sampleSizeDialog;
+	private ShapefilePreviewPanel previewPanel;
 
 	/**
 	 * New pane for configuring the PointReader node.
 	 */
 	protected PointReaderNodeDialog() {
-		DialogComponentFileChooser shpDialog = new DialogComponentFileChooser(
-				new SettingsModelString(PointReaderNodeModel.CFG_SHP_FILE, null), "ShpFileHistory", ".shp");
-		DialogComponentStringSelection charsetDialog = new DialogComponentStringSelection(
+		shpDialog = new DialogComponentFileChooser(
+				new SettingsModelString(PointReaderNodeModel.CFG_SHP_FILE, null), "ShpFileHistory", ".shp|.zip");
+		charsetDialog = new DialogComponentStringSelection(
 				new SettingsModelString(PointReaderNodeModel.CFG_CHARSET, PointReaderNodeModel.DEFAULT_CHARSET),
 				"Character Encoding", EsriUtils.CHARSETS);
+		parallelDialog = new DialogComponentBoolean(
+				new SettingsModelBoolean(PointReaderNodeModel.CFG_PARALLEL_ATTRIBUTE_DECODING,
+						PointReaderNodeModel.DEFAULT_PARALLEL_ATTRIBUTE_DECODING),
+				"Decode Attributes in Parallel");
+		DialogComponentBoolean spatialOrderDialog = new DialogComponentBoolean(
+				new SettingsModelBoolean(PointReaderNodeModel.CFG_SPATIAL_ORDER,
+						PointReaderNodeModel.DEFAULT_SPATIAL_ORDER),
+				"Sort Features Spatially (Hilbert Curve)");
+		readModeDialog = new DialogComponentStringSelection(
+				new SettingsModelString(PointReaderNodeModel.CFG_READ_MODE, PointReaderNodeModel.DEFAULT_READ_MODE),
+				"Read", ReadMode.NAMES);
+		readModeDialog.getModel().addChangeListener(this);
+		sampleSizeDialog = new DialogComponentNumber(
+				new SettingsModelIntegerBounded(PointReaderNodeModel.CFG_SAMPLE_SIZE,
+						PointReaderNodeModel.DEFAULT_SAMPLE_SIZE, 1, Integer.MAX_VALUE),
+				"Number of Features (N)", 100);
+		DialogComponentBoolean statisticsDialog = new DialogComponentBoolean(
+				new SettingsModelBoolean(PointReaderNodeModel.CFG_COLLECT_STATISTICS,
+						PointReaderNodeModel.DEFAULT_COLLECT_STATISTICS),
+				"Collect Performance Statistics");
+
+		previewPanel = new ShapefilePreviewPanel();
+		shpDialog.getModel().addChangeListener(e -> updatePreview());
+		charsetDialog.getModel().addChangeListener(e -> updatePreview());
 
 		shpDialog.setBorderTitle("SHP File");
 		addDialogComponent(shpDialog);
 		addDialogComponent(charsetDialog);
+		addDialogComponent(parallelDialog);
+		addDialogComponent(spatialOrderDialog);
+		addDialogComponent(readModeDialog);
+		addDialogComponent(sampleSizeDialog);
+		addDialogComponent(statisticsDialog);
+		addTab("Preview", previewPanel);
+	}
+
+	@Override
+	public void loadAdditionalSettingsFrom(NodeSettingsRO settings, DataTableSpec[] specs)
+			throws NotConfigurableException {
+		stateChanged(null);
+		updatePreview();
+	}
+
+	@Override
+	public void onClose() {
+		previewPanel.cancel();
+	}
+
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		boolean sampled = ReadMode
+				.fromName(((SettingsModelString) readModeDialog.getModel()).getStringValue()) != ReadMode.ALL;
+
+		parallelDialog.getModel().setEnabled(!sampled);
+		sampleSizeDialog.getModel().setEnabled(sampled);
+	}
+
+	private void updatePreview() {
+		previewPanel.update(((SettingsModelString) shpDialog.getModel()).getStringValue(),
+				((SettingsModelString) charsetDialog.getModel()).getStringValue());
 	}
 }
@@ -7,53 +7,32 @@ import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
 import java.nio.file.InvalidPathException;
 import java.nio.file.NoSuchFileException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import org.geotools.data.shapefile.ShapefileDataStore;
-import org.geotools.data.simple.SimpleFeatureIterator;
-import org.geotools.data.store.ContentFeatureCollection;
-import org.geotools.geometry.jts.JTS;
+import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.referencing.CRS;
 import org.geotools.referencing.operation.projection.MapProjection;
-import org.knime.core.data.DataCell;
-import org.knime.core.data.DataColumnSpec;
-import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataTableSpec;
-import org.knime.core.data.DataType;
-import org.knime.core.data.def.BooleanCell;
-import org.knime.core.data.def.BooleanCell.BooleanCellFactory;
-import org.knime.core.data.def.DefaultRow;
-import org.knime.core.data.def.DoubleCell;
-import org.knime.core.data.def.IntCell;
-import org.knime.core.data.def.StringCell;
-import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.geom.Point;
-import org.opengis.feature.Property;
-import org.opengis.feature.simple.SimpleFeature;
-import org.opengis.feature.simple.SimpleFeatureType;
-import org.opengis.feature.type.AttributeType;
 import org.opengis.referencing.operation.MathTransform;
 
-import com.google.common.collect.Iterables;
-
+import de.bund.bfr.knime.esri.DbaseRecordReader;
+import de.bund.bfr.knime.esri.EsriStatistics;
 import de.bund.bfr.knime.esri.EsriUtils;
+import de.bund.bfr.knime.esri.PointFeatureReader;
+import de.bund.bfr.knime.esri.ReadMode;
+import de.bund.bfr.knime.esri.ShapefileSampler;
 
 /**
  * This is the model implementation of PointReader.
@@ -65,14 +44,28 @@ public class PointReaderNodeModel extends NodeModel {
 
 	protected static final String CFG_SHP_FILE = "ShpFile";
 	protected static final String CFG_CHARSET = "Charset";
+	protected static final String CFG_COLLECT_STATISTICS = "CollectStatistics";
+	protected static final String CFG_PARALLEL_ATTRIBUTE_DECODING = "ParallelAttributeDecoding";
+	protected static final String CFG_SPATIAL_ORDER = "SpatialOrder";
+	protected static final String CFG_READ_MODE = "ReadMode";
+	protected static final String CFG_SAMPLE_SIZE = "SampleSize";
 
 	protected static final String DEFAULT_CHARSET = StandardCharsets.UTF_8.name();
+	protected static final boolean DEFAULT_COLLECT_STATISTICS = false;
+	protected static final boolean DEFAULT_PARALLEL_ATTRIBUTE_DECODING = false;
+	protected static final boolean DEFAULT_SPATIAL_ORDER = false;
+	protected static final String DEFAULT_READ_MODE = ReadMode.ALL.toString();
+	protected static final int DEFAULT_SAMPLE_SIZE = 1000;
 
-	private static final String LATITUDE_COLUMN = "Latitude";
-	private static final String LONGITUDE_COLUMN = "Longitude";
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(PointReaderNodeModel.class);
 
 	private SettingsModelString shpFile;
 	private SettingsModelString charset;
+	private SettingsModelBoolean collectStatistics;
+	private SettingsModelBoolean parallelAttributeDecoding;
+	private SettingsModelBoolean spatialOrder;
+	private SettingsModelString readMode;
+	private SettingsModelIntegerBounded sampleSize;
 
 	/**
 	 * Constructor for the node model.
@@ -81,6 +74,12 @@ public class PointReaderNodeModel extends NodeModel {
 		super(0, 1);
 		shpFile = new SettingsModelString(CFG_SHP_FILE, null);
 		charset = new SettingsModelString(CFG_CHARSET, DEFAULT_CHARSET);
+		collectStatistics = new SettingsModelBoolean(CFG_COLLECT_STATISTICS, DEFAULT_COLLECT_STATISTICS);
+		parallelAttributeDecoding = new SettingsModelBoolean(CFG_PARALLEL_ATTRIBUTE_DECODING,
+				DEFAULT_PARALLEL_ATTRIBUTE_DECODING);
+		spatialOrder = new SettingsModelBoolean(CFG_SPATIAL_ORDER, DEFAULT_SPATIAL_ORDER);
+		readMode = new SettingsModelString(CFG_READ_MODE, DEFAULT_READ_MODE);
+		sampleSize = new SettingsModelIntegerBounded(CFG_SAMPLE_SIZE, DEFAULT_SAMPLE_SIZE, 1, Integer.MAX_VALUE);
 	}
 
 	/**
@@ -91,80 +90,56 @@ public class PointReaderNodeModel extends NodeModel {
 			throws Exception {
 		MapProjection.SKIP_SANITY_CHECKS = true;
 
+		// Archives are only resolved once, since remote archives without
+		// cache headers are downloaded on each call
+		String file = EsriUtils.getShapefile(shpFile.getStringValue()).getPath();
+
+		EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
 		MathTransform transform;
 
 		try {
-			transform = CRS.findMathTransform(EsriUtils.getCoordinateSystem(shpFile.getStringValue()),
-					CRS.decode("EPSG:4326"), true);
+			transform = CRS.findMathTransform(EsriUtils.getCoordinateSystem(file), CRS.decode("EPSG:4326"), true);
 		} catch (FileNotFoundException | NoSuchFileException e) {
 			// Do not use transform
 			transform = null;
 		}
 
-		ShapefileDataStore dataStore = EsriUtils.getDataStore(shpFile.getStringValue(), charset.getStringValue());
-		ContentFeatureCollection collection = dataStore.getFeatureSource().getFeatures();
-		Map<String, String> renaming = getRenaming(collection.getSchema());
-		DataTableSpec spec = createSpec(collection.getSchema(), renaming)[0];
-		BufferedDataContainer container = exec.createDataContainer(spec);
-		int index = 0;
-		int count = 0;
-
-		try (SimpleFeatureIterator iterator = collection.features()) {
-			while (iterator.hasNext()) {
-				SimpleFeature feature = iterator.next();
-				DataCell[] cells = new DataCell[spec.getNumColumns()];
-				Property geoProperty = null;
-
-				for (Property p : feature.getProperties()) {
-					int column = spec.findColumnIndex(renaming.get(p.getName().toString()));
-					Object value = p.getValue();
-
-					if (value == null) {
-						cells[column] = DataType.getMissingCell();
-					} else if (value instanceof Geometry) {
-						geoProperty = p;
-					} else if (value instanceof Integer) {
-						cells[column] = new IntCell((Integer) p.getValue());
-					} else if (value instanceof Double) {
-						cells[column] = new DoubleCell((Double) p.getValue());
-					} else if (value instanceof Boolean) {
-						cells[column] = BooleanCellFactory.create((Boolean) p.getValue());
-					} else if (p.getValue().toString().isEmpty()) {
-						cells[column] = DataType.getMissingCell();
-					} else {
-						cells[column] = new StringCell(p.getValue().toString());
-					}
-				}
+		ShapefileDataStore dataStore = EsriUtils.getDataStore(file, charset.getStringValue());
+		PointFeatureReader reader = new PointFeatureReader();
+		ReadMode mode = ReadMode.fromName(readMode.getStringValue());
+		BufferedDataTable table;
 
-				if (geoProperty == null) {
-					continue;
-				}
+		reader.setSpatialOrder(spatialOrder.getBooleanValue());
 
-				Geometry geo = (Geometry) geoProperty.getValue();
+		try {
+			if (mode != ReadMode.ALL) {
+				try (ShapefileSampler sampler = new ShapefileSampler(file, charset.getStringValue(),
+						dataStore.getSchema())) {
+					SimpleFeatureCollection features = sampler
+							.read(mode.select(sampler.getNumFeatures(), sampleSize.getIntValue()));
 
-				if (transform != null) {			
-					geo = JTS.transform(geo, transform);
+					table = reader.read(features, transform, exec, statistics);
 				}
-
-				for (Point p : Iterables.filter(EsriUtils.getSimpleGeometries(geo, false), Point.class)) {
-					Coordinate c = p.getCoordinate();
-
-					cells[spec.findColumnIndex(LATITUDE_COLUMN)] = new DoubleCell(transform != null ? c.x : c.y);
-					cells[spec.findColumnIndex(LONGITUDE_COLUMN)] = new DoubleCell(transform != null ? c.y : c.x);
-					container.addRowToTable(new DefaultRow(String.valueOf(index), cells));
-					index++;
+			} else if (parallelAttributeDecoding.getBooleanValue()) {
+				try (DbaseRecordReader attributes = new DbaseRecordReader(file, charset.getStringValue(),
+						dataStore.getSchema())) {
+					table = reader.read(dataStore.getFeatureSource().getFeatures(attributes.createQuery()),
+							attributes, transform, exec, statistics);
 				}
-
-				exec.checkCanceled();
-				exec.setProgress((double) count / (double) collection.size());
-				count++;
+			} else {
+				table = reader.read(dataStore.getFeatureSource().getFeatures(), transform, exec, statistics);
 			}
 		} finally {
 			dataStore.dispose();
-			container.close();
 		}
 
-		return new BufferedDataTable[] { container.getTable() };
+		if (statistics.isEnabled()) {
+			statistics.getTimeVariables().forEach(this::pushFlowVariableDouble);
+			statistics.getCountVariables().forEach(this::pushFlowVariableInt);
+			LOGGER.info(statistics);
+		}
+
+		return new BufferedDataTable[] { table };
 	}
 
 	/**
@@ -186,10 +161,15 @@ public class PointReaderNodeModel extends NodeModel {
 		DataTableSpec[] result = null;
 
 		try {
-			ShapefileDataStore dataStore = EsriUtils.getDataStore(shpFile.getStringValue(), charset.getStringValue());
-			SimpleFeatureType type = dataStore.getSchema();
+			File file = EsriUtils.getCachedShapefile(shpFile.getStringValue());
 
-			result = createSpec(type, getRenaming(type));
+			if (file == null) {
+				// Remote archives are not downloaded before execution
+				return new DataTableSpec[] { null };
+			}
+
+			ShapefileDataStore dataStore = EsriUtils.getDataStore(file.getPath(), charset.getStringValue());
+			result = new DataTableSpec[] { new PointFeatureReader().createSpec(dataStore.getSchema()) };
 			dataStore.dispose();
 		} catch (InvalidPathException | IOException | UnsupportedCharsetException e) {
 			throw new InvalidSettingsException(e.getMessage());
@@ -205,6 +185,11 @@ public class PointReaderNodeModel extends NodeModel {
 	protected void saveSettingsTo(final NodeSettingsWO settings) {
 		shpFile.saveSettingsTo(settings);
 		charset.saveSettingsTo(settings);
+		collectStatistics.saveSettingsTo(settings);
+		parallelAttributeDecoding.saveSettingsTo(settings);
+		spatialOrder.saveSettingsTo(settings);
+		readMode.saveSettingsTo(settings);
+		sampleSize.saveSettingsTo(settings);
 	}
 
 	/**
@@ -218,6 +203,27 @@ public class PointReaderNodeModel extends NodeModel {
 			charset.loadSettingsFrom(settings);
 		} catch (InvalidSettingsException e) {
 		}
+
+		try {
+			collectStatistics.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			parallelAttributeDecoding.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			spatialOrder.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			readMode.loadSettingsFrom(settings);
+			sampleSize.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
 	}
 
 	/**
@@ -231,6 +237,27 @@ public class PointReaderNodeModel extends NodeModel {
 			charset.validateSettings(settings);
 		} catch (InvalidSettingsException e) {
 		}
+
+		try {
+			collectStatistics.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			parallelAttributeDecoding.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			spatialOrder.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			readMode.validateSettings(settings);
+			sampleSize.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
 	}
 
 	/**
@@ -248,67 +275,4 @@ public class PointReaderNodeModel extends NodeModel {
 	protected void saveInternals(final File internDir, final ExecutionMonitor exec)
 			throws IOException, CanceledExecutionException {
 	}
-
-	private static DataTableSpec[] createSpec(SimpleFeatureType type, Map<String, String> renaming) {
-		List<DataColumnSpec> columns = new ArrayList<>();
-
-		for (AttributeType t : type.getTypes()) {
-			if (t == type.getGeometryDescriptor().getType()) {
-				continue;
-			}
-
-			String name = renaming.get(t.getName().toString());
-
-			if (t.getBinding() == Integer.class) {
-				columns.add(new DataColumnSpecCreator(name, IntCell.TYPE).createSpec());
-			} else if (t.getBinding() == Double.class) {
-				columns.add(new DataColumnSpecCreator(name, DoubleCell.TYPE).createSpec());
-			} else if (t.getBinding() == Boolean.class) {
-				columns.add(new DataColumnSpecCreator(name, BooleanCell.TYPE).createSpec());
-			} else {
-				columns.add(new DataColumnSpecCreator(name, StringCell.TYPE).createSpec());
-			}
-		}
-
-		columns.add(new DataColumnSpecCreator(LATITUDE_COLUMN, DoubleCell.TYPE).createSpec());
-		columns.add(new DataColumnSpecCreator(LONGITUDE_COLUMN, DoubleCell.TYPE).createSpec());
-
-		return new DataTableSpec[] { new DataTableSpec(columns.toArray(new DataColumnSpec[0])) };
-	}
-
-	private static Map<String, String> getRenaming(SimpleFeatureType type) {
-		Map<String, String> renaming = new LinkedHashMap<>();
-		Set<String> columnNames = new LinkedHashSet<>();
-
-		columnNames.add(LATITUDE_COLUMN);
-		columnNames.add(LONGITUDE_COLUMN);
-
-		for (AttributeType t : type.getTypes()) {
-			if (t == type.getGeometryDescriptor().getType()) {
-				continue;
-			}
-
-			String name = t.getName().toString();
-			String newName = createNewName(name, columnNames);
-
-			renaming.put(name, newName);
-			columnNames.add(newName);
-		}
-
-		return renaming;
-	}
-
-	private static String createNewName(String name, Collection<String> names) {
-		if (!names.contains(name)) {
-			return name;
-		}
-
-		for (int i = 2;; i++) {
-			String newValue = name + "_" + i;
-
-			if (!names.contains(newValue)) {
-				return newValue;
-			}
-		}
-	}
 }
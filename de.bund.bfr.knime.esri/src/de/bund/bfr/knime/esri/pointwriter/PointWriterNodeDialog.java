@@ -0,0 +1,56 @@
+package de.bund.bfr.knime.esri.pointwriter;
+
+import javax.swing.JFileChooser;
+
+import org.knime.core.data.DoubleValue;
+import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
+import org.knime.core.node.defaultnodesettings.DialogComponentFileChooser;
+import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+
+import de.bund.bfr.knime.esri.EsriUtils;
+
+/**
+ * <code>NodeDialog</code> for the "PointWriter" Node.
+ *
+ *
+ * This node dialog derives from {@link DefaultNodeSettingsPane} which allows
+ * creation of a simple dialog with standard components. If you need a more
+ * complex dialog please derive directly from
+ * {@link org.knime.core.node.NodeDialogPane}.
+ *
+ * @author Christian Thoens
+ */
+public class PointWriterNodeDialog extends DefaultNodeSettingsPane {
+
+	/**
+	 * New pane for configuring the PointWriter node.
+	 */
+	@SuppressWarnings("unchecked")
+	protected PointWriterNodeDialog() {
+		DialogComponentFileChooser shpDialog = new DialogComponentFileChooser(
+				new SettingsModelString(PointWriterNodeModel.CFG_SHP_FILE, null), "ShpFileHistory",
+				JFileChooser.SAVE_DIALOG, ".shp");
+
+		shpDialog.setBorderTitle("SHP File");
+		addDialogComponent(shpDialog);
+		addDialogComponent(new DialogComponentBoolean(new SettingsModelBoolean(PointWriterNodeModel.CFG_OVERWRITE,
+				PointWriterNodeModel.DEFAULT_OVERWRITE), "Overwrite Existing Files"));
+		addDialogComponent(new DialogComponentStringSelection(
+				new SettingsModelString(PointWriterNodeModel.CFG_CHARSET, PointWriterNodeModel.DEFAULT_CHARSET),
+				"Character Encoding", EsriUtils.CHARSETS));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PointWriterNodeModel.CFG_LATITUDE_COLUMN, null), "Latitude Column", 0,
+				DoubleValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PointWriterNodeModel.CFG_LONGITUDE_COLUMN, null), "Longitude Column", 0,
+				DoubleValue.class));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(PointWriterNodeModel.CFG_COLLECT_STATISTICS,
+						PointWriterNodeModel.DEFAULT_COLLECT_STATISTICS),
+				"Collect Performance Statistics"));
+	}
+}
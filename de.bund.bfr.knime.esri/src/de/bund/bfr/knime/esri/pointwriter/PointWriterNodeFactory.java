@@ -0,0 +1,56 @@
+package de.bund.bfr.knime.esri.pointwriter;
+
+import org.knime.core.node.NodeDialogPane;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeView;
+
+/**
+ * <code>NodeFactory</code> for the "PointWriter" Node.
+ * 
+ *
+ * @author Christian Thoens
+ */
+public class PointWriterNodeFactory extends NodeFactory<PointWriterNodeModel> {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public PointWriterNodeModel createNodeModel() {
+		return new PointWriterNodeModel();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getNrNodeViews() {
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeView<PointWriterNodeModel> createNodeView(final int viewIndex,
+			final PointWriterNodeModel nodeModel) {
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasDialog() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeDialogPane createNodeDialogPane() {
+		return new PointWriterNodeDialog();
+	}
+
+}
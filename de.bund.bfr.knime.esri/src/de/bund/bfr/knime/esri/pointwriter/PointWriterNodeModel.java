@@ -0,0 +1,210 @@
+package de.bund.bfr.knime.esri.pointwriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.util.Arrays;
+
+import org.geotools.data.shapefile.shp.ShapeType;
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.locationtech.jts.geom.Coordinate;
+
+import de.bund.bfr.knime.esri.EsriStatistics;
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+import de.bund.bfr.knime.esri.EsriStatistics.Stage;
+import de.bund.bfr.knime.esri.EsriUtils;
+import de.bund.bfr.knime.esri.ShapefileOutput;
+
+/**
+ * This is the model implementation of PointWriter.
+ *
+ *
+ * @author Christian Thoens
+ */
+public class PointWriterNodeModel extends NodeModel {
+
+	protected static final String CFG_SHP_FILE = "ShpFile";
+	protected static final String CFG_OVERWRITE = "Overwrite";
+	protected static final String CFG_CHARSET = "Charset";
+	protected static final String CFG_LATITUDE_COLUMN = "LatitudeColumn";
+	protected static final String CFG_LONGITUDE_COLUMN = "LongitudeColumn";
+	protected static final String CFG_COLLECT_STATISTICS = "CollectStatistics";
+
+	protected static final boolean DEFAULT_OVERWRITE = false;
+	protected static final String DEFAULT_CHARSET = "UTF-8";
+	protected static final boolean DEFAULT_COLLECT_STATISTICS = false;
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(PointWriterNodeModel.class);
+
+	private SettingsModelString shpFile;
+	private SettingsModelBoolean overwrite;
+	private SettingsModelString charset;
+	private SettingsModelString latitudeColumm;
+	private SettingsModelString longitudeColumm;
+	private SettingsModelBoolean collectStatistics;
+
+	/**
+	 * Constructor for the node model.
+	 */
+	protected PointWriterNodeModel() {
+		super(1, 0);
+		shpFile = new SettingsModelString(CFG_SHP_FILE, null);
+		overwrite = new SettingsModelBoolean(CFG_OVERWRITE, DEFAULT_OVERWRITE);
+		charset = new SettingsModelString(CFG_CHARSET, DEFAULT_CHARSET);
+		latitudeColumm = new SettingsModelString(CFG_LATITUDE_COLUMN, null);
+		longitudeColumm = new SettingsModelString(CFG_LONGITUDE_COLUMN, null);
+		collectStatistics = new SettingsModelBoolean(CFG_COLLECT_STATISTICS, DEFAULT_COLLECT_STATISTICS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
+			throws Exception {
+		EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+		BufferedDataTable table = inData[0];
+		DataTableSpec spec = table.getSpec();
+		int latIndex = spec.findColumnIndex(latitudeColumm.getStringValue());
+		int lonIndex = spec.findColumnIndex(longitudeColumm.getStringValue());
+		ShapefileOutput output = new ShapefileOutput(shpFile.getStringValue(), overwrite.getBooleanValue(),
+				charset.getStringValue(), spec,
+				Arrays.asList(latitudeColumm.getStringValue(), longitudeColumm.getStringValue()), ShapeType.POINT);
+		int index = 0;
+
+		try {
+			for (DataRow row : table) {
+				DataCell latitudeCell = row.getCell(latIndex);
+				DataCell longitudeCell = row.getCell(lonIndex);
+
+				if (latitudeCell instanceof DoubleValue && longitudeCell instanceof DoubleValue) {
+					long time = statistics.start();
+
+					output.write(EsriUtils.GEO_FACTORY.createPoint(new Coordinate(
+							((DoubleValue) latitudeCell).getDoubleValue(),
+							((DoubleValue) longitudeCell).getDoubleValue())), row);
+					statistics.stop(Stage.FEATURE_WRITING, time);
+					statistics.increment(Counter.FEATURES);
+				} else {
+					setWarningMessage("Missing Coordinates in " + row.getKey());
+				}
+
+				exec.checkCanceled();
+				exec.setProgress((double) index / (double) table.size());
+				index++;
+			}
+
+			output.close();
+		} catch (Exception e) {
+			output.abort();
+			throw e;
+		}
+
+		if (statistics.isEnabled()) {
+			statistics.getTimeVariables().forEach(this::pushFlowVariableDouble);
+			statistics.getCountVariables().forEach(this::pushFlowVariableInt);
+			LOGGER.info(statistics);
+		}
+
+		return new BufferedDataTable[0];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void reset() {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws InvalidSettingsException {
+		if (shpFile.getStringValue() == null) {
+			throw new InvalidSettingsException("No file name specified");
+		}
+
+		EsriUtils.checkColumn("Latitude", latitudeColumm, inSpecs[0]);
+		EsriUtils.checkColumn("Longitude", longitudeColumm, inSpecs[0]);
+
+		try {
+			if (!overwrite.getBooleanValue() && ShapefileOutput.exists(shpFile.getStringValue())) {
+				throw new InvalidSettingsException("File \"" + shpFile.getStringValue() + "\" already exists");
+			}
+		} catch (InvalidPathException | IOException e) {
+			throw new InvalidSettingsException(e.getMessage());
+		}
+
+		return new DataTableSpec[0];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveSettingsTo(final NodeSettingsWO settings) {
+		shpFile.saveSettingsTo(settings);
+		overwrite.saveSettingsTo(settings);
+		charset.saveSettingsTo(settings);
+		latitudeColumm.saveSettingsTo(settings);
+		longitudeColumm.saveSettingsTo(settings);
+		collectStatistics.saveSettingsTo(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+		shpFile.loadSettingsFrom(settings);
+		overwrite.loadSettingsFrom(settings);
+		charset.loadSettingsFrom(settings);
+		latitudeColumm.loadSettingsFrom(settings);
+		longitudeColumm.loadSettingsFrom(settings);
+		collectStatistics.loadSettingsFrom(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+		shpFile.validateSettings(settings);
+		overwrite.validateSettings(settings);
+		charset.validateSettings(settings);
+		latitudeColumm.validateSettings(settings);
+		longitudeColumm.validateSettings(settings);
+		collectStatistics.validateSettings(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+}
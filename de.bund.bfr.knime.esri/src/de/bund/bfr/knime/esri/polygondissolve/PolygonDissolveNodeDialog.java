@@ -0,0 +1,86 @@
+package de.bund.bfr.knime.esri.polygondissolve;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.knime.core.data.DataValue;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.collection.ListDataValue;
+import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
+import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+
+import de.bund.bfr.knime.esri.CoordinateReference;
+
+/**
+ * <code>NodeDialog</code> for the "PolygonDissolve" Node.
+ * 
+ * 
+ * This node dialog derives from {@link DefaultNodeSettingsPane} which allows
+ * creation of a simple dialog with standard components. If you need a more
+ * complex dialog please derive directly from
+ * {@link org.knime.core.node.NodeDialogPane}.
+ * 
+ * @author Christian Thoens
+ */
+public class PolygonDissolveNodeDialog extends DefaultNodeSettingsPane implements ChangeListener {
+
+	private SettingsModelString referenceModel;
+	private SettingsModelString polygonModel;
+	private SettingsModelString offsetModel;
+	private SettingsModelString countModel;
+
+	/**
+	 * New pane for configuring the PolygonDissolve node.
+	 */
+	@SuppressWarnings("unchecked")
+	protected PolygonDissolveNodeDialog() {
+		referenceModel = new SettingsModelString(PolygonDissolveNodeModel.CFG_COORDINATE_REFERENCE,
+				PolygonDissolveNodeModel.DEFAULT_COORDINATE_REFERENCE);
+		polygonModel = new SettingsModelString(PolygonDissolveNodeModel.CFG_POLYGON_COLUMN, null);
+		offsetModel = new SettingsModelString(PolygonDissolveNodeModel.CFG_OFFSET_COLUMN, null);
+		countModel = new SettingsModelString(PolygonDissolveNodeModel.CFG_COUNT_COLUMN, null);
+		referenceModel.addChangeListener(this);
+
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonDissolveNodeModel.CFG_GROUP_COLUMN, null), "Group Column", 0,
+				DataValue.class));
+		addDialogComponent(new DialogComponentStringSelection(referenceModel, "Coordinates Referenced by",
+				CoordinateReference.NAMES));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(polygonModel, "Polygon Column", 0, false, ListDataValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(offsetModel, "Offset Column", 0, false, IntValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(countModel, "Count Column", 0, false, IntValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonDissolveNodeModel.CFG_LATITUDE_COLUMN, null), "Latitude Column", 1,
+				DoubleValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonDissolveNodeModel.CFG_LONGITUDE_COLUMN, null), "Longitude Column", 1,
+				DoubleValue.class));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(PolygonDissolveNodeModel.CFG_SPLIT_POLYGONS_WITH_HOLES,
+						PolygonDissolveNodeModel.DEFAULT_SPLIT_POLYGONS_WITH_HOLES),
+				"Split Polygons to Remove Holes"));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(PolygonDissolveNodeModel.CFG_COLLECT_STATISTICS,
+						PolygonDissolveNodeModel.DEFAULT_COLLECT_STATISTICS),
+				"Collect Performance Statistics"));
+		stateChanged(null);
+	}
+
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		boolean useRange = CoordinateReference
+				.fromName(referenceModel.getStringValue()) == CoordinateReference.COORDINATE_RANGE;
+
+		polygonModel.setEnabled(!useRange);
+		offsetModel.setEnabled(useRange);
+		countModel.setEnabled(useRange);
+	}
+}
@@ -0,0 +1,56 @@
+package de.bund.bfr.knime.esri.polygondissolve;
+
+import org.knime.core.node.NodeDialogPane;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeView;
+
+/**
+ * <code>NodeFactory</code> for the "PolygonDissolve" Node.
+ * 
+ * 
+ * @author Christian Thoens
+ */
+public class PolygonDissolveNodeFactory extends NodeFactory<PolygonDissolveNodeModel> {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public PolygonDissolveNodeModel createNodeModel() {
+		return new PolygonDissolveNodeModel();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getNrNodeViews() {
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeView<PolygonDissolveNodeModel> createNodeView(final int viewIndex,
+			final PolygonDissolveNodeModel nodeModel) {
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasDialog() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeDialogPane createNodeDialogPane() {
+		return new PolygonDissolveNodeDialog();
+	}
+
+}
@@ -0,0 +1,302 @@
+package de.bund.bfr.knime.esri.polygondissolve;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.operation.overlayng.OverlayNGRobust;
+
+import de.bund.bfr.knime.esri.CoordinateReference;
+import de.bund.bfr.knime.esri.EsriStatistics;
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+import de.bund.bfr.knime.esri.EsriStatistics.Stage;
+import de.bund.bfr.knime.esri.EsriUtils;
+import de.bund.bfr.knime.esri.PolygonCoordinates;
+import de.bund.bfr.knime.esri.PolygonTableWriter;
+import de.bund.bfr.knime.esri.PolygonValidation;
+import de.bund.bfr.knime.esri.TaskQueue;
+
+/**
+ * This is the model implementation of PolygonDissolve.
+ *
+ *
+ * @author Christian Thoens
+ */
+public class PolygonDissolveNodeModel extends NodeModel {
+
+	protected static final String CFG_GROUP_COLUMN = "GroupColumn";
+	protected static final String CFG_COORDINATE_REFERENCE = "CoordinateReference";
+	protected static final String CFG_POLYGON_COLUMN = "PolygonColumn";
+	protected static final String CFG_OFFSET_COLUMN = "OffsetColumn";
+	protected static final String CFG_COUNT_COLUMN = "CountColumn";
+	protected static final String CFG_LATITUDE_COLUMN = "LatitudeColumn";
+	protected static final String CFG_LONGITUDE_COLUMN = "LongitudeColumn";
+	protected static final String CFG_SPLIT_POLYGONS_WITH_HOLES = "SplitPolygonsWithHoles";
+	protected static final String CFG_COLLECT_STATISTICS = "CollectStatistics";
+
+	protected static final String DEFAULT_COORDINATE_REFERENCE = CoordinateReference.ROW_ID_LIST.toString();
+	protected static final boolean DEFAULT_SPLIT_POLYGONS_WITH_HOLES = true;
+	protected static final boolean DEFAULT_COLLECT_STATISTICS = false;
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(PolygonDissolveNodeModel.class);
+	private static final String DEFAULT_GEOMETRY_NAME = "Polygon";
+
+	private SettingsModelString groupColumm;
+	private SettingsModelString coordinateReference;
+	private SettingsModelString polygonColumm;
+	private SettingsModelString offsetColumm;
+	private SettingsModelString countColumm;
+	private SettingsModelString latitudeColumm;
+	private SettingsModelString longitudeColumm;
+	private SettingsModelBoolean splitPolygonsWithHoles;
+	private SettingsModelBoolean collectStatistics;
+
+	/**
+	 * Constructor for the node model.
+	 */
+	protected PolygonDissolveNodeModel() {
+		super(2, 2);
+		groupColumm = new SettingsModelString(CFG_GROUP_COLUMN, null);
+		coordinateReference = new SettingsModelString(CFG_COORDINATE_REFERENCE, DEFAULT_COORDINATE_REFERENCE);
+		polygonColumm = new SettingsModelString(CFG_POLYGON_COLUMN, null);
+		offsetColumm = new SettingsModelString(CFG_OFFSET_COLUMN, null);
+		countColumm = new SettingsModelString(CFG_COUNT_COLUMN, null);
+		latitudeColumm = new SettingsModelString(CFG_LATITUDE_COLUMN, null);
+		longitudeColumm = new SettingsModelString(CFG_LONGITUDE_COLUMN, null);
+		splitPolygonsWithHoles = new SettingsModelBoolean(CFG_SPLIT_POLYGONS_WITH_HOLES,
+				DEFAULT_SPLIT_POLYGONS_WITH_HOLES);
+		collectStatistics = new SettingsModelBoolean(CFG_COLLECT_STATISTICS, DEFAULT_COLLECT_STATISTICS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
+			throws Exception {
+		EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+		Map<DataCell, List<Polygon>> groups = readGroups(inData[0], inData[1], statistics);
+		DataTableSpec polygonSpec = inData[0].getSpec();
+		PolygonTableWriter writer = new PolygonTableWriter(
+				Arrays.asList(polygonSpec.getColumnSpec(groupColumm.getStringValue())), getGeometryName(),
+				getCoordinateReference(), splitPolygonsWithHoles.getBooleanValue(), exec);
+
+		dissolve(groups, writer, exec, statistics);
+
+		BufferedDataTable[] result = writer.close();
+
+		if (statistics.isEnabled()) {
+			statistics.getTimeVariables().forEach(this::pushFlowVariableDouble);
+			statistics.getCountVariables().forEach(this::pushFlowVariableInt);
+			LOGGER.info(statistics);
+		}
+
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void reset() {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws InvalidSettingsException {
+		EsriUtils.checkColumn("Group", groupColumm, inSpecs[0]);
+
+		if (getCoordinateReference() == CoordinateReference.ROW_ID_LIST) {
+			EsriUtils.checkColumn("Polygon", polygonColumm, inSpecs[0]);
+		} else {
+			EsriUtils.checkColumn("Offset", offsetColumm, inSpecs[0]);
+			EsriUtils.checkColumn("Count", countColumm, inSpecs[0]);
+		}
+
+		EsriUtils.checkColumn("Latitude", latitudeColumm, inSpecs[1]);
+		EsriUtils.checkColumn("Longitude", longitudeColumm, inSpecs[1]);
+
+		return PolygonTableWriter.createSpec(Arrays.asList(inSpecs[0].getColumnSpec(groupColumm.getStringValue())),
+				getGeometryName(), getCoordinateReference());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveSettingsTo(final NodeSettingsWO settings) {
+		groupColumm.saveSettingsTo(settings);
+		coordinateReference.saveSettingsTo(settings);
+		polygonColumm.saveSettingsTo(settings);
+		offsetColumm.saveSettingsTo(settings);
+		countColumm.saveSettingsTo(settings);
+		latitudeColumm.saveSettingsTo(settings);
+		longitudeColumm.saveSettingsTo(settings);
+		splitPolygonsWithHoles.saveSettingsTo(settings);
+		collectStatistics.saveSettingsTo(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+		groupColumm.loadSettingsFrom(settings);
+		coordinateReference.loadSettingsFrom(settings);
+		polygonColumm.loadSettingsFrom(settings);
+		offsetColumm.loadSettingsFrom(settings);
+		countColumm.loadSettingsFrom(settings);
+		latitudeColumm.loadSettingsFrom(settings);
+		longitudeColumm.loadSettingsFrom(settings);
+		splitPolygonsWithHoles.loadSettingsFrom(settings);
+		collectStatistics.loadSettingsFrom(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+		groupColumm.validateSettings(settings);
+		coordinateReference.validateSettings(settings);
+		polygonColumm.validateSettings(settings);
+		offsetColumm.validateSettings(settings);
+		countColumm.validateSettings(settings);
+		latitudeColumm.validateSettings(settings);
+		longitudeColumm.validateSettings(settings);
+		splitPolygonsWithHoles.validateSettings(settings);
+		collectStatistics.validateSettings(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * @return the valid polygons of each value of the group column in the order
+	 *         of their first occurrence. Rows with a missing value form one
+	 *         group.
+	 */
+	private Map<DataCell, List<Polygon>> readGroups(BufferedDataTable polygonTable,
+			BufferedDataTable coordinateTable, EsriStatistics statistics) {
+		long time = statistics.start();
+		int groupIndex = polygonTable.getSpec().findColumnIndex(groupColumm.getStringValue());
+		PolygonValidation validation = new PolygonValidation(false, statistics);
+		Map<DataCell, List<Polygon>> groups = new LinkedHashMap<>();
+
+		PolygonCoordinates.readPolygons(polygonTable, coordinateTable, polygonColumm.getStringValue(),
+				offsetColumm.getStringValue(), countColumm.getStringValue(), latitudeColumm.getStringValue(),
+				longitudeColumm.getStringValue(), getCoordinateReference(), EsriUtils.GEO_FACTORY, validation,
+				statistics, (row, polygon) -> groups.computeIfAbsent(row.getCell(groupIndex), k -> new ArrayList<>())
+						.add(polygon));
+
+		if (validation.getWarning() != null) {
+			setWarningMessage(validation.getWarning());
+		}
+
+		statistics.stop(Stage.POLYGON_CONSTRUCTION, time);
+
+		return groups;
+	}
+
+	/**
+	 * Unions the polygons of each group on the KNIME thread pool, one task per
+	 * group. The union of a group is a cascaded union: the polygons are
+	 * partitioned by an STRtree over their bounding boxes and nearby polygons
+	 * are unioned first, so that a group with thousands of polygons needs no
+	 * pairwise unions with the growing result. The results are written in the
+	 * order of the groups.
+	 */
+	private static void dissolve(Map<DataCell, List<Polygon>> groups, PolygonTableWriter writer,
+			ExecutionContext exec, EsriStatistics statistics)
+			throws InterruptedException, ExecutionException, CanceledExecutionException {
+		int done = 0;
+
+		try (TaskQueue<Map.Entry<DataCell, Geometry>> tasks = new TaskQueue<>()) {
+			for (Map.Entry<DataCell, List<Polygon>> group : groups.entrySet()) {
+				DataCell key = group.getKey();
+				List<Polygon> polygons = group.getValue();
+
+				tasks.submit(() -> {
+					long time = statistics.start();
+					Geometry union = OverlayNGRobust.union(new ArrayList<Geometry>(polygons));
+
+					statistics.stop(Stage.OVERLAY, time);
+
+					return new AbstractMap.SimpleImmutableEntry<>(key, union);
+				});
+
+				if (tasks.isFull()) {
+					write(tasks.take(), writer, statistics);
+					exec.checkCanceled();
+					exec.setProgress((double) ++done / (double) groups.size());
+				}
+			}
+
+			while (!tasks.isEmpty()) {
+				write(tasks.take(), writer, statistics);
+				exec.checkCanceled();
+				exec.setProgress((double) ++done / (double) groups.size());
+			}
+		}
+	}
+
+	private static void write(Map.Entry<DataCell, Geometry> group, PolygonTableWriter writer,
+			EsriStatistics statistics) {
+		writer.addRows(new DataCell[] { group.getKey() }, group.getValue(), statistics);
+		statistics.increment(Counter.FEATURES);
+	}
+
+	/**
+	 * @return name of the polygon column or, with
+	 *         {@link CoordinateReference#COORDINATE_RANGE}, the prefix of the
+	 *         offset column, so that the output has the same columns as the
+	 *         input
+	 */
+	private String getGeometryName() {
+		if (getCoordinateReference() == CoordinateReference.ROW_ID_LIST) {
+			return polygonColumm.getStringValue() != null ? polygonColumm.getStringValue() : DEFAULT_GEOMETRY_NAME;
+		}
+
+		return PolygonTableWriter.getGeometryName(offsetColumm.getStringValue(), DEFAULT_GEOMETRY_NAME);
+	}
+
+	private CoordinateReference getCoordinateReference() {
+		return CoordinateReference.fromName(coordinateReference.getStringValue());
+	}
+}
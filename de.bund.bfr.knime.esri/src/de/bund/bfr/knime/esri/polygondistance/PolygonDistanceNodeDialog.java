@@ -0,0 +1,107 @@
+package de.bund.bfr.knime.esri.polygondistance;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.collection.ListDataValue;
+import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
+import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
+import org.knime.core.node.defaultnodesettings.DialogComponentString;
+import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+
+import de.bund.bfr.knime.esri.CoordinateReference;
+
+/**
+ * <code>NodeDialog</code> for the "PolygonDistance" Node.
+ * 
+ *
+ * This node dialog derives from {@link DefaultNodeSettingsPane} which allows
+ * creation of a simple dialog with standard components. If you need a more
+ * complex dialog please derive directly from
+ * {@link org.knime.core.node.NodeDialogPane}.
+ * 
+ * @author Christian Thoens
+ */
+public class PolygonDistanceNodeDialog extends DefaultNodeSettingsPane implements ChangeListener {
+
+	private SettingsModelString referenceModel;
+	private SettingsModelString polygonModel;
+	private SettingsModelString offsetModel;
+	private SettingsModelString countModel;
+	private SettingsModelBoolean filterModel;
+	private SettingsModelDoubleBounded maxDistanceModel;
+
+	/**
+	 * New pane for configuring the PolygonDistance node.
+	 */
+	@SuppressWarnings("unchecked")
+	protected PolygonDistanceNodeDialog() {
+		createNewGroup("Coordinates");
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonDistanceNodeModel.CFG_LATITUDE_COLUMN, null), "Latitude Column", 0,
+				DoubleValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonDistanceNodeModel.CFG_LONGITUDE_COLUMN, null), "Longitude Column", 0,
+				DoubleValue.class));
+		referenceModel = new SettingsModelString(PolygonDistanceNodeModel.CFG_COORDINATE_REFERENCE,
+				PolygonDistanceNodeModel.DEFAULT_COORDINATE_REFERENCE);
+		polygonModel = new SettingsModelString(PolygonDistanceNodeModel.CFG_POLYGON_COLUMN, null);
+		offsetModel = new SettingsModelString(PolygonDistanceNodeModel.CFG_POLYGON_OFFSET_COLUMN, null);
+		countModel = new SettingsModelString(PolygonDistanceNodeModel.CFG_POLYGON_COUNT_COLUMN, null);
+		filterModel = new SettingsModelBoolean(PolygonDistanceNodeModel.CFG_FILTER_BY_DISTANCE,
+				PolygonDistanceNodeModel.DEFAULT_FILTER_BY_DISTANCE);
+		maxDistanceModel = new SettingsModelDoubleBounded(PolygonDistanceNodeModel.CFG_MAX_DISTANCE,
+				PolygonDistanceNodeModel.DEFAULT_MAX_DISTANCE, 0.0, Double.MAX_VALUE);
+		referenceModel.addChangeListener(this);
+		filterModel.addChangeListener(this);
+
+		createNewGroup("Polygon");
+		addDialogComponent(new DialogComponentStringSelection(referenceModel, "Coordinates Referenced by",
+				CoordinateReference.NAMES));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(polygonModel, "Polygon Column", 1, false, ListDataValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(offsetModel, "Offset Column", 1, false, IntValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(countModel, "Count Column", 1, false, IntValue.class));
+		createNewGroup("Polygon Coordinates");
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonDistanceNodeModel.CFG_POLYGON_LATITUDE_COLUMN, null),
+				"Latitude Column", 2, DoubleValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonDistanceNodeModel.CFG_POLYGON_LONGITUDE_COLUMN, null),
+				"Longitude Column", 2, DoubleValue.class));
+		createNewGroup("Options");
+		addDialogComponent(new DialogComponentString(new SettingsModelString(
+				PolygonDistanceNodeModel.CFG_NEAREST_COLUMN, PolygonDistanceNodeModel.DEFAULT_NEAREST_COLUMN),
+				"Nearest Polygon Column"));
+		addDialogComponent(new DialogComponentString(new SettingsModelString(
+				PolygonDistanceNodeModel.CFG_DISTANCE_COLUMN, PolygonDistanceNodeModel.DEFAULT_DISTANCE_COLUMN),
+				"Distance Column"));
+		addDialogComponent(new DialogComponentBoolean(filterModel, "Filter by Maximum Distance"));
+		addDialogComponent(new DialogComponentNumber(maxDistanceModel, "Maximum Distance [km]", 1.0));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(PolygonDistanceNodeModel.CFG_COLLECT_STATISTICS,
+						PolygonDistanceNodeModel.DEFAULT_COLLECT_STATISTICS),
+				"Collect Performance Statistics"));
+		stateChanged(null);
+	}
+
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		boolean useRange = CoordinateReference
+				.fromName(referenceModel.getStringValue()) == CoordinateReference.COORDINATE_RANGE;
+
+		polygonModel.setEnabled(!useRange);
+		offsetModel.setEnabled(useRange);
+		countModel.setEnabled(useRange);
+		maxDistanceModel.setEnabled(filterModel.getBooleanValue());
+	}
+}
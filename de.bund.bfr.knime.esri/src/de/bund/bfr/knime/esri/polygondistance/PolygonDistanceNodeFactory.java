@@ -0,0 +1,56 @@
+package de.bund.bfr.knime.esri.polygondistance;
+
+import org.knime.core.node.NodeDialogPane;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeView;
+
+/**
+ * <code>NodeFactory</code> for the "PolygonDistance" Node.
+ * 
+ *
+ * @author Christian Thoens
+ */
+public class PolygonDistanceNodeFactory extends NodeFactory<PolygonDistanceNodeModel> {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public PolygonDistanceNodeModel createNodeModel() {
+		return new PolygonDistanceNodeModel();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getNrNodeViews() {
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeView<PolygonDistanceNodeModel> createNodeView(final int viewIndex,
+			final PolygonDistanceNodeModel nodeModel) {
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasDialog() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeDialogPane createNodeDialogPane() {
+		return new PolygonDistanceNodeDialog();
+	}
+
+}
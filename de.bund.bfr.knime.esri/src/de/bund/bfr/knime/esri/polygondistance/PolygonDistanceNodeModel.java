@@ -0,0 +1,416 @@
+package de.bund.bfr.knime.esri.polygondistance;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.append.AppendedColumnRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.streamable.InputPortRole;
+import org.knime.core.node.streamable.OutputPortRole;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortObjectInput;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.node.streamable.StreamableOperator;
+import org.locationtech.jts.geom.Polygon;
+
+import com.google.common.base.Strings;
+
+import de.bund.bfr.knime.esri.CoordinateReference;
+import de.bund.bfr.knime.esri.EsriStatistics;
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+import de.bund.bfr.knime.esri.EsriStatistics.Stage;
+import de.bund.bfr.knime.esri.EsriUtils;
+import de.bund.bfr.knime.esri.PolygonCoordinates;
+import de.bund.bfr.knime.esri.PolygonIndex;
+import de.bund.bfr.knime.esri.PolygonIndex.NearestPolygon;
+import de.bund.bfr.knime.esri.PolygonValidation;
+
+/**
+ * This is the model implementation of PolygonDistance.
+ *
+ *
+ * @author Christian Thoens
+ */
+public class PolygonDistanceNodeModel extends NodeModel {
+
+	protected static final String CFG_LATITUDE_COLUMN = "LatitudeColumn";
+	protected static final String CFG_LONGITUDE_COLUMN = "LongitudeColumn";
+	protected static final String CFG_COORDINATE_REFERENCE = "CoordinateReference";
+	protected static final String CFG_POLYGON_COLUMN = "PolygonColumn";
+	protected static final String CFG_POLYGON_OFFSET_COLUMN = "PolygonOffsetColumn";
+	protected static final String CFG_POLYGON_COUNT_COLUMN = "PolygonCountColumn";
+	protected static final String CFG_POLYGON_LATITUDE_COLUMN = "PolygonLatitudeColumn";
+	protected static final String CFG_POLYGON_LONGITUDE_COLUMN = "PolygonLongitudeColumn";
+	protected static final String CFG_NEAREST_COLUMN = "NearestColumn";
+	protected static final String CFG_DISTANCE_COLUMN = "DistanceColumn";
+	protected static final String CFG_FILTER_BY_DISTANCE = "FilterByDistance";
+	protected static final String CFG_MAX_DISTANCE = "MaxDistance";
+	protected static final String CFG_COLLECT_STATISTICS = "CollectStatistics";
+
+	protected static final String DEFAULT_COORDINATE_REFERENCE = CoordinateReference.ROW_ID_LIST.toString();
+	protected static final String DEFAULT_NEAREST_COLUMN = "Nearest Polygon";
+	protected static final String DEFAULT_DISTANCE_COLUMN = "Distance [km]";
+	protected static final boolean DEFAULT_FILTER_BY_DISTANCE = false;
+	protected static final double DEFAULT_MAX_DISTANCE = 10.0;
+	protected static final boolean DEFAULT_COLLECT_STATISTICS = false;
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(PolygonDistanceNodeModel.class);
+
+	private static final int MESSAGE_INTERVAL = 1000;
+
+	private SettingsModelString latitudeColumm;
+	private SettingsModelString longitudeColumm;
+	private SettingsModelString coordinateReference;
+	private SettingsModelString polygonColumm;
+	private SettingsModelString polygonOffsetColumm;
+	private SettingsModelString polygonCountColumm;
+	private SettingsModelString polygonLatitudeColumm;
+	private SettingsModelString polygonLongitudeColumm;
+	private SettingsModelString nearestColumn;
+	private SettingsModelString distanceColumn;
+	private SettingsModelBoolean filterByDistance;
+	private SettingsModelDoubleBounded maxDistance;
+	private SettingsModelBoolean collectStatistics;
+
+	/**
+	 * Constructor for the node model.
+	 */
+	protected PolygonDistanceNodeModel() {
+		super(3, 1);
+		latitudeColumm = new SettingsModelString(CFG_LATITUDE_COLUMN, null);
+		longitudeColumm = new SettingsModelString(CFG_LONGITUDE_COLUMN, null);
+		coordinateReference = new SettingsModelString(CFG_COORDINATE_REFERENCE, DEFAULT_COORDINATE_REFERENCE);
+		polygonColumm = new SettingsModelString(CFG_POLYGON_COLUMN, null);
+		polygonOffsetColumm = new SettingsModelString(CFG_POLYGON_OFFSET_COLUMN, null);
+		polygonCountColumm = new SettingsModelString(CFG_POLYGON_COUNT_COLUMN, null);
+		polygonLatitudeColumm = new SettingsModelString(CFG_POLYGON_LATITUDE_COLUMN, null);
+		polygonLongitudeColumm = new SettingsModelString(CFG_POLYGON_LONGITUDE_COLUMN, null);
+		nearestColumn = new SettingsModelString(CFG_NEAREST_COLUMN, DEFAULT_NEAREST_COLUMN);
+		distanceColumn = new SettingsModelString(CFG_DISTANCE_COLUMN, DEFAULT_DISTANCE_COLUMN);
+		filterByDistance = new SettingsModelBoolean(CFG_FILTER_BY_DISTANCE, DEFAULT_FILTER_BY_DISTANCE);
+		maxDistance = new SettingsModelDoubleBounded(CFG_MAX_DISTANCE, DEFAULT_MAX_DISTANCE, 0.0, Double.MAX_VALUE);
+		collectStatistics = new SettingsModelBoolean(CFG_COLLECT_STATISTICS, DEFAULT_COLLECT_STATISTICS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
+			throws Exception {
+		EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+		BufferedDataTable coordinateTable = inData[0];
+		PolygonIndex index = createIndex(inData[1], inData[2], statistics);
+		BufferedDataContainer container = exec.createDataContainer(createSpec(coordinateTable.getSpec()));
+		int latIndex = coordinateTable.getSpec().findColumnIndex(latitudeColumm.getStringValue());
+		int lonIndex = coordinateTable.getSpec().findColumnIndex(longitudeColumm.getStringValue());
+		int rowIndex = 0;
+
+		try {
+			for (DataRow row : coordinateTable) {
+				DataRow outputRow = createRow(row, latIndex, lonIndex, index, statistics);
+
+				if (outputRow != null) {
+					long time = statistics.start();
+
+					container.addRowToTable(outputRow);
+					statistics.stop(Stage.ROW_WRITING, time);
+					statistics.increment(Counter.ROWS);
+				}
+
+				exec.checkCanceled();
+				exec.setProgress((double) rowIndex / (double) coordinateTable.size());
+				rowIndex++;
+			}
+		} finally {
+			container.close();
+		}
+
+		if (statistics.isEnabled()) {
+			statistics.getTimeVariables().forEach(this::pushFlowVariableDouble);
+			statistics.getCountVariables().forEach(this::pushFlowVariableInt);
+			LOGGER.info(statistics);
+		}
+
+		return new BufferedDataTable[] { container.getTable() };
+	}
+
+	@Override
+	public StreamableOperator createStreamableOperator(final PartitionInfo partitionInfo,
+			final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+		return new StreamableOperator() {
+
+			@Override
+			public void runFinal(final PortInput[] inputs, final PortOutput[] outputs, final ExecutionContext exec)
+					throws Exception {
+				EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+				PolygonIndex index = createIndex((BufferedDataTable) ((PortObjectInput) inputs[1]).getPortObject(),
+						(BufferedDataTable) ((PortObjectInput) inputs[2]).getPortObject(), statistics);
+				RowInput input = (RowInput) inputs[0];
+				RowOutput output = (RowOutput) outputs[0];
+				int latIndex = input.getDataTableSpec().findColumnIndex(latitudeColumm.getStringValue());
+				int lonIndex = input.getDataTableSpec().findColumnIndex(longitudeColumm.getStringValue());
+				DataRow inputRow;
+				long rowIndex = 0;
+
+				try {
+					while ((inputRow = input.poll()) != null) {
+						DataRow outputRow = createRow(inputRow, latIndex, lonIndex, index, statistics);
+
+						if (outputRow != null) {
+							long time = statistics.start();
+
+							output.push(outputRow);
+							statistics.stop(Stage.ROW_WRITING, time);
+							statistics.increment(Counter.ROWS);
+						}
+
+						if (++rowIndex % MESSAGE_INTERVAL == 0) {
+							exec.setMessage("Row " + rowIndex);
+							exec.checkCanceled();
+						}
+					}
+				} finally {
+					input.close();
+					output.close();
+				}
+
+				if (statistics.isEnabled()) {
+					LOGGER.info(statistics);
+				}
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InputPortRole[] getInputPortRoles() {
+		return new InputPortRole[] { InputPortRole.DISTRIBUTED_STREAMABLE, InputPortRole.NONDISTRIBUTED_NONSTREAMABLE,
+				InputPortRole.NONDISTRIBUTED_NONSTREAMABLE };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public OutputPortRole[] getOutputPortRoles() {
+		return new OutputPortRole[] { OutputPortRole.DISTRIBUTED };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void reset() {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws InvalidSettingsException {
+		EsriUtils.checkColumn("Latitude", latitudeColumm, inSpecs[0]);
+		EsriUtils.checkColumn("Longitude", longitudeColumm, inSpecs[0]);
+
+		if (getCoordinateReference() == CoordinateReference.ROW_ID_LIST) {
+			EsriUtils.checkColumn("Polygon", polygonColumm, inSpecs[1]);
+		} else {
+			EsriUtils.checkColumn("Polygon Offset", polygonOffsetColumm, inSpecs[1]);
+			EsriUtils.checkColumn("Polygon Count", polygonCountColumm, inSpecs[1]);
+		}
+
+		EsriUtils.checkColumn("Polygon Latitude", polygonLatitudeColumm, inSpecs[2]);
+		EsriUtils.checkColumn("Polygon Longitude", polygonLongitudeColumm, inSpecs[2]);
+
+		return new DataTableSpec[] { createSpec(inSpecs[0]) };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveSettingsTo(final NodeSettingsWO settings) {
+		latitudeColumm.saveSettingsTo(settings);
+		longitudeColumm.saveSettingsTo(settings);
+		coordinateReference.saveSettingsTo(settings);
+		polygonColumm.saveSettingsTo(settings);
+		polygonOffsetColumm.saveSettingsTo(settings);
+		polygonCountColumm.saveSettingsTo(settings);
+		polygonLatitudeColumm.saveSettingsTo(settings);
+		polygonLongitudeColumm.saveSettingsTo(settings);
+		nearestColumn.saveSettingsTo(settings);
+		distanceColumn.saveSettingsTo(settings);
+		filterByDistance.saveSettingsTo(settings);
+		maxDistance.saveSettingsTo(settings);
+		collectStatistics.saveSettingsTo(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+		latitudeColumm.loadSettingsFrom(settings);
+		longitudeColumm.loadSettingsFrom(settings);
+		coordinateReference.loadSettingsFrom(settings);
+		polygonColumm.loadSettingsFrom(settings);
+		polygonOffsetColumm.loadSettingsFrom(settings);
+		polygonCountColumm.loadSettingsFrom(settings);
+		polygonLatitudeColumm.loadSettingsFrom(settings);
+		polygonLongitudeColumm.loadSettingsFrom(settings);
+		nearestColumn.loadSettingsFrom(settings);
+		distanceColumn.loadSettingsFrom(settings);
+		filterByDistance.loadSettingsFrom(settings);
+		maxDistance.loadSettingsFrom(settings);
+		collectStatistics.loadSettingsFrom(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+		latitudeColumm.validateSettings(settings);
+		longitudeColumm.validateSettings(settings);
+		coordinateReference.validateSettings(settings);
+		polygonColumm.validateSettings(settings);
+		polygonOffsetColumm.validateSettings(settings);
+		polygonCountColumm.validateSettings(settings);
+		polygonLatitudeColumm.validateSettings(settings);
+		polygonLongitudeColumm.validateSettings(settings);
+		nearestColumn.validateSettings(settings);
+		distanceColumn.validateSettings(settings);
+		filterByDistance.validateSettings(settings);
+		maxDistance.validateSettings(settings);
+		collectStatistics.validateSettings(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	private DataTableSpec createSpec(DataTableSpec spec) throws InvalidSettingsException {
+		String nearestName = nearestColumn.getStringValue();
+		String distanceName = distanceColumn.getStringValue();
+
+		if (Strings.isNullOrEmpty(nearestName) || Strings.isNullOrEmpty(distanceName)) {
+			throw new InvalidSettingsException("No name for the appended columns specified");
+		}
+
+		if (nearestName.equals(distanceName)) {
+			throw new InvalidSettingsException("Appended columns must have different names");
+		}
+
+		for (String name : new String[] { nearestName, distanceName }) {
+			if (spec.containsName(name)) {
+				throw new InvalidSettingsException("Column name \"" + name + "\" not allowed in first input table");
+			}
+		}
+
+		return new DataTableSpec(spec,
+				new DataTableSpec(new DataColumnSpecCreator(nearestName, StringCell.TYPE).createSpec(),
+						new DataColumnSpecCreator(distanceName, DoubleCell.TYPE).createSpec()));
+	}
+
+	/**
+	 * @return the row with the nearest polygon and its distance appended or
+	 *         null if the row is filtered out
+	 */
+	private DataRow createRow(DataRow row, int latIndex, int lonIndex, PolygonIndex index,
+			EsriStatistics statistics) {
+		boolean filter = filterByDistance.getBooleanValue();
+		DataCell latitudeCell = row.getCell(latIndex);
+		DataCell longitudeCell = row.getCell(lonIndex);
+
+		if (!(latitudeCell instanceof DoubleValue) || !(longitudeCell instanceof DoubleValue)) {
+			return filter ? null : new AppendedColumnRow(row, DataType.getMissingCell(), DataType.getMissingCell());
+		}
+
+		long time = statistics.start();
+		NearestPolygon nearest = index.getNearest(((DoubleValue) latitudeCell).getDoubleValue(),
+				((DoubleValue) longitudeCell).getDoubleValue(),
+				filter ? maxDistance.getDoubleValue() : Double.POSITIVE_INFINITY);
+
+		statistics.stop(Stage.CONTAINMENT_TESTS, time);
+
+		if (nearest == null) {
+			return filter ? null : new AppendedColumnRow(row, DataType.getMissingCell(), DataType.getMissingCell());
+		}
+
+		return new AppendedColumnRow(row, new StringCell(index.getKey(nearest.getIndex())),
+				new DoubleCell(nearest.getDistance()));
+	}
+
+	private PolygonIndex createIndex(BufferedDataTable polygonTable, BufferedDataTable polygonCoordinateTable,
+			EsriStatistics statistics) {
+		long time = statistics.start();
+		PolygonValidation validation = new PolygonValidation(false, statistics);
+		List<String> keys = new ArrayList<>();
+		List<Polygon> polygons = new ArrayList<>();
+
+		PolygonCoordinates.readPolygons(polygonTable, polygonCoordinateTable, polygonColumm.getStringValue(),
+				polygonOffsetColumm.getStringValue(), polygonCountColumm.getStringValue(),
+				polygonLatitudeColumm.getStringValue(), polygonLongitudeColumm.getStringValue(),
+				getCoordinateReference(), EsriUtils.GEO_FACTORY, validation, statistics, (row, polygon) -> {
+					keys.add(row.getKey().getString());
+					polygons.add(polygon);
+				});
+
+		validation.checkDetailLevels(polygonTable);
+
+		if (validation.getWarning() != null) {
+			setWarningMessage(validation.getWarning());
+		}
+
+		PolygonIndex index = new PolygonIndex(keys, polygons);
+
+		statistics.count(Counter.FEATURES, polygons.size());
+		statistics.stop(Stage.POLYGON_CONSTRUCTION, time);
+
+		return index;
+	}
+
+	private CoordinateReference getCoordinateReference() {
+		return CoordinateReference.fromName(coordinateReference.getStringValue());
+	}
+}
@@ -0,0 +1,116 @@
+package de.bund.bfr.knime.esri.polygonintersection;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.collection.ListDataValue;
+import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
+import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+
+import de.bund.bfr.knime.esri.CoordinateReference;
+
+/**
+ * <code>NodeDialog</code> for the "PolygonIntersection" Node.
+ *
+ *
+ * This node dialog derives from {@link DefaultNodeSettingsPane} which allows
+ * creation of a simple dialog with standard components. If you need a more
+ * complex dialog please derive directly from
+ * {@link org.knime.core.node.NodeDialogPane}.
+ *
+ * @author Christian Thoens
+ */
+public class PolygonIntersectionNodeDialog extends DefaultNodeSettingsPane implements ChangeListener {
+
+	private SettingsModelString referenceModel;
+	private SettingsModelString polygonModel;
+	private SettingsModelString offsetModel;
+	private SettingsModelString countModel;
+	private SettingsModelString clipReferenceModel;
+	private SettingsModelString clipPolygonModel;
+	private SettingsModelString clipOffsetModel;
+	private SettingsModelString clipCountModel;
+
+	/**
+	 * New pane for configuring the PolygonIntersection node.
+	 */
+	@SuppressWarnings("unchecked")
+	protected PolygonIntersectionNodeDialog() {
+		referenceModel = new SettingsModelString(PolygonIntersectionNodeModel.CFG_COORDINATE_REFERENCE,
+				PolygonIntersectionNodeModel.DEFAULT_COORDINATE_REFERENCE);
+		polygonModel = new SettingsModelString(PolygonIntersectionNodeModel.CFG_POLYGON_COLUMN, null);
+		offsetModel = new SettingsModelString(PolygonIntersectionNodeModel.CFG_OFFSET_COLUMN, null);
+		countModel = new SettingsModelString(PolygonIntersectionNodeModel.CFG_COUNT_COLUMN, null);
+		clipReferenceModel = new SettingsModelString(PolygonIntersectionNodeModel.CFG_CLIP_COORDINATE_REFERENCE,
+				PolygonIntersectionNodeModel.DEFAULT_COORDINATE_REFERENCE);
+		clipPolygonModel = new SettingsModelString(PolygonIntersectionNodeModel.CFG_CLIP_POLYGON_COLUMN, null);
+		clipOffsetModel = new SettingsModelString(PolygonIntersectionNodeModel.CFG_CLIP_OFFSET_COLUMN, null);
+		clipCountModel = new SettingsModelString(PolygonIntersectionNodeModel.CFG_CLIP_COUNT_COLUMN, null);
+		referenceModel.addChangeListener(this);
+		clipReferenceModel.addChangeListener(this);
+
+		createNewGroup("Polygon");
+		addDialogComponent(new DialogComponentStringSelection(referenceModel, "Coordinates Referenced by",
+				CoordinateReference.NAMES));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(polygonModel, "Polygon Column", 0, false, ListDataValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(offsetModel, "Offset Column", 0, false, IntValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(countModel, "Count Column", 0, false, IntValue.class));
+		createNewGroup("Polygon Coordinates");
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonIntersectionNodeModel.CFG_LATITUDE_COLUMN, null), "Latitude Column",
+				1, DoubleValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonIntersectionNodeModel.CFG_LONGITUDE_COLUMN, null),
+				"Longitude Column", 1, DoubleValue.class));
+		createNewGroup("Clip Polygon");
+		addDialogComponent(new DialogComponentStringSelection(clipReferenceModel, "Coordinates Referenced by",
+				CoordinateReference.NAMES));
+		addDialogComponent(new DialogComponentColumnNameSelection(clipPolygonModel, "Polygon Column", 2, false,
+				ListDataValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(clipOffsetModel, "Offset Column", 2, false, IntValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(clipCountModel, "Count Column", 2, false, IntValue.class));
+		createNewGroup("Clip Polygon Coordinates");
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonIntersectionNodeModel.CFG_CLIP_LATITUDE_COLUMN, null),
+				"Latitude Column", 3, DoubleValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonIntersectionNodeModel.CFG_CLIP_LONGITUDE_COLUMN, null),
+				"Longitude Column", 3, DoubleValue.class));
+		createNewGroup("Options");
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(PolygonIntersectionNodeModel.CFG_SPLIT_POLYGONS_WITH_HOLES,
+						PolygonIntersectionNodeModel.DEFAULT_SPLIT_POLYGONS_WITH_HOLES),
+				"Split Polygons to Remove Holes"));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(PolygonIntersectionNodeModel.CFG_COLLECT_STATISTICS,
+						PolygonIntersectionNodeModel.DEFAULT_COLLECT_STATISTICS),
+				"Collect Performance Statistics"));
+		stateChanged(null);
+	}
+
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		boolean useRange = CoordinateReference
+				.fromName(referenceModel.getStringValue()) == CoordinateReference.COORDINATE_RANGE;
+		boolean clipUseRange = CoordinateReference
+				.fromName(clipReferenceModel.getStringValue()) == CoordinateReference.COORDINATE_RANGE;
+
+		polygonModel.setEnabled(!useRange);
+		offsetModel.setEnabled(useRange);
+		countModel.setEnabled(useRange);
+		clipPolygonModel.setEnabled(!clipUseRange);
+		clipOffsetModel.setEnabled(clipUseRange);
+		clipCountModel.setEnabled(clipUseRange);
+	}
+}
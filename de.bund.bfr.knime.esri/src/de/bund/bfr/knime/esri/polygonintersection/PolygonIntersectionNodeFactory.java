@@ -0,0 +1,56 @@
+package de.bund.bfr.knime.esri.polygonintersection;
+
+import org.knime.core.node.NodeDialogPane;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeView;
+
+/**
+ * <code>NodeFactory</code> for the "PolygonIntersection" Node.
+ * 
+ * 
+ * @author Christian Thoens
+ */
+public class PolygonIntersectionNodeFactory extends NodeFactory<PolygonIntersectionNodeModel> {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public PolygonIntersectionNodeModel createNodeModel() {
+		return new PolygonIntersectionNodeModel();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getNrNodeViews() {
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeView<PolygonIntersectionNodeModel> createNodeView(final int viewIndex,
+			final PolygonIntersectionNodeModel nodeModel) {
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasDialog() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeDialogPane createNodeDialogPane() {
+		return new PolygonIntersectionNodeDialog();
+	}
+
+}
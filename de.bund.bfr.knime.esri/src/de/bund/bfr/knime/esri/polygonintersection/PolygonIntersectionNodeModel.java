@@ -0,0 +1,492 @@
+package de.bund.bfr.knime.esri.polygonintersection;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.core.util.UniqueNameGenerator;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+import org.locationtech.jts.geom.util.PolygonExtracter;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.locationtech.jts.operation.overlayng.OverlayNG;
+import org.locationtech.jts.operation.overlayng.OverlayNGRobust;
+
+import de.bund.bfr.knime.esri.CoordinateReference;
+import de.bund.bfr.knime.esri.EsriStatistics;
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+import de.bund.bfr.knime.esri.EsriStatistics.Stage;
+import de.bund.bfr.knime.esri.EsriUtils;
+import de.bund.bfr.knime.esri.PolygonCoordinates;
+import de.bund.bfr.knime.esri.PolygonTableWriter;
+import de.bund.bfr.knime.esri.PolygonValidation;
+import de.bund.bfr.knime.esri.TaskQueue;
+
+/**
+ * This is the model implementation of PolygonIntersection.
+ *
+ *
+ * @author Christian Thoens
+ */
+public class PolygonIntersectionNodeModel extends NodeModel {
+
+	protected static final String CFG_COORDINATE_REFERENCE = "CoordinateReference";
+	protected static final String CFG_POLYGON_COLUMN = "PolygonColumn";
+	protected static final String CFG_OFFSET_COLUMN = "OffsetColumn";
+	protected static final String CFG_COUNT_COLUMN = "CountColumn";
+	protected static final String CFG_LATITUDE_COLUMN = "LatitudeColumn";
+	protected static final String CFG_LONGITUDE_COLUMN = "LongitudeColumn";
+	protected static final String CFG_CLIP_COORDINATE_REFERENCE = "ClipCoordinateReference";
+	protected static final String CFG_CLIP_POLYGON_COLUMN = "ClipPolygonColumn";
+	protected static final String CFG_CLIP_OFFSET_COLUMN = "ClipOffsetColumn";
+	protected static final String CFG_CLIP_COUNT_COLUMN = "ClipCountColumn";
+	protected static final String CFG_CLIP_LATITUDE_COLUMN = "ClipLatitudeColumn";
+	protected static final String CFG_CLIP_LONGITUDE_COLUMN = "ClipLongitudeColumn";
+	protected static final String CFG_SPLIT_POLYGONS_WITH_HOLES = "SplitPolygonsWithHoles";
+	protected static final String CFG_COLLECT_STATISTICS = "CollectStatistics";
+
+	protected static final String DEFAULT_COORDINATE_REFERENCE = CoordinateReference.ROW_ID_LIST.toString();
+	protected static final boolean DEFAULT_SPLIT_POLYGONS_WITH_HOLES = true;
+	protected static final boolean DEFAULT_COLLECT_STATISTICS = false;
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(PolygonIntersectionNodeModel.class);
+	private static final String DEFAULT_GEOMETRY_NAME = "Polygon";
+	private static final int BATCH_SIZE = 64;
+
+	private SettingsModelString coordinateReference;
+	private SettingsModelString polygonColumm;
+	private SettingsModelString offsetColumm;
+	private SettingsModelString countColumm;
+	private SettingsModelString latitudeColumm;
+	private SettingsModelString longitudeColumm;
+	private SettingsModelString clipCoordinateReference;
+	private SettingsModelString clipPolygonColumm;
+	private SettingsModelString clipOffsetColumm;
+	private SettingsModelString clipCountColumm;
+	private SettingsModelString clipLatitudeColumm;
+	private SettingsModelString clipLongitudeColumm;
+	private SettingsModelBoolean splitPolygonsWithHoles;
+	private SettingsModelBoolean collectStatistics;
+
+	/**
+	 * Constructor for the node model.
+	 */
+	protected PolygonIntersectionNodeModel() {
+		super(4, 2);
+		coordinateReference = new SettingsModelString(CFG_COORDINATE_REFERENCE, DEFAULT_COORDINATE_REFERENCE);
+		polygonColumm = new SettingsModelString(CFG_POLYGON_COLUMN, null);
+		offsetColumm = new SettingsModelString(CFG_OFFSET_COLUMN, null);
+		countColumm = new SettingsModelString(CFG_COUNT_COLUMN, null);
+		latitudeColumm = new SettingsModelString(CFG_LATITUDE_COLUMN, null);
+		longitudeColumm = new SettingsModelString(CFG_LONGITUDE_COLUMN, null);
+		clipCoordinateReference = new SettingsModelString(CFG_CLIP_COORDINATE_REFERENCE,
+				DEFAULT_COORDINATE_REFERENCE);
+		clipPolygonColumm = new SettingsModelString(CFG_CLIP_POLYGON_COLUMN, null);
+		clipOffsetColumm = new SettingsModelString(CFG_CLIP_OFFSET_COLUMN, null);
+		clipCountColumm = new SettingsModelString(CFG_CLIP_COUNT_COLUMN, null);
+		clipLatitudeColumm = new SettingsModelString(CFG_CLIP_LATITUDE_COLUMN, null);
+		clipLongitudeColumm = new SettingsModelString(CFG_CLIP_LONGITUDE_COLUMN, null);
+		splitPolygonsWithHoles = new SettingsModelBoolean(CFG_SPLIT_POLYGONS_WITH_HOLES,
+				DEFAULT_SPLIT_POLYGONS_WITH_HOLES);
+		collectStatistics = new SettingsModelBoolean(CFG_COLLECT_STATISTICS, DEFAULT_COLLECT_STATISTICS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
+			throws Exception {
+		EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+		PolygonValidation validation = new PolygonValidation(false, statistics);
+		Layer layer = readLayer(inData[0], inData[1], getCoordinateReference(), polygonColumm, offsetColumm,
+				countColumm, latitudeColumm, longitudeColumm, validation, statistics);
+		Layer clipLayer = readLayer(inData[2], inData[3], getClipCoordinateReference(), clipPolygonColumm,
+				clipOffsetColumm, clipCountColumm, clipLatitudeColumm, clipLongitudeColumm, validation, statistics);
+
+		if (validation.getWarning() != null) {
+			setWarningMessage(validation.getWarning());
+		}
+
+		PolygonTableWriter writer = new PolygonTableWriter(
+				getAttributeColumns(inData[0].getSpec(), inData[2].getSpec()), getGeometryName(),
+				getCoordinateReference(), splitPolygonsWithHoles.getBooleanValue(), exec);
+
+		intersect(layer, clipLayer, writer, exec, statistics);
+
+		BufferedDataTable[] result = writer.close();
+
+		if (statistics.isEnabled()) {
+			statistics.getTimeVariables().forEach(this::pushFlowVariableDouble);
+			statistics.getCountVariables().forEach(this::pushFlowVariableInt);
+			LOGGER.info(statistics);
+		}
+
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void reset() {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws InvalidSettingsException {
+		if (getCoordinateReference() == CoordinateReference.ROW_ID_LIST) {
+			EsriUtils.checkColumn("Polygon", polygonColumm, inSpecs[0]);
+		} else {
+			EsriUtils.checkColumn("Offset", offsetColumm, inSpecs[0]);
+			EsriUtils.checkColumn("Count", countColumm, inSpecs[0]);
+		}
+
+		EsriUtils.checkColumn("Latitude", latitudeColumm, inSpecs[1]);
+		EsriUtils.checkColumn("Longitude", longitudeColumm, inSpecs[1]);
+
+		if (getClipCoordinateReference() == CoordinateReference.ROW_ID_LIST) {
+			EsriUtils.checkColumn("Clip Polygon", clipPolygonColumm, inSpecs[2]);
+		} else {
+			EsriUtils.checkColumn("Clip Offset", clipOffsetColumm, inSpecs[2]);
+			EsriUtils.checkColumn("Clip Count", clipCountColumm, inSpecs[2]);
+		}
+
+		EsriUtils.checkColumn("Clip Latitude", clipLatitudeColumm, inSpecs[3]);
+		EsriUtils.checkColumn("Clip Longitude", clipLongitudeColumm, inSpecs[3]);
+
+		return PolygonTableWriter.createSpec(getAttributeColumns(inSpecs[0], inSpecs[2]), getGeometryName(),
+				getCoordinateReference());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveSettingsTo(final NodeSettingsWO settings) {
+		coordinateReference.saveSettingsTo(settings);
+		polygonColumm.saveSettingsTo(settings);
+		offsetColumm.saveSettingsTo(settings);
+		countColumm.saveSettingsTo(settings);
+		latitudeColumm.saveSettingsTo(settings);
+		longitudeColumm.saveSettingsTo(settings);
+		clipCoordinateReference.saveSettingsTo(settings);
+		clipPolygonColumm.saveSettingsTo(settings);
+		clipOffsetColumm.saveSettingsTo(settings);
+		clipCountColumm.saveSettingsTo(settings);
+		clipLatitudeColumm.saveSettingsTo(settings);
+		clipLongitudeColumm.saveSettingsTo(settings);
+		splitPolygonsWithHoles.saveSettingsTo(settings);
+		collectStatistics.saveSettingsTo(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+		coordinateReference.loadSettingsFrom(settings);
+		polygonColumm.loadSettingsFrom(settings);
+		offsetColumm.loadSettingsFrom(settings);
+		countColumm.loadSettingsFrom(settings);
+		latitudeColumm.loadSettingsFrom(settings);
+		longitudeColumm.loadSettingsFrom(settings);
+		clipCoordinateReference.loadSettingsFrom(settings);
+		clipPolygonColumm.loadSettingsFrom(settings);
+		clipOffsetColumm.loadSettingsFrom(settings);
+		clipCountColumm.loadSettingsFrom(settings);
+		clipLatitudeColumm.loadSettingsFrom(settings);
+		clipLongitudeColumm.loadSettingsFrom(settings);
+		splitPolygonsWithHoles.loadSettingsFrom(settings);
+		collectStatistics.loadSettingsFrom(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+		coordinateReference.validateSettings(settings);
+		polygonColumm.validateSettings(settings);
+		offsetColumm.validateSettings(settings);
+		countColumm.validateSettings(settings);
+		latitudeColumm.validateSettings(settings);
+		longitudeColumm.validateSettings(settings);
+		clipCoordinateReference.validateSettings(settings);
+		clipPolygonColumm.validateSettings(settings);
+		clipOffsetColumm.validateSettings(settings);
+		clipCountColumm.validateSettings(settings);
+		clipLatitudeColumm.validateSettings(settings);
+		clipLongitudeColumm.validateSettings(settings);
+		splitPolygonsWithHoles.validateSettings(settings);
+		collectStatistics.validateSettings(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * Intersects each polygon of {@code layer} with all polygons of
+	 * {@code clipLayer}. Candidate pairs are taken from an STRtree over the
+	 * envelopes of the clip polygons. If the envelope of one polygon of a pair
+	 * contains the envelope of the other, a prepared covers test is done first,
+	 * since the intersection of a polygon and a polygon covering it is the
+	 * polygon itself. Only the remaining pairs that intersect are overlaid. The
+	 * polygons of {@code layer} are processed in batches on the KNIME thread
+	 * pool and the results are written in the order of {@code layer}.
+	 */
+	private static void intersect(Layer layer, Layer clipLayer, PolygonTableWriter writer, ExecutionContext exec,
+			EsriStatistics statistics) throws InterruptedException, ExecutionException, CanceledExecutionException {
+		long time = statistics.start();
+		STRtree tree = new STRtree();
+		PreparedGeometry[] prepared = new PreparedGeometry[clipLayer.polygons.size()];
+
+		for (int i = 0; i < clipLayer.polygons.size(); i++) {
+			Polygon p = clipLayer.polygons.get(i);
+
+			prepared[i] = PreparedGeometryFactory.prepare(p);
+			tree.insert(p.getEnvelopeInternal(), i);
+		}
+
+		tree.build();
+		statistics.stop(Stage.INDEX_CONSTRUCTION, time);
+
+		int n = layer.polygons.size();
+
+		try (TaskQueue<List<Intersection>> tasks = new TaskQueue<>()) {
+			for (int from = 0; from < n; from += BATCH_SIZE) {
+				int start = from;
+				int end = Math.min(from + BATCH_SIZE, n);
+
+				tasks.submit(() -> {
+					List<Intersection> intersections = new ArrayList<>();
+
+					for (int i = start; i < end; i++) {
+						intersect(i, layer.polygons.get(i), clipLayer, tree, prepared, intersections, statistics);
+					}
+
+					return intersections;
+				});
+
+				if (tasks.isFull()) {
+					write(tasks.take(), layer, clipLayer, writer, statistics);
+					exec.checkCanceled();
+					exec.setProgress((double) end / (double) n);
+				}
+			}
+
+			while (!tasks.isEmpty()) {
+				write(tasks.take(), layer, clipLayer, writer, statistics);
+				exec.checkCanceled();
+			}
+		}
+	}
+
+	private static void intersect(int index, Polygon polygon, Layer clipLayer, STRtree tree,
+			PreparedGeometry[] prepared, List<Intersection> intersections, EsriStatistics statistics) {
+		long time = statistics.start();
+		Envelope envelope = polygon.getEnvelopeInternal();
+		PreparedGeometry preparedPolygon = null;
+		List<Integer> candidates = new ArrayList<>();
+
+		tree.query(envelope, item -> candidates.add((Integer) item));
+		candidates.sort(null);
+		statistics.count(Counter.CANDIDATE_PAIRS, candidates.size());
+
+		for (int clipIndex : candidates) {
+			Polygon clipPolygon = clipLayer.polygons.get(clipIndex);
+			Envelope clipEnvelope = clipPolygon.getEnvelopeInternal();
+			Geometry result;
+
+			if (clipEnvelope.covers(envelope) && prepared[clipIndex].covers(polygon)) {
+				result = polygon;
+			} else if (envelope.covers(clipEnvelope) && (preparedPolygon != null ? preparedPolygon
+					: (preparedPolygon = PreparedGeometryFactory.prepare(polygon))).covers(clipPolygon)) {
+				result = clipPolygon;
+			} else if (!prepared[clipIndex].intersects(polygon)) {
+				continue;
+			} else {
+				@SuppressWarnings("unchecked")
+				List<Polygon> parts = PolygonExtracter
+						.getPolygons(OverlayNGRobust.overlay(polygon, clipPolygon, OverlayNG.INTERSECTION));
+
+				parts.removeIf(Geometry::isEmpty);
+
+				if (parts.isEmpty()) {
+					continue;
+				}
+
+				result = EsriUtils.GEO_FACTORY.buildGeometry(parts);
+			}
+
+			intersections.add(new Intersection(index, clipIndex, result));
+		}
+
+		statistics.stop(Stage.OVERLAY, time);
+	}
+
+	private static void write(List<Intersection> intersections, Layer layer, Layer clipLayer,
+			PolygonTableWriter writer, EsriStatistics statistics) {
+		for (Intersection intersection : intersections) {
+			DataCell[] attributes = layer.attributes.get(intersection.index);
+			DataCell[] clipAttributes = clipLayer.attributes.get(intersection.clipIndex);
+			DataCell[] cells = new DataCell[attributes.length + clipAttributes.length];
+
+			System.arraycopy(attributes, 0, cells, 0, attributes.length);
+			System.arraycopy(clipAttributes, 0, cells, attributes.length, clipAttributes.length);
+			writer.addRows(cells, intersection.geometry, statistics);
+			statistics.increment(Counter.FEATURES);
+		}
+	}
+
+	private static Layer readLayer(BufferedDataTable polygonTable, BufferedDataTable coordinateTable,
+			CoordinateReference reference, SettingsModelString polygonColumm, SettingsModelString offsetColumm,
+			SettingsModelString countColumm, SettingsModelString latitudeColumm,
+			SettingsModelString longitudeColumm, PolygonValidation validation, EsriStatistics statistics) {
+		long time = statistics.start();
+		List<Integer> attributeIndices = getAttributeIndices(polygonTable.getSpec(), reference, polygonColumm,
+				offsetColumm, countColumm);
+		Layer layer = new Layer();
+
+		PolygonCoordinates.readPolygons(polygonTable, coordinateTable, polygonColumm.getStringValue(),
+				offsetColumm.getStringValue(), countColumm.getStringValue(), latitudeColumm.getStringValue(),
+				longitudeColumm.getStringValue(), reference, EsriUtils.GEO_FACTORY, validation, statistics,
+				(row, polygon) -> {
+					if (!polygon.isEmpty()) {
+						layer.polygons.add(polygon);
+						layer.attributes.add(attributeIndices.stream().map(row::getCell).toArray(DataCell[]::new));
+					}
+				});
+
+		statistics.stop(Stage.POLYGON_CONSTRUCTION, time);
+
+		return layer;
+	}
+
+	/**
+	 * @return all columns of the polygon table except the geometry columns,
+	 *         followed by those of the clip polygon table. Columns of the clip
+	 *         polygon table are renamed if their name is already used.
+	 */
+	private List<DataColumnSpec> getAttributeColumns(DataTableSpec spec, DataTableSpec clipSpec) {
+		List<DataColumnSpec> columns = new ArrayList<>();
+		Set<String> names = new HashSet<>();
+
+		for (int i : getAttributeIndices(spec, getCoordinateReference(), polygonColumm, offsetColumm,
+				countColumm)) {
+			columns.add(spec.getColumnSpec(i));
+			names.add(spec.getColumnSpec(i).getName());
+		}
+
+		names.add(getGeometryName());
+		names.add(getGeometryName() + PolygonTableWriter.OFFSET_COLUMN_SUFFIX);
+		names.add(getGeometryName() + PolygonTableWriter.COUNT_COLUMN_SUFFIX);
+
+		UniqueNameGenerator nameGenerator = new UniqueNameGenerator(names);
+
+		for (int i : getAttributeIndices(clipSpec, getClipCoordinateReference(), clipPolygonColumm,
+				clipOffsetColumm, clipCountColumm)) {
+			DataColumnSpecCreator creator = new DataColumnSpecCreator(clipSpec.getColumnSpec(i));
+
+			creator.setName(nameGenerator.newName(clipSpec.getColumnSpec(i).getName()));
+			columns.add(creator.createSpec());
+		}
+
+		return columns;
+	}
+
+	private static List<Integer> getAttributeIndices(DataTableSpec spec, CoordinateReference reference,
+			SettingsModelString polygonColumm, SettingsModelString offsetColumm, SettingsModelString countColumm) {
+		List<Integer> indices = new ArrayList<>();
+
+		for (int i = 0; i < spec.getNumColumns(); i++) {
+			String name = spec.getColumnSpec(i).getName();
+			boolean isGeometry = reference == CoordinateReference.ROW_ID_LIST
+					? name.equals(polygonColumm.getStringValue())
+					: name.equals(offsetColumm.getStringValue()) || name.equals(countColumm.getStringValue());
+
+			if (!isGeometry) {
+				indices.add(i);
+			}
+		}
+
+		return indices;
+	}
+
+	/**
+	 * @return name of the polygon column or, with
+	 *         {@link CoordinateReference#COORDINATE_RANGE}, the prefix of the
+	 *         offset column of the first polygon table
+	 */
+	private String getGeometryName() {
+		if (getCoordinateReference() == CoordinateReference.ROW_ID_LIST) {
+			return polygonColumm.getStringValue() != null ? polygonColumm.getStringValue() : DEFAULT_GEOMETRY_NAME;
+		}
+
+		return PolygonTableWriter.getGeometryName(offsetColumm.getStringValue(), DEFAULT_GEOMETRY_NAME);
+	}
+
+	private CoordinateReference getCoordinateReference() {
+		return CoordinateReference.fromName(coordinateReference.getStringValue());
+	}
+
+	private CoordinateReference getClipCoordinateReference() {
+		return CoordinateReference.fromName(clipCoordinateReference.getStringValue());
+	}
+
+	private static class Layer {
+
+		private final List<Polygon> polygons = new ArrayList<>();
+		private final List<DataCell[]> attributes = new ArrayList<>();
+	}
+
+	private static class Intersection {
+
+		private final int index;
+		private final int clipIndex;
+		private final Geometry geometry;
+
+		public Intersection(int index, int clipIndex, Geometry geometry) {
+			this.index = index;
+			this.clipIndex = clipIndex;
+			this.geometry = geometry;
+		}
+	}
+}
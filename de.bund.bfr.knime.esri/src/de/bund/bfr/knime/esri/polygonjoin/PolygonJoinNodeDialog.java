@@ -0,0 +1,96 @@
+package de.bund.bfr.knime.esri.polygonjoin;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.collection.ListDataValue;
+import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
+import org.knime.core.node.defaultnodesettings.DialogComponentString;
+import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+
+import de.bund.bfr.knime.esri.CoordinateReference;
+
+/**
+ * <code>NodeDialog</code> for the "PolygonJoin" Node.
+ * 
+ *
+ * This node dialog derives from {@link DefaultNodeSettingsPane} which allows
+ * creation of a simple dialog with standard components. If you need a more
+ * complex dialog please derive directly from
+ * {@link org.knime.core.node.NodeDialogPane}.
+ * 
+ * @author Christian Thoens
+ */
+public class PolygonJoinNodeDialog extends DefaultNodeSettingsPane implements ChangeListener {
+
+	private SettingsModelString referenceModel;
+	private SettingsModelString polygonModel;
+	private SettingsModelString offsetModel;
+	private SettingsModelString countModel;
+
+	/**
+	 * New pane for configuring the PolygonJoin node.
+	 */
+	@SuppressWarnings("unchecked")
+	protected PolygonJoinNodeDialog() {
+		createNewGroup("Coordinates");
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonJoinNodeModel.CFG_LATITUDE_COLUMN, null), "Latitude Column", 0,
+				DoubleValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonJoinNodeModel.CFG_LONGITUDE_COLUMN, null), "Longitude Column", 0,
+				DoubleValue.class));
+		referenceModel = new SettingsModelString(PolygonJoinNodeModel.CFG_COORDINATE_REFERENCE,
+				PolygonJoinNodeModel.DEFAULT_COORDINATE_REFERENCE);
+		polygonModel = new SettingsModelString(PolygonJoinNodeModel.CFG_POLYGON_COLUMN, null);
+		offsetModel = new SettingsModelString(PolygonJoinNodeModel.CFG_POLYGON_OFFSET_COLUMN, null);
+		countModel = new SettingsModelString(PolygonJoinNodeModel.CFG_POLYGON_COUNT_COLUMN, null);
+		referenceModel.addChangeListener(this);
+
+		createNewGroup("Polygon");
+		addDialogComponent(new DialogComponentStringSelection(referenceModel, "Coordinates Referenced by",
+				CoordinateReference.NAMES));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(polygonModel, "Polygon Column", 1, false, ListDataValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(offsetModel, "Offset Column", 1, false, IntValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(countModel, "Count Column", 1, false, IntValue.class));
+		createNewGroup("Polygon Coordinates");
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonJoinNodeModel.CFG_POLYGON_LATITUDE_COLUMN, null), "Latitude Column",
+				2, DoubleValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonJoinNodeModel.CFG_POLYGON_LONGITUDE_COLUMN, null),
+				"Longitude Column", 2, DoubleValue.class));
+		createNewGroup("Options");
+		addDialogComponent(new DialogComponentString(
+				new SettingsModelString(PolygonJoinNodeModel.CFG_JOIN_COLUMN, PolygonJoinNodeModel.DEFAULT_JOIN_COLUMN),
+				"Appended Column"));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(PolygonJoinNodeModel.CFG_ALL_MATCHES,
+						PolygonJoinNodeModel.DEFAULT_ALL_MATCHES),
+				"Append All Containing Polygons"));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(PolygonJoinNodeModel.CFG_COLLECT_STATISTICS,
+						PolygonJoinNodeModel.DEFAULT_COLLECT_STATISTICS),
+				"Collect Performance Statistics"));
+		stateChanged(null);
+	}
+
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		boolean useRange = CoordinateReference
+				.fromName(referenceModel.getStringValue()) == CoordinateReference.COORDINATE_RANGE;
+
+		polygonModel.setEnabled(!useRange);
+		offsetModel.setEnabled(useRange);
+		countModel.setEnabled(useRange);
+	}
+}
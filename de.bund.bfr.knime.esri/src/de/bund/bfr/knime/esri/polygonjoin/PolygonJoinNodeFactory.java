@@ -0,0 +1,56 @@
+package de.bund.bfr.knime.esri.polygonjoin;
+
+import org.knime.core.node.NodeDialogPane;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeView;
+
+/**
+ * <code>NodeFactory</code> for the "PolygonJoin" Node.
+ * 
+ *
+ * @author Christian Thoens
+ */
+public class PolygonJoinNodeFactory extends NodeFactory<PolygonJoinNodeModel> {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public PolygonJoinNodeModel createNodeModel() {
+		return new PolygonJoinNodeModel();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getNrNodeViews() {
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeView<PolygonJoinNodeModel> createNodeView(final int viewIndex,
+			final PolygonJoinNodeModel nodeModel) {
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasDialog() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeDialogPane createNodeDialogPane() {
+		return new PolygonJoinNodeDialog();
+	}
+
+}
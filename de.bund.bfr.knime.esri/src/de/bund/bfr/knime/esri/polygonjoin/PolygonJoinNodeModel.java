@@ -0,0 +1,358 @@
+package de.bund.bfr.knime.esri.polygonjoin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.collection.CollectionCellFactory;
+import org.knime.core.data.collection.ListCell;
+import org.knime.core.data.container.AbstractCellFactory;
+import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.streamable.InputPortRole;
+import org.knime.core.node.streamable.OutputPortRole;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortObjectInput;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.StreamableOperator;
+import org.locationtech.jts.geom.Polygon;
+
+import com.google.common.base.Strings;
+
+import de.bund.bfr.knime.esri.CoordinateReference;
+import de.bund.bfr.knime.esri.EsriStatistics;
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+import de.bund.bfr.knime.esri.EsriStatistics.Stage;
+import de.bund.bfr.knime.esri.EsriUtils;
+import de.bund.bfr.knime.esri.PolygonCoordinates;
+import de.bund.bfr.knime.esri.PolygonIndex;
+import de.bund.bfr.knime.esri.PolygonValidation;
+
+/**
+ * This is the model implementation of PolygonJoin.
+ *
+ *
+ * @author Christian Thoens
+ */
+public class PolygonJoinNodeModel extends NodeModel {
+
+	protected static final String CFG_LATITUDE_COLUMN = "LatitudeColumn";
+	protected static final String CFG_LONGITUDE_COLUMN = "LongitudeColumn";
+	protected static final String CFG_COORDINATE_REFERENCE = "CoordinateReference";
+	protected static final String CFG_POLYGON_COLUMN = "PolygonColumn";
+	protected static final String CFG_POLYGON_OFFSET_COLUMN = "PolygonOffsetColumn";
+	protected static final String CFG_POLYGON_COUNT_COLUMN = "PolygonCountColumn";
+	protected static final String CFG_POLYGON_LATITUDE_COLUMN = "PolygonLatitudeColumn";
+	protected static final String CFG_POLYGON_LONGITUDE_COLUMN = "PolygonLongitudeColumn";
+	protected static final String CFG_JOIN_COLUMN = "JoinColumn";
+	protected static final String CFG_ALL_MATCHES = "AllMatches";
+	protected static final String CFG_COLLECT_STATISTICS = "CollectStatistics";
+
+	protected static final String DEFAULT_COORDINATE_REFERENCE = CoordinateReference.ROW_ID_LIST.toString();
+	protected static final String DEFAULT_JOIN_COLUMN = "Polygon";
+	protected static final boolean DEFAULT_ALL_MATCHES = false;
+	protected static final boolean DEFAULT_COLLECT_STATISTICS = false;
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(PolygonJoinNodeModel.class);
+
+	private SettingsModelString latitudeColumm;
+	private SettingsModelString longitudeColumm;
+	private SettingsModelString coordinateReference;
+	private SettingsModelString polygonColumm;
+	private SettingsModelString polygonOffsetColumm;
+	private SettingsModelString polygonCountColumm;
+	private SettingsModelString polygonLatitudeColumm;
+	private SettingsModelString polygonLongitudeColumm;
+	private SettingsModelString joinColumn;
+	private SettingsModelBoolean allMatches;
+	private SettingsModelBoolean collectStatistics;
+
+	/**
+	 * Constructor for the node model.
+	 */
+	protected PolygonJoinNodeModel() {
+		super(3, 1);
+		latitudeColumm = new SettingsModelString(CFG_LATITUDE_COLUMN, null);
+		longitudeColumm = new SettingsModelString(CFG_LONGITUDE_COLUMN, null);
+		coordinateReference = new SettingsModelString(CFG_COORDINATE_REFERENCE, DEFAULT_COORDINATE_REFERENCE);
+		polygonColumm = new SettingsModelString(CFG_POLYGON_COLUMN, null);
+		polygonOffsetColumm = new SettingsModelString(CFG_POLYGON_OFFSET_COLUMN, null);
+		polygonCountColumm = new SettingsModelString(CFG_POLYGON_COUNT_COLUMN, null);
+		polygonLatitudeColumm = new SettingsModelString(CFG_POLYGON_LATITUDE_COLUMN, null);
+		polygonLongitudeColumm = new SettingsModelString(CFG_POLYGON_LONGITUDE_COLUMN, null);
+		joinColumn = new SettingsModelString(CFG_JOIN_COLUMN, DEFAULT_JOIN_COLUMN);
+		allMatches = new SettingsModelBoolean(CFG_ALL_MATCHES, DEFAULT_ALL_MATCHES);
+		collectStatistics = new SettingsModelBoolean(CFG_COLLECT_STATISTICS, DEFAULT_COLLECT_STATISTICS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
+			throws Exception {
+		EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+		PolygonIndex index = createIndex(inData[1], inData[2], statistics);
+		BufferedDataTable result = exec.createColumnRearrangeTable(inData[0],
+				createColumnRearranger(inData[0].getSpec(), index, statistics), exec);
+
+		if (statistics.isEnabled()) {
+			statistics.getTimeVariables().forEach(this::pushFlowVariableDouble);
+			statistics.getCountVariables().forEach(this::pushFlowVariableInt);
+			LOGGER.info(statistics);
+		}
+
+		return new BufferedDataTable[] { result };
+	}
+
+	@Override
+	public StreamableOperator createStreamableOperator(final PartitionInfo partitionInfo,
+			final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+		return new StreamableOperator() {
+
+			@Override
+			public void runFinal(final PortInput[] inputs, final PortOutput[] outputs, final ExecutionContext exec)
+					throws Exception {
+				EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+				PolygonIndex index = createIndex((BufferedDataTable) ((PortObjectInput) inputs[1]).getPortObject(),
+						(BufferedDataTable) ((PortObjectInput) inputs[2]).getPortObject(), statistics);
+				ColumnRearranger rearranger = createColumnRearranger(((RowInput) inputs[0]).getDataTableSpec(),
+						index, statistics);
+
+				rearranger.createStreamableFunction(0, 0).runFinal(inputs, outputs, exec);
+
+				if (statistics.isEnabled()) {
+					LOGGER.info(statistics);
+				}
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InputPortRole[] getInputPortRoles() {
+		return new InputPortRole[] { InputPortRole.DISTRIBUTED_STREAMABLE, InputPortRole.NONDISTRIBUTED_NONSTREAMABLE,
+				InputPortRole.NONDISTRIBUTED_NONSTREAMABLE };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public OutputPortRole[] getOutputPortRoles() {
+		return new OutputPortRole[] { OutputPortRole.DISTRIBUTED };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void reset() {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws InvalidSettingsException {
+		if (getCoordinateReference() == CoordinateReference.ROW_ID_LIST) {
+			EsriUtils.checkColumn("Polygon", polygonColumm, inSpecs[1]);
+		} else {
+			EsriUtils.checkColumn("Polygon Offset", polygonOffsetColumm, inSpecs[1]);
+			EsriUtils.checkColumn("Polygon Count", polygonCountColumm, inSpecs[1]);
+		}
+
+		EsriUtils.checkColumn("Polygon Latitude", polygonLatitudeColumm, inSpecs[2]);
+		EsriUtils.checkColumn("Polygon Longitude", polygonLongitudeColumm, inSpecs[2]);
+
+		return new DataTableSpec[] { createColumnRearranger(inSpecs[0], null, EsriStatistics.DISABLED).createSpec() };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveSettingsTo(final NodeSettingsWO settings) {
+		latitudeColumm.saveSettingsTo(settings);
+		longitudeColumm.saveSettingsTo(settings);
+		coordinateReference.saveSettingsTo(settings);
+		polygonColumm.saveSettingsTo(settings);
+		polygonOffsetColumm.saveSettingsTo(settings);
+		polygonCountColumm.saveSettingsTo(settings);
+		polygonLatitudeColumm.saveSettingsTo(settings);
+		polygonLongitudeColumm.saveSettingsTo(settings);
+		joinColumn.saveSettingsTo(settings);
+		allMatches.saveSettingsTo(settings);
+		collectStatistics.saveSettingsTo(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+		latitudeColumm.loadSettingsFrom(settings);
+		longitudeColumm.loadSettingsFrom(settings);
+		coordinateReference.loadSettingsFrom(settings);
+		polygonColumm.loadSettingsFrom(settings);
+		polygonOffsetColumm.loadSettingsFrom(settings);
+		polygonCountColumm.loadSettingsFrom(settings);
+		polygonLatitudeColumm.loadSettingsFrom(settings);
+		polygonLongitudeColumm.loadSettingsFrom(settings);
+		joinColumn.loadSettingsFrom(settings);
+		allMatches.loadSettingsFrom(settings);
+		collectStatistics.loadSettingsFrom(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+		latitudeColumm.validateSettings(settings);
+		longitudeColumm.validateSettings(settings);
+		coordinateReference.validateSettings(settings);
+		polygonColumm.validateSettings(settings);
+		polygonOffsetColumm.validateSettings(settings);
+		polygonCountColumm.validateSettings(settings);
+		polygonLatitudeColumm.validateSettings(settings);
+		polygonLongitudeColumm.validateSettings(settings);
+		joinColumn.validateSettings(settings);
+		allMatches.validateSettings(settings);
+		collectStatistics.validateSettings(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	private ColumnRearranger createColumnRearranger(DataTableSpec spec, PolygonIndex index,
+			EsriStatistics statistics) throws InvalidSettingsException {
+		EsriUtils.checkColumn("Latitude", latitudeColumm, spec);
+		EsriUtils.checkColumn("Longitude", longitudeColumm, spec);
+
+		if (Strings.isNullOrEmpty(joinColumn.getStringValue())) {
+			throw new InvalidSettingsException("No name for the appended column specified");
+		}
+
+		if (spec.containsName(joinColumn.getStringValue())) {
+			throw new InvalidSettingsException(
+					"Column name \"" + joinColumn.getStringValue() + "\" not allowed in first input table");
+		}
+
+		int latIndex = spec.findColumnIndex(latitudeColumm.getStringValue());
+		int lonIndex = spec.findColumnIndex(longitudeColumm.getStringValue());
+		boolean all = allMatches.getBooleanValue();
+		DataColumnSpec newColumn = new DataColumnSpecCreator(joinColumn.getStringValue(),
+				all ? ListCell.getCollectionType(StringCell.TYPE) : StringCell.TYPE).createSpec();
+		ColumnRearranger rearranger = new ColumnRearranger(spec);
+
+		rearranger.append(new AbstractCellFactory(true, newColumn) {
+
+			@Override
+			public DataCell[] getCells(DataRow row) {
+				long time = statistics.start();
+				DataCell latitudeCell = row.getCell(latIndex);
+				DataCell longitudeCell = row.getCell(lonIndex);
+
+				if (!(latitudeCell instanceof DoubleValue) || !(longitudeCell instanceof DoubleValue)) {
+					return new DataCell[] { DataType.getMissingCell() };
+				}
+
+				List<Integer> containing = index.getContaining(((DoubleValue) latitudeCell).getDoubleValue(),
+						((DoubleValue) longitudeCell).getDoubleValue());
+				DataCell cell;
+
+				statistics.stop(Stage.CONTAINMENT_TESTS, time);
+				statistics.increment(Counter.ROWS);
+
+				if (containing.isEmpty()) {
+					cell = DataType.getMissingCell();
+				} else if (all) {
+					List<StringCell> keys = new ArrayList<>(containing.size());
+
+					for (int i : containing) {
+						keys.add(new StringCell(index.getKey(i)));
+					}
+
+					cell = CollectionCellFactory.createListCell(keys);
+				} else {
+					cell = new StringCell(index.getKey(containing.get(0)));
+				}
+
+				return new DataCell[] { cell };
+			}
+		});
+
+		return rearranger;
+	}
+
+	private PolygonIndex createIndex(BufferedDataTable polygonTable, BufferedDataTable polygonCoordinateTable,
+			EsriStatistics statistics) {
+		long time = statistics.start();
+		PolygonValidation validation = new PolygonValidation(false, statistics);
+		List<String> keys = new ArrayList<>();
+		List<Polygon> polygons = new ArrayList<>();
+
+		PolygonCoordinates.readPolygons(polygonTable, polygonCoordinateTable, polygonColumm.getStringValue(),
+				polygonOffsetColumm.getStringValue(), polygonCountColumm.getStringValue(),
+				polygonLatitudeColumm.getStringValue(), polygonLongitudeColumm.getStringValue(),
+				getCoordinateReference(), EsriUtils.GEO_FACTORY, validation, statistics, (row, polygon) -> {
+					keys.add(row.getKey().getString());
+					polygons.add(polygon);
+				});
+
+		validation.checkDetailLevels(polygonTable);
+
+		if (validation.getWarning() != null) {
+			setWarningMessage(validation.getWarning());
+		}
+
+		PolygonIndex index = new PolygonIndex(keys, polygons);
+
+		statistics.count(Counter.FEATURES, polygons.size());
+		statistics.stop(Stage.POLYGON_CONSTRUCTION, time);
+
+		return index;
+	}
+
+	private CoordinateReference getCoordinateReference() {
+		return CoordinateReference.fromName(coordinateReference.getStringValue());
+	}
+}
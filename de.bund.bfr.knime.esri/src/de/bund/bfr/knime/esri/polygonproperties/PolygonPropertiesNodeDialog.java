@@ -1,11 +1,20 @@
 package de.bund.bfr.knime.esri.polygonproperties;
 
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
 import org.knime.core.data.DoubleValue;
+import org.knime.core.data.IntValue;
 import org.knime.core.data.collection.ListDataValue;
 import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
 import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
+import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 
+import de.bund.bfr.knime.esri.CoordinateReference;
+
 /**
  * <code>NodeDialog</code> for the "PolygonProperties" Node.
  * 
@@ -17,21 +26,57 @@ import org.knime.core.node.defaultnodesettings.SettingsModelString;
  * 
  * @author Christian Thoens
  */
-public class PolygonPropertiesNodeDialog extends DefaultNodeSettingsPane {
+public class PolygonPropertiesNodeDialog extends DefaultNodeSettingsPane implements ChangeListener {
+
+	private SettingsModelString referenceModel;
+	private SettingsModelString polygonModel;
+	private SettingsModelString offsetModel;
+	private SettingsModelString countModel;
 
 	/**
 	 * New pane for configuring the PolygonProperties node.
 	 */
 	@SuppressWarnings("unchecked")
 	protected PolygonPropertiesNodeDialog() {
-		addDialogComponent(new DialogComponentColumnNameSelection(
-				new SettingsModelString(PolygonPropertiesNodeModel.CFG_POLYGON_COLUMN, null), "Polygon Column", 0,
-				ListDataValue.class));
+		referenceModel = new SettingsModelString(PolygonPropertiesNodeModel.CFG_COORDINATE_REFERENCE,
+				PolygonPropertiesNodeModel.DEFAULT_COORDINATE_REFERENCE);
+		polygonModel = new SettingsModelString(PolygonPropertiesNodeModel.CFG_POLYGON_COLUMN, null);
+		offsetModel = new SettingsModelString(PolygonPropertiesNodeModel.CFG_OFFSET_COLUMN, null);
+		countModel = new SettingsModelString(PolygonPropertiesNodeModel.CFG_COUNT_COLUMN, null);
+		referenceModel.addChangeListener(this);
+
+		addDialogComponent(new DialogComponentStringSelection(referenceModel, "Coordinates Referenced by",
+				CoordinateReference.NAMES));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(polygonModel, "Polygon Column", 0, false, ListDataValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(offsetModel, "Offset Column", 0, false, IntValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(countModel, "Count Column", 0, false, IntValue.class));
 		addDialogComponent(new DialogComponentColumnNameSelection(
 				new SettingsModelString(PolygonPropertiesNodeModel.CFG_LATITUDE_COLUMN, null), "Latitude Column", 1,
-				DoubleValue.class));
+				false, DoubleValue.class));
 		addDialogComponent(new DialogComponentColumnNameSelection(
 				new SettingsModelString(PolygonPropertiesNodeModel.CFG_LONGITUDE_COLUMN, null), "Longitude Column", 1,
-				DoubleValue.class));
+				false, DoubleValue.class));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(PolygonPropertiesNodeModel.CFG_REPAIR_POLYGONS,
+						PolygonPropertiesNodeModel.DEFAULT_REPAIR_POLYGONS),
+				"Repair Invalid Polygons"));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(PolygonPropertiesNodeModel.CFG_COLLECT_STATISTICS,
+						PolygonPropertiesNodeModel.DEFAULT_COLLECT_STATISTICS),
+				"Collect Performance Statistics"));
+		stateChanged(null);
+	}
+
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		boolean useRange = CoordinateReference
+				.fromName(referenceModel.getStringValue()) == CoordinateReference.COORDINATE_RANGE;
+
+		polygonModel.setEnabled(!useRange);
+		offsetModel.setEnabled(useRange);
+		countModel.setEnabled(useRange);
 	}
 }
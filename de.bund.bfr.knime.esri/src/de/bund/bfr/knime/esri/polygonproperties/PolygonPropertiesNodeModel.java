@@ -2,10 +2,7 @@ package de.bund.bfr.knime.esri.polygonproperties;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataColumnSpec;
@@ -13,9 +10,6 @@ import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DataType;
-import org.knime.core.data.DoubleValue;
-import org.knime.core.data.StringValue;
-import org.knime.core.data.collection.ListDataValue;
 import org.knime.core.data.container.AbstractCellFactory;
 import org.knime.core.data.container.ColumnRearranger;
 import org.knime.core.data.def.DoubleCell;
@@ -24,11 +18,15 @@ import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.port.PortType;
 import org.knime.core.node.streamable.InputPortRole;
 import org.knime.core.node.streamable.OutputPortRole;
 import org.knime.core.node.streamable.PartitionInfo;
@@ -37,14 +35,21 @@ import org.knime.core.node.streamable.PortObjectInput;
 import org.knime.core.node.streamable.PortOutput;
 import org.knime.core.node.streamable.RowInput;
 import org.knime.core.node.streamable.StreamableOperator;
-import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
 
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
 
+import de.bund.bfr.knime.esri.CoordinateReference;
+import de.bund.bfr.knime.esri.EsriStatistics;
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+import de.bund.bfr.knime.esri.EsriStatistics.Stage;
 import de.bund.bfr.knime.esri.EsriUtils;
+import de.bund.bfr.knime.esri.PolygonCoordinates;
+import de.bund.bfr.knime.esri.PolygonValidation;
+import de.bund.bfr.knime.esri.SpatialIndexPortObject;
 
 /**
  * This is the model implementation of PolygonProperties.
@@ -57,6 +62,17 @@ public class PolygonPropertiesNodeModel extends NodeModel {
 	protected static final String CFG_POLYGON_COLUMN = "PolygonColumn";
 	protected static final String CFG_LATITUDE_COLUMN = "LatitudeColumn";
 	protected static final String CFG_LONGITUDE_COLUMN = "LongitudeColumn";
+	protected static final String CFG_COLLECT_STATISTICS = "CollectStatistics";
+	protected static final String CFG_COORDINATE_REFERENCE = "CoordinateReference";
+	protected static final String CFG_OFFSET_COLUMN = "OffsetColumn";
+	protected static final String CFG_COUNT_COLUMN = "CountColumn";
+	protected static final String CFG_REPAIR_POLYGONS = "RepairPolygons";
+
+	protected static final boolean DEFAULT_COLLECT_STATISTICS = false;
+	protected static final String DEFAULT_COORDINATE_REFERENCE = CoordinateReference.ROW_ID_LIST.toString();
+	protected static final boolean DEFAULT_REPAIR_POLYGONS = false;
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(PolygonPropertiesNodeModel.class);
 
 	private static final String CENTER_LATITUDE_COLUMN = "PolygonCenterLatitude";
 	private static final String CENTER_LONGITUDE_COLUMN = "PolygonCenterLongitude";
@@ -67,25 +83,52 @@ public class PolygonPropertiesNodeModel extends NodeModel {
 	private SettingsModelString polygonColumm;
 	private SettingsModelString latitudeColumm;
 	private SettingsModelString longitudeColumm;
+	private SettingsModelBoolean collectStatistics;
+	private SettingsModelString coordinateReference;
+	private SettingsModelString offsetColumm;
+	private SettingsModelString countColumm;
+	private SettingsModelBoolean repairPolygons;
 
 	/**
 	 * Constructor for the node model.
 	 */
 	protected PolygonPropertiesNodeModel() {
-		super(2, 1);
+		super(new PortType[] { BufferedDataTable.TYPE, BufferedDataTable.TYPE_OPTIONAL,
+				SpatialIndexPortObject.TYPE_OPTIONAL }, new PortType[] { BufferedDataTable.TYPE });
 		polygonColumm = new SettingsModelString(CFG_POLYGON_COLUMN, null);
 		latitudeColumm = new SettingsModelString(CFG_LATITUDE_COLUMN, null);
 		longitudeColumm = new SettingsModelString(CFG_LONGITUDE_COLUMN, null);
+		collectStatistics = new SettingsModelBoolean(CFG_COLLECT_STATISTICS, DEFAULT_COLLECT_STATISTICS);
+		coordinateReference = new SettingsModelString(CFG_COORDINATE_REFERENCE, DEFAULT_COORDINATE_REFERENCE);
+		offsetColumm = new SettingsModelString(CFG_OFFSET_COLUMN, null);
+		countColumm = new SettingsModelString(CFG_COUNT_COLUMN, null);
+		repairPolygons = new SettingsModelBoolean(CFG_REPAIR_POLYGONS, DEFAULT_REPAIR_POLYGONS);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
-			throws Exception {
-		return new BufferedDataTable[] { exec.createColumnRearrangeTable(inData[0],
-				createColumnRearranger(inData[0].getSpec(), inData[1]), exec) };
+	protected PortObject[] execute(final PortObject[] inObjects, final ExecutionContext exec) throws Exception {
+		EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+		PolygonValidation validation = new PolygonValidation(repairPolygons.getBooleanValue(), statistics);
+		BufferedDataTable table = (BufferedDataTable) inObjects[0];
+		BufferedDataTable result = exec.createColumnRearrangeTable(table,
+				createColumnRearranger(table.getSpec(), inObjects[2] != null, (BufferedDataTable) inObjects[1],
+						(SpatialIndexPortObject) inObjects[2], validation, statistics),
+				exec);
+
+		if (validation.getWarning() != null) {
+			setWarningMessage(validation.getWarning());
+		}
+
+		if (statistics.isEnabled()) {
+			statistics.getTimeVariables().forEach(this::pushFlowVariableDouble);
+			statistics.getCountVariables().forEach(this::pushFlowVariableInt);
+			LOGGER.info(statistics);
+		}
+
+		return new BufferedDataTable[] { result };
 	}
 
 	@Override
@@ -96,10 +139,22 @@ public class PolygonPropertiesNodeModel extends NodeModel {
 			@Override
 			public void runFinal(final PortInput[] inputs, final PortOutput[] outputs, final ExecutionContext exec)
 					throws Exception {
+				EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+				PolygonValidation validation = new PolygonValidation(repairPolygons.getBooleanValue(), statistics);
+				SpatialIndexPortObject spatialIndex = (SpatialIndexPortObject) getPortObject(inputs[2]);
 				ColumnRearranger rearranger = createColumnRearranger(((RowInput) inputs[0]).getDataTableSpec(),
-						(BufferedDataTable) ((PortObjectInput) inputs[1]).getPortObject());
+						spatialIndex != null, (BufferedDataTable) getPortObject(inputs[1]), spatialIndex, validation,
+						statistics);
 
 				rearranger.createStreamableFunction(0, 0).runFinal(inputs, outputs, exec);
+
+				if (validation.getWarning() != null) {
+					setWarningMessage(validation.getWarning());
+				}
+
+				if (statistics.isEnabled()) {
+					LOGGER.info(statistics);
+				}
 			}
 		};
 	}
@@ -109,7 +164,8 @@ public class PolygonPropertiesNodeModel extends NodeModel {
 	 */
 	@Override
 	public InputPortRole[] getInputPortRoles() {
-		return new InputPortRole[] { InputPortRole.DISTRIBUTED_STREAMABLE, InputPortRole.NONDISTRIBUTED_NONSTREAMABLE };
+		return new InputPortRole[] { InputPortRole.DISTRIBUTED_STREAMABLE, InputPortRole.NONDISTRIBUTED_NONSTREAMABLE,
+				InputPortRole.NONDISTRIBUTED_NONSTREAMABLE };
 	}
 
 	/**
@@ -131,8 +187,13 @@ public class PolygonPropertiesNodeModel extends NodeModel {
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws InvalidSettingsException {
-		return new DataTableSpec[] { createColumnRearranger(inSpecs[0], null).createSpec() };
+	protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+		if (inSpecs[1] == null && inSpecs[2] == null) {
+			throw new InvalidSettingsException("Coordinate table or spatial index must be connected");
+		}
+
+		return new PortObjectSpec[] { createColumnRearranger((DataTableSpec) inSpecs[0], inSpecs[2] != null, null,
+				null, null, EsriStatistics.DISABLED).createSpec() };
 	}
 
 	/**
@@ -143,6 +204,11 @@ public class PolygonPropertiesNodeModel extends NodeModel {
 		polygonColumm.saveSettingsTo(settings);
 		latitudeColumm.saveSettingsTo(settings);
 		longitudeColumm.saveSettingsTo(settings);
+		collectStatistics.saveSettingsTo(settings);
+		coordinateReference.saveSettingsTo(settings);
+		offsetColumm.saveSettingsTo(settings);
+		countColumm.saveSettingsTo(settings);
+		repairPolygons.saveSettingsTo(settings);
 	}
 
 	/**
@@ -153,6 +219,23 @@ public class PolygonPropertiesNodeModel extends NodeModel {
 		polygonColumm.loadSettingsFrom(settings);
 		latitudeColumm.loadSettingsFrom(settings);
 		longitudeColumm.loadSettingsFrom(settings);
+
+		try {
+			collectStatistics.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			coordinateReference.loadSettingsFrom(settings);
+			offsetColumm.loadSettingsFrom(settings);
+			countColumm.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			repairPolygons.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
 	}
 
 	/**
@@ -163,6 +246,23 @@ public class PolygonPropertiesNodeModel extends NodeModel {
 		polygonColumm.validateSettings(settings);
 		latitudeColumm.validateSettings(settings);
 		longitudeColumm.validateSettings(settings);
+
+		try {
+			collectStatistics.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			coordinateReference.validateSettings(settings);
+			offsetColumm.validateSettings(settings);
+			countColumm.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			repairPolygons.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
 	}
 
 	/**
@@ -181,79 +281,105 @@ public class PolygonPropertiesNodeModel extends NodeModel {
 			throws IOException, CanceledExecutionException {
 	}
 
-	private ColumnRearranger createColumnRearranger(DataTableSpec spec, BufferedDataTable coordinateTable)
-			throws InvalidSettingsException {
+	/**
+	 * If polygons are repaired, the rows are processed on several threads,
+	 * since the topology checks dominate the runtime. With a spatial index, the
+	 * polygons are looked up by the row key and neither the polygon columns nor
+	 * the coordinate table are used.
+	 */
+	private ColumnRearranger createColumnRearranger(DataTableSpec spec, boolean useSpatialIndex,
+			BufferedDataTable coordinateTable, SpatialIndexPortObject spatialIndex, PolygonValidation validation,
+			EsriStatistics statistics) throws InvalidSettingsException {
 		for (String column : NEW_COLUMNS) {
 			if (spec.containsName(column)) {
 				throw new InvalidSettingsException("Column name \"" + column + "\" not allowed in first input table");
 			}
 		}
 
-		EsriUtils.checkColumn("Polygon", polygonColumm, spec);
+		CoordinateReference reference = CoordinateReference.fromName(coordinateReference.getStringValue());
+
+		if (!useSpatialIndex && reference == CoordinateReference.ROW_ID_LIST) {
+			EsriUtils.checkColumn("Polygon", polygonColumm, spec);
+		} else if (!useSpatialIndex) {
+			EsriUtils.checkColumn("Offset", offsetColumm, spec);
+			EsriUtils.checkColumn("Count", countColumm, spec);
+		}
 
-		Map<String, Coordinate> coordinateMap = new LinkedHashMap<>();
+		PolygonCoordinates polygonCoordinates = null;
 
-		if (coordinateTable != null) {
+		if (coordinateTable != null && !useSpatialIndex) {
 			EsriUtils.checkColumn("Latitude", latitudeColumm, coordinateTable.getSpec());
 			EsriUtils.checkColumn("Longitude", longitudeColumm, coordinateTable.getSpec());
 
-			for (DataRow row : coordinateTable) {
-				DataCell latitudeCell = row
-						.getCell(coordinateTable.getSpec().findColumnIndex(latitudeColumm.getStringValue()));
-				DataCell longitudeCell = row
-						.getCell(coordinateTable.getSpec().findColumnIndex(longitudeColumm.getStringValue()));
-
-				if (latitudeCell instanceof DoubleValue && longitudeCell instanceof DoubleValue) {
-					coordinateMap.put(row.getKey().getString(),
-							new Coordinate(((DoubleValue) latitudeCell).getDoubleValue(),
-									((DoubleValue) longitudeCell).getDoubleValue()));
-				}
-			}
+			polygonCoordinates = PolygonCoordinates.read(coordinateTable, latitudeColumm.getStringValue(),
+					longitudeColumm.getStringValue(), reference);
 		}
 
+		PolygonCoordinates coordinateLookup = polygonCoordinates;
+		int polygonIndex = spec.findColumnIndex(polygonColumm.getStringValue());
+		int offsetIndex = spec.findColumnIndex(offsetColumm.getStringValue());
+		int countIndex = spec.findColumnIndex(countColumm.getStringValue());
+
 		DataColumnSpec[] newColumns = { new DataColumnSpecCreator(CENTER_LATITUDE_COLUMN, DoubleCell.TYPE).createSpec(),
 				new DataColumnSpecCreator(CENTER_LONGITUDE_COLUMN, DoubleCell.TYPE).createSpec(),
 				new DataColumnSpecCreator(AREA_COLUMN, DoubleCell.TYPE).createSpec() };
 		DataTableSpec newSpec = new DataTableSpec(newColumns);
 		ColumnRearranger rearranger = new ColumnRearranger(spec);
 
-		rearranger.append(new AbstractCellFactory(newColumns) {
+		rearranger.append(new AbstractCellFactory(repairPolygons.getBooleanValue() && !useSpatialIndex, newColumns) {
 
 			@Override
 			public DataCell[] getCells(DataRow row) {
-				DataCell polygonCell = row.getCell(spec.findColumnIndex(polygonColumm.getStringValue()));
-				List<Coordinate> coordinates = new ArrayList<>();
+				long time = statistics.start();
+				String key = row.getKey().getString();
+				DataCell[] cells = new DataCell[newSpec.getNumColumns()];
+				Geometry geometry;
 
-				if (polygonCell instanceof ListDataValue) {
-					for (StringValue cell : Iterables.filter((ListDataValue) polygonCell, StringValue.class)) {
-						Coordinate c = coordinateMap.get(cell.getStringValue());
+				statistics.increment(Counter.FEATURES);
 
-						if (c != null) {
-							coordinates.add(c);
-						}
-					}
-				}
+				if (spatialIndex != null) {
+					List<Polygon> polygons = spatialIndex.getPolygons(key);
 
-				DataCell[] cells = new DataCell[newSpec.getNumColumns()];
+					polygons.forEach(p -> statistics.count(Counter.VERTICES, p.getNumPoints()));
+					geometry = EsriUtils.GEO_FACTORY.buildGeometry(polygons);
+				} else {
+					CoordinateSequence coordinates = coordinateLookup.getCoordinates(row, polygonIndex, offsetIndex,
+							countIndex);
+
+					statistics.count(Counter.VERTICES, coordinates.size());
+
+					Polygon poly = validation.createPolygon(coordinates, EsriUtils.GEO_FACTORY, key);
+
+					geometry = poly != null ? EsriUtils.GEO_FACTORY.buildGeometry(validation.repair(poly, key)) : null;
+				}
 
-				try {
-					Polygon poly = EsriUtils.createPolygon(coordinates);
-					Point center = poly.getCentroid();
+				if (geometry != null && !geometry.isEmpty()) {
+					Point center = geometry.getCentroid();
 
 					cells[newSpec.findColumnIndex(CENTER_LATITUDE_COLUMN)] = new DoubleCell(center.getX());
 					cells[newSpec.findColumnIndex(CENTER_LONGITUDE_COLUMN)] = new DoubleCell(center.getY());
-					cells[newSpec.findColumnIndex(AREA_COLUMN)] = new DoubleCell(poly.getArea());
-				} catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+					cells[newSpec.findColumnIndex(AREA_COLUMN)] = new DoubleCell(geometry.getArea());
+				} else {
 					cells[newSpec.findColumnIndex(CENTER_LATITUDE_COLUMN)] = DataType.getMissingCell();
 					cells[newSpec.findColumnIndex(CENTER_LONGITUDE_COLUMN)] = DataType.getMissingCell();
 					cells[newSpec.findColumnIndex(AREA_COLUMN)] = DataType.getMissingCell();
-					setWarningMessage("Invalid Polygon in " + row.getKey());
 				}
 
+				statistics.stop(Stage.POLYGON_CONSTRUCTION, time);
+				statistics.increment(Counter.ROWS);
+
 				return cells;
 			}
 		});
 
 		return rearranger;
 	}
+
+	/**
+	 * @return the port object of the input or null, if the optional port is not
+	 *         connected
+	 */
+	private static PortObject getPortObject(PortInput input) {
+		return input != null ? ((PortObjectInput) input).getPortObject() : null;
+	}
 }
@@ -3,16 +3,26 @@ package de.bund.bfr.knime.esri.polygonreader;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NotConfigurableException;
 import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
 import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
 import org.knime.core.node.defaultnodesettings.DialogComponentFileChooser;
+import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
 import org.knime.core.node.defaultnodesettings.DialogComponentOptionalString;
 import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
 import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelOptionalString;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 
+import de.bund.bfr.knime.esri.CoordinateReference;
 import de.bund.bfr.knime.esri.EsriUtils;
+import de.bund.bfr.knime.esri.ReadMode;
+import de.bund.bfr.knime.esri.ShapefilePreviewPanel;
+import de.bund.bfr.knime.esri.SimplificationMethod;
 
 /**
  * <code>NodeDialog</code> for the "PolygonReader" Node.
@@ -26,13 +36,24 @@ public class PolygonReaderNodeDialog extends DefaultNodeSettingsPane implements
 	private DialogComponentBoolean exteriorDialog;
 	private DialogComponentBoolean splitDialog;
 	private DialogComponentStringSelection charsetDialog;
+	private DialogComponentBoolean statisticsDialog;
+	private DialogComponentStringSelection referenceDialog;
+	private DialogComponentStringSelection simplificationDialog;
+	private DialogComponentNumber toleranceDialog;
+	private DialogComponentOptionalString detailLevelsDialog;
+	private DialogComponentBoolean parallelDialog;
+	private DialogComponentBoolean boundingBoxesDialog;
+	private DialogComponentBoolean spatialOrderDialog;
+	private DialogComponentStringSelection readModeDialog;
+	private DialogComponentNumber sampleSizeDialog;
+	private ShapefilePreviewPanel previewPanel;
 
 	/**
 	 * New pane for configuring the PolygonReader node.
 	 */
 	protected PolygonReaderNodeDialog() {
 		shpDialog = new DialogComponentFileChooser(new SettingsModelString(PolygonReaderNodeModel.CFG_SHP_FILE, null),
-				"ShpFileHistory", ".shp");
+				"ShpFileHistory", ".shp|.zip");
 		shpDialog.setBorderTitle("SHP File");
 		idPrefixDialog = new DialogComponentOptionalString(
 				new SettingsModelOptionalString(PolygonReaderNodeModel.CFG_ROW_ID_PREFIX, null, false),
@@ -50,22 +71,113 @@ public class PolygonReaderNodeDialog extends DefaultNodeSettingsPane implements
 		charsetDialog = new DialogComponentStringSelection(
 				new SettingsModelString(PolygonReaderNodeModel.CFG_CHARSET, PolygonReaderNodeModel.DEFAULT_CHARSET),
 				"Character Encoding", EsriUtils.CHARSETS);
+		referenceDialog = new DialogComponentStringSelection(
+				new SettingsModelString(PolygonReaderNodeModel.CFG_COORDINATE_REFERENCE,
+						PolygonReaderNodeModel.DEFAULT_COORDINATE_REFERENCE),
+				"Reference Coordinates by", CoordinateReference.NAMES);
+		simplificationDialog = new DialogComponentStringSelection(
+				new SettingsModelString(PolygonReaderNodeModel.CFG_SIMPLIFICATION,
+						PolygonReaderNodeModel.DEFAULT_SIMPLIFICATION),
+				"Simplification", SimplificationMethod.NAMES);
+		simplificationDialog.getModel().addChangeListener(this);
+		toleranceDialog = new DialogComponentNumber(
+				new SettingsModelDoubleBounded(PolygonReaderNodeModel.CFG_SIMPLIFICATION_TOLERANCE,
+						PolygonReaderNodeModel.DEFAULT_SIMPLIFICATION_TOLERANCE, 0.0, Double.MAX_VALUE),
+				"Simplification Tolerance", 0.001);
+		detailLevelsDialog = new DialogComponentOptionalString(
+				new SettingsModelOptionalString(PolygonReaderNodeModel.CFG_DETAIL_LEVELS, null, false),
+				"Additional Levels of Detail (Tolerances)");
+		parallelDialog = new DialogComponentBoolean(
+				new SettingsModelBoolean(PolygonReaderNodeModel.CFG_PARALLEL_ATTRIBUTE_DECODING,
+						PolygonReaderNodeModel.DEFAULT_PARALLEL_ATTRIBUTE_DECODING),
+				"Decode Attributes in Parallel");
+		boundingBoxesDialog = new DialogComponentBoolean(
+				new SettingsModelBoolean(PolygonReaderNodeModel.CFG_BOUNDING_BOXES_ONLY,
+						PolygonReaderNodeModel.DEFAULT_BOUNDING_BOXES_ONLY),
+				"Read Bounding Boxes Only");
+		boundingBoxesDialog.getModel().addChangeListener(this);
+		spatialOrderDialog = new DialogComponentBoolean(
+				new SettingsModelBoolean(PolygonReaderNodeModel.CFG_SPATIAL_ORDER,
+						PolygonReaderNodeModel.DEFAULT_SPATIAL_ORDER),
+				"Sort Features Spatially (Hilbert Curve)");
+		readModeDialog = new DialogComponentStringSelection(
+				new SettingsModelString(PolygonReaderNodeModel.CFG_READ_MODE, PolygonReaderNodeModel.DEFAULT_READ_MODE),
+				"Read", ReadMode.NAMES);
+		readModeDialog.getModel().addChangeListener(this);
+		sampleSizeDialog = new DialogComponentNumber(
+				new SettingsModelIntegerBounded(PolygonReaderNodeModel.CFG_SAMPLE_SIZE,
+						PolygonReaderNodeModel.DEFAULT_SAMPLE_SIZE, 1, Integer.MAX_VALUE),
+				"Number of Features (N)", 100);
+		previewPanel = new ShapefilePreviewPanel();
+		shpDialog.getModel().addChangeListener(e -> updatePreview());
+		charsetDialog.getModel().addChangeListener(e -> updatePreview());
+		statisticsDialog = new DialogComponentBoolean(
+				new SettingsModelBoolean(PolygonReaderNodeModel.CFG_COLLECT_STATISTICS,
+						PolygonReaderNodeModel.DEFAULT_COLLECT_STATISTICS),
+				"Collect Performance Statistics");
 
 		addDialogComponent(shpDialog);
 		addDialogComponent(idPrefixDialog);
 		addDialogComponent(exteriorDialog);
 		addDialogComponent(splitDialog);
 		addDialogComponent(charsetDialog);
+		addDialogComponent(referenceDialog);
+		addDialogComponent(simplificationDialog);
+		addDialogComponent(toleranceDialog);
+		addDialogComponent(detailLevelsDialog);
+		addDialogComponent(parallelDialog);
+		addDialogComponent(boundingBoxesDialog);
+		addDialogComponent(spatialOrderDialog);
+		addDialogComponent(readModeDialog);
+		addDialogComponent(sampleSizeDialog);
+		addDialogComponent(statisticsDialog);
+		addTab("Preview", previewPanel);
+	}
+
+	@Override
+	public void loadAdditionalSettingsFrom(NodeSettingsRO settings, DataTableSpec[] specs)
+			throws NotConfigurableException {
+		stateChanged(null);
+		updatePreview();
+	}
+
+	@Override
+	public void onClose() {
+		previewPanel.cancel();
 	}
 
 	@Override
 	public void stateChanged(ChangeEvent e) {
 		exteriorDialog.getModel().removeChangeListener(this);
 		splitDialog.getModel().removeChangeListener(this);
+		simplificationDialog.getModel().removeChangeListener(this);
+		readModeDialog.getModel().removeChangeListener(this);
+
+		String method = ((SettingsModelString) simplificationDialog.getModel()).getStringValue();
+		boolean geometries = !boundingBoxesDialog.isSelected();
+		boolean sampled = ReadMode.fromName(
+				((SettingsModelString) readModeDialog.getModel()).getStringValue()) != ReadMode.ALL;
 
-		splitDialog.getModel().setEnabled(!exteriorDialog.isSelected());
+		exteriorDialog.getModel().setEnabled(geometries);
+		splitDialog.getModel().setEnabled(geometries && !exteriorDialog.isSelected());
+		referenceDialog.getModel().setEnabled(geometries);
+		simplificationDialog.getModel().setEnabled(geometries);
+		toleranceDialog.getModel()
+				.setEnabled(geometries && SimplificationMethod.fromName(method) != SimplificationMethod.NONE);
+		detailLevelsDialog.getModel().setEnabled(geometries);
+		parallelDialog.getModel().setEnabled(geometries && !sampled);
+		spatialOrderDialog.getModel().setEnabled(geometries);
+		readModeDialog.getModel().setEnabled(geometries);
+		sampleSizeDialog.getModel().setEnabled(geometries && sampled);
 
 		exteriorDialog.getModel().addChangeListener(this);
 		splitDialog.getModel().addChangeListener(this);
+		simplificationDialog.getModel().addChangeListener(this);
+		readModeDialog.getModel().addChangeListener(this);
+	}
+
+	private void updatePreview() {
+		previewPanel.update(((SettingsModelString) shpDialog.getModel()).getStringValue(),
+				((SettingsModelString) charsetDialog.getModel()).getStringValue());
 	}
 }
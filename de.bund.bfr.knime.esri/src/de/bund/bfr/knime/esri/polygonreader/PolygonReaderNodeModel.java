@@ -7,51 +7,38 @@ import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
 import java.nio.file.InvalidPathException;
 import java.nio.file.NoSuchFileException;
-import java.util.ArrayList;
-import java.util.List;
 
 import org.geotools.data.shapefile.ShapefileDataStore;
-import org.geotools.data.simple.SimpleFeatureIterator;
-import org.geotools.data.store.ContentFeatureCollection;
-import org.geotools.geometry.jts.JTS;
+import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.referencing.CRS;
 import org.geotools.referencing.operation.projection.MapProjection;
-import org.knime.core.data.DataCell;
-import org.knime.core.data.DataColumnSpec;
-import org.knime.core.data.DataColumnSpecCreator;
 import org.knime.core.data.DataTableSpec;
-import org.knime.core.data.DataType;
-import org.knime.core.data.collection.CollectionCellFactory;
-import org.knime.core.data.collection.ListCell;
-import org.knime.core.data.def.BooleanCell;
-import org.knime.core.data.def.BooleanCell.BooleanCellFactory;
-import org.knime.core.data.def.DefaultRow;
-import org.knime.core.data.def.DoubleCell;
-import org.knime.core.data.def.IntCell;
-import org.knime.core.data.def.StringCell;
 import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
 import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelOptionalString;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
-import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.Geometry;
-import org.locationtech.jts.geom.LineString;
-import org.locationtech.jts.geom.Polygon;
-import org.opengis.feature.Property;
-import org.opengis.feature.simple.SimpleFeature;
-import org.opengis.feature.simple.SimpleFeatureType;
-import org.opengis.feature.type.AttributeType;
 import org.opengis.referencing.operation.MathTransform;
 
+import de.bund.bfr.knime.esri.CoordinateReference;
+import de.bund.bfr.knime.esri.DbaseRecordReader;
+import de.bund.bfr.knime.esri.EsriStatistics;
 import de.bund.bfr.knime.esri.EsriUtils;
+import de.bund.bfr.knime.esri.PolygonFeatureReader;
+import de.bund.bfr.knime.esri.ReadMode;
+import de.bund.bfr.knime.esri.ShapefileEnvelopeReader;
+import de.bund.bfr.knime.esri.ShapefileSampler;
+import de.bund.bfr.knime.esri.SimplificationMethod;
 
 /**
  * This is the model implementation of PolygonReader.
@@ -66,19 +53,47 @@ public class PolygonReaderNodeModel extends NodeModel {
 	protected static final String CFG_GET_EXTERIOR_POLYGON = "GetExteriorPolygon";
 	protected static final String CFG_SPLIT_POLYGONS_WITH_HOLES = "SplitPolygonsWithHoles";
 	protected static final String CFG_CHARSET = "Charset";
+	protected static final String CFG_COLLECT_STATISTICS = "CollectStatistics";
+	protected static final String CFG_COORDINATE_REFERENCE = "CoordinateReference";
+	protected static final String CFG_SIMPLIFICATION = "Simplification";
+	protected static final String CFG_SIMPLIFICATION_TOLERANCE = "SimplificationTolerance";
+	protected static final String CFG_DETAIL_LEVELS = "DetailLevels";
+	protected static final String CFG_PARALLEL_ATTRIBUTE_DECODING = "ParallelAttributeDecoding";
+	protected static final String CFG_BOUNDING_BOXES_ONLY = "BoundingBoxesOnly";
+	protected static final String CFG_SPATIAL_ORDER = "SpatialOrder";
+	protected static final String CFG_READ_MODE = "ReadMode";
+	protected static final String CFG_SAMPLE_SIZE = "SampleSize";
 
 	protected static final boolean DEFAULT_GET_EXTERIOR_POLYGON = false;
 	protected static final boolean DEFAULT_SPLIT_POLYGONS_WITH_HOLES = true;
 	protected static final String DEFAULT_CHARSET = StandardCharsets.UTF_8.name();
-
-	private static final String LATITUDE_COLUMN = "Latitude";
-	private static final String LONGITUDE_COLUMN = "Longitude";
+	protected static final boolean DEFAULT_COLLECT_STATISTICS = false;
+	protected static final String DEFAULT_COORDINATE_REFERENCE = CoordinateReference.ROW_ID_LIST.toString();
+	protected static final String DEFAULT_SIMPLIFICATION = SimplificationMethod.NONE.toString();
+	protected static final double DEFAULT_SIMPLIFICATION_TOLERANCE = 0.001;
+	protected static final boolean DEFAULT_PARALLEL_ATTRIBUTE_DECODING = false;
+	protected static final boolean DEFAULT_BOUNDING_BOXES_ONLY = false;
+	protected static final boolean DEFAULT_SPATIAL_ORDER = false;
+	protected static final String DEFAULT_READ_MODE = ReadMode.ALL.toString();
+	protected static final int DEFAULT_SAMPLE_SIZE = 1000;
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(PolygonReaderNodeModel.class);
 
 	private SettingsModelString shpFile;
 	private SettingsModelOptionalString rowIdPredix;
 	private SettingsModelBoolean getExteriorPolygon;
 	private SettingsModelBoolean splitPolygonsWithHoles;
 	private SettingsModelString charset;
+	private SettingsModelBoolean collectStatistics;
+	private SettingsModelString coordinateReference;
+	private SettingsModelString simplification;
+	private SettingsModelDoubleBounded simplificationTolerance;
+	private SettingsModelOptionalString detailLevels;
+	private SettingsModelBoolean parallelAttributeDecoding;
+	private SettingsModelBoolean boundingBoxesOnly;
+	private SettingsModelBoolean spatialOrder;
+	private SettingsModelString readMode;
+	private SettingsModelIntegerBounded sampleSize;
 
 	/**
 	 * Constructor for the node model.
@@ -91,6 +106,18 @@ public class PolygonReaderNodeModel extends NodeModel {
 		splitPolygonsWithHoles = new SettingsModelBoolean(CFG_SPLIT_POLYGONS_WITH_HOLES,
 				DEFAULT_SPLIT_POLYGONS_WITH_HOLES);
 		charset = new SettingsModelString(CFG_CHARSET, DEFAULT_CHARSET);
+		collectStatistics = new SettingsModelBoolean(CFG_COLLECT_STATISTICS, DEFAULT_COLLECT_STATISTICS);
+		coordinateReference = new SettingsModelString(CFG_COORDINATE_REFERENCE, DEFAULT_COORDINATE_REFERENCE);
+		simplification = new SettingsModelString(CFG_SIMPLIFICATION, DEFAULT_SIMPLIFICATION);
+		simplificationTolerance = new SettingsModelDoubleBounded(CFG_SIMPLIFICATION_TOLERANCE,
+				DEFAULT_SIMPLIFICATION_TOLERANCE, 0.0, Double.MAX_VALUE);
+		detailLevels = new SettingsModelOptionalString(CFG_DETAIL_LEVELS, null, false);
+		parallelAttributeDecoding = new SettingsModelBoolean(CFG_PARALLEL_ATTRIBUTE_DECODING,
+				DEFAULT_PARALLEL_ATTRIBUTE_DECODING);
+		boundingBoxesOnly = new SettingsModelBoolean(CFG_BOUNDING_BOXES_ONLY, DEFAULT_BOUNDING_BOXES_ONLY);
+		spatialOrder = new SettingsModelBoolean(CFG_SPATIAL_ORDER, DEFAULT_SPATIAL_ORDER);
+		readMode = new SettingsModelString(CFG_READ_MODE, DEFAULT_READ_MODE);
+		sampleSize = new SettingsModelIntegerBounded(CFG_SAMPLE_SIZE, DEFAULT_SAMPLE_SIZE, 1, Integer.MAX_VALUE);
 	}
 
 	/**
@@ -101,118 +128,64 @@ public class PolygonReaderNodeModel extends NodeModel {
 			throws Exception {
 		MapProjection.SKIP_SANITY_CHECKS = true;
 
+		// Archives are only resolved once, since remote archives without
+		// cache headers are downloaded on each call
+		String file = EsriUtils.getShapefile(shpFile.getStringValue()).getPath();
+
+		EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
 		MathTransform transform;
 
 		try {
-			transform = CRS.findMathTransform(EsriUtils.getCoordinateSystem(shpFile.getStringValue()),
-					CRS.decode("EPSG:4326"), true);
+			transform = CRS.findMathTransform(EsriUtils.getCoordinateSystem(file), CRS.decode("EPSG:4326"), true);
 		} catch (FileNotFoundException | NoSuchFileException e) {
 			// Do not use transform
 			transform = null;
 		}
 
-		ShapefileDataStore dataStore = EsriUtils.getDataStore(shpFile.getStringValue(), charset.getStringValue());
-		ContentFeatureCollection collection = dataStore.getFeatureSource().getFeatures();
-		DataTableSpec[] spec = createSpec(collection.getSchema());
-		DataTableSpec spec1 = spec[0];
-		DataTableSpec spec2 = spec[1];
-		BufferedDataContainer container1 = exec.createDataContainer(spec1);
-		BufferedDataContainer container2 = exec.createDataContainer(spec2);
-		int index1 = 0;
-		int index2 = 0;
-		int count = 0;
-
-		try (SimpleFeatureIterator iterator = collection.features()) {
-			while (iterator.hasNext()) {
-				SimpleFeature feature = iterator.next();
-				DataCell[] cells1 = new DataCell[spec1.getNumColumns()];
-				Property geoProperty = null;
-
-				for (Property p : feature.getProperties()) {
-					int column = spec1.findColumnIndex(p.getName().toString());
-					Object value = p.getValue();
-
-					if (value == null) {
-						cells1[column] = DataType.getMissingCell();
-					} else if (value instanceof Geometry) {
-						geoProperty = p;
-					} else if (value instanceof Integer) {
-						cells1[column] = new IntCell((Integer) p.getValue());
-					} else if (value instanceof Double) {
-						cells1[column] = new DoubleCell((Double) p.getValue());
-					} else if (value instanceof Boolean) {
-						cells1[column] = BooleanCellFactory.create((Boolean) p.getValue());
-					} else if (p.getValue().toString().isEmpty()) {
-						cells1[column] = DataType.getMissingCell();
-					} else {
-						cells1[column] = new StringCell(p.getValue().toString());
-					}
-				}
-
-				if (geoProperty == null) {
-					continue;
-				}
-
-				Geometry geo = (Geometry) geoProperty.getValue();
+		ShapefileDataStore dataStore = EsriUtils.getDataStore(file, charset.getStringValue());
+		ReadMode mode = ReadMode.fromName(readMode.getStringValue());
+		BufferedDataTable[] tables;
 
-				if (transform != null) {
-					geo = JTS.transform(geo, transform);
+		try {
+			if (boundingBoxesOnly.getBooleanValue()) {
+				BufferedDataContainer coordinates = exec
+						.createDataContainer(createReader().createSpec(dataStore.getSchema())[1]);
+
+				coordinates.close();
+				tables = new BufferedDataTable[] {
+						ShapefileEnvelopeReader.read(file,
+								rowIdPredix.isActive() ? rowIdPredix.getStringValue() : null, transform, exec,
+								statistics),
+						coordinates.getTable() };
+			} else if (mode != ReadMode.ALL) {
+				try (ShapefileSampler sampler = new ShapefileSampler(file, charset.getStringValue(),
+						dataStore.getSchema())) {
+					SimpleFeatureCollection features = sampler
+							.read(mode.select(sampler.getNumFeatures(), sampleSize.getIntValue()));
+
+					tables = createReader().read(features, transform, exec, statistics);
 				}
-
-				boolean getExterior = getExteriorPolygon.getBooleanValue();
-				boolean removeHoles = !getExterior && splitPolygonsWithHoles.getBooleanValue();
-
-				for (Geometry g : EsriUtils.getSimpleGeometries(geo, removeHoles)) {
-					Coordinate[] coordinates;
-
-					if (g instanceof Polygon && getExterior) {
-						coordinates = ((Polygon) g).getExteriorRing().getCoordinates();
-					} else if (g instanceof Polygon || g instanceof LineString) {
-						coordinates = g.getCoordinates();
-					} else {
-						continue;
-					}
-
-					List<StringCell> rowIdCells = new ArrayList<>();
-
-					for (Coordinate c : coordinates) {
-						DataCell[] cells2 = new DataCell[spec2.getNumColumns()];
-						double lat = transform != null ? c.x : c.y;
-						double lon = transform != null ? c.y : c.x;
-
-						cells2[spec2.findColumnIndex(LATITUDE_COLUMN)] = new DoubleCell(lat);
-						cells2[spec2.findColumnIndex(LONGITUDE_COLUMN)] = new DoubleCell(lon);
-
-						String rowId;
-
-						if (rowIdPredix.isActive()) {
-							rowId = rowIdPredix.getStringValue() + "_" + index2;
-						} else {
-							rowId = String.valueOf(index2);
-						}
-
-						container2.addRowToTable(new DefaultRow(rowId, cells2));
-						rowIdCells.add(new StringCell(rowId));
-						index2++;
-					}
-
-					cells1[spec1.findColumnIndex(geoProperty.getName().toString())] = CollectionCellFactory
-							.createListCell(rowIdCells);
-					container1.addRowToTable(new DefaultRow(String.valueOf(index1), cells1));
-					index1++;
+			} else if (parallelAttributeDecoding.getBooleanValue()) {
+				try (DbaseRecordReader attributes = new DbaseRecordReader(file, charset.getStringValue(),
+						dataStore.getSchema())) {
+					tables = createReader().read(dataStore.getFeatureSource().getFeatures(attributes.createQuery()),
+							attributes, transform, exec, statistics);
 				}
-
-				exec.checkCanceled();
-				exec.setProgress((double) count / (double) collection.size());
-				count++;
+			} else {
+				tables = createReader().read(dataStore.getFeatureSource().getFeatures(), transform, exec,
+						statistics);
 			}
 		} finally {
 			dataStore.dispose();
-			container1.close();
-			container2.close();
 		}
 
-		return new BufferedDataTable[] { container1.getTable(), container2.getTable() };
+		if (statistics.isEnabled()) {
+			statistics.getTimeVariables().forEach(this::pushFlowVariableDouble);
+			statistics.getCountVariables().forEach(this::pushFlowVariableInt);
+			LOGGER.info(statistics);
+		}
+
+		return tables;
 	}
 
 	/**
@@ -231,13 +204,25 @@ public class PolygonReaderNodeModel extends NodeModel {
 			throw new InvalidSettingsException("No file name specified");
 		}
 
+		PolygonFeatureReader reader = createReader();
 		DataTableSpec[] result = null;
 
 		try {
-			ShapefileDataStore dataStore = EsriUtils.getDataStore(shpFile.getStringValue(), charset.getStringValue());
+			File file = EsriUtils.getCachedShapefile(shpFile.getStringValue());
+
+			if (file == null) {
+				// Remote archives are not downloaded before execution
+				return new DataTableSpec[] { null, null };
+			}
+
+			ShapefileDataStore dataStore = EsriUtils.getDataStore(file.getPath(), charset.getStringValue());
 
-			result = createSpec(dataStore.getFeatureSource().getSchema());
+			result = reader.createSpec(dataStore.getFeatureSource().getSchema());
 			dataStore.dispose();
+
+			if (boundingBoxesOnly.getBooleanValue()) {
+				result[0] = ShapefileEnvelopeReader.createSpec();
+			}
 		} catch (InvalidPathException | IOException | UnsupportedCharsetException e) {
 			throw new InvalidSettingsException(e.getMessage());
 		}
@@ -255,6 +240,16 @@ public class PolygonReaderNodeModel extends NodeModel {
 		getExteriorPolygon.saveSettingsTo(settings);
 		splitPolygonsWithHoles.saveSettingsTo(settings);
 		charset.saveSettingsTo(settings);
+		collectStatistics.saveSettingsTo(settings);
+		coordinateReference.saveSettingsTo(settings);
+		simplification.saveSettingsTo(settings);
+		simplificationTolerance.saveSettingsTo(settings);
+		detailLevels.saveSettingsTo(settings);
+		parallelAttributeDecoding.saveSettingsTo(settings);
+		boundingBoxesOnly.saveSettingsTo(settings);
+		spatialOrder.saveSettingsTo(settings);
+		readMode.saveSettingsTo(settings);
+		sampleSize.saveSettingsTo(settings);
 	}
 
 	/**
@@ -275,6 +270,48 @@ public class PolygonReaderNodeModel extends NodeModel {
 			charset.loadSettingsFrom(settings);
 		} catch (InvalidSettingsException e) {
 		}
+
+		try {
+			collectStatistics.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			parallelAttributeDecoding.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			coordinateReference.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			simplification.loadSettingsFrom(settings);
+			simplificationTolerance.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			detailLevels.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			boundingBoxesOnly.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			spatialOrder.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			readMode.loadSettingsFrom(settings);
+			sampleSize.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
 	}
 
 	/**
@@ -295,6 +332,48 @@ public class PolygonReaderNodeModel extends NodeModel {
 			charset.validateSettings(settings);
 		} catch (InvalidSettingsException e) {
 		}
+
+		try {
+			collectStatistics.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			parallelAttributeDecoding.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			coordinateReference.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			simplification.validateSettings(settings);
+			simplificationTolerance.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			detailLevels.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			boundingBoxesOnly.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			spatialOrder.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			readMode.validateSettings(settings);
+			sampleSize.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
 	}
 
 	/**
@@ -313,30 +392,17 @@ public class PolygonReaderNodeModel extends NodeModel {
 			throws IOException, CanceledExecutionException {
 	}
 
-	private static DataTableSpec[] createSpec(SimpleFeatureType type) {
-		List<DataColumnSpec> columns1 = new ArrayList<>();
-
-		for (AttributeType t : type.getTypes()) {
-			if (t == type.getGeometryDescriptor().getType()) {
-				columns1.add(new DataColumnSpecCreator(type.getGeometryDescriptor().getName().toString(),
-						ListCell.getCollectionType(StringCell.TYPE)).createSpec());
-			} else if (t.getBinding() == Integer.class) {
-				columns1.add(new DataColumnSpecCreator(t.getName().toString(), IntCell.TYPE).createSpec());
-			} else if (t.getBinding() == Double.class) {
-				columns1.add(new DataColumnSpecCreator(t.getName().toString(), DoubleCell.TYPE).createSpec());
-			} else if (t.getBinding() == Boolean.class) {
-				columns1.add(new DataColumnSpecCreator(t.getName().toString(), BooleanCell.TYPE).createSpec());
-			} else {
-				columns1.add(new DataColumnSpecCreator(t.getName().toString(), StringCell.TYPE).createSpec());
-			}
-		}
-
-		List<DataColumnSpec> columns2 = new ArrayList<>();
+	private PolygonFeatureReader createReader() throws InvalidSettingsException {
+		PolygonFeatureReader reader = new PolygonFeatureReader(
+				rowIdPredix.isActive() ? rowIdPredix.getStringValue() : null, getExteriorPolygon.getBooleanValue(),
+				splitPolygonsWithHoles.getBooleanValue(),
+				CoordinateReference.fromName(coordinateReference.getStringValue()),
+				SimplificationMethod.fromName(simplification.getStringValue()),
+				simplificationTolerance.getDoubleValue(),
+				detailLevels.isActive() ? PolygonFeatureReader.parseTolerances(detailLevels.getStringValue()) : null);
 
-		columns2.add(new DataColumnSpecCreator(LATITUDE_COLUMN, DoubleCell.TYPE).createSpec());
-		columns2.add(new DataColumnSpecCreator(LONGITUDE_COLUMN, DoubleCell.TYPE).createSpec());
+		reader.setSpatialOrder(spatialOrder.getBooleanValue());
 
-		return new DataTableSpec[] { new DataTableSpec(columns1.toArray(new DataColumnSpec[0])),
-				new DataTableSpec(columns2.toArray(new DataColumnSpec[0])) };
+		return reader;
 	}
 }
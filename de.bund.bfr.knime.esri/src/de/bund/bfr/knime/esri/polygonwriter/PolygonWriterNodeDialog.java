@@ -0,0 +1,94 @@
+package de.bund.bfr.knime.esri.polygonwriter;
+
+import javax.swing.JFileChooser;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.collection.ListDataValue;
+import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
+import org.knime.core.node.defaultnodesettings.DialogComponentFileChooser;
+import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+
+import de.bund.bfr.knime.esri.CoordinateReference;
+import de.bund.bfr.knime.esri.EsriUtils;
+
+/**
+ * <code>NodeDialog</code> for the "PolygonWriter" Node.
+ *
+ *
+ * This node dialog derives from {@link DefaultNodeSettingsPane} which allows
+ * creation of a simple dialog with standard components. If you need a more
+ * complex dialog please derive directly from
+ * {@link org.knime.core.node.NodeDialogPane}.
+ *
+ * @author Christian Thoens
+ */
+public class PolygonWriterNodeDialog extends DefaultNodeSettingsPane implements ChangeListener {
+
+	private SettingsModelString referenceModel;
+	private SettingsModelString polygonModel;
+	private SettingsModelString offsetModel;
+	private SettingsModelString countModel;
+
+	/**
+	 * New pane for configuring the PolygonWriter node.
+	 */
+	@SuppressWarnings("unchecked")
+	protected PolygonWriterNodeDialog() {
+		DialogComponentFileChooser shpDialog = new DialogComponentFileChooser(
+				new SettingsModelString(PolygonWriterNodeModel.CFG_SHP_FILE, null), "ShpFileHistory",
+				JFileChooser.SAVE_DIALOG, ".shp");
+
+		referenceModel = new SettingsModelString(PolygonWriterNodeModel.CFG_COORDINATE_REFERENCE,
+				PolygonWriterNodeModel.DEFAULT_COORDINATE_REFERENCE);
+		polygonModel = new SettingsModelString(PolygonWriterNodeModel.CFG_POLYGON_COLUMN, null);
+		offsetModel = new SettingsModelString(PolygonWriterNodeModel.CFG_POLYGON_OFFSET_COLUMN, null);
+		countModel = new SettingsModelString(PolygonWriterNodeModel.CFG_POLYGON_COUNT_COLUMN, null);
+		referenceModel.addChangeListener(this);
+
+		shpDialog.setBorderTitle("SHP File");
+		addDialogComponent(shpDialog);
+		addDialogComponent(new DialogComponentBoolean(new SettingsModelBoolean(PolygonWriterNodeModel.CFG_OVERWRITE,
+				PolygonWriterNodeModel.DEFAULT_OVERWRITE), "Overwrite Existing Files"));
+		addDialogComponent(new DialogComponentStringSelection(
+				new SettingsModelString(PolygonWriterNodeModel.CFG_CHARSET, PolygonWriterNodeModel.DEFAULT_CHARSET),
+				"Character Encoding", EsriUtils.CHARSETS));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(PolygonWriterNodeModel.CFG_COLLECT_STATISTICS,
+						PolygonWriterNodeModel.DEFAULT_COLLECT_STATISTICS),
+				"Collect Performance Statistics"));
+		createNewGroup("Polygon");
+		addDialogComponent(new DialogComponentStringSelection(referenceModel, "Coordinates Referenced by",
+				CoordinateReference.NAMES));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(polygonModel, "Polygon Column", 0, false, ListDataValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(offsetModel, "Offset Column", 0, false, IntValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(countModel, "Count Column", 0, false, IntValue.class));
+		createNewGroup("Polygon Coordinates");
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonWriterNodeModel.CFG_LATITUDE_COLUMN, null), "Latitude Column", 1,
+				DoubleValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(PolygonWriterNodeModel.CFG_LONGITUDE_COLUMN, null), "Longitude Column", 1,
+				DoubleValue.class));
+		stateChanged(null);
+	}
+
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		boolean useRange = CoordinateReference
+				.fromName(referenceModel.getStringValue()) == CoordinateReference.COORDINATE_RANGE;
+
+		polygonModel.setEnabled(!useRange);
+		offsetModel.setEnabled(useRange);
+		countModel.setEnabled(useRange);
+	}
+}
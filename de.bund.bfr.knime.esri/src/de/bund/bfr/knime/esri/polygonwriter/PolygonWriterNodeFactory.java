@@ -0,0 +1,56 @@
+package de.bund.bfr.knime.esri.polygonwriter;
+
+import org.knime.core.node.NodeDialogPane;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeView;
+
+/**
+ * <code>NodeFactory</code> for the "PolygonWriter" Node.
+ * 
+ *
+ * @author Christian Thoens
+ */
+public class PolygonWriterNodeFactory extends NodeFactory<PolygonWriterNodeModel> {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public PolygonWriterNodeModel createNodeModel() {
+		return new PolygonWriterNodeModel();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getNrNodeViews() {
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeView<PolygonWriterNodeModel> createNodeView(final int viewIndex,
+			final PolygonWriterNodeModel nodeModel) {
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasDialog() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeDialogPane createNodeDialogPane() {
+		return new PolygonWriterNodeDialog();
+	}
+
+}
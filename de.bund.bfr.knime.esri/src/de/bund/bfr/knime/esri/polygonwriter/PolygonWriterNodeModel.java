@@ -0,0 +1,258 @@
+package de.bund.bfr.knime.esri.polygonwriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.data.shapefile.shp.ShapeType;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+
+import de.bund.bfr.knime.esri.CoordinateReference;
+import de.bund.bfr.knime.esri.EsriStatistics;
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+import de.bund.bfr.knime.esri.EsriStatistics.Stage;
+import de.bund.bfr.knime.esri.EsriUtils;
+import de.bund.bfr.knime.esri.PolygonCoordinates;
+import de.bund.bfr.knime.esri.PolygonValidation;
+import de.bund.bfr.knime.esri.ShapefileOutput;
+
+/**
+ * This is the model implementation of PolygonWriter.
+ *
+ *
+ * @author Christian Thoens
+ */
+public class PolygonWriterNodeModel extends NodeModel {
+
+	protected static final String CFG_SHP_FILE = "ShpFile";
+	protected static final String CFG_OVERWRITE = "Overwrite";
+	protected static final String CFG_CHARSET = "Charset";
+	protected static final String CFG_COORDINATE_REFERENCE = "CoordinateReference";
+	protected static final String CFG_POLYGON_COLUMN = "PolygonColumn";
+	protected static final String CFG_POLYGON_OFFSET_COLUMN = "PolygonOffsetColumn";
+	protected static final String CFG_POLYGON_COUNT_COLUMN = "PolygonCountColumn";
+	protected static final String CFG_LATITUDE_COLUMN = "LatitudeColumn";
+	protected static final String CFG_LONGITUDE_COLUMN = "LongitudeColumn";
+	protected static final String CFG_COLLECT_STATISTICS = "CollectStatistics";
+
+	protected static final boolean DEFAULT_OVERWRITE = false;
+	protected static final String DEFAULT_CHARSET = "UTF-8";
+	protected static final String DEFAULT_COORDINATE_REFERENCE = CoordinateReference.ROW_ID_LIST.toString();
+	protected static final boolean DEFAULT_COLLECT_STATISTICS = false;
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(PolygonWriterNodeModel.class);
+
+	private SettingsModelString shpFile;
+	private SettingsModelBoolean overwrite;
+	private SettingsModelString charset;
+	private SettingsModelString coordinateReference;
+	private SettingsModelString polygonColumm;
+	private SettingsModelString polygonOffsetColumm;
+	private SettingsModelString polygonCountColumm;
+	private SettingsModelString latitudeColumm;
+	private SettingsModelString longitudeColumm;
+	private SettingsModelBoolean collectStatistics;
+
+	/**
+	 * Constructor for the node model.
+	 */
+	protected PolygonWriterNodeModel() {
+		super(2, 0);
+		shpFile = new SettingsModelString(CFG_SHP_FILE, null);
+		overwrite = new SettingsModelBoolean(CFG_OVERWRITE, DEFAULT_OVERWRITE);
+		charset = new SettingsModelString(CFG_CHARSET, DEFAULT_CHARSET);
+		coordinateReference = new SettingsModelString(CFG_COORDINATE_REFERENCE, DEFAULT_COORDINATE_REFERENCE);
+		polygonColumm = new SettingsModelString(CFG_POLYGON_COLUMN, null);
+		polygonOffsetColumm = new SettingsModelString(CFG_POLYGON_OFFSET_COLUMN, null);
+		polygonCountColumm = new SettingsModelString(CFG_POLYGON_COUNT_COLUMN, null);
+		latitudeColumm = new SettingsModelString(CFG_LATITUDE_COLUMN, null);
+		longitudeColumm = new SettingsModelString(CFG_LONGITUDE_COLUMN, null);
+		collectStatistics = new SettingsModelBoolean(CFG_COLLECT_STATISTICS, DEFAULT_COLLECT_STATISTICS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
+			throws Exception {
+		EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+		BufferedDataTable polygonTable = inData[0];
+		DataTableSpec spec = polygonTable.getSpec();
+		ShapefileOutput output = new ShapefileOutput(shpFile.getStringValue(), overwrite.getBooleanValue(),
+				charset.getStringValue(), spec, getReferenceColumns(), ShapeType.POLYGON);
+		PolygonValidation validation = new PolygonValidation(false, statistics);
+		// Start of the current stage and number of written polygons
+		long[] time = { statistics.start() };
+		int[] index = { 0 };
+
+		try {
+			PolygonCoordinates.readPolygons(polygonTable, inData[1], polygonColumm.getStringValue(),
+					polygonOffsetColumm.getStringValue(), polygonCountColumm.getStringValue(),
+					latitudeColumm.getStringValue(), longitudeColumm.getStringValue(), getCoordinateReference(),
+					EsriUtils.GEO_FACTORY, validation, statistics, (row, polygon) -> {
+						time[0] = statistics.stop(Stage.POLYGON_CONSTRUCTION, time[0]);
+						output.write(polygon, row);
+						time[0] = statistics.stop(Stage.FEATURE_WRITING, time[0]);
+						statistics.increment(Counter.FEATURES);
+						exec.checkCanceled();
+						exec.setProgress((double) ++index[0] / (double) polygonTable.size());
+					});
+
+			output.close();
+		} catch (Exception e) {
+			output.abort();
+			throw e;
+		}
+
+		if (validation.getWarning() != null) {
+			setWarningMessage(validation.getWarning());
+		}
+
+		if (statistics.isEnabled()) {
+			statistics.getTimeVariables().forEach(this::pushFlowVariableDouble);
+			statistics.getCountVariables().forEach(this::pushFlowVariableInt);
+			LOGGER.info(statistics);
+		}
+
+		return new BufferedDataTable[0];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void reset() {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws InvalidSettingsException {
+		if (shpFile.getStringValue() == null) {
+			throw new InvalidSettingsException("No file name specified");
+		}
+
+		if (getCoordinateReference() == CoordinateReference.ROW_ID_LIST) {
+			EsriUtils.checkColumn("Polygon", polygonColumm, inSpecs[0]);
+		} else {
+			EsriUtils.checkColumn("Polygon Offset", polygonOffsetColumm, inSpecs[0]);
+			EsriUtils.checkColumn("Polygon Count", polygonCountColumm, inSpecs[0]);
+		}
+
+		EsriUtils.checkColumn("Latitude", latitudeColumm, inSpecs[1]);
+		EsriUtils.checkColumn("Longitude", longitudeColumm, inSpecs[1]);
+
+		try {
+			if (!overwrite.getBooleanValue() && ShapefileOutput.exists(shpFile.getStringValue())) {
+				throw new InvalidSettingsException("File \"" + shpFile.getStringValue() + "\" already exists");
+			}
+		} catch (InvalidPathException | IOException e) {
+			throw new InvalidSettingsException(e.getMessage());
+		}
+
+		return new DataTableSpec[0];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveSettingsTo(final NodeSettingsWO settings) {
+		shpFile.saveSettingsTo(settings);
+		overwrite.saveSettingsTo(settings);
+		charset.saveSettingsTo(settings);
+		coordinateReference.saveSettingsTo(settings);
+		polygonColumm.saveSettingsTo(settings);
+		polygonOffsetColumm.saveSettingsTo(settings);
+		polygonCountColumm.saveSettingsTo(settings);
+		latitudeColumm.saveSettingsTo(settings);
+		longitudeColumm.saveSettingsTo(settings);
+		collectStatistics.saveSettingsTo(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+		shpFile.loadSettingsFrom(settings);
+		overwrite.loadSettingsFrom(settings);
+		charset.loadSettingsFrom(settings);
+		coordinateReference.loadSettingsFrom(settings);
+		polygonColumm.loadSettingsFrom(settings);
+		polygonOffsetColumm.loadSettingsFrom(settings);
+		polygonCountColumm.loadSettingsFrom(settings);
+		latitudeColumm.loadSettingsFrom(settings);
+		longitudeColumm.loadSettingsFrom(settings);
+		collectStatistics.loadSettingsFrom(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+		shpFile.validateSettings(settings);
+		overwrite.validateSettings(settings);
+		charset.validateSettings(settings);
+		coordinateReference.validateSettings(settings);
+		polygonColumm.validateSettings(settings);
+		polygonOffsetColumm.validateSettings(settings);
+		polygonCountColumm.validateSettings(settings);
+		latitudeColumm.validateSettings(settings);
+		longitudeColumm.validateSettings(settings);
+		collectStatistics.validateSettings(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * @return the columns that only reference the coordinates and are
+	 *         therefore not written to the dbf file
+	 */
+	private List<String> getReferenceColumns() {
+		List<String> columns = new ArrayList<>();
+
+		if (getCoordinateReference() == CoordinateReference.ROW_ID_LIST) {
+			columns.add(polygonColumm.getStringValue());
+		} else {
+			columns.add(polygonOffsetColumm.getStringValue());
+			columns.add(polygonCountColumm.getStringValue());
+		}
+
+		return columns;
+	}
+
+	private CoordinateReference getCoordinateReference() {
+		return CoordinateReference.fromName(coordinateReference.getStringValue());
+	}
+}
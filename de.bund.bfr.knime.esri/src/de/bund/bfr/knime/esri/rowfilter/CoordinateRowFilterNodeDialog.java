@@ -1,11 +1,22 @@
 package de.bund.bfr.knime.esri.rowfilter;
 
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
 import org.knime.core.data.DoubleValue;
+import org.knime.core.data.IntValue;
 import org.knime.core.data.collection.ListDataValue;
 import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
 import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
+import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
+import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 
+import de.bund.bfr.knime.esri.CoordinateReference;
+
 /**
  * <code>NodeDialog</code> for the "CoordinateRowFilter" Node.
  * 
@@ -17,7 +28,14 @@ import org.knime.core.node.defaultnodesettings.SettingsModelString;
  * 
  * @author Christian Thoens
  */
-public class CoordinateRowFilterNodeDialog extends DefaultNodeSettingsPane {
+public class CoordinateRowFilterNodeDialog extends DefaultNodeSettingsPane implements ChangeListener {
+
+	private SettingsModelString referenceModel;
+	private SettingsModelString polygonModel;
+	private SettingsModelString offsetModel;
+	private SettingsModelString countModel;
+	private SettingsModelBoolean gridModel;
+	private SettingsModelIntegerBounded resolutionModel;
 
 	/**
 	 * New pane for configuring the CoordinateRowFilter node.
@@ -31,16 +49,60 @@ public class CoordinateRowFilterNodeDialog extends DefaultNodeSettingsPane {
 		addDialogComponent(new DialogComponentColumnNameSelection(
 				new SettingsModelString(CoordinateRowFilterNodeModel.CFG_LONGITUDE_COLUMN, null), "Longitude Column", 0,
 				DoubleValue.class));
+		referenceModel = new SettingsModelString(CoordinateRowFilterNodeModel.CFG_COORDINATE_REFERENCE,
+				CoordinateRowFilterNodeModel.DEFAULT_COORDINATE_REFERENCE);
+		polygonModel = new SettingsModelString(CoordinateRowFilterNodeModel.CFG_POLYGON_COLUMN, null);
+		offsetModel = new SettingsModelString(CoordinateRowFilterNodeModel.CFG_POLYGON_OFFSET_COLUMN, null);
+		countModel = new SettingsModelString(CoordinateRowFilterNodeModel.CFG_POLYGON_COUNT_COLUMN, null);
+		gridModel = new SettingsModelBoolean(CoordinateRowFilterNodeModel.CFG_USE_LOOKUP_GRID,
+				CoordinateRowFilterNodeModel.DEFAULT_USE_LOOKUP_GRID);
+		resolutionModel = new SettingsModelIntegerBounded(CoordinateRowFilterNodeModel.CFG_GRID_RESOLUTION,
+				CoordinateRowFilterNodeModel.DEFAULT_GRID_RESOLUTION, 1, 4096);
+		referenceModel.addChangeListener(this);
+		gridModel.addChangeListener(this);
+
 		createNewGroup("Polygon");
-		addDialogComponent(new DialogComponentColumnNameSelection(
-				new SettingsModelString(CoordinateRowFilterNodeModel.CFG_POLYGON_COLUMN, null), "Polygon Column", 1,
-				ListDataValue.class));
+		addDialogComponent(new DialogComponentStringSelection(referenceModel, "Coordinates Referenced by",
+				CoordinateReference.NAMES));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(polygonModel, "Polygon Column", 1, false, ListDataValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(offsetModel, "Offset Column", 1, false, IntValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(countModel, "Count Column", 1, false, IntValue.class));
 		createNewGroup("Polygon Coordinates");
 		addDialogComponent(new DialogComponentColumnNameSelection(
 				new SettingsModelString(CoordinateRowFilterNodeModel.CFG_POLYGON_LATITUDE_COLUMN, null),
-				"Latitude Column", 2, DoubleValue.class));
+				"Latitude Column", 2, false, DoubleValue.class));
 		addDialogComponent(new DialogComponentColumnNameSelection(
 				new SettingsModelString(CoordinateRowFilterNodeModel.CFG_POLYGON_LONGITUDE_COLUMN, null),
-				"Longitude Column", 2, DoubleValue.class));
+				"Longitude Column", 2, false, DoubleValue.class));
+		createNewGroup("Options");
+		addDialogComponent(new DialogComponentBoolean(gridModel, "Use Lookup Grid"));
+		addDialogComponent(new DialogComponentNumber(resolutionModel, "Grid Resolution", 64));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(CoordinateRowFilterNodeModel.CFG_STORE_OFF_HEAP,
+						CoordinateRowFilterNodeModel.DEFAULT_STORE_OFF_HEAP),
+				"Store Polygons Off-Heap"));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(CoordinateRowFilterNodeModel.CFG_REPAIR_POLYGONS,
+						CoordinateRowFilterNodeModel.DEFAULT_REPAIR_POLYGONS),
+				"Repair Invalid Polygons"));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(CoordinateRowFilterNodeModel.CFG_COLLECT_STATISTICS,
+						CoordinateRowFilterNodeModel.DEFAULT_COLLECT_STATISTICS),
+				"Collect Performance Statistics"));
+		stateChanged(null);
+	}
+
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		boolean useRange = CoordinateReference
+				.fromName(referenceModel.getStringValue()) == CoordinateReference.COORDINATE_RANGE;
+
+		polygonModel.setEnabled(!useRange);
+		offsetModel.setEnabled(useRange);
+		countModel.setEnabled(useRange);
+		resolutionModel.setEnabled(gridModel.getBooleanValue());
 	}
 }
@@ -3,27 +3,31 @@ package de.bund.bfr.knime.esri.rowfilter;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import org.knime.core.data.DataCell;
 import org.knime.core.data.DataRow;
 import org.knime.core.data.DataTableSpec;
 import org.knime.core.data.DoubleValue;
-import org.knime.core.data.StringValue;
-import org.knime.core.data.collection.ListDataValue;
 import org.knime.core.node.BufferedDataContainer;
 import org.knime.core.node.BufferedDataTable;
 import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
 import org.knime.core.node.ExecutionMonitor;
 import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
 import org.knime.core.node.NodeModel;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.core.node.port.PortObject;
 import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.port.PortType;
 import org.knime.core.node.streamable.InputPortRole;
 import org.knime.core.node.streamable.OutputPortRole;
 import org.knime.core.node.streamable.PartitionInfo;
@@ -34,12 +38,21 @@ import org.knime.core.node.streamable.RowInput;
 import org.knime.core.node.streamable.RowOutput;
 import org.knime.core.node.streamable.StreamableOperator;
 import org.locationtech.jts.geom.Coordinate;
-import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Polygon;
 
-import com.google.common.collect.Iterables;
-
+import de.bund.bfr.knime.esri.CoordinateReference;
+import de.bund.bfr.knime.esri.EsriStatistics;
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+import de.bund.bfr.knime.esri.EsriStatistics.Stage;
 import de.bund.bfr.knime.esri.EsriUtils;
+import de.bund.bfr.knime.esri.OffHeapGeometryStore;
+import de.bund.bfr.knime.esri.PolygonCoordinates;
+import de.bund.bfr.knime.esri.PolygonGrid;
+import de.bund.bfr.knime.esri.PolygonIndex;
+import de.bund.bfr.knime.esri.PolygonValidation;
+import de.bund.bfr.knime.esri.SpatialIndexPortObject;
+import de.bund.bfr.knime.esri.TaskQueue;
 
 /**
  * This is the model implementation of CoordinateRowFilter.
@@ -54,50 +67,116 @@ public class CoordinateRowFilterNodeModel extends NodeModel {
 	protected static final String CFG_POLYGON_COLUMN = "PolygonColumn";
 	protected static final String CFG_POLYGON_LATITUDE_COLUMN = "PolygonLatitudeColumn";
 	protected static final String CFG_POLYGON_LONGITUDE_COLUMN = "PolygonLongitudeColumn";
+	protected static final String CFG_COLLECT_STATISTICS = "CollectStatistics";
+	protected static final String CFG_COORDINATE_REFERENCE = "CoordinateReference";
+	protected static final String CFG_POLYGON_OFFSET_COLUMN = "PolygonOffsetColumn";
+	protected static final String CFG_POLYGON_COUNT_COLUMN = "PolygonCountColumn";
+	protected static final String CFG_USE_LOOKUP_GRID = "UseLookupGrid";
+	protected static final String CFG_GRID_RESOLUTION = "GridResolution";
+	protected static final String CFG_STORE_OFF_HEAP = "StoreOffHeap";
+	protected static final String CFG_REPAIR_POLYGONS = "RepairPolygons";
+
+	protected static final boolean DEFAULT_COLLECT_STATISTICS = false;
+	protected static final String DEFAULT_COORDINATE_REFERENCE = CoordinateReference.ROW_ID_LIST.toString();
+	protected static final boolean DEFAULT_USE_LOOKUP_GRID = false;
+	protected static final int DEFAULT_GRID_RESOLUTION = 256;
+	protected static final boolean DEFAULT_STORE_OFF_HEAP = false;
+	protected static final boolean DEFAULT_REPAIR_POLYGONS = false;
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(CoordinateRowFilterNodeModel.class);
+
+	private static final int BATCH_SIZE = 1024;
 
 	private SettingsModelString latitudeColumm;
 	private SettingsModelString longitudeColumm;
 	private SettingsModelString polygonColumm;
 	private SettingsModelString polygonLatitudeColumm;
 	private SettingsModelString polygonLongitudeColumm;
+	private SettingsModelBoolean collectStatistics;
+	private SettingsModelString coordinateReference;
+	private SettingsModelString polygonOffsetColumm;
+	private SettingsModelString polygonCountColumm;
+	private SettingsModelBoolean useLookupGrid;
+	private SettingsModelIntegerBounded gridResolution;
+	private SettingsModelBoolean storeOffHeap;
+	private SettingsModelBoolean repairPolygons;
+
+	private List<Object> gridKey;
+	private PolygonGrid grid;
 
 	/**
 	 * Constructor for the node model.
 	 */
 	protected CoordinateRowFilterNodeModel() {
-		super(3, 1);
+		super(new PortType[] { BufferedDataTable.TYPE, BufferedDataTable.TYPE_OPTIONAL,
+				BufferedDataTable.TYPE_OPTIONAL, SpatialIndexPortObject.TYPE_OPTIONAL },
+				new PortType[] { BufferedDataTable.TYPE });
 		latitudeColumm = new SettingsModelString(CFG_LATITUDE_COLUMN, null);
 		longitudeColumm = new SettingsModelString(CFG_LONGITUDE_COLUMN, null);
 		polygonColumm = new SettingsModelString(CFG_POLYGON_COLUMN, null);
 		polygonLatitudeColumm = new SettingsModelString(CFG_POLYGON_LATITUDE_COLUMN, null);
 		polygonLongitudeColumm = new SettingsModelString(CFG_POLYGON_LONGITUDE_COLUMN, null);
+		collectStatistics = new SettingsModelBoolean(CFG_COLLECT_STATISTICS, DEFAULT_COLLECT_STATISTICS);
+		coordinateReference = new SettingsModelString(CFG_COORDINATE_REFERENCE, DEFAULT_COORDINATE_REFERENCE);
+		polygonOffsetColumm = new SettingsModelString(CFG_POLYGON_OFFSET_COLUMN, null);
+		polygonCountColumm = new SettingsModelString(CFG_POLYGON_COUNT_COLUMN, null);
+		useLookupGrid = new SettingsModelBoolean(CFG_USE_LOOKUP_GRID, DEFAULT_USE_LOOKUP_GRID);
+		gridResolution = new SettingsModelIntegerBounded(CFG_GRID_RESOLUTION, DEFAULT_GRID_RESOLUTION, 1, 4096);
+		storeOffHeap = new SettingsModelBoolean(CFG_STORE_OFF_HEAP, DEFAULT_STORE_OFF_HEAP);
+		repairPolygons = new SettingsModelBoolean(CFG_REPAIR_POLYGONS, DEFAULT_REPAIR_POLYGONS);
+		gridKey = null;
+		grid = null;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
-			throws Exception {
-		BufferedDataTable coordinateTable = inData[0];
-		MultiPolygon polygon = createPolygon(inData[1], inData[2]);
+	protected PortObject[] execute(final PortObject[] inObjects, final ExecutionContext exec) throws Exception {
+		EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+		BufferedDataTable coordinateTable = (BufferedDataTable) inObjects[0];
+		CoordinateFilter polygon = createFilter((BufferedDataTable) inObjects[1], (BufferedDataTable) inObjects[2],
+				(SpatialIndexPortObject) inObjects[3], statistics);
 		BufferedDataContainer container = exec.createDataContainer(coordinateTable.getSpec());
-		int index = 0;
+		int latIndex = coordinateTable.getSpec().findColumnIndex(latitudeColumm.getStringValue());
+		int lonIndex = coordinateTable.getSpec().findColumnIndex(longitudeColumm.getStringValue());
+		List<DataRow> rows = new ArrayList<>(BATCH_SIZE);
+		long index = 0;
 
 		try {
-			for (DataRow row : coordinateTable) {
-				if (isRowInFilter(row, coordinateTable.getSpec(), polygon)) {
-					container.addRowToTable(row);
+			for (Iterator<DataRow> iterator = coordinateTable.iterator(); iterator.hasNext();) {
+				rows.add(iterator.next());
+
+				if (rows.size() < BATCH_SIZE && iterator.hasNext()) {
+					continue;
+				}
+
+				boolean[] inFilter = filterRows(rows, latIndex, lonIndex, polygon, statistics);
+				long time = statistics.start();
+
+				for (int i = 0; i < inFilter.length; i++) {
+					if (inFilter[i]) {
+						container.addRowToTable(rows.get(i));
+						statistics.increment(Counter.ROWS);
+					}
 				}
 
+				statistics.stop(Stage.ROW_WRITING, time);
+				index += rows.size();
+				rows.clear();
 				exec.checkCanceled();
 				exec.setProgress((double) index / (double) coordinateTable.size());
-				index++;
 			}
 		} finally {
 			container.close();
 		}
 
+		if (statistics.isEnabled()) {
+			statistics.getTimeVariables().forEach(this::pushFlowVariableDouble);
+			statistics.getCountVariables().forEach(this::pushFlowVariableInt);
+			LOGGER.info(statistics);
+		}
+
 		return new BufferedDataTable[] { container.getTable() };
 	}
 
@@ -109,25 +188,58 @@ public class CoordinateRowFilterNodeModel extends NodeModel {
 			@Override
 			public void runFinal(final PortInput[] inputs, final PortOutput[] outputs, final ExecutionContext exec)
 					throws Exception {
-				MultiPolygon polygon = createPolygon((BufferedDataTable) ((PortObjectInput) inputs[1]).getPortObject(),
-						(BufferedDataTable) ((PortObjectInput) inputs[2]).getPortObject());
+				EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+				CoordinateFilter polygon = createFilter((BufferedDataTable) getPortObject(inputs[1]),
+						(BufferedDataTable) getPortObject(inputs[2]), (SpatialIndexPortObject) getPortObject(inputs[3]),
+						statistics);
 				RowInput input = (RowInput) inputs[0];
 				RowOutput output = (RowOutput) outputs[0];
-				DataRow inputRow;
-				int index = 0;
+				int latIndex = input.getDataTableSpec().findColumnIndex(latitudeColumm.getStringValue());
+				int lonIndex = input.getDataTableSpec().findColumnIndex(longitudeColumm.getStringValue());
+				TaskQueue<RowBatch> tasks = new TaskQueue<>();
+				boolean finished = false;
+				long index = 0;
 
 				try {
-					while ((inputRow = input.poll()) != null) {
-						if (isRowInFilter(inputRow, input.getDataTableSpec(), polygon)) {
-							output.push(inputRow);
-							exec.setMessage(String.format("Row %d (\"%s\"))", index, inputRow.getKey()));
-							index++;
+					while (!finished || !tasks.isEmpty()) {
+						if (!finished) {
+							List<DataRow> rows = pollRows(input);
+
+							finished = rows.size() < BATCH_SIZE;
+
+							if (!rows.isEmpty()) {
+								tasks.submit(() -> new RowBatch(rows,
+										filterRows(rows, latIndex, lonIndex, polygon, statistics)));
+							}
+						}
+
+						if (!tasks.isEmpty() && (finished || tasks.isFull())) {
+							RowBatch batch = tasks.take();
+							boolean[] inFilter = batch.inFilter;
+							long time = statistics.start();
+
+							for (int i = 0; i < inFilter.length; i++) {
+								if (inFilter[i]) {
+									output.push(batch.rows.get(i));
+									statistics.increment(Counter.ROWS);
+								}
+							}
+
+							statistics.stop(Stage.ROW_WRITING, time);
+							index += inFilter.length;
+							exec.setMessage("Row " + index);
+							exec.checkCanceled();
 						}
 					}
 				} finally {
+					tasks.close();
 					input.close();
 					output.close();
 				}
+
+				if (statistics.isEnabled()) {
+					LOGGER.info(statistics);
+				}
 			}
 		};
 	}
@@ -138,7 +250,7 @@ public class CoordinateRowFilterNodeModel extends NodeModel {
 	@Override
 	public InputPortRole[] getInputPortRoles() {
 		return new InputPortRole[] { InputPortRole.DISTRIBUTED_STREAMABLE, InputPortRole.NONDISTRIBUTED_NONSTREAMABLE,
-				InputPortRole.NONDISTRIBUTED_NONSTREAMABLE };
+				InputPortRole.NONDISTRIBUTED_NONSTREAMABLE, InputPortRole.NONDISTRIBUTED_NONSTREAMABLE };
 	}
 
 	/**
@@ -160,14 +272,33 @@ public class CoordinateRowFilterNodeModel extends NodeModel {
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws InvalidSettingsException {
-		EsriUtils.checkColumn("Latitude", latitudeColumm, inSpecs[0]);
-		EsriUtils.checkColumn("Longitude", longitudeColumm, inSpecs[0]);
-		EsriUtils.checkColumn("Polygon", polygonColumm, inSpecs[1]);
-		EsriUtils.checkColumn("Polygon Latitude", polygonLatitudeColumm, inSpecs[2]);
-		EsriUtils.checkColumn("Polygon Longitude", polygonLongitudeColumm, inSpecs[2]);
-
-		return new DataTableSpec[] { inSpecs[0] };
+	protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+		DataTableSpec coordinateSpec = (DataTableSpec) inSpecs[0];
+		DataTableSpec polygonSpec = (DataTableSpec) inSpecs[1];
+		DataTableSpec polygonCoordinateSpec = (DataTableSpec) inSpecs[2];
+
+		EsriUtils.checkColumn("Latitude", latitudeColumm, coordinateSpec);
+		EsriUtils.checkColumn("Longitude", longitudeColumm, coordinateSpec);
+
+		if (inSpecs[3] != null) {
+			return new PortObjectSpec[] { coordinateSpec };
+		}
+
+		if (polygonSpec == null || polygonCoordinateSpec == null) {
+			throw new InvalidSettingsException("Polygon tables or spatial index must be connected");
+		}
+
+		if (getCoordinateReference() == CoordinateReference.ROW_ID_LIST) {
+			EsriUtils.checkColumn("Polygon", polygonColumm, polygonSpec);
+		} else {
+			EsriUtils.checkColumn("Polygon Offset", polygonOffsetColumm, polygonSpec);
+			EsriUtils.checkColumn("Polygon Count", polygonCountColumm, polygonSpec);
+		}
+
+		EsriUtils.checkColumn("Polygon Latitude", polygonLatitudeColumm, polygonCoordinateSpec);
+		EsriUtils.checkColumn("Polygon Longitude", polygonLongitudeColumm, polygonCoordinateSpec);
+
+		return new PortObjectSpec[] { coordinateSpec };
 	}
 
 	/**
@@ -180,6 +311,14 @@ public class CoordinateRowFilterNodeModel extends NodeModel {
 		polygonColumm.saveSettingsTo(settings);
 		polygonLatitudeColumm.saveSettingsTo(settings);
 		polygonLongitudeColumm.saveSettingsTo(settings);
+		collectStatistics.saveSettingsTo(settings);
+		coordinateReference.saveSettingsTo(settings);
+		polygonOffsetColumm.saveSettingsTo(settings);
+		polygonCountColumm.saveSettingsTo(settings);
+		useLookupGrid.saveSettingsTo(settings);
+		gridResolution.saveSettingsTo(settings);
+		storeOffHeap.saveSettingsTo(settings);
+		repairPolygons.saveSettingsTo(settings);
 	}
 
 	/**
@@ -192,6 +331,34 @@ public class CoordinateRowFilterNodeModel extends NodeModel {
 		polygonColumm.loadSettingsFrom(settings);
 		polygonLatitudeColumm.loadSettingsFrom(settings);
 		polygonLongitudeColumm.loadSettingsFrom(settings);
+
+		try {
+			collectStatistics.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			coordinateReference.loadSettingsFrom(settings);
+			polygonOffsetColumm.loadSettingsFrom(settings);
+			polygonCountColumm.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			useLookupGrid.loadSettingsFrom(settings);
+			gridResolution.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			storeOffHeap.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			repairPolygons.loadSettingsFrom(settings);
+		} catch (InvalidSettingsException e) {
+		}
 	}
 
 	/**
@@ -204,6 +371,43 @@ public class CoordinateRowFilterNodeModel extends NodeModel {
 		polygonColumm.validateSettings(settings);
 		polygonLatitudeColumm.validateSettings(settings);
 		polygonLongitudeColumm.validateSettings(settings);
+
+		try {
+			collectStatistics.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			coordinateReference.validateSettings(settings);
+			polygonOffsetColumm.validateSettings(settings);
+			polygonCountColumm.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			useLookupGrid.validateSettings(settings);
+			gridResolution.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			storeOffHeap.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+
+		try {
+			repairPolygons.validateSettings(settings);
+		} catch (InvalidSettingsException e) {
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected synchronized void onDispose() {
+		gridKey = null;
+		grid = null;
 	}
 
 	/**
@@ -222,54 +426,190 @@ public class CoordinateRowFilterNodeModel extends NodeModel {
 			throws IOException, CanceledExecutionException {
 	}
 
-	private MultiPolygon createPolygon(BufferedDataTable polygonTable, BufferedDataTable polygonCoordinateTable) {
-		Map<String, Coordinate> polygonCoordinateMap = new LinkedHashMap<>();
+	/**
+	 * @param spatialIndex
+	 *            if not null, its polygons are used and the polygon tables are
+	 *            ignored
+	 * @return tests whether coordinates lie within one of the polygons, either
+	 *         directly on the polygon index or via the lookup grid
+	 */
+	private CoordinateFilter createFilter(BufferedDataTable polygonTable, BufferedDataTable polygonCoordinateTable,
+			SpatialIndexPortObject spatialIndex, EsriStatistics statistics)
+			throws InterruptedException, ExecutionException {
+		if (!useLookupGrid.getBooleanValue()) {
+			return createIndex(polygonTable, polygonCoordinateTable, spatialIndex, statistics)::contains;
+		}
+
+		PolygonGrid polygonGrid = getGrid(polygonTable, polygonCoordinateTable, spatialIndex, statistics);
 
-		for (DataRow row : polygonCoordinateTable) {
-			DataCell latitudeCell = row
-					.getCell(polygonCoordinateTable.getSpec().findColumnIndex(polygonLatitudeColumm.getStringValue()));
-			DataCell longitudeCell = row
-					.getCell(polygonCoordinateTable.getSpec().findColumnIndex(polygonLongitudeColumm.getStringValue()));
+		return (lat, lon) -> {
+			boolean[] inFilter = new boolean[lat.length];
 
-			if (latitudeCell instanceof DoubleValue && longitudeCell instanceof DoubleValue) {
-				polygonCoordinateMap.put(row.getKey().getString(), new Coordinate(
-						((DoubleValue) latitudeCell).getDoubleValue(), ((DoubleValue) longitudeCell).getDoubleValue()));
+			for (int i = 0; i < inFilter.length; i++) {
+				inFilter[i] = polygonGrid.contains(new Coordinate(lat[i], lon[i]), statistics);
 			}
+
+			return inFilter;
+		};
+	}
+
+	/**
+	 * The grid is cached as long as the polygon tables (identified by their
+	 * table IDs) and the polygon settings do not change, so that repeated
+	 * executions (e.g. in a loop or on multiple streaming partitions) with the
+	 * same polygons only build it once. A spatial index is identified by the
+	 * port object instance.
+	 */
+	private synchronized PolygonGrid getGrid(BufferedDataTable polygonTable,
+			BufferedDataTable polygonCoordinateTable, SpatialIndexPortObject spatialIndex, EsriStatistics statistics)
+			throws InterruptedException, ExecutionException {
+		List<Object> key;
+
+		if (spatialIndex != null) {
+			key = Arrays.asList(spatialIndex, gridResolution.getIntValue());
+		} else {
+			key = Arrays.asList(polygonTable.getBufferedTableId(), polygonCoordinateTable.getBufferedTableId(),
+					coordinateReference.getStringValue(), polygonColumm.getStringValue(),
+					polygonOffsetColumm.getStringValue(), polygonCountColumm.getStringValue(),
+					polygonLatitudeColumm.getStringValue(), polygonLongitudeColumm.getStringValue(),
+					gridResolution.getIntValue(), storeOffHeap.getBooleanValue(), repairPolygons.getBooleanValue());
+		}
+
+		if (!key.equals(gridKey)) {
+			PolygonIndex index = createIndex(polygonTable, polygonCoordinateTable, spatialIndex, statistics);
+			long time = statistics.start();
+
+			grid = new PolygonGrid(index, gridResolution.getIntValue());
+			gridKey = key;
+			statistics.stop(Stage.GRID_CONSTRUCTION, time);
+			LOGGER.debug(String.format("Lookup grid built, %.1f%% boundary cells", 100.0 * grid.getBoundaryFraction()));
 		}
 
+		return grid;
+	}
+
+	/**
+	 * If the polygons are stored off-heap, the polygon segments are not indexed,
+	 * since the index would again create heap objects for each segment. With a
+	 * spatial index its polygons are used as they are, so the off-heap and
+	 * repair options do not apply.
+	 */
+	private PolygonIndex createIndex(BufferedDataTable polygonTable, BufferedDataTable polygonCoordinateTable,
+			SpatialIndexPortObject spatialIndex, EsriStatistics statistics)
+			throws InterruptedException, ExecutionException {
+		long time = statistics.start();
+
+		if (spatialIndex != null) {
+			PolygonIndex index = spatialIndex.getIndex();
+
+			statistics.count(Counter.FEATURES, index.size());
+			statistics.stop(Stage.POLYGON_CONSTRUCTION, time);
+
+			return index;
+		}
+
+		boolean offHeap = storeOffHeap.getBooleanValue();
+		OffHeapGeometryStore store = offHeap ? new OffHeapGeometryStore() : null;
+		GeometryFactory factory = offHeap ? store.getGeometryFactory() : EsriUtils.GEO_FACTORY;
+		PolygonValidation validation = new PolygonValidation(repairPolygons.getBooleanValue(), statistics);
+		List<String> keys = new ArrayList<>();
 		List<Polygon> polygons = new ArrayList<>();
 
-		for (DataRow row : polygonTable) {
-			DataCell polygonCell = row.getCell(polygonTable.getSpec().findColumnIndex(polygonColumm.getStringValue()));
-			List<Coordinate> coordinates = new ArrayList<>();
+		PolygonCoordinates.readPolygons(polygonTable, polygonCoordinateTable, polygonColumm.getStringValue(),
+				polygonOffsetColumm.getStringValue(), polygonCountColumm.getStringValue(),
+				polygonLatitudeColumm.getStringValue(), polygonLongitudeColumm.getStringValue(),
+				getCoordinateReference(), factory, validation, statistics, (row, polygon) -> {
+					keys.add(row.getKey().getString());
+					polygons.add(polygon);
+				});
 
-			if (polygonCell instanceof ListDataValue) {
-				for (StringValue cell : Iterables.filter((ListDataValue) polygonCell, StringValue.class)) {
-					Coordinate c = polygonCoordinateMap.get(cell.getStringValue());
+		validation.repair(keys, polygons);
 
-					if (c != null) {
-						coordinates.add(c);
-					}
-				}
-			}
+		validation.checkDetailLevels(polygonTable);
+
+		if (validation.getWarning() != null) {
+			setWarningMessage(validation.getWarning());
+		}
 
-			try {
-				polygons.add(EsriUtils.createPolygon(coordinates));
-			} catch (IndexOutOfBoundsException | IllegalArgumentException e) {
-				setWarningMessage("Invalid Polygon in " + row.getKey());
+		PolygonIndex index = new PolygonIndex(keys, polygons, !offHeap);
+
+		statistics.count(Counter.FEATURES, polygons.size());
+		statistics.stop(Stage.POLYGON_CONSTRUCTION, time);
+
+		if (offHeap) {
+			LOGGER.debug(String.format("%d bytes of polygon coordinates stored off-heap", store.getAllocatedBytes()));
+		}
+
+		return index;
+	}
+
+	private CoordinateReference getCoordinateReference() {
+		return CoordinateReference.fromName(coordinateReference.getStringValue());
+	}
+
+	/**
+	 * @return the port object of the input or null, if the optional port is not
+	 *         connected
+	 */
+	private static PortObject getPortObject(PortInput input) {
+		return input != null ? ((PortObjectInput) input).getPortObject() : null;
+	}
+
+	private static List<DataRow> pollRows(RowInput input) throws InterruptedException {
+		List<DataRow> rows = new ArrayList<>(BATCH_SIZE);
+		DataRow row;
+
+		while (rows.size() < BATCH_SIZE && (row = input.poll()) != null) {
+			rows.add(row);
+		}
+
+		return rows;
+	}
+
+	/**
+	 * Rows with missing coordinates get NaN coordinates, which are not contained
+	 * in any polygon.
+	 */
+	private static boolean[] filterRows(List<DataRow> rows, int latIndex, int lonIndex, CoordinateFilter polygon,
+			EsriStatistics statistics) {
+		long time = statistics.start();
+		double[] lat = new double[rows.size()];
+		double[] lon = new double[rows.size()];
+
+		for (int i = 0; i < rows.size(); i++) {
+			DataCell latitudeCell = rows.get(i).getCell(latIndex);
+			DataCell longitudeCell = rows.get(i).getCell(lonIndex);
+
+			if (latitudeCell instanceof DoubleValue && longitudeCell instanceof DoubleValue) {
+				lat[i] = ((DoubleValue) latitudeCell).getDoubleValue();
+				lon[i] = ((DoubleValue) longitudeCell).getDoubleValue();
+			} else {
+				lat[i] = Double.NaN;
+				lon[i] = Double.NaN;
 			}
 		}
 
-		return EsriUtils.GEO_FACTORY.createMultiPolygon(polygons.toArray(new Polygon[0]));
+		boolean[] inFilter = polygon.test(lat, lon);
+
+		statistics.stop(Stage.CONTAINMENT_TESTS, time);
+
+		return inFilter;
 	}
 
-	private boolean isRowInFilter(DataRow row, DataTableSpec spec, MultiPolygon polygon) {
-		DataCell latitudeCell = row.getCell(spec.findColumnIndex(latitudeColumm.getStringValue()));
-		DataCell longitudeCell = row.getCell(spec.findColumnIndex(longitudeColumm.getStringValue()));
+	@FunctionalInterface
+	private interface CoordinateFilter {
+
+		boolean[] test(double[] lat, double[] lon);
+	}
 
-		return latitudeCell instanceof DoubleValue && longitudeCell instanceof DoubleValue
-				&& polygon.contains(
-						EsriUtils.GEO_FACTORY.createPoint(new Coordinate(((DoubleValue) latitudeCell).getDoubleValue(),
-								((DoubleValue) longitudeCell).getDoubleValue())));
+	private static class RowBatch {
+
+		private final List<DataRow> rows;
+		private final boolean[] inFilter;
+
+		public RowBatch(List<DataRow> rows, boolean[] inFilter) {
+			this.rows = rows;
+			this.inFilter = inFilter;
+		}
 	}
 }
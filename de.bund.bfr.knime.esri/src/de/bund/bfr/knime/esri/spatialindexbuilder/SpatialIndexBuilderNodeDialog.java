@@ -0,0 +1,82 @@
+package de.bund.bfr.knime.esri.spatialindexbuilder;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.knime.core.data.DoubleValue;
+import org.knime.core.data.IntValue;
+import org.knime.core.data.collection.ListDataValue;
+import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
+import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
+import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+
+import de.bund.bfr.knime.esri.CoordinateReference;
+
+/**
+ * <code>NodeDialog</code> for the "SpatialIndexBuilder" Node.
+ * 
+ * 
+ * This node dialog derives from {@link DefaultNodeSettingsPane} which allows
+ * creation of a simple dialog with standard components. If you need a more
+ * complex dialog please derive directly from
+ * {@link org.knime.core.node.NodeDialogPane}.
+ * 
+ * @author Christian Thoens
+ */
+public class SpatialIndexBuilderNodeDialog extends DefaultNodeSettingsPane implements ChangeListener {
+
+	private SettingsModelString referenceModel;
+	private SettingsModelString polygonModel;
+	private SettingsModelString offsetModel;
+	private SettingsModelString countModel;
+
+	/**
+	 * New pane for configuring the SpatialIndexBuilder node.
+	 */
+	@SuppressWarnings("unchecked")
+	protected SpatialIndexBuilderNodeDialog() {
+		referenceModel = new SettingsModelString(SpatialIndexBuilderNodeModel.CFG_COORDINATE_REFERENCE,
+				SpatialIndexBuilderNodeModel.DEFAULT_COORDINATE_REFERENCE);
+		polygonModel = new SettingsModelString(SpatialIndexBuilderNodeModel.CFG_POLYGON_COLUMN, null);
+		offsetModel = new SettingsModelString(SpatialIndexBuilderNodeModel.CFG_OFFSET_COLUMN, null);
+		countModel = new SettingsModelString(SpatialIndexBuilderNodeModel.CFG_COUNT_COLUMN, null);
+		referenceModel.addChangeListener(this);
+
+		addDialogComponent(new DialogComponentStringSelection(referenceModel, "Coordinates Referenced by",
+				CoordinateReference.NAMES));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(polygonModel, "Polygon Column", 0, false, ListDataValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(offsetModel, "Offset Column", 0, false, IntValue.class));
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(countModel, "Count Column", 0, false, IntValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(SpatialIndexBuilderNodeModel.CFG_LATITUDE_COLUMN, null), "Latitude Column", 1,
+				DoubleValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(
+				new SettingsModelString(SpatialIndexBuilderNodeModel.CFG_LONGITUDE_COLUMN, null), "Longitude Column", 1,
+				DoubleValue.class));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(SpatialIndexBuilderNodeModel.CFG_REPAIR_POLYGONS,
+						SpatialIndexBuilderNodeModel.DEFAULT_REPAIR_POLYGONS),
+				"Repair Invalid Polygons"));
+		addDialogComponent(new DialogComponentBoolean(
+				new SettingsModelBoolean(SpatialIndexBuilderNodeModel.CFG_COLLECT_STATISTICS,
+						SpatialIndexBuilderNodeModel.DEFAULT_COLLECT_STATISTICS),
+				"Collect Performance Statistics"));
+		stateChanged(null);
+	}
+
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		boolean useRange = CoordinateReference
+				.fromName(referenceModel.getStringValue()) == CoordinateReference.COORDINATE_RANGE;
+
+		polygonModel.setEnabled(!useRange);
+		offsetModel.setEnabled(useRange);
+		countModel.setEnabled(useRange);
+	}
+}
@@ -0,0 +1,56 @@
+package de.bund.bfr.knime.esri.spatialindexbuilder;
+
+import org.knime.core.node.NodeDialogPane;
+import org.knime.core.node.NodeFactory;
+import org.knime.core.node.NodeView;
+
+/**
+ * <code>NodeFactory</code> for the "SpatialIndexBuilder" Node.
+ * 
+ * 
+ * @author Christian Thoens
+ */
+public class SpatialIndexBuilderNodeFactory extends NodeFactory<SpatialIndexBuilderNodeModel> {
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public SpatialIndexBuilderNodeModel createNodeModel() {
+		return new SpatialIndexBuilderNodeModel();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getNrNodeViews() {
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeView<SpatialIndexBuilderNodeModel> createNodeView(final int viewIndex,
+			final SpatialIndexBuilderNodeModel nodeModel) {
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean hasDialog() {
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeDialogPane createNodeDialogPane() {
+		return new SpatialIndexBuilderNodeDialog();
+	}
+
+}
@@ -0,0 +1,229 @@
+package de.bund.bfr.knime.esri.spatialindexbuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
+import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeLogger;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelString;
+import org.knime.core.node.port.PortObject;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.port.PortType;
+import org.locationtech.jts.geom.Polygon;
+
+import de.bund.bfr.knime.esri.CoordinateReference;
+import de.bund.bfr.knime.esri.EsriStatistics;
+import de.bund.bfr.knime.esri.EsriStatistics.Counter;
+import de.bund.bfr.knime.esri.EsriStatistics.Stage;
+import de.bund.bfr.knime.esri.EsriUtils;
+import de.bund.bfr.knime.esri.PolygonCoordinates;
+import de.bund.bfr.knime.esri.PolygonValidation;
+import de.bund.bfr.knime.esri.SpatialIndexPortObject;
+import de.bund.bfr.knime.esri.SpatialIndexPortObjectSpec;
+
+/**
+ * This is the model implementation of SpatialIndexBuilder.
+ *
+ *
+ * @author Christian Thoens
+ */
+public class SpatialIndexBuilderNodeModel extends NodeModel {
+
+	protected static final String CFG_COORDINATE_REFERENCE = "CoordinateReference";
+	protected static final String CFG_POLYGON_COLUMN = "PolygonColumn";
+	protected static final String CFG_OFFSET_COLUMN = "OffsetColumn";
+	protected static final String CFG_COUNT_COLUMN = "CountColumn";
+	protected static final String CFG_LATITUDE_COLUMN = "LatitudeColumn";
+	protected static final String CFG_LONGITUDE_COLUMN = "LongitudeColumn";
+	protected static final String CFG_REPAIR_POLYGONS = "RepairPolygons";
+	protected static final String CFG_COLLECT_STATISTICS = "CollectStatistics";
+
+	protected static final String DEFAULT_COORDINATE_REFERENCE = CoordinateReference.ROW_ID_LIST.toString();
+	protected static final boolean DEFAULT_REPAIR_POLYGONS = false;
+	protected static final boolean DEFAULT_COLLECT_STATISTICS = false;
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(SpatialIndexBuilderNodeModel.class);
+
+	private SettingsModelString coordinateReference;
+	private SettingsModelString polygonColumm;
+	private SettingsModelString offsetColumm;
+	private SettingsModelString countColumm;
+	private SettingsModelString latitudeColumm;
+	private SettingsModelString longitudeColumm;
+	private SettingsModelBoolean repairPolygons;
+	private SettingsModelBoolean collectStatistics;
+
+	/**
+	 * Constructor for the node model.
+	 */
+	protected SpatialIndexBuilderNodeModel() {
+		super(new PortType[] { BufferedDataTable.TYPE, BufferedDataTable.TYPE },
+				new PortType[] { SpatialIndexPortObject.TYPE });
+		coordinateReference = new SettingsModelString(CFG_COORDINATE_REFERENCE, DEFAULT_COORDINATE_REFERENCE);
+		polygonColumm = new SettingsModelString(CFG_POLYGON_COLUMN, null);
+		offsetColumm = new SettingsModelString(CFG_OFFSET_COLUMN, null);
+		countColumm = new SettingsModelString(CFG_COUNT_COLUMN, null);
+		latitudeColumm = new SettingsModelString(CFG_LATITUDE_COLUMN, null);
+		longitudeColumm = new SettingsModelString(CFG_LONGITUDE_COLUMN, null);
+		repairPolygons = new SettingsModelBoolean(CFG_REPAIR_POLYGONS, DEFAULT_REPAIR_POLYGONS);
+		collectStatistics = new SettingsModelBoolean(CFG_COLLECT_STATISTICS, DEFAULT_COLLECT_STATISTICS);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PortObject[] execute(final PortObject[] inObjects, final ExecutionContext exec) throws Exception {
+		EsriStatistics statistics = new EsriStatistics(collectStatistics.getBooleanValue());
+		SpatialIndexPortObject index = createIndex((BufferedDataTable) inObjects[0],
+				(BufferedDataTable) inObjects[1], statistics);
+
+		if (statistics.isEnabled()) {
+			statistics.getTimeVariables().forEach(this::pushFlowVariableDouble);
+			statistics.getCountVariables().forEach(this::pushFlowVariableInt);
+			LOGGER.info(statistics);
+		}
+
+		return new PortObject[] { index };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void reset() {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected PortObjectSpec[] configure(final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+		DataTableSpec polygonSpec = (DataTableSpec) inSpecs[0];
+		DataTableSpec coordinateSpec = (DataTableSpec) inSpecs[1];
+
+		if (getCoordinateReference() == CoordinateReference.ROW_ID_LIST) {
+			EsriUtils.checkColumn("Polygon", polygonColumm, polygonSpec);
+		} else {
+			EsriUtils.checkColumn("Offset", offsetColumm, polygonSpec);
+			EsriUtils.checkColumn("Count", countColumm, polygonSpec);
+		}
+
+		EsriUtils.checkColumn("Latitude", latitudeColumm, coordinateSpec);
+		EsriUtils.checkColumn("Longitude", longitudeColumm, coordinateSpec);
+
+		return new PortObjectSpec[] { new SpatialIndexPortObjectSpec() };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveSettingsTo(final NodeSettingsWO settings) {
+		coordinateReference.saveSettingsTo(settings);
+		polygonColumm.saveSettingsTo(settings);
+		offsetColumm.saveSettingsTo(settings);
+		countColumm.saveSettingsTo(settings);
+		latitudeColumm.saveSettingsTo(settings);
+		longitudeColumm.saveSettingsTo(settings);
+		repairPolygons.saveSettingsTo(settings);
+		collectStatistics.saveSettingsTo(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+		coordinateReference.loadSettingsFrom(settings);
+		polygonColumm.loadSettingsFrom(settings);
+		offsetColumm.loadSettingsFrom(settings);
+		countColumm.loadSettingsFrom(settings);
+		latitudeColumm.loadSettingsFrom(settings);
+		longitudeColumm.loadSettingsFrom(settings);
+		repairPolygons.loadSettingsFrom(settings);
+		collectStatistics.loadSettingsFrom(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+		coordinateReference.validateSettings(settings);
+		polygonColumm.validateSettings(settings);
+		offsetColumm.validateSettings(settings);
+		countColumm.validateSettings(settings);
+		latitudeColumm.validateSettings(settings);
+		longitudeColumm.validateSettings(settings);
+		repairPolygons.validateSettings(settings);
+		collectStatistics.validateSettings(settings);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void loadInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void saveInternals(final File internDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+	}
+
+	/**
+	 * Same polygon construction as in the Coordinate Row Filter. Rows with
+	 * invalid polygons are left out of the index, repaired polygons are added
+	 * once per resulting polygon with the key of their row.
+	 */
+	private SpatialIndexPortObject createIndex(BufferedDataTable polygonTable,
+			BufferedDataTable polygonCoordinateTable, EsriStatistics statistics)
+			throws InterruptedException, ExecutionException {
+		long time = statistics.start();
+		PolygonValidation validation = new PolygonValidation(repairPolygons.getBooleanValue(), statistics);
+		List<String> keys = new ArrayList<>();
+		List<Polygon> polygons = new ArrayList<>();
+
+		PolygonCoordinates.readPolygons(polygonTable, polygonCoordinateTable, polygonColumm.getStringValue(),
+				offsetColumm.getStringValue(), countColumm.getStringValue(), latitudeColumm.getStringValue(),
+				longitudeColumm.getStringValue(), getCoordinateReference(), EsriUtils.GEO_FACTORY, validation,
+				statistics, (row, polygon) -> {
+					keys.add(row.getKey().getString());
+					polygons.add(polygon);
+				});
+
+		validation.repair(keys, polygons);
+
+		validation.checkDetailLevels(polygonTable);
+
+		if (validation.getWarning() != null) {
+			setWarningMessage(validation.getWarning());
+		}
+
+		statistics.count(Counter.FEATURES, polygons.size());
+		statistics.stop(Stage.POLYGON_CONSTRUCTION, time);
+
+		return new SpatialIndexPortObject(keys, polygons);
+	}
+
+	private CoordinateReference getCoordinateReference() {
+		return CoordinateReference.fromName(coordinateReference.getStringValue());
+	}
+}